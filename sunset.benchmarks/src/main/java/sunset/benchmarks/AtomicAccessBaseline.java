@@ -0,0 +1,149 @@
+package sunset.benchmarks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+import sunset.common.sun.SunsetSunUtil;
+
+/**
+ * The operations in {@link AtomicAccessBenchmark}, made directly on {@link Unsafe} and on constant
+ * {@link VarHandle}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AtomicAccessBaseline {
+
+  private static final Unsafe unsafe = SunsetSunUtil.getTheUnsafe();
+  private static final long INT_FIELD_OFFSET;
+  private static final long LONG_FIELD_OFFSET;
+  private static final long OBJECT_FIELD_OFFSET;
+  private static final VarHandle INT_FIELD;
+  private static final VarHandle LONG_FIELD;
+  private static final VarHandle OBJECT_FIELD;
+
+  static {
+    try {
+      INT_FIELD_OFFSET = unsafe.objectFieldOffset(Holder.class.getDeclaredField("anInt"));
+      LONG_FIELD_OFFSET = unsafe.objectFieldOffset(Holder.class.getDeclaredField("aLong"));
+      OBJECT_FIELD_OFFSET = unsafe.objectFieldOffset(Holder.class.getDeclaredField("anObject"));
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      INT_FIELD = lookup.findVarHandle(Holder.class, "anInt", int.class);
+      LONG_FIELD = lookup.findVarHandle(Holder.class, "aLong", long.class);
+      OBJECT_FIELD = lookup.findVarHandle(Holder.class, "anObject", Object.class);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private final Holder holder = new Holder();
+  private final Object first = new Object();
+  private final Object second = new Object();
+
+  @Setup
+  public void setUp() {
+    holder.anObject = first;
+  }
+
+  @Benchmark
+  public boolean compareAndSwapIntUnsafe() {
+    int expected = unsafe.getIntVolatile(holder, INT_FIELD_OFFSET);
+    return unsafe.compareAndSwapInt(holder, INT_FIELD_OFFSET, expected, expected + 1);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapIntVarHandle() {
+    int expected = (int) INT_FIELD.getVolatile(holder);
+    return INT_FIELD.compareAndSet(holder, expected, expected + 1);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapLongUnsafe() {
+    long expected = unsafe.getLongVolatile(holder, LONG_FIELD_OFFSET);
+    return unsafe.compareAndSwapLong(holder, LONG_FIELD_OFFSET, expected, expected + 1);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapLongVarHandle() {
+    long expected = (long) LONG_FIELD.getVolatile(holder);
+    return LONG_FIELD.compareAndSet(holder, expected, expected + 1);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapObjectUnsafe() {
+    Object expected = unsafe.getObjectVolatile(holder, OBJECT_FIELD_OFFSET);
+    return unsafe.compareAndSwapObject(holder, OBJECT_FIELD_OFFSET, expected,
+        expected == first ? second : first);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapObjectVarHandle() {
+    Object expected = OBJECT_FIELD.getVolatile(holder);
+    return OBJECT_FIELD.compareAndSet(holder, expected, expected == first ? second : first);
+  }
+
+  @Benchmark
+  public int getAndAddIntUnsafe() {
+    return unsafe.getAndAddInt(holder, INT_FIELD_OFFSET, 1);
+  }
+
+  @Benchmark
+  public int getAndAddIntVarHandle() {
+    return (int) INT_FIELD.getAndAdd(holder, 1);
+  }
+
+  @Benchmark
+  public long getAndAddLongUnsafe() {
+    return unsafe.getAndAddLong(holder, LONG_FIELD_OFFSET, 1);
+  }
+
+  @Benchmark
+  public long getAndAddLongVarHandle() {
+    return (long) LONG_FIELD.getAndAdd(holder, 1L);
+  }
+
+  @Benchmark
+  public int getAndSetIntUnsafe() {
+    return unsafe.getAndSetInt(holder, INT_FIELD_OFFSET, 1);
+  }
+
+  @Benchmark
+  public int getAndSetIntVarHandle() {
+    return (int) INT_FIELD.getAndSet(holder, 1);
+  }
+
+  @Benchmark
+  public long getAndSetLongUnsafe() {
+    return unsafe.getAndSetLong(holder, LONG_FIELD_OFFSET, 1);
+  }
+
+  @Benchmark
+  public long getAndSetLongVarHandle() {
+    return (long) LONG_FIELD.getAndSet(holder, 1L);
+  }
+
+  @Benchmark
+  public Object getAndSetObjectUnsafe() {
+    return unsafe.getAndSetObject(holder, OBJECT_FIELD_OFFSET, second);
+  }
+
+  @Benchmark
+  public Object getAndSetObjectVarHandle() {
+    return OBJECT_FIELD.getAndSet(holder, second);
+  }
+
+}
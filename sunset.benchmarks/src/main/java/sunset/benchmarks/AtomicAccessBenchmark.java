@@ -0,0 +1,106 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * Compare-and-swap and get-and-update operations on fields through each
+ * {@link LowLevelMemoryAccessor} backend. The fields are shared by all benchmark threads, so run
+ * with {@code -t} to measure them under contention.
+ *
+ * @see AtomicAccessBaseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AtomicAccessBenchmark {
+
+  @Param({Backends.SUN, Backends.VARHANDLE})
+  public String accessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private final Holder holder = new Holder();
+  private final Object first = new Object();
+  private final Object second = new Object();
+  private long intFieldOffset;
+  private long longFieldOffset;
+  private long floatFieldOffset;
+  private long objectFieldOffset;
+
+  @Setup
+  public void setUp() throws NoSuchFieldException {
+    accessor = Backends.create(accessorClass);
+    intFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("anInt"));
+    longFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("aLong"));
+    floatFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("aFloat"));
+    objectFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("anObject"));
+    holder.anObject = first;
+  }
+
+  @Benchmark
+  public boolean compareAndSwapInt() {
+    int expected = accessor.getIntVolatile(holder, intFieldOffset);
+    return accessor.compareAndSwapInt(holder, intFieldOffset, expected, expected + 1);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapLong() {
+    long expected = accessor.getLongVolatile(holder, longFieldOffset);
+    return accessor.compareAndSwapLong(holder, longFieldOffset, expected, expected + 1);
+  }
+
+  /** As {@code FloatFieldAccessor.compareAndSet} does it, on the field's raw bits. */
+  @Benchmark
+  public boolean compareAndSwapFloatBits() {
+    int expected = accessor.getIntVolatile(holder, floatFieldOffset);
+    return accessor.compareAndSwapInt(holder, floatFieldOffset, expected,
+        Float.floatToRawIntBits(Float.intBitsToFloat(expected) + 1));
+  }
+
+  @Benchmark
+  public boolean compareAndSwapObject() {
+    Object expected = accessor.getObjectVolatile(holder, objectFieldOffset);
+    return accessor.compareAndSwapObject(holder, objectFieldOffset, expected,
+        expected == first ? second : first);
+  }
+
+  @Benchmark
+  public int getAndAddInt() {
+    return accessor.getAndAddInt(holder, intFieldOffset, 1);
+  }
+
+  @Benchmark
+  public long getAndAddLong() {
+    return accessor.getAndAddLong(holder, longFieldOffset, 1);
+  }
+
+  @Benchmark
+  public int getAndSetInt() {
+    return accessor.getAndSetInt(holder, intFieldOffset, 1);
+  }
+
+  @Benchmark
+  public long getAndSetLong() {
+    return accessor.getAndSetLong(holder, longFieldOffset, 1);
+  }
+
+  @Benchmark
+  public Object getAndSetObject() {
+    return accessor.getAndSetObject(holder, objectFieldOffset, second);
+  }
+
+}
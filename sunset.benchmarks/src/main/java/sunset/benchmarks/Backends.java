@@ -0,0 +1,63 @@
+package sunset.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/** Finds and instantiates the {@link LowLevelMemoryAccessor} implementations to benchmark. */
+final class Backends {
+
+  static final String SUN = "sunset.memory.sun.SunLowLevelMemoryAccessor";
+  static final String VARHANDLE = "sunset.memory.varhandle.VarHandleLowLevelMemoryAccessor";
+
+  private Backends() {}
+
+  static LowLevelMemoryAccessor create(String className) {
+    try {
+      return (LowLevelMemoryAccessor) Class.forName(className).getDeclaredConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the class names of all {@link LowLevelMemoryAccessor} implementations registered on the
+   * classpath. Implementations that can't be loaded in this JVM (for example, ones that need
+   * {@code --enable-preview}) are skipped.
+   */
+  static List<String> accessorClassNames() {
+    List<String> names = new ArrayList<>();
+    Iterator<LowLevelMemoryAccessor> accessors =
+        ServiceLoader.load(LowLevelMemoryAccessor.class).iterator();
+    while (true) {
+      try {
+        if (!accessors.hasNext()) {
+          return names;
+        }
+        names.add(accessors.next().getClass().getName());
+      } catch (ServiceConfigurationError | LinkageError e) {
+        System.err.println("Skipping LowLevelMemoryAccessor: " + e);
+      }
+    }
+  }
+
+  /** Returns the subset of {@link #accessorClassNames()} that supports native memory. */
+  static List<String> nativeAccessorClassNames() {
+    List<String> names = new ArrayList<>();
+    for (String name : accessorClassNames()) {
+      LowLevelMemoryAccessor accessor = create(name);
+      try {
+        accessor.freeMemory(accessor.allocateMemory(8));
+        names.add(name);
+      } catch (UnsupportedOperationException e) {
+        // Heap-only backend.
+      }
+    }
+    return names;
+  }
+}
@@ -0,0 +1,60 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+import sunset.common.sun.SunsetSunUtil;
+
+/** The operations in {@link BulkMemoryBenchmark}, made directly on {@link Unsafe}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkMemoryBaseline {
+
+  private static final Unsafe unsafe = SunsetSunUtil.getTheUnsafe();
+
+  @Param({"8", "64", "512", "4096", "65536", "1048576", "67108864"})
+  public long size;
+
+  private long src;
+  private long dest;
+
+  @Setup
+  public void setUp() {
+    src = unsafe.allocateMemory(size);
+    dest = unsafe.allocateMemory(size);
+    unsafe.setMemory(src, size, (byte) 1);
+    unsafe.setMemory(dest, size, (byte) 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    unsafe.freeMemory(src);
+    unsafe.freeMemory(dest);
+  }
+
+  @Benchmark
+  public void copyMemoryUnsafe() {
+    unsafe.copyMemory(src, dest, size);
+  }
+
+  @Benchmark
+  public void setMemoryUnsafe() {
+    unsafe.setMemory(dest, size, (byte) 0);
+  }
+
+}
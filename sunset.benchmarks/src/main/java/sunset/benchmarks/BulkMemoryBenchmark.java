@@ -0,0 +1,81 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.ParallelMemory;
+
+/**
+ * {@link LowLevelMemoryAccessor#copyMemory} and {@link LowLevelMemoryAccessor#setMemory} on native
+ * memory, from 8 bytes to 64 MiB, through each backend that supports it, and through
+ * {@link ParallelMemory} with a threshold of 1 MiB.
+ *
+ * @see BulkMemoryBaseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkMemoryBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param({"8", "64", "512", "4096", "65536", "1048576", "67108864"})
+  public long size;
+
+  private LowLevelMemoryAccessor accessor;
+  private ParallelMemory parallel;
+  private long src;
+  private long dest;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    parallel = new ParallelMemory(accessor, null, 1 << 20);
+    src = accessor.allocateMemory(size);
+    dest = accessor.allocateMemory(size);
+    accessor.setMemory(src, size, (byte) 1);
+    accessor.setMemory(dest, size, (byte) 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    accessor.freeMemory(src);
+    accessor.freeMemory(dest);
+  }
+
+  @Benchmark
+  public void copyMemory() {
+    accessor.copyMemory(src, dest, size);
+  }
+
+  @Benchmark
+  public void setMemory() {
+    accessor.setMemory(dest, size, (byte) 0);
+  }
+
+  @Benchmark
+  public void parallelCopyMemory() {
+    parallel.copyMemory(src, dest, size);
+  }
+
+  @Benchmark
+  public void parallelSetMemory() {
+    parallel.setMemory(dest, size, (byte) 0);
+  }
+
+}
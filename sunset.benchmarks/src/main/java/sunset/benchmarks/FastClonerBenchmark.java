@@ -0,0 +1,134 @@
+package sunset.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.field.FastCloner;
+import sunset.serial.ctor.ConstructorMunger;
+
+/**
+ * Shallow copies of a DTO with 20 fields by {@link FastCloner}, compared with a copy constructor,
+ * {@link Object#clone}, and a generic copy through reflection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastClonerBenchmark {
+
+  public static final class Dto implements Cloneable {
+    long id;
+    long timestamp;
+    long sequence;
+    double price;
+    double quantity;
+    int venue;
+    int flags;
+    int side;
+    float weight;
+    short type;
+    char currency;
+    byte priority;
+    boolean active;
+    String symbol;
+    String account;
+    String trader;
+    Object tag;
+    Object source;
+    Object parent;
+    Object extra;
+
+    Dto() {
+    }
+
+    Dto(Dto other) {
+      id = other.id;
+      timestamp = other.timestamp;
+      sequence = other.sequence;
+      price = other.price;
+      quantity = other.quantity;
+      venue = other.venue;
+      flags = other.flags;
+      side = other.side;
+      weight = other.weight;
+      type = other.type;
+      currency = other.currency;
+      priority = other.priority;
+      active = other.active;
+      symbol = other.symbol;
+      account = other.account;
+      trader = other.trader;
+      tag = other.tag;
+      source = other.source;
+      parent = other.parent;
+      extra = other.extra;
+    }
+
+    @Override
+    public Dto clone() {
+      try {
+        return (Dto) super.clone();
+      } catch (CloneNotSupportedException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private FastCloner<Dto> cloner;
+  private Field[] fields;
+  private Dto dto;
+
+  @Setup
+  public void setUp() {
+    LowLevelMemoryAccessor accessor = Backends.create(nativeAccessorClass);
+    cloner = new FastCloner<>(accessor, ConstructorMunger.getInstance(), Dto.class);
+    fields = Dto.class.getDeclaredFields();
+    dto = new Dto();
+    dto.id = 1;
+    dto.price = 2.5;
+    dto.venue = 3;
+    dto.symbol = "SYM";
+    dto.tag = dto;
+  }
+
+  @Benchmark
+  public Dto fastCloner() {
+    return cloner.copy(dto);
+  }
+
+  @Benchmark
+  public Dto copyConstructor() {
+    return new Dto(dto);
+  }
+
+  @Benchmark
+  public Dto objectClone() {
+    return dto.clone();
+  }
+
+  @Benchmark
+  public Dto reflection() throws IllegalAccessException {
+    Dto copy = new Dto();
+    for (Field field : fields) {
+      field.set(copy, field.get(dto));
+    }
+    return copy;
+  }
+
+}
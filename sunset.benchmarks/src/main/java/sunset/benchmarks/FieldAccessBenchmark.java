@@ -0,0 +1,70 @@
+package sunset.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.field.LongFieldAccessor;
+
+/**
+ * Reads and increments of a {@code long} field through a {@link LongFieldAccessor}, compared with
+ * reflection and {@link AtomicLongFieldUpdater}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldAccessBenchmark {
+
+  private static final LongFieldAccessor<FieldAccessBenchmark> ACCESSOR =
+      LongFieldAccessor.of(FieldAccessBenchmark.class, "value");
+  private static final AtomicLongFieldUpdater<FieldAccessBenchmark> UPDATER =
+      AtomicLongFieldUpdater.newUpdater(FieldAccessBenchmark.class, "value");
+  private static final Field FIELD;
+
+  static {
+    try {
+      FIELD = FieldAccessBenchmark.class.getDeclaredField("value");
+    } catch (NoSuchFieldException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private volatile long value;
+
+  @Benchmark
+  public long reflectionGet() throws IllegalAccessException {
+    return FIELD.getLong(this);
+  }
+
+  @Benchmark
+  public long accessorGet() {
+    return ACCESSOR.getVolatile(this);
+  }
+
+  @Benchmark
+  public long updaterGet() {
+    return UPDATER.get(this);
+  }
+
+  @Benchmark
+  public long accessorGetAndAdd() {
+    return ACCESSOR.getAndAdd(this, 1);
+  }
+
+  @Benchmark
+  public long updaterGetAndAdd() {
+    return UPDATER.getAndAdd(this, 1);
+  }
+
+}
@@ -0,0 +1,9 @@
+package sunset.benchmarks;
+
+/** Fields for the on-heap benchmarks to read and write. */
+final class Holder {
+  int anInt;
+  long aLong;
+  float aFloat;
+  Object anObject;
+}
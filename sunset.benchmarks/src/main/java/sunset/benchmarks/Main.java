@@ -0,0 +1,41 @@
+package sunset.benchmarks;
+
+import java.util.List;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks against every {@link sunset.memory.LowLevelMemoryAccessor} registered on the
+ * classpath, unless {@code -p accessorClass=...} or {@code -p nativeAccessorClass=...} is given.
+ * All other arguments are passed through to JMH, so for example
+ * <pre>
+ * java -jar target/benchmarks.jar BulkMemory -p size=4096
+ * </pre>
+ * runs only the bulk-memory benchmarks at one size. The forked JVMs inherit this JVM's options, so
+ * to include {@code sunset.memory.foreign} on JDK 21, start it with
+ * {@code --enable-preview --enable-native-access=ALL-UNNAMED}.
+ * <p>
+ * The {@code *Baseline} benchmarks make the same calls directly on {@link sun.misc.Unsafe} and
+ * {@link java.lang.invoke.VarHandle}, so the difference from a backend's score is the cost of
+ * going through the interface.
+ */
+public class Main {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    if (!commandLine.getParameter("accessorClass").hasValue()) {
+      options.param("accessorClass", toArray(Backends.accessorClassNames()));
+    }
+    if (!commandLine.getParameter("nativeAccessorClass").hasValue()) {
+      options.param("nativeAccessorClass", toArray(Backends.nativeAccessorClassNames()));
+    }
+    new Runner(options.build()).run();
+  }
+
+  private static String[] toArray(List<String> names) {
+    return names.toArray(new String[0]);
+  }
+}
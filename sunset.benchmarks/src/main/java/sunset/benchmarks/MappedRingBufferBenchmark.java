@@ -0,0 +1,99 @@
+package sunset.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.MemoryMapper;
+import sunset.memory.ring.MappedRingBuffer;
+import sunset.memory.ring.MessageHandler;
+
+/**
+ * The cost of one {@value #MESSAGE_LENGTH}-byte message hop through a {@link MappedRingBuffer},
+ * compared with a loopback TCP connection, sending and receiving on one thread to isolate the
+ * per-message overhead from cross-core and cross-process latency. Needs a {@link MemoryMapper}, so
+ * on JDK 21 run with {@code --enable-preview --enable-native-access=ALL-UNNAMED}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MappedRingBufferBenchmark {
+
+  static final int MESSAGE_LENGTH = 32;
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private Path file;
+  private MappedRingBuffer ring;
+  private final byte[] message = new byte[MESSAGE_LENGTH];
+  private MessageHandler handler;
+  private SocketChannel client;
+  private SocketChannel server;
+  private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MESSAGE_LENGTH);
+  private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MESSAGE_LENGTH);
+
+  @Setup
+  public void setUp(Blackhole blackhole) throws IOException {
+    LowLevelMemoryAccessor accessor = Backends.create(nativeAccessorClass);
+    file = Files.createTempFile("sunset", ".ring");
+    ring = MappedRingBuffer.open(accessor, MemoryMapper.getInstance(), file, 1024, 64,
+        MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS);
+    handler = (address, length) -> blackhole.consume(accessor.getLong(null, address));
+
+    try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+      listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      client = SocketChannel.open(listener.getLocalAddress());
+      server = listener.accept();
+    }
+    client.socket().setTcpNoDelay(true);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ring.close();
+    Files.delete(file);
+    client.close();
+    server.close();
+  }
+
+  @Benchmark
+  public int mappedRingBuffer() {
+    ring.offer(message, 0, MESSAGE_LENGTH);
+    return ring.read(handler, 1);
+  }
+
+  @Benchmark
+  public long loopbackTcp() throws IOException {
+    sendBuffer.clear();
+    client.write(sendBuffer);
+    receiveBuffer.clear();
+    while (receiveBuffer.hasRemaining()) {
+      server.read(receiveBuffer);
+    }
+    return receiveBuffer.getLong(0);
+  }
+
+}
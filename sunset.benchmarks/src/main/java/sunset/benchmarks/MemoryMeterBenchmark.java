@@ -0,0 +1,58 @@
+package sunset.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.field.MemoryMeter;
+
+/**
+ * Deep sizes of a map of strings, measured by {@link MemoryMeter} sequentially and in parallel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryMeterBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param({"1000", "100000"})
+  public int entries;
+
+  private MemoryMeter meter;
+  private Map<Integer, String> map;
+
+  @Setup
+  public void setUp() {
+    meter = new MemoryMeter(Backends.create(nativeAccessorClass));
+    map = new HashMap<>();
+    for (int i = 0; i < entries; i++) {
+      map.put(i, "value " + i);
+    }
+  }
+
+  @Benchmark
+  public long measureDeep() {
+    return meter.measureDeep(map);
+  }
+
+  @Benchmark
+  public long measureDeepParallel() {
+    return meter.measureDeepParallel(map);
+  }
+
+}
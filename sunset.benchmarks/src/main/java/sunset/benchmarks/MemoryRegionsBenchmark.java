@@ -0,0 +1,92 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.MemoryRegions;
+
+/**
+ * Comparing and hashing equal keys in native memory with {@link MemoryRegions}, compared with
+ * loops that read them a byte at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryRegionsBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param({"16", "64", "256"})
+  public int length;
+
+  private LowLevelMemoryAccessor accessor;
+  private MemoryRegions regions;
+  private long first;
+  private long second;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    regions = new MemoryRegions(accessor);
+    first = accessor.allocateMemory(length);
+    second = accessor.allocateMemory(length);
+    for (int i = 0; i < length; i++) {
+      accessor.putByte(null, first + i, (byte) i);
+      accessor.putByte(null, second + i, (byte) i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    accessor.freeMemory(first);
+    accessor.freeMemory(second);
+  }
+
+  @Benchmark
+  public int compare() {
+    return regions.compare(null, first, length, null, second, length);
+  }
+
+  @Benchmark
+  public int compareBytes() {
+    for (int i = 0; i < length; i++) {
+      int diff = Byte.toUnsignedInt(accessor.getByte(null, first + i))
+          - Byte.toUnsignedInt(accessor.getByte(null, second + i));
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return 0;
+  }
+
+  @Benchmark
+  public long hash() {
+    return regions.hash(null, first, length);
+  }
+
+  /** FNV-1a, a typical byte-at-a-time hash. */
+  @Benchmark
+  public long hashBytes() {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ accessor.getByte(null, first + i)) * 0x100000001B3L;
+    }
+    return hash;
+  }
+
+}
@@ -0,0 +1,105 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+import sunset.common.sun.SunsetSunUtil;
+
+/** The accesses in {@link NativeAccessBenchmark}, made directly on {@link Unsafe}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NativeAccessBaseline {
+
+  private static final Unsafe unsafe = SunsetSunUtil.getTheUnsafe();
+
+  private long address;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    address = unsafe.allocateMemory(NativeAccessBenchmark.LENGTH * 8L);
+    unsafe.setMemory(address, NativeAccessBenchmark.LENGTH * 8L, (byte) 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    unsafe.freeMemory(address);
+  }
+
+  private long nextAddress() {
+    index = (index + 1) & (NativeAccessBenchmark.LENGTH - 1);
+    return address + index * 8L;
+  }
+
+  @Benchmark
+  public long getLongUnsafe() {
+    return unsafe.getLong(nextAddress());
+  }
+
+  @Benchmark
+  public void putLongUnsafe() {
+    unsafe.putLong(nextAddress(), index);
+  }
+
+  @Benchmark
+  public int getIntUnsafe() {
+    return unsafe.getInt(nextAddress());
+  }
+
+  @Benchmark
+  public void putIntUnsafe() {
+    unsafe.putInt(nextAddress(), index);
+  }
+
+  @Benchmark
+  public byte getByteUnsafe() {
+    return unsafe.getByte(nextAddress());
+  }
+
+  @Benchmark
+  public void putByteUnsafe() {
+    unsafe.putByte(nextAddress(), (byte) index);
+  }
+
+  @Benchmark
+  public long getLongVolatileUnsafe() {
+    return unsafe.getLongVolatile(null, nextAddress());
+  }
+
+  @Benchmark
+  public void putLongVolatileUnsafe() {
+    unsafe.putLongVolatile(null, nextAddress(), index);
+  }
+
+  @Benchmark
+  public void putOrderedLongUnsafe() {
+    unsafe.putOrderedLong(null, nextAddress(), index);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapLongUnsafe() {
+    long slot = nextAddress();
+    long expected = unsafe.getLong(slot);
+    return unsafe.compareAndSwapLong(null, slot, expected, expected + 1);
+  }
+
+  @Benchmark
+  public long getAndAddLongUnsafe() {
+    return unsafe.getAndAddLong(null, nextAddress(), 1);
+  }
+
+}
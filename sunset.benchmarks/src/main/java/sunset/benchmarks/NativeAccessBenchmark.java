@@ -0,0 +1,134 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.OffHeapBuffer;
+
+/**
+ * Plain, volatile, ordered and atomic accesses to native memory through each
+ * {@link LowLevelMemoryAccessor} backend that supports it, and bounds-checked accesses through an
+ * {@link OffHeapBuffer}.
+ *
+ * @see NativeAccessBaseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NativeAccessBenchmark {
+
+  /** Number of longs in the block, kept small enough to stay in L1. */
+  static final int LENGTH = 1024;
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private long address;
+  private OffHeapBuffer buffer;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    address = accessor.allocateMemory(LENGTH * 8L);
+    accessor.setMemory(address, LENGTH * 8L, (byte) 0);
+    buffer = new OffHeapBuffer(accessor, LENGTH * 8L);
+    buffer.fill(0, LENGTH * 8L, (byte) 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    accessor.freeMemory(address);
+    buffer.close();
+  }
+
+  private long nextAddress() {
+    index = (index + 1) & (LENGTH - 1);
+    return address + index * 8L;
+  }
+
+  @Benchmark
+  public long getLong() {
+    return accessor.getLong(null, nextAddress());
+  }
+
+  @Benchmark
+  public void putLong() {
+    accessor.putLong(null, nextAddress(), index);
+  }
+
+  @Benchmark
+  public long bufferGetLong() {
+    index = (index + 1) & (LENGTH - 1);
+    return buffer.getLong(index * 8L);
+  }
+
+  @Benchmark
+  public void bufferPutLong() {
+    index = (index + 1) & (LENGTH - 1);
+    buffer.putLong(index * 8L, index);
+  }
+
+  @Benchmark
+  public int getInt() {
+    return accessor.getInt(null, nextAddress());
+  }
+
+  @Benchmark
+  public void putInt() {
+    accessor.putInt(null, nextAddress(), index);
+  }
+
+  @Benchmark
+  public byte getByte() {
+    return accessor.getByte(null, nextAddress());
+  }
+
+  @Benchmark
+  public void putByte() {
+    accessor.putByte(null, nextAddress(), (byte) index);
+  }
+
+  @Benchmark
+  public long getLongVolatile() {
+    return accessor.getLongVolatile(null, nextAddress());
+  }
+
+  @Benchmark
+  public void putLongVolatile() {
+    accessor.putLongVolatile(null, nextAddress(), index);
+  }
+
+  @Benchmark
+  public void putOrderedLong() {
+    accessor.putOrderedLong(null, nextAddress(), index);
+  }
+
+  @Benchmark
+  public boolean compareAndSwapLong() {
+    long slot = nextAddress();
+    long expected = accessor.getLong(null, slot);
+    return accessor.compareAndSwapLong(null, slot, expected, expected + 1);
+  }
+
+  @Benchmark
+  public long getAndAddLong() {
+    return accessor.getAndAddLong(null, nextAddress(), 1);
+  }
+
+}
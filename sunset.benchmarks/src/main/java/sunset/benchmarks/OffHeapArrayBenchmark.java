@@ -0,0 +1,81 @@
+package sunset.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.array.OffHeapLongArray;
+
+/**
+ * Parallel bulk operations on an {@link OffHeapLongArray}, compared with the same operations on a
+ * {@code long[]} through {@link Arrays} and parallel streams.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OffHeapArrayBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param("4194304")
+  public int length;
+
+  private OffHeapLongArray array;
+  private long[] heap;
+
+  @Setup
+  public void setUp() {
+    array = new OffHeapLongArray(Backends.create(nativeAccessorClass), length);
+    heap = new long[length];
+  }
+
+  @TearDown
+  public void tearDown() {
+    array.close();
+  }
+
+  @Benchmark
+  public void offHeapSetAll() {
+    array.setAll(i -> i);
+  }
+
+  @Benchmark
+  public void heapSetAll() {
+    Arrays.parallelSetAll(heap, i -> i);
+  }
+
+  @Benchmark
+  public long offHeapSum() {
+    return array.parallelStream().sum();
+  }
+
+  @Benchmark
+  public long heapSum() {
+    return Arrays.stream(heap).parallel().sum();
+  }
+
+  @Benchmark
+  public void offHeapPrefix() {
+    array.parallelPrefix(Long::sum);
+  }
+
+  @Benchmark
+  public void heapPrefix() {
+    Arrays.parallelPrefix(heap, Long::sum);
+  }
+
+}
@@ -0,0 +1,69 @@
+package sunset.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.OffHeapLongLongMap;
+
+/** Random lookups in an {@link OffHeapLongLongMap}, compared with a {@link HashMap}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OffHeapMapBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param({"1000", "1000000"})
+  public int size;
+
+  private OffHeapLongLongMap offHeap;
+  private Map<Long, Long> onHeap;
+  private long key;
+
+  @Setup
+  public void setUp() {
+    offHeap = new OffHeapLongLongMap(Backends.create(nativeAccessorClass), size);
+    onHeap = new HashMap<>();
+    for (long i = 0; i < size; i++) {
+      offHeap.put(i, i);
+      onHeap.put(i, i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    offHeap.close();
+  }
+
+  private long nextKey() {
+    key = (key + 0x9E3779B97F4A7C15L) & Long.MAX_VALUE;
+    return key % size;
+  }
+
+  @Benchmark
+  public long offHeapGet() {
+    return offHeap.get(nextKey(), -1);
+  }
+
+  @Benchmark
+  public Long hashMapGet() {
+    return onHeap.get(nextKey());
+  }
+
+}
@@ -0,0 +1,105 @@
+package sunset.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.field.OffHeapSerializer;
+import sunset.serial.ctor.ConstructorMunger;
+
+/**
+ * Round trips of a flat value object through native memory with an {@link OffHeapSerializer},
+ * compared with Java serialization to and from a {@code byte[]}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OffHeapSerializerBenchmark {
+
+  private static final int CAPACITY = 4096;
+
+  public static final class Quote implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    long id;
+    long timestamp;
+    double bid;
+    double ask;
+    int bidSize;
+    int askSize;
+    short venue;
+    boolean firm;
+    String symbol;
+    double[] depth;
+  }
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private OffHeapSerializer serializer;
+  private long address;
+  private Quote quote;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    serializer = new OffHeapSerializer(accessor, ConstructorMunger.getInstance(),
+        getClass().getClassLoader());
+    address = accessor.allocateMemory(CAPACITY);
+    quote = new Quote();
+    quote.id = 1;
+    quote.timestamp = System.nanoTime();
+    quote.bid = 99.5;
+    quote.ask = 100.25;
+    quote.bidSize = 300;
+    quote.askSize = 200;
+    quote.venue = 7;
+    quote.firm = true;
+    quote.symbol = "SUNW";
+    quote.depth = new double[16];
+  }
+
+  @TearDown
+  public void tearDown() {
+    accessor.freeMemory(address);
+  }
+
+  @Benchmark
+  public Object offHeapSerializer() {
+    long length = serializer.serialize(quote, address, CAPACITY);
+    return serializer.deserialize(address, length);
+  }
+
+  @Benchmark
+  public Object javaSerialization() throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(quote);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+}
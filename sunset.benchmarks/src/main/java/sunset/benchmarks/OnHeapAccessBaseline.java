@@ -0,0 +1,155 @@
+package sunset.benchmarks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+import sunset.common.sun.SunsetSunUtil;
+
+/**
+ * The accesses in {@link OnHeapAccessBenchmark}, made directly on {@link Unsafe} and on constant
+ * {@link VarHandle}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OnHeapAccessBaseline {
+
+  private static final Unsafe unsafe = SunsetSunUtil.getTheUnsafe();
+  private static final long INT_FIELD_OFFSET;
+  private static final VarHandle INT_FIELD;
+  private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final long LONG_ARRAY_BASE = unsafe.arrayBaseOffset(long[].class);
+  private static final long LONG_ARRAY_SCALE = unsafe.arrayIndexScale(long[].class);
+
+  static {
+    try {
+      INT_FIELD_OFFSET = unsafe.objectFieldOffset(Holder.class.getDeclaredField("anInt"));
+      INT_FIELD = MethodHandles.lookup().findVarHandle(Holder.class, "anInt", int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private final Holder holder = new Holder();
+  private final long[] longs = new long[OnHeapAccessBenchmark.ARRAY_LENGTH];
+  private int index;
+
+  private int nextIndex() {
+    index = (index + 1) & (OnHeapAccessBenchmark.ARRAY_LENGTH - 1);
+    return index;
+  }
+
+  @Benchmark
+  public int getIntFieldUnsafe() {
+    return unsafe.getInt(holder, INT_FIELD_OFFSET);
+  }
+
+  @Benchmark
+  public int getIntFieldVarHandle() {
+    return (int) INT_FIELD.get(holder);
+  }
+
+  @Benchmark
+  public void putIntFieldUnsafe() {
+    unsafe.putInt(holder, INT_FIELD_OFFSET, index++);
+  }
+
+  @Benchmark
+  public void putIntFieldVarHandle() {
+    INT_FIELD.set(holder, index++);
+  }
+
+  @Benchmark
+  public int getIntVolatileFieldUnsafe() {
+    return unsafe.getIntVolatile(holder, INT_FIELD_OFFSET);
+  }
+
+  @Benchmark
+  public int getIntVolatileFieldVarHandle() {
+    return (int) INT_FIELD.getVolatile(holder);
+  }
+
+  @Benchmark
+  public void putIntVolatileFieldUnsafe() {
+    unsafe.putIntVolatile(holder, INT_FIELD_OFFSET, index++);
+  }
+
+  @Benchmark
+  public void putIntVolatileFieldVarHandle() {
+    INT_FIELD.setVolatile(holder, index++);
+  }
+
+  @Benchmark
+  public void putOrderedIntFieldUnsafe() {
+    unsafe.putOrderedInt(holder, INT_FIELD_OFFSET, index++);
+  }
+
+  @Benchmark
+  public void putOrderedIntFieldVarHandle() {
+    INT_FIELD.setRelease(holder, index++);
+  }
+
+  @Benchmark
+  public long getLongArrayUnsafe() {
+    return unsafe.getLong(longs, LONG_ARRAY_BASE + nextIndex() * LONG_ARRAY_SCALE);
+  }
+
+  @Benchmark
+  public long getLongArrayVarHandle() {
+    return (long) LONG_ARRAY.get(longs, nextIndex());
+  }
+
+  @Benchmark
+  public void putLongArrayUnsafe() {
+    unsafe.putLong(longs, LONG_ARRAY_BASE + nextIndex() * LONG_ARRAY_SCALE, index);
+  }
+
+  @Benchmark
+  public void putLongArrayVarHandle() {
+    LONG_ARRAY.set(longs, nextIndex(), (long) index);
+  }
+
+  @Benchmark
+  public long getLongVolatileArrayUnsafe() {
+    return unsafe.getLongVolatile(longs, LONG_ARRAY_BASE + nextIndex() * LONG_ARRAY_SCALE);
+  }
+
+  @Benchmark
+  public long getLongVolatileArrayVarHandle() {
+    return (long) LONG_ARRAY.getVolatile(longs, nextIndex());
+  }
+
+  @Benchmark
+  public void putLongVolatileArrayUnsafe() {
+    unsafe.putLongVolatile(longs, LONG_ARRAY_BASE + nextIndex() * LONG_ARRAY_SCALE, index);
+  }
+
+  @Benchmark
+  public void putLongVolatileArrayVarHandle() {
+    LONG_ARRAY.setVolatile(longs, nextIndex(), (long) index);
+  }
+
+  @Benchmark
+  public void putOrderedLongArrayUnsafe() {
+    unsafe.putOrderedLong(longs, LONG_ARRAY_BASE + nextIndex() * LONG_ARRAY_SCALE, index);
+  }
+
+  @Benchmark
+  public void putOrderedLongArrayVarHandle() {
+    LONG_ARRAY.setRelease(longs, nextIndex(), (long) index);
+  }
+
+}
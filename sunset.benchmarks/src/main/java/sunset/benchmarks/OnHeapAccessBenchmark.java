@@ -0,0 +1,156 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * Plain, volatile and ordered accesses to fields and array elements through each
+ * {@link LowLevelMemoryAccessor} backend.
+ *
+ * @see OnHeapAccessBaseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OnHeapAccessBenchmark {
+
+  static final int ARRAY_LENGTH = 1024;
+
+  @Param({Backends.SUN, Backends.VARHANDLE})
+  public String accessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private final Holder holder = new Holder();
+  private final Object object = new Object();
+  private final long[] longs = new long[ARRAY_LENGTH];
+  private final byte[] bytes = new byte[ARRAY_LENGTH * 8];
+  private long intFieldOffset;
+  private long longFieldOffset;
+  private long objectFieldOffset;
+  private long longArrayBase;
+  private long longArrayScale;
+  private long byteArrayBase;
+  private int index;
+
+  @Setup
+  public void setUp() throws NoSuchFieldException {
+    accessor = Backends.create(accessorClass);
+    intFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("anInt"));
+    longFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("aLong"));
+    objectFieldOffset = accessor.objectFieldOffset(Holder.class.getDeclaredField("anObject"));
+    longArrayBase = accessor.arrayBaseOffset(long[].class);
+    longArrayScale = accessor.arrayIndexScale(long[].class);
+    byteArrayBase = accessor.arrayBaseOffset(byte[].class);
+  }
+
+  private long nextLongOffset() {
+    index = (index + 1) & (ARRAY_LENGTH - 1);
+    return longArrayBase + index * longArrayScale;
+  }
+
+  @Benchmark
+  public int getIntField() {
+    return accessor.getInt(holder, intFieldOffset);
+  }
+
+  @Benchmark
+  public void putIntField() {
+    accessor.putInt(holder, intFieldOffset, index++);
+  }
+
+  @Benchmark
+  public int getIntVolatileField() {
+    return accessor.getIntVolatile(holder, intFieldOffset);
+  }
+
+  @Benchmark
+  public void putIntVolatileField() {
+    accessor.putIntVolatile(holder, intFieldOffset, index++);
+  }
+
+  @Benchmark
+  public void putOrderedIntField() {
+    accessor.putOrderedInt(holder, intFieldOffset, index++);
+  }
+
+  @Benchmark
+  public long getLongVolatileField() {
+    return accessor.getLongVolatile(holder, longFieldOffset);
+  }
+
+  @Benchmark
+  public void putLongVolatileField() {
+    accessor.putLongVolatile(holder, longFieldOffset, index++);
+  }
+
+  @Benchmark
+  public void putOrderedLongField() {
+    accessor.putOrderedLong(holder, longFieldOffset, index++);
+  }
+
+  @Benchmark
+  public Object getObjectField() {
+    return accessor.getObject(holder, objectFieldOffset);
+  }
+
+  @Benchmark
+  public void putObjectField() {
+    accessor.putObject(holder, objectFieldOffset, object);
+  }
+
+  @Benchmark
+  public Object getObjectVolatileField() {
+    return accessor.getObjectVolatile(holder, objectFieldOffset);
+  }
+
+  @Benchmark
+  public void putOrderedObjectField() {
+    accessor.putOrderedObject(holder, objectFieldOffset, object);
+  }
+
+  @Benchmark
+  public long getLongArray() {
+    return accessor.getLong(longs, nextLongOffset());
+  }
+
+  @Benchmark
+  public void putLongArray() {
+    accessor.putLong(longs, nextLongOffset(), index);
+  }
+
+  @Benchmark
+  public long getLongVolatileArray() {
+    return accessor.getLongVolatile(longs, nextLongOffset());
+  }
+
+  @Benchmark
+  public void putLongVolatileArray() {
+    accessor.putLongVolatile(longs, nextLongOffset(), index);
+  }
+
+  @Benchmark
+  public void putOrderedLongArray() {
+    accessor.putOrderedLong(longs, nextLongOffset(), index);
+  }
+
+  @Benchmark
+  public long getLongFromByteArray() {
+    index = (index + 1) & (ARRAY_LENGTH - 1);
+    return accessor.getLong(bytes, byteArrayBase + index * 8L);
+  }
+
+}
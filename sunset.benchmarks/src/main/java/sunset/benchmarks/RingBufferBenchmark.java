@@ -0,0 +1,104 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.ring.MessageHandler;
+import sunset.memory.ring.MpscRingBuffer;
+import sunset.memory.ring.RingBuffer;
+import sunset.memory.ring.SpscRingBuffer;
+
+/**
+ * The cost of passing a batch of {@value #BATCH} small messages through each {@link RingBuffer},
+ * compared with an {@link ArrayBlockingQueue} of byte arrays. Producing and consuming on one
+ * thread isolates the per-message overhead from cross-core latency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RingBufferBenchmark {
+
+  static final int BATCH = 64;
+  static final int MESSAGE_LENGTH = 32;
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private RingBuffer spsc;
+  private RingBuffer mpsc;
+  private ArrayBlockingQueue<byte[]> queue;
+  private final byte[] message = new byte[MESSAGE_LENGTH];
+  private MessageHandler handler;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    accessor = Backends.create(nativeAccessorClass);
+    spsc = new SpscRingBuffer(accessor, 1024, 64);
+    mpsc = new MpscRingBuffer(accessor, 1024, 64);
+    queue = new ArrayBlockingQueue<>(1024);
+    handler = (address, length) -> blackhole.consume(accessor.getLong(null, address));
+  }
+
+  @TearDown
+  public void tearDown() {
+    spsc.close();
+    mpsc.close();
+  }
+
+  private int offerAndRead(RingBuffer ring) {
+    for (int i = 0; i < BATCH; i++) {
+      ring.offer(message, 0, MESSAGE_LENGTH);
+    }
+    return ring.read(handler, BATCH);
+  }
+
+  @Benchmark
+  public int spsc() {
+    return offerAndRead(spsc);
+  }
+
+  @Benchmark
+  public int mpsc() {
+    return offerAndRead(mpsc);
+  }
+
+  @Benchmark
+  public int spscBatchClaim() {
+    long sequence = spsc.tryClaim(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      accessor.putLong(null, spsc.address(sequence + i), i);
+      spsc.setLength(sequence + i, 8);
+    }
+    spsc.commit(sequence, BATCH);
+    return spsc.read(handler, BATCH);
+  }
+
+  @Benchmark
+  public void arrayBlockingQueue(Blackhole blackhole) {
+    for (int i = 0; i < BATCH; i++) {
+      queue.offer(message.clone());
+    }
+    byte[] polled;
+    while ((polled = queue.poll()) != null) {
+      blackhole.consume(polled[0]);
+    }
+  }
+
+}
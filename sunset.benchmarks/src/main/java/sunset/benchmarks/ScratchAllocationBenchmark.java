@@ -0,0 +1,118 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.accounting.AccountingLowLevelMemoryAccessor;
+import sunset.memory.arena.Arena;
+import sunset.memory.pool.PooledLowLevelMemoryAccessor;
+
+/**
+ * Short-lived scratch buffers from {@link LowLevelMemoryAccessor#allocateMemory} and
+ * {@link LowLevelMemoryAccessor#freeMemory}, compared with a {@link PooledLowLevelMemoryAccessor},
+ * with an {@link Arena} that is reset once per {@value #BATCH} buffers, and with the overhead of an
+ * {@link AccountingLowLevelMemoryAccessor} at its default sample interval, both sampling and
+ * {@link AccountingLowLevelMemoryAccessor#exact exact}. Runs on several threads, since contention
+ * is what makes the C allocator slow.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class ScratchAllocationBenchmark {
+
+  static final int BATCH = 1024;
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param({"64", "1024"})
+  public int size;
+
+  private LowLevelMemoryAccessor accessor;
+  private PooledLowLevelMemoryAccessor pool;
+  private AccountingLowLevelMemoryAccessor accounting;
+  private AccountingLowLevelMemoryAccessor exactAccounting;
+  private Arena arena;
+  private int count;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    pool = new PooledLowLevelMemoryAccessor(accessor);
+    accounting = new AccountingLowLevelMemoryAccessor(accessor);
+    exactAccounting = AccountingLowLevelMemoryAccessor.exact(accessor,
+        AccountingLowLevelMemoryAccessor.DEFAULT_SAMPLE_INTERVAL);
+    arena = new Arena(accessor, (long) BATCH * (size + Arena.DEFAULT_ALIGNMENT) * 2,
+        Arena.DEFAULT_CHUNK_SIZE);
+  }
+
+  @TearDown
+  public void tearDown() {
+    arena.close();
+    pool.close();
+  }
+
+  @Benchmark
+  public long allocateAndFree() {
+    long address = accessor.allocateMemory(size);
+    accessor.putLong(null, address, address);
+    long result = accessor.getLong(null, address);
+    accessor.freeMemory(address);
+    return result;
+  }
+
+  @Benchmark
+  public long pooledAllocateAndFree() {
+    long address = pool.allocateMemory(size);
+    accessor.putLong(null, address, address);
+    long result = accessor.getLong(null, address);
+    pool.freeMemory(address);
+    return result;
+  }
+
+  @Benchmark
+  public long accountedAllocateAndFree() {
+    long address = accounting.allocateMemory(size);
+    accessor.putLong(null, address, address);
+    long result = accessor.getLong(null, address);
+    accounting.freeMemory(address);
+    return result;
+  }
+
+  @Benchmark
+  public long exactAccountedAllocateAndFree() {
+    long address = exactAccounting.allocateMemory(size);
+    accessor.putLong(null, address, address);
+    long result = accessor.getLong(null, address);
+    exactAccounting.freeMemory(address);
+    return result;
+  }
+
+  @Benchmark
+  public long arena() {
+    if (++count == BATCH) {
+      count = 0;
+      arena.reset();
+    }
+    long address = arena.allocate(size);
+    accessor.putLong(null, address, address);
+    return accessor.getLong(null, address);
+  }
+
+}
@@ -0,0 +1,122 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.seqlock.SeqLockRecordStore;
+
+/**
+ * One writer updating a record of {@value #LONGS} longs while {@value #READERS} readers take
+ * snapshots of it, through a {@link SeqLockRecordStore} compared with a {@code long[]} guarded by
+ * a {@link ReentrantReadWriteLock}. Reader scaling only shows with a core per thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SeqLockBenchmark {
+
+  static final int LONGS = 8;
+  static final int READERS = 3;
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private SeqLockRecordStore store;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final long[] record = new long[LONGS];
+  private long value;
+
+  /** Each reader's snapshot buffer. */
+  @State(Scope.Thread)
+  public static class Snapshot {
+    final long[] longs = new long[LONGS];
+    long address;
+
+    @Setup
+    public void setUp(SeqLockBenchmark benchmark) {
+      address = benchmark.accessor.allocateMemory(LONGS * 8);
+    }
+
+    @TearDown
+    public void tearDown(SeqLockBenchmark benchmark) {
+      benchmark.accessor.freeMemory(address);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    store = new SeqLockRecordStore(accessor, 1, LONGS * 8);
+  }
+
+  @TearDown
+  public void tearDown() {
+    store.close();
+  }
+
+  @Benchmark
+  @Group("seqLock")
+  @GroupThreads(1)
+  public void seqLockWrite() {
+    long address = store.beginWrite(0);
+    long v = ++value;
+    for (int i = 0; i < LONGS; i++) {
+      accessor.putLong(null, address + i * 8, v);
+    }
+    store.endWrite(0);
+  }
+
+  @Benchmark
+  @Group("seqLock")
+  @GroupThreads(READERS)
+  public long seqLockRead(Snapshot snapshot) {
+    return store.read(0, snapshot.address);
+  }
+
+  @Benchmark
+  @Group("readWriteLock")
+  @GroupThreads(1)
+  public void readWriteLockWrite() {
+    lock.writeLock().lock();
+    try {
+      long v = ++value;
+      for (int i = 0; i < LONGS; i++) {
+        record[i] = v;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Benchmark
+  @Group("readWriteLock")
+  @GroupThreads(READERS)
+  public long readWriteLockRead(Snapshot snapshot) {
+    lock.readLock().lock();
+    try {
+      System.arraycopy(record, 0, snapshot.longs, 0, LONGS);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return snapshot.longs[0];
+  }
+
+}
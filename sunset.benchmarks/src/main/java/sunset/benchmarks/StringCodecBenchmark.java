@@ -0,0 +1,77 @@
+package sunset.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.StringCodec;
+
+/**
+ * Round trips of an ASCII key through native memory with a {@link StringCodec}, compared with
+ * {@link String#getBytes} and {@code new String(byte[])} around a copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringCodecBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  @Param({"16", "128"})
+  public int length;
+
+  private LowLevelMemoryAccessor accessor;
+  private StringCodec codec;
+  private long address;
+  private String key;
+  private long byteBase;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    codec = new StringCodec(accessor);
+    byteBase = accessor.arrayBaseOffset(byte[].class);
+    address = accessor.allocateMemory(3L * length);
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+    key = builder.toString();
+  }
+
+  @TearDown
+  public void tearDown() {
+    accessor.freeMemory(address);
+  }
+
+  @Benchmark
+  public String codecRoundTrip() {
+    int bytes = codec.encodeUtf8(key, address);
+    return codec.decodeUtf8(address, bytes);
+  }
+
+  @Benchmark
+  public String getBytesRoundTrip() {
+    byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+    accessor.copyMemory(encoded, byteBase, null, address, encoded.length);
+    byte[] decoded = new byte[encoded.length];
+    accessor.copyMemory(null, address, decoded, byteBase, decoded.length);
+    return new String(decoded, StandardCharsets.UTF_8);
+  }
+
+}
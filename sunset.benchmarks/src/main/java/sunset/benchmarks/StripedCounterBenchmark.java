@@ -0,0 +1,67 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.counter.StripedLongCounter;
+
+/**
+ * Increments of a {@link StripedLongCounter}, compared with a {@link LongAdder}. The counters are
+ * shared by all benchmark threads, so run with {@code -t} to measure them under contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedCounterBenchmark {
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private StripedLongCounter counter;
+  private final LongAdder adder = new LongAdder();
+
+  @Setup
+  public void setUp() {
+    counter = new StripedLongCounter(Backends.create(nativeAccessorClass));
+  }
+
+  @TearDown
+  public void tearDown() {
+    counter.close();
+  }
+
+  @Benchmark
+  public void stripedIncrement() {
+    counter.increment();
+  }
+
+  @Benchmark
+  public void adderIncrement() {
+    adder.increment();
+  }
+
+  @Benchmark
+  public long stripedSum() {
+    return counter.sum();
+  }
+
+  @Benchmark
+  public long adderSum() {
+    return adder.sum();
+  }
+
+}
@@ -0,0 +1,99 @@
+package sunset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.struct.Flyweight;
+import sunset.memory.struct.Struct;
+
+/**
+ * Summing a field of an array of structs in native memory, through a generated {@link Struct}
+ * flyweight and through hand-written offset arithmetic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StructAccessBenchmark {
+
+  /** Number of structs, kept small enough to stay in L1. */
+  static final int LENGTH = 1024;
+
+  public interface Order extends Flyweight {
+    long id();
+
+    void id(long id);
+
+    int quantity();
+
+    void quantity(int quantity);
+
+    int price();
+
+    void price(int price);
+  }
+
+  @Param(Backends.SUN)
+  public String nativeAccessorClass;
+
+  private LowLevelMemoryAccessor accessor;
+  private Struct<Order> struct;
+  private Order order;
+  private long address;
+  private long priceOffset;
+
+  @Setup
+  public void setUp() {
+    accessor = Backends.create(nativeAccessorClass);
+    struct = Struct.of(Order.class, accessor);
+    order = struct.flyweight();
+    address = accessor.allocateMemory(LENGTH * struct.size());
+    priceOffset = struct.offset("price");
+    for (int i = 0; i < LENGTH; i++) {
+      order.wrap(address + i * struct.size());
+      order.id(i);
+      order.quantity(1);
+      order.price(i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    accessor.freeMemory(address);
+  }
+
+  @Benchmark
+  public long flyweight() {
+    long sum = 0;
+    long size = struct.size();
+    for (int i = 0; i < LENGTH; i++) {
+      order.wrap(address + i * size);
+      sum += order.price();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long offsets() {
+    long sum = 0;
+    long size = struct.size();
+    for (int i = 0; i < LENGTH; i++) {
+      sum += accessor.getInt(null, address + i * size + priceOffset);
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,671 @@
+package sunset.memory.foreign;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_CHAR_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT_UNALIGNED;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.varhandle.VarHandleLowLevelMemoryAccessor;
+
+/**
+ * An implementation of {@link LowLevelMemoryAccessor} using the {@code java.lang.foreign} API, for
+ * JDKs on which the native-memory methods of {@link sun.misc.Unsafe} are restricted or gone.
+ * <p>
+ * Native memory is accessed through a {@link MemorySegment} that spans the whole address space, so
+ * the single-register addressing mode works as it does with {@link sun.misc.Unsafe}, and plain
+ * accesses compile to a single load or store. Blocks from {@link #allocateMemory} come from the C
+ * library's {@code malloc} through a downcall handle. (Allocating each block in its own shared
+ * {@link Arena} would make every {@link #freeMemory} a VM-wide handshake.) Code that wants bounds-
+ * and lifetime-checked access should use {@link #allocateSegment} or {@link #asSegment} instead.
+ * <p>
+ * Java heap variables are delegated to {@link VarHandleLowLevelMemoryAccessor}, so array and field
+ * offsets follow its conventions.
+ * <p>
+ * Since this class calls restricted methods, the JVM should be started with
+ * {@code --enable-native-access=ALL-UNNAMED} to avoid a warning.
+ */
+public class ForeignLowLevelMemoryAccessor implements LowLevelMemoryAccessor {
+
+  /** Alignment of {@code malloc}, which is enough for all value types. */
+  private static final long MAX_ALIGNMENT = 16;
+
+  /** Every native address, so that a single-register address can be used as an offset. */
+  private static final MemorySegment EVERYTHING = MemorySegment.NULL.reinterpret(Long.MAX_VALUE);
+
+  private static final VarHandle BOOLEAN =
+      MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_BOOLEAN);
+  private static final VarHandle BYTE =
+      MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_BYTE);
+  private static final VarHandle SHORT =
+      MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_SHORT);
+  private static final VarHandle CHAR =
+      MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_CHAR);
+  private static final VarHandle INT = MethodHandles.memorySegmentViewVarHandle(JAVA_INT);
+  private static final VarHandle LONG = MethodHandles.memorySegmentViewVarHandle(JAVA_LONG);
+  private static final VarHandle FLOAT =
+      MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_FLOAT);
+  private static final VarHandle DOUBLE =
+      MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_DOUBLE);
+
+  private static final Linker LINKER = Linker.nativeLinker();
+  private static final MethodHandle MALLOC =
+      downcall("malloc", FunctionDescriptor.of(ADDRESS, JAVA_LONG));
+  private static final MethodHandle REALLOC =
+      downcall("realloc", FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_LONG));
+  private static final MethodHandle FREE = downcall("free", FunctionDescriptor.ofVoid(ADDRESS));
+
+  /** Looked up on first use, since not every C library has {@code getpagesize}. */
+  static final class PageSize {
+    static final int VALUE;
+
+    static {
+      try {
+        VALUE = (int) downcall("getpagesize", FunctionDescriptor.of(JAVA_INT)).invokeExact();
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static final VarHandleLowLevelMemoryAccessor onHeap =
+      new VarHandleLowLevelMemoryAccessor();
+
+  static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+    return LINKER.defaultLookup().find(name)
+        .map(symbol -> LINKER.downcallHandle(symbol, descriptor))
+        .orElseThrow(() -> new UnsupportedOperationException(name + " is not available"));
+  }
+
+  static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new RuntimeException(t);
+  }
+
+  private static void checkSize(long bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    }
+  }
+
+  /**
+   * Returns a segment whose offsets match this accessor's offsets into the given base, or null if
+   * the base can't be viewed as a segment.
+   */
+  private static MemorySegment segment(Object base) {
+    if (base == null) {
+      return EVERYTHING;
+    } else if (base instanceof byte[]) {
+      return MemorySegment.ofArray((byte[]) base);
+    } else if (base instanceof long[]) {
+      return MemorySegment.ofArray((long[]) base);
+    } else if (base instanceof int[]) {
+      return MemorySegment.ofArray((int[]) base);
+    } else if (base instanceof short[]) {
+      return MemorySegment.ofArray((short[]) base);
+    } else if (base instanceof char[]) {
+      return MemorySegment.ofArray((char[]) base);
+    } else if (base instanceof double[]) {
+      return MemorySegment.ofArray((double[]) base);
+    } else if (base instanceof float[]) {
+      return MemorySegment.ofArray((float[]) base);
+    }
+    return null;
+  }
+
+  /**
+   * Allocates a new block of native memory, of the given size in bytes, that is owned by the given
+   * arena and freed when it is closed. The block is aligned for all value types, and its contents
+   * are zeroed. Accesses through the returned segment are bounds- and lifetime-checked, and in
+   * loops the JIT hoists those checks out.
+   */
+  public MemorySegment allocateSegment(Arena arena, long bytes) {
+    return arena.allocate(bytes, MAX_ALIGNMENT);
+  }
+
+  /**
+   * Returns a bounds-checked segment over a block of the given size at the given native address,
+   * such as one from {@link #allocateMemory}. The segment doesn't own the block: it must still be
+   * freed with {@link #freeMemory}, and the segment must not be used afterwards.
+   */
+  public MemorySegment asSegment(long address, long bytes) {
+    return MemorySegment.ofAddress(address).reinterpret(bytes);
+  }
+
+  @Override
+  public int getInt(Object o, long offset) {
+    return o == null ? EVERYTHING.get(JAVA_INT_UNALIGNED, offset) : onHeap.getInt(o, offset);
+  }
+
+  @Override
+  public void putInt(Object o, long offset, int x) {
+    if (o == null) {
+      EVERYTHING.set(JAVA_INT_UNALIGNED, offset, x);
+    } else {
+      onHeap.putInt(o, offset, x);
+    }
+  }
+
+  @Override
+  public Object getObject(Object o, long offset) {
+    return onHeap.getObject(o, offset);
+  }
+
+  @Override
+  public void putObject(Object o, long offset, Object x) {
+    onHeap.putObject(o, offset, x);
+  }
+
+  @Override
+  public boolean getBoolean(Object o, long offset) {
+    return o == null ? EVERYTHING.get(ValueLayout.JAVA_BOOLEAN, offset)
+        : onHeap.getBoolean(o, offset);
+  }
+
+  @Override
+  public void putBoolean(Object o, long offset, boolean x) {
+    if (o == null) {
+      EVERYTHING.set(ValueLayout.JAVA_BOOLEAN, offset, x);
+    } else {
+      onHeap.putBoolean(o, offset, x);
+    }
+  }
+
+  @Override
+  public byte getByte(Object o, long offset) {
+    return o == null ? EVERYTHING.get(ValueLayout.JAVA_BYTE, offset) : onHeap.getByte(o, offset);
+  }
+
+  @Override
+  public void putByte(Object o, long offset, byte x) {
+    if (o == null) {
+      EVERYTHING.set(ValueLayout.JAVA_BYTE, offset, x);
+    } else {
+      onHeap.putByte(o, offset, x);
+    }
+  }
+
+  @Override
+  public short getShort(Object o, long offset) {
+    return o == null ? EVERYTHING.get(JAVA_SHORT_UNALIGNED, offset) : onHeap.getShort(o, offset);
+  }
+
+  @Override
+  public void putShort(Object o, long offset, short x) {
+    if (o == null) {
+      EVERYTHING.set(JAVA_SHORT_UNALIGNED, offset, x);
+    } else {
+      onHeap.putShort(o, offset, x);
+    }
+  }
+
+  @Override
+  public char getChar(Object o, long offset) {
+    return o == null ? EVERYTHING.get(JAVA_CHAR_UNALIGNED, offset) : onHeap.getChar(o, offset);
+  }
+
+  @Override
+  public void putChar(Object o, long offset, char x) {
+    if (o == null) {
+      EVERYTHING.set(JAVA_CHAR_UNALIGNED, offset, x);
+    } else {
+      onHeap.putChar(o, offset, x);
+    }
+  }
+
+  @Override
+  public long getLong(Object o, long offset) {
+    return o == null ? EVERYTHING.get(JAVA_LONG_UNALIGNED, offset) : onHeap.getLong(o, offset);
+  }
+
+  @Override
+  public void putLong(Object o, long offset, long x) {
+    if (o == null) {
+      EVERYTHING.set(JAVA_LONG_UNALIGNED, offset, x);
+    } else {
+      onHeap.putLong(o, offset, x);
+    }
+  }
+
+  @Override
+  public float getFloat(Object o, long offset) {
+    return o == null ? EVERYTHING.get(JAVA_FLOAT_UNALIGNED, offset) : onHeap.getFloat(o, offset);
+  }
+
+  @Override
+  public void putFloat(Object o, long offset, float x) {
+    if (o == null) {
+      EVERYTHING.set(JAVA_FLOAT_UNALIGNED, offset, x);
+    } else {
+      onHeap.putFloat(o, offset, x);
+    }
+  }
+
+  @Override
+  public double getDouble(Object o, long offset) {
+    return o == null ? EVERYTHING.get(JAVA_DOUBLE_UNALIGNED, offset)
+        : onHeap.getDouble(o, offset);
+  }
+
+  @Override
+  public void putDouble(Object o, long offset, double x) {
+    if (o == null) {
+      EVERYTHING.set(JAVA_DOUBLE_UNALIGNED, offset, x);
+    } else {
+      onHeap.putDouble(o, offset, x);
+    }
+  }
+
+  @Override
+  public long allocateMemory(long bytes) {
+    checkSize(bytes);
+    if (bytes == 0) {
+      return 0;
+    }
+    MemorySegment block;
+    try {
+      block = (MemorySegment) MALLOC.invokeExact(bytes);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    if (block.address() == 0) {
+      throw new OutOfMemoryError("Unable to allocate " + bytes + " bytes");
+    }
+    return block.address();
+  }
+
+  @Override
+  public long reallocateMemory(long address, long bytes) {
+    checkSize(bytes);
+    if (bytes == 0) {
+      freeMemory(address);
+      return 0;
+    }
+    MemorySegment block;
+    try {
+      block = (MemorySegment) REALLOC.invokeExact(MemorySegment.ofAddress(address), bytes);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    if (block.address() == 0) {
+      throw new OutOfMemoryError("Unable to allocate " + bytes + " bytes");
+    }
+    return block.address();
+  }
+
+  @Override
+  public void setMemory(Object o, long offset, long bytes, byte value) {
+    MemorySegment segment = segment(o);
+    if (segment == null) {
+      onHeap.setMemory(o, offset, bytes, value);
+    } else {
+      segment.asSlice(offset, bytes).fill(value);
+    }
+  }
+
+  @Override
+  public void copyMemory(Object srcBase, long srcOffset, Object destBase, long destOffset,
+      long bytes) {
+    MemorySegment src = segment(srcBase);
+    MemorySegment dest = segment(destBase);
+    if (src == null || dest == null) {
+      onHeap.copyMemory(srcBase, srcOffset, destBase, destOffset, bytes);
+    } else {
+      MemorySegment.copy(src, srcOffset, dest, destOffset, bytes);
+    }
+  }
+
+  @Override
+  public void freeMemory(long address) {
+    if (address == 0) {
+      return;
+    }
+    try {
+      FREE.invokeExact(MemorySegment.ofAddress(address));
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public long staticFieldOffset(Field f) {
+    return onHeap.staticFieldOffset(f);
+  }
+
+  @Override
+  public long objectFieldOffset(Field f) {
+    return onHeap.objectFieldOffset(f);
+  }
+
+  @Override
+  public Object staticFieldBase(Field f) {
+    return onHeap.staticFieldBase(f);
+  }
+
+  @Override
+  public int arrayBaseOffset(Class<?> arrayClass) {
+    return onHeap.arrayBaseOffset(arrayClass);
+  }
+
+  @Override
+  public int arrayIndexScale(Class<?> arrayClass) {
+    return onHeap.arrayIndexScale(arrayClass);
+  }
+
+  @Override
+  public int addressSize() {
+    return (int) ADDRESS.byteSize();
+  }
+
+  @Override
+  public int pageSize() {
+    return PageSize.VALUE;
+  }
+
+  /** Always false, since heap offsets follow {@link VarHandleLowLevelMemoryAccessor}. */
+  @Override
+  public boolean exposesObjectLayout() {
+    return false;
+  }
+
+  @Override
+  public boolean compareAndSwapObject(Object o, long offset, Object expected, Object x) {
+    return onHeap.compareAndSwapObject(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapInt(Object o, long offset, int expected, int x) {
+    return o == null ? INT.compareAndSet(EVERYTHING, offset, expected, x)
+        : onHeap.compareAndSwapInt(o, offset, expected, x);
+  }
+
+  /** Native memory is updated through the aligned {@code int} that holds the byte. */
+  @Override
+  public boolean compareAndSwapByte(Object o, long offset, byte expected, byte x) {
+    return o == null ? LowLevelMemoryAccessor.super.compareAndSwapByte(null, offset, expected, x)
+        : onHeap.compareAndSwapByte(o, offset, expected, x);
+  }
+
+  /** Native memory is updated through the aligned {@code int} that holds the short. */
+  @Override
+  public boolean compareAndSwapShort(Object o, long offset, short expected, short x) {
+    return o == null ? LowLevelMemoryAccessor.super.compareAndSwapShort(null, offset, expected, x)
+        : onHeap.compareAndSwapShort(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapLong(Object o, long offset, long expected, long x) {
+    return o == null ? LONG.compareAndSet(EVERYTHING, offset, expected, x)
+        : onHeap.compareAndSwapLong(o, offset, expected, x);
+  }
+
+  @Override
+  public Object getObjectVolatile(Object o, long offset) {
+    return onHeap.getObjectVolatile(o, offset);
+  }
+
+  @Override
+  public void putObjectVolatile(Object o, long offset, Object x) {
+    onHeap.putObjectVolatile(o, offset, x);
+  }
+
+  @Override
+  public int getIntVolatile(Object o, long offset) {
+    return o == null ? (int) INT.getVolatile(EVERYTHING, offset)
+        : onHeap.getIntVolatile(o, offset);
+  }
+
+  @Override
+  public void putIntVolatile(Object o, long offset, int x) {
+    if (o == null) {
+      INT.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putIntVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public boolean getBooleanVolatile(Object o, long offset) {
+    return o == null ? (boolean) BOOLEAN.getVolatile(EVERYTHING, offset)
+        : onHeap.getBooleanVolatile(o, offset);
+  }
+
+  @Override
+  public void putBooleanVolatile(Object o, long offset, boolean x) {
+    if (o == null) {
+      BOOLEAN.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putBooleanVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public byte getByteVolatile(Object o, long offset) {
+    return o == null ? (byte) BYTE.getVolatile(EVERYTHING, offset)
+        : onHeap.getByteVolatile(o, offset);
+  }
+
+  @Override
+  public void putByteVolatile(Object o, long offset, byte x) {
+    if (o == null) {
+      BYTE.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putByteVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public short getShortVolatile(Object o, long offset) {
+    return o == null ? (short) SHORT.getVolatile(EVERYTHING, offset)
+        : onHeap.getShortVolatile(o, offset);
+  }
+
+  @Override
+  public void putShortVolatile(Object o, long offset, short x) {
+    if (o == null) {
+      SHORT.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putShortVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public char getCharVolatile(Object o, long offset) {
+    return o == null ? (char) CHAR.getVolatile(EVERYTHING, offset)
+        : onHeap.getCharVolatile(o, offset);
+  }
+
+  @Override
+  public void putCharVolatile(Object o, long offset, char x) {
+    if (o == null) {
+      CHAR.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putCharVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public long getLongVolatile(Object o, long offset) {
+    return o == null ? (long) LONG.getVolatile(EVERYTHING, offset)
+        : onHeap.getLongVolatile(o, offset);
+  }
+
+  @Override
+  public void putLongVolatile(Object o, long offset, long x) {
+    if (o == null) {
+      LONG.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putLongVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public float getFloatVolatile(Object o, long offset) {
+    return o == null ? (float) FLOAT.getVolatile(EVERYTHING, offset)
+        : onHeap.getFloatVolatile(o, offset);
+  }
+
+  @Override
+  public void putFloatVolatile(Object o, long offset, float x) {
+    if (o == null) {
+      FLOAT.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putFloatVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public double getDoubleVolatile(Object o, long offset) {
+    return o == null ? (double) DOUBLE.getVolatile(EVERYTHING, offset)
+        : onHeap.getDoubleVolatile(o, offset);
+  }
+
+  @Override
+  public void putDoubleVolatile(Object o, long offset, double x) {
+    if (o == null) {
+      DOUBLE.setVolatile(EVERYTHING, offset, x);
+    } else {
+      onHeap.putDoubleVolatile(o, offset, x);
+    }
+  }
+
+  @Override
+  public void putOrderedObject(Object o, long offset, Object x) {
+    onHeap.putOrderedObject(o, offset, x);
+  }
+
+  @Override
+  public void putOrderedInt(Object o, long offset, int x) {
+    if (o == null) {
+      INT.setRelease(EVERYTHING, offset, x);
+    } else {
+      onHeap.putOrderedInt(o, offset, x);
+    }
+  }
+
+  @Override
+  public void putOrderedLong(Object o, long offset, long x) {
+    if (o == null) {
+      LONG.setRelease(EVERYTHING, offset, x);
+    } else {
+      onHeap.putOrderedLong(o, offset, x);
+    }
+  }
+
+  @Override
+  public int getAndAddInt(Object o, long offset, int delta) {
+    return o == null ? (int) INT.getAndAdd(EVERYTHING, offset, delta)
+        : onHeap.getAndAddInt(o, offset, delta);
+  }
+
+  @Override
+  public long getAndAddLong(Object o, long offset, long delta) {
+    return o == null ? (long) LONG.getAndAdd(EVERYTHING, offset, delta)
+        : onHeap.getAndAddLong(o, offset, delta);
+  }
+
+  @Override
+  public int getAndSetInt(Object o, long offset, int newValue) {
+    return o == null ? (int) INT.getAndSet(EVERYTHING, offset, newValue)
+        : onHeap.getAndSetInt(o, offset, newValue);
+  }
+
+  @Override
+  public long getAndSetLong(Object o, long offset, long newValue) {
+    return o == null ? (long) LONG.getAndSet(EVERYTHING, offset, newValue)
+        : onHeap.getAndSetLong(o, offset, newValue);
+  }
+
+  @Override
+  public Object getAndSetObject(Object o, long offset, Object newValue) {
+    return onHeap.getAndSetObject(o, offset, newValue);
+  }
+
+  @Override
+  public Object compareAndExchangeObject(Object o, long offset, Object expected, Object x) {
+    return onHeap.compareAndExchangeObject(o, offset, expected, x);
+  }
+
+  @Override
+  public int compareAndExchangeInt(Object o, long offset, int expected, int x) {
+    return o == null ? (int) INT.compareAndExchange(EVERYTHING, offset, expected, x)
+        : onHeap.compareAndExchangeInt(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLong(Object o, long offset, long expected, long x) {
+    return o == null ? (long) LONG.compareAndExchange(EVERYTHING, offset, expected, x)
+        : onHeap.compareAndExchangeLong(o, offset, expected, x);
+  }
+
+  @Override
+  public int getAndBitwiseOrInt(Object o, long offset, int mask) {
+    return o == null ? (int) INT.getAndBitwiseOr(EVERYTHING, offset, mask)
+        : onHeap.getAndBitwiseOrInt(o, offset, mask);
+  }
+
+  @Override
+  public int getAndBitwiseAndInt(Object o, long offset, int mask) {
+    return o == null ? (int) INT.getAndBitwiseAnd(EVERYTHING, offset, mask)
+        : onHeap.getAndBitwiseAndInt(o, offset, mask);
+  }
+
+  @Override
+  public int getAndBitwiseXorInt(Object o, long offset, int mask) {
+    return o == null ? (int) INT.getAndBitwiseXor(EVERYTHING, offset, mask)
+        : onHeap.getAndBitwiseXorInt(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseOrLong(Object o, long offset, long mask) {
+    return o == null ? (long) LONG.getAndBitwiseOr(EVERYTHING, offset, mask)
+        : onHeap.getAndBitwiseOrLong(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseAndLong(Object o, long offset, long mask) {
+    return o == null ? (long) LONG.getAndBitwiseAnd(EVERYTHING, offset, mask)
+        : onHeap.getAndBitwiseAndLong(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseXorLong(Object o, long offset, long mask) {
+    return o == null ? (long) LONG.getAndBitwiseXor(EVERYTHING, offset, mask)
+        : onHeap.getAndBitwiseXorLong(o, offset, mask);
+  }
+
+  @Override
+  public void loadFence() {
+    VarHandle.acquireFence();
+  }
+
+  @Override
+  public void storeFence() {
+    VarHandle.releaseFence();
+  }
+
+  @Override
+  public void fullFence() {
+    VarHandle.fullFence();
+  }
+
+}
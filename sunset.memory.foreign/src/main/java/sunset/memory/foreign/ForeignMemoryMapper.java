@@ -0,0 +1,307 @@
+package sunset.memory.foreign;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static sunset.memory.foreign.ForeignLowLevelMemoryAccessor.downcall;
+import static sunset.memory.foreign.ForeignLowLevelMemoryAccessor.rethrow;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.OpenOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import sunset.memory.CheckedLowLevelMemoryAccessor;
+import sunset.memory.MappedRegion;
+import sunset.memory.MemoryMapper;
+
+/**
+ * An implementation of {@link MemoryMapper} using {@link FileChannel#map(MapMode, long, long,
+ * Arena)}, which isn't limited to 2 GB. Each region is mapped in its own shared {@link Arena}, which
+ * is closed to unmap it. On Linux, {@link #mapAnonymous} calls {@code mmap} and {@code madvise}
+ * through downcall handles. Each region is registered with the default accessor while it is
+ * mapped, so that it can be accessed in {@link CheckedLowLevelMemoryAccessor checked mode}.
+ */
+public class ForeignMemoryMapper implements MemoryMapper {
+
+  private static final int PROT_READ_WRITE = 0x1 | 0x2;
+  private static final int MAP_PRIVATE_ANONYMOUS = 0x02 | 0x20;
+  private static final int MADV_HUGEPAGE = 14;
+  private static final long DEFAULT_HUGE_PAGE_SIZE = 2 << 20;
+
+  /** Linux's memory-mapping functions, looked up on first use. */
+  private static final class Mmap {
+    static final MethodHandle MMAP = downcall("mmap", FunctionDescriptor.of(ADDRESS, ADDRESS,
+        JAVA_LONG, JAVA_INT, JAVA_INT, JAVA_INT, JAVA_LONG));
+    static final MethodHandle MUNMAP =
+        downcall("munmap", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG));
+    static final MethodHandle MADVISE =
+        downcall("madvise", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG, JAVA_INT));
+    static final long HUGE_PAGE_SIZE = hugePageSize();
+
+    private static long hugePageSize() {
+      try {
+        return Long.parseLong(new String(Files.readAllBytes(
+            Paths.get("/sys/kernel/mm/transparent_hugepage/hpage_pmd_size"))).trim());
+      } catch (IOException | NumberFormatException e) {
+        return DEFAULT_HUGE_PAGE_SIZE;
+      }
+    }
+  }
+
+  @Override
+  public MappedRegion map(Path file, MapMode mode, long size) throws IOException {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative size: " + size);
+    }
+    OpenOption[] options;
+    if (mode == MapMode.READ_WRITE) {
+      options = new OpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE};
+    } else if (mode == MapMode.PRIVATE) {
+      // Copy-on-write mappings need a writable channel, even though the file isn't written
+      options = new OpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+    } else {
+      options = new OpenOption[] {StandardOpenOption.READ};
+    }
+    FileChannel channel = FileChannel.open(file, options);
+    try {
+      return new Region(channel, mode, size);
+    } catch (IOException | RuntimeException | Error e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public MappedRegion mapAnonymous(long size, boolean hugePages) throws IOException {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative size: " + size);
+    }
+    if (!System.getProperty("os.name").startsWith("Linux")) {
+      throw new UnsupportedOperationException("Anonymous mappings are only supported on Linux");
+    }
+    return new AnonymousRegion(size, hugePages);
+  }
+
+  /**
+   * Maps the given number of bytes of anonymous memory, aligned to the huge page size if
+   * {@code hugePages} is set, and returns the address, or 0 if the size is 0.
+   */
+  private static long mmap(long size, boolean hugePages) throws IOException {
+    if (size == 0) {
+      return 0;
+    }
+    long alignment = hugePages ? Mmap.HUGE_PAGE_SIZE : 0;
+    long length = size + alignment;
+    long raw;
+    try {
+      raw = ((MemorySegment) Mmap.MMAP.invokeExact(MemorySegment.NULL, length, PROT_READ_WRITE,
+          MAP_PRIVATE_ANONYMOUS, -1, 0L)).address();
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    if (raw == -1) {
+      throw new IOException("Unable to map " + size + " bytes");
+    }
+    if (!hugePages) {
+      return raw;
+    }
+    // Trim the mapping to an aligned range, so that the kernel can use huge pages from the start
+    long address = (raw + alignment - 1) & -alignment;
+    long pageSize = ForeignLowLevelMemoryAccessor.PageSize.VALUE;
+    long end = address + ((size + pageSize - 1) & -pageSize);
+    munmap(raw, address - raw);
+    munmap(end, raw + length - end);
+    try {
+      // Only a hint, which fails if the kernel was built without transparent huge pages
+      int ignored = (int) Mmap.MADVISE.invokeExact(MemorySegment.ofAddress(address), size,
+          MADV_HUGEPAGE);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    return address;
+  }
+
+  private static void munmap(long address, long length) {
+    if (length == 0) {
+      return;
+    }
+    int result;
+    try {
+      result = (int) Mmap.MUNMAP.invokeExact(MemorySegment.ofAddress(address), length);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    if (result != 0) {
+      throw new IllegalStateException("Unable to unmap " + length + " bytes at " + address);
+    }
+  }
+
+  /**
+   * Returns the segment underlying a region from this mapper, for callers that want bounds- and
+   * lifetime-checked access. The segment is only valid until the region is resized or unmapped.
+   *
+   * @throws IllegalArgumentException if the region wasn't mapped by this class
+   */
+  public MemorySegment asSegment(MappedRegion region) {
+    if (!(region instanceof Region)) {
+      throw new IllegalArgumentException("Not mapped by " + getClass().getSimpleName());
+    }
+    return ((Region) region).segment;
+  }
+
+  private static final class Region implements MappedRegion {
+    private final FileChannel channel;
+    private final MapMode mode;
+    private Arena arena;
+    private MemorySegment segment;
+
+    Region(FileChannel channel, MapMode mode, long size) throws IOException {
+      this.channel = channel;
+      this.mode = mode;
+      map(size);
+    }
+
+    /**
+     * Maps the given size in a new arena, then unmaps the old mapping if there is one, so that
+     * the region is left as it was if mapping fails.
+     */
+    private void map(long size) throws IOException {
+      Arena mapped = Arena.ofShared();
+      MemorySegment resized;
+      try {
+        resized = channel.map(mode, 0, size, mapped);
+      } catch (IOException | RuntimeException | Error e) {
+        mapped.close();
+        throw e;
+      }
+      if (arena != null) {
+        closeArena();
+      }
+      this.arena = mapped;
+      this.segment = resized;
+      CheckedLowLevelMemoryAccessor.registerWithDefault(resized.address(), size);
+    }
+
+    private void closeArena() {
+      CheckedLowLevelMemoryAccessor.unregisterFromDefault(segment.address(), segment.byteSize());
+      arena.close();
+      arena = null;
+    }
+
+    @Override
+    public synchronized long address() {
+      return segment.address();
+    }
+
+    @Override
+    public synchronized long size() {
+      return segment.byteSize();
+    }
+
+    @Override
+    public MapMode mode() {
+      return mode;
+    }
+
+    @Override
+    public synchronized void force(long offset, long length) {
+      MemorySegment slice = segment.asSlice(offset, length);
+      if (mode == MapMode.READ_WRITE) {
+        slice.force();
+      }
+    }
+
+    @Override
+    public synchronized void resize(long size) throws IOException {
+      if (size < 0) {
+        throw new IllegalArgumentException("Negative size: " + size);
+      }
+      if (arena == null) {
+        throw new IllegalStateException("Region is unmapped");
+      }
+      map(size);
+    }
+
+    @Override
+    public synchronized void unmap() throws IOException {
+      if (arena != null) {
+        closeArena();
+        channel.close();
+      }
+    }
+  }
+
+  private static final class AnonymousRegion implements MappedRegion {
+    private final boolean hugePages;
+    private long address;
+    private long size;
+    private boolean unmapped;
+
+    AnonymousRegion(long size, boolean hugePages) throws IOException {
+      this.hugePages = hugePages;
+      this.address = mmap(size, hugePages);
+      this.size = size;
+      CheckedLowLevelMemoryAccessor.registerWithDefault(address, size);
+    }
+
+    @Override
+    public synchronized long address() {
+      return address;
+    }
+
+    @Override
+    public synchronized long size() {
+      return size;
+    }
+
+    @Override
+    public MapMode mode() {
+      return MapMode.PRIVATE;
+    }
+
+    /** Only checks the range, since there is no file to write to. */
+    @Override
+    public synchronized void force(long offset, long length) {
+      Objects.checkFromIndexSize(offset, length, size);
+    }
+
+    @Override
+    public synchronized void resize(long size) throws IOException {
+      if (size < 0) {
+        throw new IllegalArgumentException("Negative size: " + size);
+      }
+      if (unmapped) {
+        throw new IllegalStateException("Region is unmapped");
+      }
+      long resized = mmap(size, hugePages);
+      MemorySegment.copy(MemorySegment.ofAddress(address).reinterpret(this.size), 0,
+          MemorySegment.ofAddress(resized).reinterpret(size), 0, Math.min(size, this.size));
+      CheckedLowLevelMemoryAccessor.unregisterFromDefault(address, this.size);
+      munmap(address, this.size);
+      this.address = resized;
+      this.size = size;
+      CheckedLowLevelMemoryAccessor.registerWithDefault(resized, size);
+    }
+
+    @Override
+    public synchronized void unmap() {
+      if (!unmapped) {
+        unmapped = true;
+        CheckedLowLevelMemoryAccessor.unregisterFromDefault(address, size);
+        munmap(address, size);
+      }
+    }
+  }
+
+}
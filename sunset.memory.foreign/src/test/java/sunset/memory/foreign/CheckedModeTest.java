@@ -0,0 +1,83 @@
+package sunset.memory.foreign;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import sunset.memory.CheckedLowLevelMemoryAccessor;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.MappedRegion;
+import sunset.memory.MemoryMapper;
+import sunset.memory.OffHeapBuffer;
+import sunset.memory.StringCodec;
+import sunset.memory.ring.MappedRingBuffer;
+
+/** Runs with {@code -Dsunset.memory.checked=true}, which this module's tests are run with. */
+class CheckedModeTest {
+
+  private static CheckedLowLevelMemoryAccessor checked() {
+    return (CheckedLowLevelMemoryAccessor) LowLevelMemoryAccessor.getInstance();
+  }
+
+  @Test
+  void getInstanceReturnsOneCheckedAccessor() {
+    assertTrue(CheckedLowLevelMemoryAccessor.ENABLED);
+    assertSame(LowLevelMemoryAccessor.getInstance(), LowLevelMemoryAccessor.getInstance());
+  }
+
+  @Test
+  void memoryCanBeAccessedThroughAnyCallToGetInstance() {
+    long address = LowLevelMemoryAccessor.getInstance().allocateMemory(16);
+    LowLevelMemoryAccessor.getInstance().putLong(address + 8, 42);
+    assertEquals(42, LowLevelMemoryAccessor.getInstance().getLong(address + 8));
+    LowLevelMemoryAccessor.getInstance().freeMemory(address);
+    assertThrows(IllegalStateException.class,
+        () -> LowLevelMemoryAccessor.getInstance().getLong(address + 8));
+
+    // Each of these gets the default accessor separately
+    try (OffHeapBuffer buffer = new OffHeapBuffer(64)) {
+      StringCodec codec = new StringCodec(LowLevelMemoryAccessor.getInstance());
+      int length = codec.encodeUtf8("checked", buffer.address());
+      assertEquals("checked", codec.decodeUtf8(buffer.address(), length));
+    }
+  }
+
+  @Test
+  void mappedRegionsAreRegistered() throws IOException {
+    int blocks = checked().liveBlocks();
+    MappedRegion region = MemoryMapper.getInstance().mapAnonymous(4096, false);
+    assertEquals(blocks + 1, checked().liveBlocks());
+    LowLevelMemoryAccessor.getInstance().putLong(region.address() + 4088, 1);
+    region.resize(8192);
+    assertEquals(1, LowLevelMemoryAccessor.getInstance().getLong(region.address() + 4088));
+    LowLevelMemoryAccessor.getInstance().putLong(region.address() + 8184, 2);
+    long address = region.address();
+    region.unmap();
+    assertEquals(blocks, checked().liveBlocks());
+    assertThrows(IllegalStateException.class,
+        () -> LowLevelMemoryAccessor.getInstance().getLong(address));
+  }
+
+  @Test
+  void mappedRingBufferOpens() throws IOException {
+    Path file = Files.createTempFile("sunset", ".ring");
+    int blocks = checked().liveBlocks();
+    try (MappedRingBuffer ring = MappedRingBuffer.open(file, 16, 64)) {
+      assertTrue(ring.offer(new byte[] {1, 2, 3}, 0, 3));
+      int[] length = new int[1];
+      assertEquals(1, ring.read((address, bytes) -> length[0] = bytes, 16));
+      assertEquals(3, length[0]);
+    } finally {
+      Files.delete(file);
+    }
+    assertEquals(blocks, checked().liveBlocks());
+    MappedRegion region = MemoryMapper.getInstance().map(file, MapMode.READ_WRITE, 0);
+    assertEquals(blocks, checked().liveBlocks());
+    region.unmap();
+    Files.deleteIfExists(file);
+  }
+
+}
@@ -0,0 +1,174 @@
+package sunset.memory.foreign;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import org.junit.jupiter.api.Test;
+import sunset.memory.field.OffHeapSerializer;
+import sunset.serial.ctor.sun.SunConstructorMunger;
+
+class ForeignLowLevelMemoryAccessorTest {
+
+  private static class Fields {
+    long aLong = 2;
+  }
+
+  static class Value {
+    boolean z;
+    byte b;
+    char c;
+    int i;
+    double d;
+    String name;
+    int[] ints;
+  }
+
+  private final ForeignLowLevelMemoryAccessor accessor = new ForeignLowLevelMemoryAccessor();
+
+  @Test
+  void nativeGetAndPut() {
+    long address = accessor.allocateMemory(32);
+    try {
+      accessor.putLong(null, address, 0x0102030405060708L);
+      assertEquals(0x0102030405060708L, accessor.getLong(null, address));
+      accessor.putInt(null, address + 9, 42);
+      assertEquals(42, accessor.getInt(null, address + 9));
+      accessor.putDouble(null, address + 16, 2.5);
+      assertEquals(2.5, accessor.getDouble(null, address + 16));
+      accessor.putByte(null, address + 24, (byte) -1);
+      assertEquals(-1, accessor.getByte(null, address + 24));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void nativeAtomics() {
+    long address = accessor.allocateMemory(16);
+    try {
+      accessor.putLongVolatile(null, address, 5);
+      assertTrue(accessor.compareAndSwapLong(null, address, 5, 6));
+      assertFalse(accessor.compareAndSwapLong(null, address, 5, 7));
+      assertEquals(6, accessor.getAndAddLong(null, address, 10));
+      assertEquals(16, accessor.getLongVolatile(null, address));
+      accessor.putOrderedInt(null, address + 8, 3);
+      assertEquals(3, accessor.getAndSetInt(null, address + 8, 4));
+      assertEquals(4, accessor.getIntVolatile(null, address + 8));
+      assertEquals(4, accessor.compareAndExchangeInt(null, address + 8, 4, 12));
+      assertEquals(12, accessor.getAndBitwiseXorInt(null, address + 8, 5));
+      assertEquals(16, accessor.getAndBitwiseOrLong(null, address, 1));
+      assertEquals(17, accessor.getLongAcquire(null, address));
+      accessor.putInt(null, address + 12, 0);
+      assertTrue(accessor.compareAndSwapByte(null, address + 13, (byte) 0, (byte) 7));
+      assertTrue(accessor.compareAndSwapShort(null, address + 14, (short) 0, (short) -1));
+      assertEquals(9, accessor.getByte(null, address + 8));
+      assertEquals(7, accessor.getByte(null, address + 13));
+      assertEquals(-1, accessor.getShort(null, address + 14));
+      assertEquals(9, accessor.getIntOpaque(null, address + 8));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void reallocateMemory() {
+    long address = accessor.allocateMemory(8);
+    accessor.putLong(null, address, 99);
+    address = accessor.reallocateMemory(address, 1 << 20);
+    assertEquals(99, accessor.getLong(null, address));
+    assertEquals(0, accessor.reallocateMemory(address, 0));
+    assertEquals(0, accessor.allocateMemory(0));
+    accessor.freeMemory(0);
+    assertThrows(IllegalArgumentException.class, () -> accessor.allocateMemory(-1));
+  }
+
+  @Test
+  void copyAndSetBetweenHeapAndNative() {
+    long address = accessor.allocateMemory(32);
+    try {
+      accessor.setMemory(address, 32, (byte) 0);
+      long[] longs = {1, 2, 3};
+      accessor.copyMemory(longs, accessor.arrayBaseOffset(long[].class), null, address + 8, 24);
+      assertEquals(0, accessor.getLong(null, address));
+      assertEquals(3, accessor.getLong(null, address + 24));
+
+      byte[] bytes = new byte[32];
+      accessor.copyMemory(null, address, bytes, 0, 32);
+      assertEquals(2, accessor.getLong(bytes, 16));
+
+      accessor.setMemory(null, address, 8, (byte) 1);
+      assertEquals(0x0101010101010101L, accessor.getLong(null, address));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void onHeapIsDelegated() throws NoSuchFieldException {
+    Fields fields = new Fields();
+    long offset = accessor.objectFieldOffset(Fields.class.getDeclaredField("aLong"));
+    assertEquals(2, accessor.getAndAddLong(fields, offset, 1));
+    assertEquals(3, fields.aLong);
+  }
+
+  @Test
+  void segments() {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment segment = accessor.allocateSegment(arena, 16);
+      assertEquals(0, segment.address() % 16);
+      segment.set(ValueLayout.JAVA_LONG, 8, 7);
+      assertEquals(7, accessor.getLong(null, segment.address() + 8));
+      assertThrows(IndexOutOfBoundsException.class,
+          () -> segment.get(ValueLayout.JAVA_LONG, 16));
+    }
+
+    long address = accessor.allocateMemory(8);
+    try {
+      MemorySegment view = accessor.asSegment(address, 8);
+      view.set(ValueLayout.JAVA_INT, 4, 11);
+      assertEquals(11, accessor.getInt(null, address + 4));
+      assertThrows(IndexOutOfBoundsException.class, () -> view.get(ValueLayout.JAVA_INT, 8));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void serializeFieldsOneAtATime() {
+    OffHeapSerializer serializer = new OffHeapSerializer(
+        accessor, new SunConstructorMunger(), getClass().getClassLoader());
+    Value value = new Value();
+    value.z = true;
+    value.b = -2;
+    value.c = '\uFFFC';
+    value.i = -4;
+    value.d = 5.5;
+    value.name = "six";
+    value.ints = new int[] {7, 8};
+    long address = accessor.allocateMemory(256);
+    try {
+      long length = serializer.serialize(value, address, 256);
+      Value copy = (Value) serializer.deserialize(address, length);
+      assertEquals(value.z, copy.z);
+      assertEquals(value.b, copy.b);
+      assertEquals(value.c, copy.c);
+      assertEquals(value.i, copy.i);
+      assertEquals(value.d, copy.d);
+      assertEquals(value.name, copy.name);
+      assertArrayEquals(value.ints, copy.ints);
+      assertThrows(IllegalArgumentException.class,
+          () -> serializer.serialize(Integer.valueOf(9), address, 256));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void sizes() {
+    assertEquals(8, accessor.addressSize());
+    assertEquals(1, Integer.bitCount(accessor.pageSize()));
+  }
+
+}
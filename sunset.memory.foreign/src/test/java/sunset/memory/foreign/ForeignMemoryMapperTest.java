@@ -0,0 +1,125 @@
+package sunset.memory.foreign;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.MappedRegion;
+import sunset.memory.MemoryMapper;
+
+class ForeignMemoryMapperTest {
+
+  private final LowLevelMemoryAccessor accessor = new ForeignLowLevelMemoryAccessor();
+  private final ForeignMemoryMapper mapper = new ForeignMemoryMapper();
+  private final Path file;
+
+  ForeignMemoryMapperTest() throws IOException {
+    file = Files.createTempFile("sunset", ".map");
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  void getInstance() {
+    assertTrue(MemoryMapper.getInstance() instanceof ForeignMemoryMapper);
+  }
+
+  @Test
+  void mapsBeyondTwoGigabytes() throws IOException {
+    long size = (1L << 31) + 4096;
+    try (MappedRegion region = mapper.map(file, MapMode.READ_WRITE, size)) {
+      assertEquals(size, region.size());
+      assertEquals(size, Files.size(file));
+      accessor.putLong(region.address() + size - 8, 0x0123456789abcdefL);
+      accessor.putLong(region.address(), 42);
+      region.force(size - 4096, 4096);
+      region.force();
+    }
+    try (MappedRegion region = mapper.map(file, MapMode.READ_ONLY, (1L << 31) + 4096)) {
+      assertEquals(0x0123456789abcdefL, accessor.getLong(region.address() + region.size() - 8));
+      assertEquals(42, accessor.getLong(region.address()));
+      assertEquals(MapMode.READ_ONLY, region.mode());
+    }
+  }
+
+  @Test
+  void resize() throws IOException {
+    try (MappedRegion region = mapper.map(file, MapMode.READ_WRITE, 4096)) {
+      accessor.putInt(region.address() + 100, 7);
+      region.resize(1 << 20);
+      assertEquals(1 << 20, region.size());
+      assertEquals(1 << 20, Files.size(file));
+      assertEquals(7, accessor.getInt(region.address() + 100));
+      accessor.putInt(region.address() + (1 << 20) - 4, 8);
+      assertEquals(8, mapper.asSegment(region).get(
+          java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED, (1 << 20) - 4));
+      assertThrows(IndexOutOfBoundsException.class, () -> region.force(1 << 20, 1));
+      region.unmap();
+      region.unmap();
+      assertThrows(IllegalStateException.class, () -> region.resize(4096));
+    }
+  }
+
+  @Test
+  void failedResizeKeepsMapping() throws IOException {
+    Files.write(file, new byte[] {1, 2, 3, 4});
+    MappedRegion region = mapper.map(file, MapMode.READ_ONLY, 4);
+    long address = region.address();
+    // A read-only channel can't extend the file
+    assertThrows(IOException.class, () -> region.resize(8192));
+    assertEquals(address, region.address());
+    assertEquals(4, region.size());
+    assertEquals(3, accessor.getByte(region.address() + 2));
+    assertEquals(4, mapper.asSegment(region).byteSize());
+    // Still registered with the checked accessor this module's tests run with
+    assertEquals(3, LowLevelMemoryAccessor.getInstance().getByte(null, address + 2));
+    region.unmap();
+    assertThrows(IllegalStateException.class, () -> region.resize(4));
+  }
+
+  @Test
+  void privateMappingsDontWriteBack() throws IOException {
+    Files.write(file, new byte[] {1, 2, 3, 4});
+    try (MappedRegion region = mapper.map(file, MapMode.PRIVATE, 4)) {
+      accessor.putByte(region.address(), (byte) 9);
+      assertEquals(9, accessor.getByte(region.address()));
+    }
+    assertArrayEquals(new byte[] {1, 2, 3, 4}, Files.readAllBytes(file));
+  }
+
+  @Test
+  void anonymous() throws IOException {
+    try (MappedRegion region = mapper.mapAnonymous(1 << 20, false)) {
+      assertEquals(0, region.address() % accessor.pageSize());
+      assertEquals(MapMode.PRIVATE, region.mode());
+      assertEquals(0, accessor.getLong(region.address() + 4096));
+      accessor.putLong(region.address() + 8, 42);
+      region.resize(3 << 20);
+      assertEquals(42, accessor.getLong(region.address() + 8));
+      assertEquals(0, accessor.getLong(region.address() + (3 << 20) - 8));
+      region.force();
+      assertThrows(IndexOutOfBoundsException.class, () -> region.force(3 << 20, 1));
+    }
+    assertThrows(IllegalArgumentException.class, () -> mapper.mapAnonymous(-1, false));
+  }
+
+  @Test
+  void anonymousHugePages() throws IOException {
+    long size = (64 << 20) + 100;
+    try (MappedRegion region = mapper.mapAnonymous(size, true)) {
+      assertEquals(0, region.address() % (2 << 20));
+      assertEquals(size, region.size());
+      accessor.setMemory(region.address(), size, (byte) 1);
+      assertEquals(0x0101010101010101L, accessor.getLong(region.address() + size - 8));
+    }
+  }
+
+}
@@ -0,0 +1,158 @@
+package sunset.memory.ring;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.foreign.ForeignLowLevelMemoryAccessor;
+import sunset.memory.foreign.ForeignMemoryMapper;
+
+class MappedRingBufferTest {
+
+  private static final int PRODUCERS = 2;
+  private static final int MESSAGES = 20_000;
+
+  private final LowLevelMemoryAccessor accessor = new ForeignLowLevelMemoryAccessor();
+  private final ForeignMemoryMapper mapper = new ForeignMemoryMapper();
+  private final Path file;
+
+  MappedRingBufferTest() throws IOException {
+    file = Files.createTempFile("sunset", ".ring");
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private MappedRingBuffer open(int capacity, int slotSize, long unblockTimeoutNanos)
+      throws IOException {
+    return MappedRingBuffer.open(accessor, mapper, file, capacity, slotSize, unblockTimeoutNanos);
+  }
+
+  /** Sends {@code count} messages of the producer id and a sequence number. Run in a child JVM. */
+  public static void main(String[] args) throws IOException {
+    LowLevelMemoryAccessor accessor = new ForeignLowLevelMemoryAccessor();
+    int id = Integer.parseInt(args[1]);
+    int count = Integer.parseInt(args[2]);
+    try (MappedRingBuffer ring = MappedRingBuffer.open(accessor, new ForeignMemoryMapper(),
+        Path.of(args[0]), 256, 64, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS)) {
+      long message = accessor.allocateMemory(8);
+      WaitStrategy waitStrategy = WaitStrategy.backoff(100, 100, 100_000);
+      for (int i = 0; i < count; i++) {
+        accessor.putLong(null, message, ((long) id << 32) | i);
+        ring.put(message, 8, waitStrategy);
+      }
+      accessor.freeMemory(message);
+    }
+  }
+
+  @Test
+  void acrossProcesses() throws Exception {
+    try (MappedRingBuffer ring = open(256, 64, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS)) {
+      List<Process> producers = new ArrayList<>();
+      for (int id = 0; id < PRODUCERS; id++) {
+        producers.add(new ProcessBuilder(
+            System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+            "--enable-preview", "--enable-native-access=ALL-UNNAMED",
+            "-cp", System.getProperty("java.class.path"), MappedRingBufferTest.class.getName(),
+            file.toString(), Integer.toString(id), Integer.toString(MESSAGES))
+            .inheritIO().start());
+      }
+      int[] next = new int[PRODUCERS];
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+      int received = 0;
+      while (received < PRODUCERS * MESSAGES) {
+        received += ring.read((address, length) -> {
+          assertEquals(8, length);
+          long message = accessor.getLong(null, address);
+          int id = (int) (message >>> 32);
+          assertEquals(next[id]++, (int) message);
+        }, 64);
+        assertTrue(System.nanoTime() < deadline, "timed out");
+      }
+      for (Process producer : producers) {
+        assertTrue(producer.waitFor(10, TimeUnit.SECONDS));
+        assertEquals(0, producer.exitValue());
+      }
+      assertArrayEquals(new int[] {MESSAGES, MESSAGES}, next);
+    }
+  }
+
+  @Test
+  void stateSurvivesReopening() throws IOException {
+    byte[] message = {1, 2, 3};
+    try (MappedRingBuffer ring = open(4, 32, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS)) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue(ring.offer(message, 0, 3));
+      }
+      assertEquals(1, ring.read((address, length) -> {}, 1));
+    }
+    try (MappedRingBuffer ring = open(4, 32, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS)) {
+      assertEquals(2, ring.size());
+      assertEquals(2, ring.read((address, length) -> assertEquals(3, length), 10,
+          WaitStrategy.busySpin()));
+      assertEquals(3, ring.tryClaim(1));
+    }
+  }
+
+  @Test
+  void checksHeader() throws IOException {
+    open(4, 32, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS).close();
+    assertThrows(IllegalArgumentException.class,
+        () -> open(8, 32, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS));
+    assertThrows(IllegalArgumentException.class,
+        () -> open(4, 64, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS));
+    Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+    assertThrows(IllegalArgumentException.class,
+        () -> open(4, 32, MappedRingBuffer.DEFAULT_UNBLOCK_TIMEOUT_NANOS));
+  }
+
+  @Test
+  void skipsSlotOfCrashedProducer() throws IOException, InterruptedException {
+    try (MappedRingBuffer ring = open(4, 32, TimeUnit.MILLISECONDS.toNanos(10))) {
+      // A producer that claims a slot and never commits it, then one that commits the next
+      assertEquals(0, ring.tryClaim(1));
+      assertTrue(ring.offer(new byte[] {7}, 0, 1));
+      assertEquals(0, ring.read((address, length) -> fail("stalled slot read"), 10));
+      List<Byte> read = new ArrayList<>();
+      assertEquals(1, ring.read((address, length) -> read.add(accessor.getByte(null, address)), 10,
+          WaitStrategy.parking(1_000_000)));
+      assertEquals(List.of((byte) 7), read);
+      // A commit after the slot was skipped is ignored
+      ring.commit(0, 1);
+      assertEquals(0, ring.size());
+
+      // A producer that claims two slots and never commits them costs one timeout, not two
+      assertEquals(2, ring.tryClaim(2));
+      assertTrue(ring.offer(new byte[] {8}, 0, 1));
+      assertEquals(0, ring.read((address, length) -> fail("stalled slot read"), 10));
+      Thread.sleep(20);
+      assertEquals(1,
+          ring.read((address, length) -> read.add(accessor.getByte(null, address)), 10));
+      assertEquals(List.of((byte) 7, (byte) 8), read);
+      assertEquals(0, ring.size());
+    }
+  }
+
+  @Test
+  void waitStrategies() {
+    assertThrows(IllegalArgumentException.class, () -> WaitStrategy.parking(0));
+    assertThrows(IllegalArgumentException.class, () -> WaitStrategy.backoff(-1, 0, 1000));
+    WaitStrategy backoff = WaitStrategy.backoff(1, 1, 1000);
+    for (int attempt = 0; attempt < 100; attempt++) {
+      backoff.idle(attempt);
+    }
+    WaitStrategy.busySpin().idle(0);
+    WaitStrategy.yielding().idle(0);
+  }
+
+}
@@ -0,0 +1,18 @@
+package sunset.memory.struct;
+
+/**
+ * Implemented by every flyweight generated by {@link Struct}, so that it can be moved from one
+ * struct to another. A struct interface may extend this interface to expose these methods directly.
+ */
+public interface Flyweight {
+
+  /** Returns the address of the struct this flyweight currently points to. */
+  long address();
+
+  /**
+   * Points this flyweight at the struct at the given address. Nothing is checked: the caller must
+   * make sure that the struct's {@link Struct#size()} bytes at that address are valid memory.
+   */
+  void wrap(long address);
+
+}
@@ -0,0 +1,21 @@
+package sunset.memory.struct;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The offset in bytes of a struct property from the start of the struct. May be put on the getter,
+ * the setter, or both, in which case they must agree. If any property of a struct has an offset,
+ * all of them must.
+ *
+ * @see Struct
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Offset {
+  long value();
+}
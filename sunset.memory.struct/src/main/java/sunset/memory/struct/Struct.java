@@ -0,0 +1,409 @@
+package sunset.memory.struct;
+
+import static net.bytebuddy.matcher.ElementMatchers.is;
+import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.TypeManifestation;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import sunset.classloader.UnsafeClassLoader;
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A fixed-layout record in native memory, described by an interface, together with a generated
+ * flyweight class that implements the interface. A flyweight points at one struct at a time, and
+ * each of its getters and setters is a single {@link LowLevelMemoryAccessor} call at a constant
+ * offset from that struct's address, so the JIT compiles them to plain loads and stores.
+ * <p>
+ * Every abstract method of the interface must be a getter, which takes no arguments and returns a
+ * primitive type, or a setter, which takes one primitive argument and returns {@code void}. A
+ * property's name is the method's name, with any {@code get}, {@code set} or {@code is} prefix
+ * removed, so {@code getX()}/{@code setX(int)} and {@code x()}/{@code x(int)} both describe a
+ * property named {@code x}. If the properties have {@link Offset} annotations, those are their
+ * offsets, and may overlap like the members of a C union; otherwise, the properties are packed
+ * from largest to smallest, so that each is naturally aligned with no padding. The methods of
+ * {@link Flyweight}, which every flyweight implements, are not properties.
+ * <p>
+ * Flyweight classes are generated with ByteBuddy, once per interface, and defined in the
+ * interface's package and class loader by the installed {@link UnsafeClassLoader}. If there is
+ * none, or it doesn't work on this JVM, they are defined with
+ * {@link MethodHandles.Lookup#defineClass}.
+ *
+ * @param <T> the interface that describes the struct
+ */
+public final class Struct<T> {
+
+  /** A struct's properties and generated flyweight class, which don't depend on the accessor. */
+  private static final class Layout {
+    final Map<String, Property> properties;
+    final long size;
+    /** The flyweight class's constructor, as a handle of type (LowLevelMemoryAccessor)Object. */
+    final MethodHandle constructor;
+
+    Layout(Map<String, Property> properties, long size, MethodHandle constructor) {
+      this.properties = properties;
+      this.size = size;
+      this.constructor = constructor;
+    }
+  }
+
+  /** A property's type, offset and accessor methods. */
+  private static final class Property {
+    final String name;
+    final Class<?> type;
+    final int width;
+    long offset = -1;
+    Method getter;
+    Method setter;
+
+    Property(String name, Class<?> type) {
+      this.name = name;
+      this.type = type;
+      this.width = width(type);
+    }
+  }
+
+  private static final String ACCESSOR_FIELD = "accessor";
+  private static final String ADDRESS_FIELD = "address";
+  private static final String ACCESSOR_NAME = Type.getInternalName(LowLevelMemoryAccessor.class);
+  private static final String ACCESSOR_DESCRIPTOR =
+      Type.getDescriptor(LowLevelMemoryAccessor.class);
+
+  private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+  private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+    @Override
+    protected Layout computeValue(Class<?> type) {
+      return layout(type);
+    }
+  };
+
+  private final Class<T> type;
+  private final Layout layout;
+  private final LowLevelMemoryAccessor accessor;
+
+  private Struct(Class<T> type, Layout layout, LowLevelMemoryAccessor accessor) {
+    this.type = type;
+    this.layout = layout;
+    this.accessor = accessor;
+  }
+
+  /**
+   * Returns the struct described by the given interface, whose flyweights access memory with the
+   * default {@link LowLevelMemoryAccessor}.
+   *
+   * @throws IllegalArgumentException if the interface doesn't describe a valid struct
+   */
+  public static <T> Struct<T> of(Class<T> type) {
+    return of(type, LowLevelMemoryAccessor.getInstance());
+  }
+
+  /**
+   * Returns the struct described by the given interface, whose flyweights access memory with the
+   * given accessor.
+   *
+   * @throws IllegalArgumentException if the interface doesn't describe a valid struct
+   */
+  public static <T> Struct<T> of(Class<T> type, LowLevelMemoryAccessor accessor) {
+    if (!type.isInterface()) {
+      throw new IllegalArgumentException(type + " is not an interface");
+    }
+    return new Struct<>(type, LAYOUTS.get(type), accessor);
+  }
+
+  /** Returns the interface that describes this struct. */
+  public Class<T> type() {
+    return type;
+  }
+
+  /** Returns the size of the struct in bytes. */
+  public long size() {
+    return layout.size;
+  }
+
+  /** Returns the names of the struct's properties, in order of offset. */
+  public List<String> properties() {
+    return new ArrayList<>(layout.properties.keySet());
+  }
+
+  /**
+   * Returns the offset of the given property from the start of the struct.
+   *
+   * @throws IllegalArgumentException if the struct has no such property
+   */
+  public long offset(String property) {
+    Property found = layout.properties.get(property);
+    if (found == null) {
+      throw new IllegalArgumentException(type.getName() + " has no property " + property);
+    }
+    return found.offset;
+  }
+
+  /**
+   * Returns a new flyweight that points to the struct at the given address. To visit many structs,
+   * it is cheaper to move one flyweight with {@link Flyweight#wrap} than to create one for each.
+   */
+  public T wrap(long address) {
+    Object flyweight;
+    try {
+      flyweight = layout.constructor.invokeExact(accessor);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Can't create a flyweight for " + type.getName(), e);
+    }
+    ((Flyweight) flyweight).wrap(address);
+    return type.cast(flyweight);
+  }
+
+  /** Returns a new flyweight that doesn't point to any struct yet. */
+  public T flyweight() {
+    return wrap(0);
+  }
+
+  private static int width(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else if (type == byte.class || type == boolean.class) {
+      return 1;
+    }
+    throw new IllegalArgumentException("Not a primitive type: " + type);
+  }
+
+  /** Returns the name of the property the given getter or setter belongs to. */
+  private static String propertyName(String methodName, boolean getter) {
+    String[] prefixes = getter ? new String[] {"get", "is"} : new String[] {"set"};
+    for (String prefix : prefixes) {
+      if (methodName.length() > prefix.length() && methodName.startsWith(prefix)
+          && Character.isUpperCase(methodName.charAt(prefix.length()))) {
+        return Character.toLowerCase(methodName.charAt(prefix.length()))
+            + methodName.substring(prefix.length() + 1);
+      }
+    }
+    return methodName;
+  }
+
+  private static Layout layout(Class<?> type) {
+    Map<String, Property> properties = new LinkedHashMap<>();
+    for (Method method : type.getMethods()) {
+      if (!Modifier.isAbstract(method.getModifiers()) || isFlyweightMethod(method)) {
+        continue;
+      }
+      boolean getter = method.getParameterCount() == 0 && method.getReturnType().isPrimitive()
+          && method.getReturnType() != void.class;
+      boolean setter = method.getParameterCount() == 1 && method.getReturnType() == void.class
+          && method.getParameterTypes()[0].isPrimitive();
+      if (!getter && !setter) {
+        throw new IllegalArgumentException(method + " is neither a getter nor a setter");
+      }
+      Class<?> propertyType = getter ? method.getReturnType() : method.getParameterTypes()[0];
+      String name = propertyName(method.getName(), getter);
+      Property property = properties.computeIfAbsent(name, n -> new Property(n, propertyType));
+      if (property.type != propertyType) {
+        throw new IllegalArgumentException("Property " + name + " of " + type.getName()
+            + " is both " + property.type + " and " + propertyType);
+      }
+      if (getter ? property.getter != null : property.setter != null) {
+        throw new IllegalArgumentException("Property " + name + " of " + type.getName()
+            + " has more than one " + (getter ? "getter" : "setter"));
+      }
+      if (getter) {
+        property.getter = method;
+      } else {
+        property.setter = method;
+      }
+      Offset offset = method.getAnnotation(Offset.class);
+      if (offset != null) {
+        if (offset.value() < 0 || property.offset >= 0 && property.offset != offset.value()) {
+          throw new IllegalArgumentException("Invalid offset on " + method);
+        }
+        property.offset = offset.value();
+      }
+    }
+    List<Property> sorted = new ArrayList<>(properties.values());
+    long size = assignOffsets(type, sorted);
+    sorted.sort(Comparator.comparingLong((Property property) -> property.offset)
+        .thenComparing(property -> property.name));
+    Map<String, Property> byOffset = new LinkedHashMap<>();
+    for (Property property : sorted) {
+      byOffset.put(property.name, property);
+    }
+    String name = type.getName() + "$$Flyweight$" + CLASS_COUNTER.incrementAndGet();
+    return new Layout(Collections.unmodifiableMap(byOffset), size,
+        constructor(define(type, name, generate(type, name, sorted))));
+  }
+
+  private static boolean isFlyweightMethod(Method method) {
+    try {
+      Flyweight.class.getMethod(method.getName(), method.getParameterTypes());
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Packs the properties that have no {@link Offset}, which must be all or none of them, and
+   * returns the size of the struct.
+   */
+  private static long assignOffsets(Class<?> type, List<Property> properties) {
+    long explicit = properties.stream().filter(property -> property.offset >= 0).count();
+    long size = 0;
+    if (explicit == properties.size()) {
+      for (Property property : properties) {
+        size = Math.max(size, property.offset + property.width);
+      }
+      return size;
+    } else if (explicit > 0) {
+      throw new IllegalArgumentException(
+          "Either all or none of the properties of " + type.getName() + " must have an @Offset");
+    }
+    properties.sort(Comparator.comparingInt((Property property) -> -property.width)
+        .thenComparing(property -> property.name));
+    int alignment = 1;
+    for (Property property : properties) {
+      property.offset = size;
+      size += property.width;
+      alignment = Math.max(alignment, property.width);
+    }
+    // Round up, so that each struct in an array of them is aligned too
+    return (size + alignment - 1) & -alignment;
+  }
+
+  private static byte[] generate(Class<?> type, String name, List<Property> properties) {
+    DynamicType.Builder<?> builder = new ByteBuddy(ClassFileVersion.JAVA_V9)
+        .subclass(Object.class)
+        .implement(type, Flyweight.class)
+        .name(name)
+        .modifiers(Visibility.PUBLIC, TypeManifestation.FINAL)
+        .defineField(ACCESSOR_FIELD, LowLevelMemoryAccessor.class, Visibility.PRIVATE,
+            FieldManifestation.FINAL)
+        .defineField(ADDRESS_FIELD, long.class, Visibility.PRIVATE)
+        .defineConstructor(Visibility.PUBLIC)
+        .withParameters(LowLevelMemoryAccessor.class)
+        .intercept(MethodCall.invoke(objectConstructor())
+            .andThen(FieldAccessor.ofField(ACCESSOR_FIELD).setsArgumentAt(0)))
+        .method(isDeclaredBy(Flyweight.class).and(named("address").or(named("wrap"))))
+        .intercept(FieldAccessor.ofField(ADDRESS_FIELD));
+    for (Property property : properties) {
+      if (property.getter != null) {
+        builder = builder.method(is(property.getter)).intercept(access(property, true));
+      }
+      if (property.setter != null) {
+        builder = builder.method(is(property.setter)).intercept(access(property, false));
+      }
+    }
+    return builder.make().getBytes();
+  }
+
+  private static Constructor<Object> objectConstructor() {
+    try {
+      return Object.class.getConstructor();
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Returns the body of a getter or setter, which calls the accessor's double-register method with
+   * a null base and the flyweight's address plus the property's offset.
+   */
+  private static Implementation access(Property property, boolean getter) {
+    Type type = Type.getType(property.type);
+    String kind = property.type.getName();
+    String method = (getter ? "get" : "put")
+        + Character.toUpperCase(kind.charAt(0)) + kind.substring(1);
+    String descriptor = getter
+        ? "(Ljava/lang/Object;J)" + type.getDescriptor()
+        : "(Ljava/lang/Object;J" + type.getDescriptor() + ")V";
+    long offset = property.offset;
+    return new Implementation.Simple((visitor, context, instrumented) -> {
+      String owner = context.getInstrumentedType().getInternalName();
+      visitor.visitVarInsn(Opcodes.ALOAD, 0);
+      visitor.visitFieldInsn(Opcodes.GETFIELD, owner, ACCESSOR_FIELD, ACCESSOR_DESCRIPTOR);
+      visitor.visitInsn(Opcodes.ACONST_NULL);
+      visitor.visitVarInsn(Opcodes.ALOAD, 0);
+      visitor.visitFieldInsn(Opcodes.GETFIELD, owner, ADDRESS_FIELD, "J");
+      if (offset != 0) {
+        visitor.visitLdcInsn(offset);
+        visitor.visitInsn(Opcodes.LADD);
+      }
+      if (getter) {
+        visitor.visitMethodInsn(Opcodes.INVOKEINTERFACE, ACCESSOR_NAME, method, descriptor, true);
+        visitor.visitInsn(type.getOpcode(Opcodes.IRETURN));
+      } else {
+        visitor.visitVarInsn(type.getOpcode(Opcodes.ILOAD), 1);
+        visitor.visitMethodInsn(Opcodes.INVOKEINTERFACE, ACCESSOR_NAME, method, descriptor, true);
+        visitor.visitInsn(Opcodes.RETURN);
+      }
+      return new ByteCodeAppender.Size(6, instrumented.getStackSize());
+    });
+  }
+
+  /** Defines the given flyweight class in the package and class loader of the given interface. */
+  private static Class<?> define(Class<?> type, String name, byte[] bytes) {
+    UnsafeClassLoader loader = unsafeClassLoader();
+    if (loader != null) {
+      try {
+        return loader.defineClass(name, bytes, 0, bytes.length, type.getClassLoader(),
+            type.getProtectionDomain());
+      } catch (UnsupportedOperationException | LinkageError e) {
+        // Unsafe.defineClass was removed in JDK 11, so fall back to a lookup
+      }
+    }
+    try {
+      return MethodHandles.privateLookupIn(type, MethodHandles.lookup()).defineClass(bytes);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException(
+          "Can't define a flyweight class for " + type.getName(), e);
+    }
+  }
+
+  private static UnsafeClassLoader unsafeClassLoader() {
+    try {
+      return ServiceLoader.load(UnsafeClassLoader.class).findFirst().orElse(null);
+    } catch (ServiceConfigurationError | LinkageError e) {
+      return null;
+    }
+  }
+
+  private static MethodHandle constructor(Class<?> flyweightClass) {
+    try {
+      return MethodHandles.publicLookup()
+          .findConstructor(flyweightClass, MethodType.methodType(void.class,
+              LowLevelMemoryAccessor.class))
+          .asType(MethodType.methodType(Object.class, LowLevelMemoryAccessor.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+package sunset.memory.struct;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class StructTest {
+
+  public interface Point {
+    int x();
+
+    void x(int x);
+
+    int y();
+
+    void y(int y);
+
+    double getWeight();
+
+    void setWeight(double weight);
+
+    boolean isVisible();
+
+    void setVisible(boolean visible);
+  }
+
+  interface Header extends Flyweight {
+    @Offset(0)
+    long id();
+
+    @Offset(0)
+    void id(long id);
+
+    @Offset(8)
+    short kind();
+
+    @Offset(8)
+    void kind(short kind);
+
+    @Offset(12)
+    float score();
+
+    @Offset(10)
+    char tag();
+
+    @Offset(10)
+    void tag(char tag);
+
+    @Offset(8)
+    byte lowKind();
+
+    default boolean isEmpty() {
+      return id() == 0;
+    }
+  }
+
+  interface Mixed {
+    @Offset(0)
+    int a();
+
+    int b();
+  }
+
+  interface NotAStruct {
+    String name();
+  }
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
+  @Test
+  void packsProperties() {
+    Struct<Point> struct = Struct.of(Point.class, accessor);
+    assertEquals(24, struct.size());
+    assertEquals(Arrays.asList("weight", "x", "y", "visible"), struct.properties());
+    assertEquals(0, struct.offset("weight"));
+    assertEquals(8, struct.offset("x"));
+    assertEquals(12, struct.offset("y"));
+    assertEquals(16, struct.offset("visible"));
+    assertThrows(IllegalArgumentException.class, () -> struct.offset("z"));
+  }
+
+  @Test
+  void accessesMemory() {
+    Struct<Point> struct = Struct.of(Point.class, accessor);
+    long address = accessor.allocateMemory(struct.size() * 2);
+    try {
+      Point point = struct.wrap(address);
+      point.x(1);
+      point.y(2);
+      point.setWeight(3.5);
+      point.setVisible(true);
+      assertEquals(1, point.x());
+      assertEquals(2, point.y());
+      assertEquals(3.5, point.getWeight());
+      assertTrue(point.isVisible());
+      assertEquals(1, accessor.getInt(address + 8));
+      assertEquals(3.5, accessor.getDouble(address));
+
+      Flyweight flyweight = (Flyweight) point;
+      assertEquals(address, flyweight.address());
+      flyweight.wrap(address + struct.size());
+      point.x(10);
+      assertEquals(10, point.x());
+      assertEquals(1, accessor.getInt(address + 8));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void usesExplicitOffsets() {
+    Struct<Header> struct = Struct.of(Header.class, accessor);
+    assertEquals(16, struct.size());
+    long address = accessor.allocateMemory(struct.size());
+    try {
+      accessor.setMemory(address, struct.size(), (byte) 0);
+      Header header = struct.wrap(address);
+      assertTrue(header.isEmpty());
+      header.id(42);
+      header.kind((short) 0x0102);
+      header.tag('t');
+      accessor.putFloat(address + 12, 1.5f);
+      assertEquals(42, header.id());
+      assertFalse(header.isEmpty());
+      assertEquals(0x0102, header.kind());
+      assertEquals((byte) 0x0102, header.lowKind());
+      assertEquals('t', header.tag());
+      assertEquals(1.5f, header.score());
+      assertEquals(address, header.address());
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void reusesGeneratedClasses() {
+    Point a = Struct.of(Point.class, accessor).flyweight();
+    Point b = Struct.of(Point.class, new SunLowLevelMemoryAccessor()).flyweight();
+    assertSame(a.getClass(), b.getClass());
+    assertSame(Point.class.getClassLoader(), a.getClass().getClassLoader());
+    assertEquals(Point.class.getPackage(), a.getClass().getPackage());
+  }
+
+  @Test
+  void rejectsInvalidStructs() {
+    assertThrows(IllegalArgumentException.class, () -> Struct.of(Mixed.class, accessor));
+    assertThrows(IllegalArgumentException.class, () -> Struct.of(NotAStruct.class, accessor));
+    assertThrows(IllegalArgumentException.class, () -> Struct.of(Object.class, accessor));
+  }
+
+}
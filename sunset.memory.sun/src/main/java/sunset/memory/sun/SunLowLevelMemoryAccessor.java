@@ -254,6 +254,72 @@ public class SunLowLevelMemoryAccessor implements LowLevelMemoryAccessor {
     unsafe.putOrderedLong(o, offset, x);
   }
 
+  @Override
+  public int getAndAddInt(Object o, long offset, int delta) {
+    return unsafe.getAndAddInt(o, offset, delta);
+  }
+
+  @Override
+  public long getAndAddLong(Object o, long offset, long delta) {
+    return unsafe.getAndAddLong(o, offset, delta);
+  }
+
+  @Override
+  public int getAndSetInt(Object o, long offset, int newValue) {
+    return unsafe.getAndSetInt(o, offset, newValue);
+  }
+
+  @Override
+  public long getAndSetLong(Object o, long offset, long newValue) {
+    return unsafe.getAndSetLong(o, offset, newValue);
+  }
+
+  @Override
+  public Object getAndSetObject(Object o, long offset, Object newValue) {
+    return unsafe.getAndSetObject(o, offset, newValue);
+  }
+
+  /*
+   * sun.misc.Unsafe has no release stores narrower than int, so these use a release fence before
+   * a plain store instead of inheriting the full fence of the volatile store.
+   */
+
+  @Override
+  public void putBooleanRelease(Object o, long offset, boolean x) {
+    unsafe.storeFence();
+    unsafe.putBoolean(o, offset, x);
+  }
+
+  @Override
+  public void putByteRelease(Object o, long offset, byte x) {
+    unsafe.storeFence();
+    unsafe.putByte(o, offset, x);
+  }
+
+  @Override
+  public void putShortRelease(Object o, long offset, short x) {
+    unsafe.storeFence();
+    unsafe.putShort(o, offset, x);
+  }
+
+  @Override
+  public void putCharRelease(Object o, long offset, char x) {
+    unsafe.storeFence();
+    unsafe.putChar(o, offset, x);
+  }
+
+  @Override
+  public void putFloatRelease(Object o, long offset, float x) {
+    unsafe.storeFence();
+    unsafe.putFloat(o, offset, x);
+  }
+
+  @Override
+  public void putDoubleRelease(Object o, long offset, double x) {
+    unsafe.storeFence();
+    unsafe.putDouble(o, offset, x);
+  }
+
   @Override
   public void loadFence() {
     unsafe.loadFence();
@@ -0,0 +1,90 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class CheckedLowLevelMemoryAccessorTest {
+
+  private final CheckedLowLevelMemoryAccessor accessor =
+      new CheckedLowLevelMemoryAccessor(new SunLowLevelMemoryAccessor());
+
+  @Test
+  void allowsAccessesWithinLiveBlocks() {
+    long address = accessor.allocateMemory(16);
+    accessor.putLong(null, address, 1);
+    accessor.putLong(address + 8, 2);
+    assertEquals(2, accessor.getAndAddLong(null, address + 8, 1));
+    assertEquals(3, accessor.getLong(address + 8));
+    accessor.setMemory(address, 16, (byte) 0);
+    long other = accessor.allocateMemory(16);
+    accessor.copyMemory(address, other, 16);
+    assertEquals(2, accessor.liveBlocks());
+    accessor.freeMemory(address);
+    accessor.freeMemory(other);
+    assertEquals(0, accessor.liveBlocks());
+  }
+
+  @Test
+  void catchesOutOfBoundsAccesses() {
+    long address = accessor.allocateMemory(16);
+    assertThrows(IndexOutOfBoundsException.class, () -> accessor.putLong(null, address + 9, 1));
+    assertThrows(IndexOutOfBoundsException.class, () -> accessor.getInt(address + 13));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> accessor.setMemory(address, 17, (byte) 0));
+    assertThrows(IllegalStateException.class, () -> accessor.getByte(address - 1));
+    accessor.freeMemory(address);
+  }
+
+  @Test
+  void catchesUseAfterFreeAndDoubleFree() {
+    long address = accessor.allocateMemory(16);
+    accessor.freeMemory(address);
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> accessor.getLong(null, address));
+    assertTrue(e.getMessage().contains("after free"), e.getMessage());
+    e = assertThrows(IllegalStateException.class, () -> accessor.freeMemory(address));
+    assertTrue(e.getMessage().startsWith("Double free"), e.getMessage());
+    assertThrows(IllegalStateException.class, () -> accessor.freeMemory(12345));
+  }
+
+  @Test
+  void tracksReallocation() {
+    long address = accessor.allocateMemory(8);
+    accessor.putLong(address, 7);
+    long moved = accessor.reallocateMemory(address, 64);
+    assertEquals(7, accessor.getLong(moved));
+    accessor.putLong(moved + 56, 1);
+    if (moved != address) {
+      assertThrows(IllegalStateException.class, () -> accessor.getLong(address));
+    }
+    accessor.freeMemory(moved);
+  }
+
+  @Test
+  void registersExternalMemory() {
+    SunLowLevelMemoryAccessor raw = new SunLowLevelMemoryAccessor();
+    long address = raw.allocateMemory(32);
+    assertThrows(IllegalStateException.class, () -> accessor.getInt(address));
+    accessor.register(address, 32);
+    assertThrows(IllegalArgumentException.class, () -> accessor.register(address + 16, 32));
+    accessor.putInt(address, 1);
+    accessor.unregister(address);
+    assertThrows(IllegalStateException.class, () -> accessor.getInt(address));
+    raw.freeMemory(address);
+  }
+
+  @Test
+  void leavesHeapAccessesAlone() {
+    long[] array = {5};
+    assertEquals(5, accessor.getLong(array, accessor.arrayBaseOffset(long[].class)));
+  }
+
+  @Test
+  void isOffByDefault() {
+    assertFalse(CheckedLowLevelMemoryAccessor.ENABLED);
+    assertFalse(LowLevelMemoryAccessor.getInstance() instanceof CheckedLowLevelMemoryAccessor);
+  }
+
+}
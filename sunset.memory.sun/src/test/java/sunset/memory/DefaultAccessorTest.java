@@ -0,0 +1,38 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class DefaultAccessorTest {
+
+  private static final class HeapOnly extends ForwardingLowLevelMemoryAccessor {
+    HeapOnly() {
+      super(new SunLowLevelMemoryAccessor());
+    }
+
+    @Override
+    public boolean supportsNativeMemory() {
+      return false;
+    }
+  }
+
+  @Test
+  void prefersNativeMemory() {
+    LowLevelMemoryAccessor heapOnly = new HeapOnly();
+    LowLevelMemoryAccessor sun = new SunLowLevelMemoryAccessor();
+    assertSame(sun, DefaultAccessor.select(Arrays.asList(heapOnly, sun)));
+    assertSame(sun, DefaultAccessor.select(Arrays.asList(sun, heapOnly)));
+    assertSame(heapOnly, DefaultAccessor.select(Collections.singletonList(heapOnly)));
+    assertNull(DefaultAccessor.select(Collections.emptyList()));
+  }
+
+  @Test
+  void getInstance() {
+    assertTrue(LowLevelMemoryAccessor.getInstance().supportsNativeMemory());
+  }
+
+}
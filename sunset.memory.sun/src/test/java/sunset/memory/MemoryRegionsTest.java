@@ -0,0 +1,100 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class MemoryRegionsTest {
+
+  /** Lengths of the test data, and its XXH64 hashes with seeds 0 and 42. */
+  private static final long[][] HASHES = {
+      {0, -1205034819632174695L, -7444071767201028348L},
+      {1, -6238471690400515145L, -2707323769083221954L},
+      {3, 6261856666793576441L, -6929980721426455356L},
+      {4, -4175657425724010748L, -2107308798017991369L},
+      {7, -5782907530754680178L, -6159549576538757013L},
+      {8, 4442176141076628448L, 1868127502227284328L},
+      {15, -5896839277159396697L, -4709990685711922048L},
+      {31, 5365180931665220769L, -4969374290967312298L},
+      {32, -8261898989794966467L, 8723431806716874651L},
+      {33, 7118499008196474468L, -4597324593162312910L},
+      {63, 6643383451930527103L, -4143289598161502048L},
+      {64, 8915644864283660670L, 6422503185678809186L},
+      {100, -1179752692538359471L, -8014914948772484517L},
+  };
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+  private final MemoryRegions regions = new MemoryRegions(accessor);
+  private final long byteBase = accessor.arrayBaseOffset(byte[].class);
+  private final long address = accessor.allocateMemory(1024);
+
+  @AfterEach
+  void tearDown() {
+    accessor.freeMemory(address);
+  }
+
+  /** Copies the array to native memory at the given offset from the block. */
+  private long write(byte[] array, int offset) {
+    accessor.copyMemory(array, byteBase, null, address + offset, array.length);
+    return address + offset;
+  }
+
+  @Test
+  void hashMatchesReference() {
+    byte[] data = new byte[100];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 31 + 7);
+    }
+    for (int offset = 0; offset < 8; offset++) {
+      long start = write(data, offset);
+      for (long[] expected : HASHES) {
+        assertEquals(expected[1], regions.hash(null, start, expected[0]), "" + expected[0]);
+        assertEquals(expected[2], regions.hash(null, start, expected[0], 42), "" + expected[0]);
+        assertEquals(expected[1], regions.hash(data, byteBase, expected[0]));
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> regions.hash(null, address, -1));
+  }
+
+  @Test
+  void matchesArrays() {
+    Random random = new Random(1);
+    for (int n = 0; n < 2000; n++) {
+      byte[] a = new byte[random.nextInt(40)];
+      random.nextBytes(a);
+      byte[] b = Arrays.copyOf(a, random.nextBoolean() ? a.length : random.nextInt(40));
+      if (b.length > 0 && random.nextBoolean()) {
+        b[random.nextInt(b.length)] = (byte) random.nextInt();
+      }
+      long start = write(a, random.nextInt(8));
+      long bLength = b.length;
+      long expected = Arrays.mismatch(a, b);
+      String message = Arrays.toString(a) + " " + Arrays.toString(b);
+      assertEquals(expected,
+          regions.mismatch(null, start, a.length, b, byteBase, bLength), message);
+      assertEquals(Integer.signum(Arrays.compareUnsigned(a, b)),
+          Integer.signum(regions.compare(null, start, a.length, b, byteBase, bLength)), message);
+      assertEquals(Arrays.equals(a, b),
+          regions.equals(null, start, a.length, b, byteBase, bLength), message);
+      assertEquals(regions.equals(a, byteBase, a.length, b, byteBase, bLength),
+          regions.equals(null, start, a.length, b, byteBase, bLength));
+    }
+  }
+
+  @Test
+  void comparesUnsigned() {
+    byte[] low = {1, 2, 3, 4, 5, 6, 7, 8, 9, 0x7F};
+    byte[] high = {1, 2, 3, 4, 5, 6, 7, 8, 9, (byte) 0x80};
+    assertTrue(regions.compare(low, byteBase, 10, high, byteBase, 10) < 0);
+    assertTrue(regions.compare(high, byteBase, 10, low, byteBase, 9) > 0);
+    assertEquals(9, regions.mismatch(low, byteBase, 10, high, byteBase, 10));
+    assertEquals(-1, regions.mismatch(low, byteBase, 0, high, byteBase, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> regions.compare(low, byteBase, -1, high, byteBase, 1));
+  }
+
+}
@@ -0,0 +1,100 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class OffHeapBufferTest {
+
+  /** Counts the blocks freed through it. */
+  private static final class CountingAccessor extends ForwardingLowLevelMemoryAccessor {
+    final AtomicInteger frees = new AtomicInteger();
+
+    CountingAccessor() {
+      super(new SunLowLevelMemoryAccessor());
+    }
+
+    @Override
+    public void freeMemory(long address) {
+      frees.incrementAndGet();
+      super.freeMemory(address);
+    }
+  }
+
+  private final CountingAccessor accessor = new CountingAccessor();
+
+  @Test
+  void getAndPut() {
+    try (OffHeapBuffer buffer = new OffHeapBuffer(accessor, 64)) {
+      assertEquals(64, buffer.size());
+      buffer.fill(0, 64, (byte) 0);
+      buffer.putByte(0, (byte) 1);
+      buffer.putShort(1, (short) 2);
+      buffer.putChar(3, 'c');
+      buffer.putInt(5, 4);
+      buffer.putLong(9, 5);
+      buffer.putFloat(17, 6);
+      buffer.putDouble(56, 7);
+      assertEquals(1, buffer.getByte(0));
+      assertEquals(2, buffer.getShort(1));
+      assertEquals('c', buffer.getChar(3));
+      assertEquals(4, buffer.getInt(5));
+      assertEquals(5, buffer.getLong(9));
+      assertEquals(6, buffer.getFloat(17));
+      assertEquals(7, buffer.getDouble(56));
+      assertEquals(5, accessor.getLong(buffer.address() + 9));
+
+      byte[] bytes = {1, 2, 3, 4};
+      buffer.putBytes(60, bytes, 0, 4);
+      byte[] copy = new byte[6];
+      buffer.getBytes(60, copy, 1, 4);
+      assertArrayEquals(new byte[] {0, 1, 2, 3, 4, 0}, copy);
+    }
+    assertEquals(1, accessor.frees.get());
+  }
+
+  @Test
+  void checksBounds() {
+    try (OffHeapBuffer buffer = new OffHeapBuffer(accessor, 16)) {
+      buffer.putLong(8, 1);
+      assertThrows(IndexOutOfBoundsException.class, () -> buffer.putLong(9, 1));
+      assertThrows(IndexOutOfBoundsException.class, () -> buffer.getByte(16));
+      assertThrows(IndexOutOfBoundsException.class, () -> buffer.getByte(-1));
+      assertThrows(IndexOutOfBoundsException.class, () -> buffer.getLong(Long.MAX_VALUE));
+      assertThrows(IndexOutOfBoundsException.class, () -> buffer.fill(8, 9, (byte) 0));
+      assertThrows(IndexOutOfBoundsException.class, () -> buffer.fill(0, -1, (byte) 0));
+      assertThrows(IndexOutOfBoundsException.class,
+          () -> buffer.putBytes(0, new byte[4], 1, 4));
+      assertThrows(IndexOutOfBoundsException.class,
+          () -> buffer.getBytes(14, new byte[4], 0, 4));
+    }
+    assertThrows(IllegalArgumentException.class, () -> new OffHeapBuffer(accessor, -1));
+  }
+
+  @Test
+  void closeIsIdempotent() {
+    OffHeapBuffer buffer = new OffHeapBuffer(accessor, 8);
+    assertTrue(buffer.isOpen());
+    buffer.close();
+    buffer.close();
+    assertFalse(buffer.isOpen());
+    assertEquals(1, accessor.frees.get());
+    assertThrows(IllegalStateException.class, () -> buffer.getLong(0));
+    assertThrows(IllegalStateException.class, () -> buffer.putByte(0, (byte) 0));
+  }
+
+  @Test
+  void unreachableBuffersAreFreed() throws InterruptedException {
+    for (int i = 0; i < 10; i++) {
+      new OffHeapBuffer(accessor, 1024).putLong(0, i);
+    }
+    for (int i = 0; i < 100 && accessor.frees.get() < 10; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(10, accessor.frees.get());
+  }
+
+}
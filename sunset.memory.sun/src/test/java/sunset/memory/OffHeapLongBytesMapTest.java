@@ -0,0 +1,136 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class OffHeapLongBytesMapTest {
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+  private final OffHeapLongBytesMap map = new OffHeapLongBytesMap(accessor, 10);
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @AfterEach
+  void close() {
+    map.close();
+    map.close();
+  }
+
+  @Test
+  void putGetRemove() {
+    assertTrue(map.put(7, bytes("seven")));
+    assertArrayEquals(bytes("seven"), map.get(7));
+    assertEquals(5, map.valueLength(7));
+    assertFalse(map.put(7, bytes("a longer seven"), 2, 6));
+    assertArrayEquals(bytes("longer"), map.get(7));
+    assertNull(map.get(8));
+    assertEquals(-1, map.valueLength(8));
+    assertTrue(map.put(0, new byte[0]));
+    assertArrayEquals(new byte[0], map.get(0));
+    assertTrue(map.remove(7));
+    assertFalse(map.remove(7));
+    assertNull(map.get(7));
+    assertEquals(1, map.size());
+    assertThrows(IndexOutOfBoundsException.class, () -> map.put(1, new byte[4], 2, 3));
+  }
+
+  @Test
+  void replacedValuesAreRetired() {
+    for (int i = 0; i < 5000; i++) {
+      map.put(i % 10, bytes("value " + i));
+    }
+    for (int i = 4990; i < 5000; i++) {
+      assertArrayEquals(bytes("value " + i), map.get(i % 10));
+    }
+  }
+
+  @Test
+  void concurrentReadersNeverSeeFreedValues() throws InterruptedException {
+    // Throws instead of crashing if a reader touches a freed value or table
+    CheckedLowLevelMemoryAccessor checked = new CheckedLowLevelMemoryAccessor(accessor);
+    OffHeapLongBytesMap shared = new OffHeapLongBytesMap(checked, 10);
+    int keys = 2000;
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] readers = new Thread[3];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        try {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          while (!done.get()) {
+            long key = random.nextLong(1, keys + 1);
+            byte[] value = shared.get(key);
+            if (value != null) {
+              ByteBuffer buffer = ByteBuffer.wrap(value);
+              assertEquals(key, buffer.getLong(0));
+              assertEquals(key, buffer.getLong(value.length - 8));
+            }
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      });
+      readers[i].start();
+    }
+    try {
+      // Each round grows the table, then removes and replaces values, retiring them in batches
+      // and leaving tombstones that force further resizes
+      for (int round = 0; round < 15 && failure.get() == null; round++) {
+        for (long key = 1; key <= keys; key++) {
+          shared.put(key, value(key, 8 + (int) (key + round) % 5 * 8));
+        }
+        for (long key = 1; key <= keys; key++) {
+          if (key % 2 == 0) {
+            shared.remove(key);
+          } else {
+            shared.put(key, value(key, 16));
+          }
+        }
+      }
+    } finally {
+      done.set(true);
+      for (Thread reader : readers) {
+        reader.join();
+      }
+      shared.close();
+    }
+    assertNull(failure.get());
+    assertEquals(0, checked.liveBlocks());
+  }
+
+  /** Returns a value of the given length that starts and ends with the key. */
+  private static byte[] value(long key, int length) {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    buffer.putLong(0, key);
+    buffer.putLong(length - 8, key);
+    return buffer.array();
+  }
+
+  @Test
+  void forEach() {
+    for (long key = 1; key <= 1000; key++) {
+      map.put(key, bytes(Long.toString(key)));
+    }
+    Map<Long, String> seen = new HashMap<>();
+    map.forEach((key, address, length) -> {
+      byte[] value = new byte[length];
+      accessor.copyMemory(null, address, value, accessor.arrayBaseOffset(byte[].class), length);
+      seen.put(key, new String(value, StandardCharsets.UTF_8));
+    });
+    assertEquals(1000, seen.size());
+    assertEquals("123", seen.get(123L));
+  }
+
+}
@@ -0,0 +1,119 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class OffHeapLongLongMapTest {
+
+  private final OffHeapLongLongMap map =
+      new OffHeapLongLongMap(new SunLowLevelMemoryAccessor(), 10);
+
+  @AfterEach
+  void close() {
+    map.close();
+  }
+
+  @Test
+  void putGetRemove() {
+    assertTrue(map.put(1, 10));
+    assertFalse(map.put(1, 11));
+    assertEquals(11, map.put(1, 12, -1));
+    assertEquals(-1, map.put(2, 20, -1));
+    assertEquals(12, map.get(1, -1));
+    assertEquals(-1, map.get(3, -1));
+    assertTrue(map.containsKey(2));
+    assertFalse(map.containsKey(3));
+    assertEquals(2, map.size());
+    assertEquals(20, map.remove(2, -1));
+    assertFalse(map.remove(2));
+    assertFalse(map.containsKey(2));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void reservedKeys() {
+    for (long key : new long[] {OffHeapLongTable.EMPTY, OffHeapLongTable.TOMBSTONE}) {
+      assertFalse(map.containsKey(key));
+      assertTrue(map.put(key, 5));
+      assertEquals(5, map.get(key, -1));
+      assertTrue(map.containsKey(key));
+    }
+    assertEquals(2, map.size());
+    Map<Long, Long> seen = new HashMap<>();
+    map.forEach(seen::put);
+    assertEquals(Map.of(0L, 5L, Long.MIN_VALUE, 5L), seen);
+    assertTrue(map.remove(0));
+    assertFalse(map.containsKey(0));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void growsIncrementally() {
+    int count = 100_000;
+    for (long key = 1; key <= count; key++) {
+      map.put(key, key * 3);
+      if (key % 3 == 0) {
+        map.remove(key - 1);
+      }
+    }
+    long expectedSize = count - count / 3;
+    assertEquals(expectedSize, map.size());
+    assertTrue(map.capacity() >= expectedSize);
+    for (long key = 1; key <= count; key++) {
+      boolean removed = key % 3 == 2 && key < count;
+      assertEquals(removed ? -1 : key * 3, map.get(key, -1), "key " + key);
+    }
+    long[] sum = new long[1];
+    map.forEach((key, value) -> sum[0] += value - key * 3 + 1);
+    assertEquals(expectedSize, sum[0]);
+  }
+
+  @Test
+  void tombstonesAreReclaimed() {
+    for (long key = 1; key <= 100_000; key++) {
+      map.put(key, key);
+      map.remove(key);
+    }
+    assertEquals(0, map.size());
+    assertEquals(16, map.capacity());
+  }
+
+  @Test
+  void readersSeeStableKeysDuringResizes() throws InterruptedException {
+    for (long key = 1; key <= 100; key++) {
+      map.put(key, key);
+    }
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicReference<String> failure = new AtomicReference<>();
+    Thread[] readers = new Thread[2];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        while (!done.get()) {
+          for (long key = 1; key <= 100; key++) {
+            long value = map.get(key, -1);
+            if (value != key) {
+              failure.set("Read " + value + " for " + key);
+            }
+          }
+        }
+      });
+      readers[i].start();
+    }
+    for (long key = 1000; key < 300_000; key++) {
+      map.put(key, key);
+    }
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertNull(failure.get());
+  }
+
+}
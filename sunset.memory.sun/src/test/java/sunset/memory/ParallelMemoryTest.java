@@ -0,0 +1,81 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class ParallelMemoryTest {
+
+  /** Not a multiple of the page size, so that the first and last chunks are partial. */
+  private static final long SIZE = (10 << 20) + 12345;
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+  private final ParallelMemory memory = new ParallelMemory(accessor, pool, 0);
+  private final long src = accessor.allocateMemory(SIZE + 8);
+  private final long dest = accessor.allocateMemory(SIZE + 8);
+
+  @AfterEach
+  void tearDown() {
+    accessor.freeMemory(src);
+    accessor.freeMemory(dest);
+    pool.shutdown();
+  }
+
+  /** Checks every byte of the block, and the one after it, against the expected values. */
+  private void assertBytes(long address, long size, byte expected, byte after) {
+    for (long i = 0; i < size; i++) {
+      if (accessor.getByte(null, address + i) != expected) {
+        fail("Byte " + i + " is " + accessor.getByte(null, address + i));
+      }
+    }
+    assertEquals(after, accessor.getByte(null, address + size));
+  }
+
+  @Test
+  void setMemory() {
+    accessor.putByte(null, dest + SIZE, (byte) 9);
+    memory.setMemory(dest + 1, SIZE - 1, (byte) 7);
+    assertBytes(dest + 1, SIZE - 1, (byte) 7, (byte) 9);
+    memory.setMemory(dest, 0, (byte) 1);
+    assertEquals(7, accessor.getByte(null, dest + 1));
+    assertThrows(IllegalArgumentException.class, () -> memory.setMemory(dest, -1, (byte) 0));
+  }
+
+  @Test
+  void copyMemory() {
+    for (long i = 0; i < SIZE; i += 8) {
+      accessor.putLong(null, src + i, i);
+    }
+    accessor.putByte(null, dest + SIZE - 3, (byte) 9);
+    memory.copyMemory(src + 3, dest, SIZE - 3);
+    for (long i = 8; i < SIZE - 8; i += 8) {
+      assertEquals(i, accessor.getLong(null, dest + i - 3));
+    }
+  }
+
+  @Test
+  void overlappingCopy() {
+    for (long i = 0; i < SIZE; i++) {
+      accessor.putByte(null, src + i, (byte) i);
+    }
+    memory.copyMemory(src, src + 1, SIZE - 1);
+    for (long i = 1; i < SIZE; i += 4099) {
+      assertEquals((byte) (i - 1), accessor.getByte(null, src + i));
+    }
+  }
+
+  @Test
+  void smallBlocksStayOnCaller() {
+    ParallelMemory sequential = new ParallelMemory(accessor, pool, SIZE + 1);
+    assertEquals(SIZE + 1, sequential.threshold());
+    sequential.setMemory(dest, SIZE, (byte) 3);
+    assertBytes(dest, SIZE, (byte) 3, accessor.getByte(null, dest + SIZE));
+    assertEquals(0, pool.getStealCount());
+    assertThrows(IllegalArgumentException.class, () -> new ParallelMemory(accessor, pool, -1));
+  }
+
+}
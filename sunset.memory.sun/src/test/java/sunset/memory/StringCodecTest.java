@@ -0,0 +1,102 @@
+package sunset.memory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class StringCodecTest {
+
+  private static final String[] STRINGS = {
+      "",
+      "key",
+      "a plain ASCII key, long enough for several words",
+      "café crème brûlée, à la carte",
+      "Āā €100 中文",
+      "emoji 😀 and more text after it",
+      "unpaired \ud800 surrogate \udc00",
+  };
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+  private final StringCodec codec = new StringCodec(accessor);
+  private final long address = accessor.allocateMemory(1024);
+
+  @AfterEach
+  void tearDown() {
+    accessor.freeMemory(address);
+  }
+
+  private byte[] read(int bytes) {
+    byte[] array = new byte[bytes];
+    for (int i = 0; i < bytes; i++) {
+      array[i] = accessor.getByte(null, address + i);
+    }
+    return array;
+  }
+
+  private void write(byte[] array) {
+    for (int i = 0; i < array.length; i++) {
+      accessor.putByte(null, address + i, array[i]);
+    }
+  }
+
+  @Test
+  void utf8MatchesJdk() {
+    for (String s : STRINGS) {
+      byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+      assertEquals(expected.length, codec.utf8Length(s), s);
+      assertEquals(expected.length, codec.encodeUtf8(s, address), s);
+      assertArrayEquals(expected, read(expected.length), s);
+      assertEquals(new String(expected, StandardCharsets.UTF_8),
+          codec.decodeUtf8(address, expected.length), s);
+    }
+  }
+
+  @Test
+  void latin1MatchesJdk() {
+    for (String s : STRINGS) {
+      if (s.codePointCount(0, s.length()) != s.length()) {
+        // The JDK writes one '?' for a surrogate pair, and we write one for each char
+        continue;
+      }
+      byte[] expected = s.getBytes(StandardCharsets.ISO_8859_1);
+      assertEquals(expected.length, codec.encodeLatin1(s, address), s);
+      assertArrayEquals(expected, read(expected.length), s);
+      assertEquals(new String(expected, StandardCharsets.ISO_8859_1),
+          codec.decodeLatin1(address, expected.length), s);
+    }
+  }
+
+  @Test
+  void malformedUtf8() {
+    byte[][] inputs = {
+        {(byte) 0xff},
+        {'a', (byte) 0xe2, (byte) 0x82},
+        {(byte) 0xc0, (byte) 0x80, 'b'},
+        {(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+        {(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+        {(byte) 0xe2, 'x', (byte) 0x82, (byte) 0xac},
+        {(byte) 0xf0, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+        {(byte) 0xe0, (byte) 0x80, (byte) 0x80},
+    };
+    for (byte[] input : inputs) {
+      write(input);
+      assertEquals(new String(input, StandardCharsets.UTF_8),
+          codec.decodeUtf8(address, input.length));
+    }
+  }
+
+  @Test
+  void longStrings() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      builder.append((char) ('a' + i % 26)).append(i % 50 == 0 ? "é" : "");
+    }
+    String s = builder.toString();
+    int bytes = codec.encodeUtf8(s, address);
+    assertEquals(s, codec.decodeUtf8(address, bytes));
+  }
+
+}
@@ -0,0 +1,151 @@
+package sunset.memory.accounting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class AccountingLowLevelMemoryAccessorTest {
+
+  @Test
+  void countsLiveBytes() {
+    AccountingLowLevelMemoryAccessor accessor = AccountingLowLevelMemoryAccessor.exact(
+        new SunLowLevelMemoryAccessor(), AccountingLowLevelMemoryAccessor.DEFAULT_SAMPLE_INTERVAL);
+    assertTrue(accessor.isExact());
+    long a = accessor.allocateMemory(100);
+    long b = accessor.allocateMemory(50);
+    assertEquals(0, a % 8);
+    accessor.putLong(null, a, 42);
+    assertEquals(42, accessor.getLong(null, a));
+    assertEquals(150, accessor.liveBytes());
+    b = accessor.reallocateMemory(b, 200);
+    assertEquals(300, accessor.liveBytes());
+    accessor.freeMemory(a);
+    accessor.freeMemory(b);
+    accessor.freeMemory(0);
+    assertEquals(0, accessor.reallocateMemory(accessor.allocateMemory(10), 0));
+
+    AccountingStatistics statistics = accessor.statistics();
+    assertEquals(0, statistics.liveBytes());
+    assertEquals(4, statistics.allocations());
+    assertEquals(4, statistics.frees());
+    assertEquals(360, statistics.allocatedBytes());
+    assertEquals(360, statistics.freedBytes());
+  }
+
+  @Test
+  void recordsEveryAllocationWhenSamplingAll() {
+    AccountingLowLevelMemoryAccessor accessor =
+        new AccountingLowLevelMemoryAccessor(new SunLowLevelMemoryAccessor(), 1);
+    long small = accessor.allocateMemory(8);
+    long large = accessor.allocateMemory(1000);
+    long freed = accessor.allocateMemory(64);
+    accessor.freeMemory(freed);
+
+    List<AllocationRecord> leaks = accessor.leaks();
+    assertEquals(2, leaks.size());
+    assertEquals(large, leaks.get(0).address());
+    assertEquals(1000, leaks.get(0).size());
+    assertEquals(small, leaks.get(1).address());
+    StackTraceElement site = leaks.get(0).site();
+    assertEquals(AccountingLowLevelMemoryAccessorTest.class.getName(), site.getClassName());
+    assertEquals("recordsEveryAllocationWhenSamplingAll", site.getMethodName());
+
+    AccountingStatistics statistics = accessor.statistics();
+    assertEquals(1008, statistics.liveBytes());
+    assertEquals(1072, statistics.sampledPeakBytes());
+    assertEquals(Long.valueOf(1000), statistics.bytesBySite().get(site));
+    assertEquals(3, statistics.bytesBySite().size());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    accessor.reportLeaks(new PrintStream(out, true));
+    String report = out.toString();
+    assertTrue(report.startsWith("1008 bytes of native memory in 2 blocks were not freed"), report);
+    assertTrue(report.contains("recordsEveryAllocationWhenSamplingAll"), report);
+
+    accessor.freeMemory(small);
+    accessor.freeMemory(large);
+    assertTrue(accessor.leaks().isEmpty());
+    out.reset();
+    accessor.reportLeaks(new PrintStream(out, true));
+    assertEquals("", out.toString());
+  }
+
+  @Test
+  void reallocationMovesTheRecord() {
+    AccountingLowLevelMemoryAccessor accessor =
+        new AccountingLowLevelMemoryAccessor(new SunLowLevelMemoryAccessor(), 1);
+    long address = accessor.allocateMemory(16);
+    accessor.putLong(null, address, 7);
+    address = accessor.reallocateMemory(address, 1 << 20);
+    assertEquals(7, accessor.getLong(null, address));
+    List<AllocationRecord> leaks = accessor.leaks();
+    assertEquals(1, leaks.size());
+    assertEquals(address, leaks.get(0).address());
+    assertEquals(1 << 20, leaks.get(0).size());
+    accessor.freeMemory(address);
+  }
+
+  @Test
+  void samplesSomeAllocations() {
+    AccountingLowLevelMemoryAccessor accessor =
+        new AccountingLowLevelMemoryAccessor(new SunLowLevelMemoryAccessor(), 16);
+    long[] addresses = new long[1600];
+    for (int i = 0; i < addresses.length; i++) {
+      addresses[i] = accessor.allocateMemory(8);
+    }
+    int sampled = accessor.leaks().size();
+    assertTrue(sampled > 40 && sampled < 250, "sampled " + sampled);
+    assertFalse(accessor.isExact());
+    assertEquals(sampled * 16 * 8, accessor.liveBytes());
+    assertEquals(sampled * 16, accessor.statistics().allocations());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    accessor.reportLeaks(new PrintStream(out, true));
+    assertTrue(out.toString().startsWith("About " + sampled * 16 * 8 + " bytes"), out.toString());
+    for (long address : addresses) {
+      accessor.freeMemory(address);
+    }
+    assertTrue(accessor.leaks().isEmpty());
+    assertEquals(0, accessor.liveBytes());
+  }
+
+  @Test
+  void exactReallocationCountsBothBlocks() {
+    AccountingLowLevelMemoryAccessor accessor =
+        AccountingLowLevelMemoryAccessor.exact(new SunLowLevelMemoryAccessor(), 1);
+    long address = accessor.allocateMemory(16);
+    accessor.putLong(null, address, 7);
+    address = accessor.reallocateMemory(address, 4096);
+    assertEquals(7, accessor.getLong(null, address));
+    assertEquals(4096, accessor.liveBytes());
+    assertEquals(1, accessor.leaks().size());
+    accessor.freeMemory(address);
+    AccountingStatistics statistics = accessor.statistics();
+    assertEquals(0, statistics.liveBytes());
+    assertEquals(2, statistics.allocations());
+    assertEquals(4112, statistics.freedBytes());
+    assertTrue(accessor.leaks().isEmpty());
+  }
+
+  @Test
+  void computesRates() {
+    AccountingLowLevelMemoryAccessor accessor =
+        AccountingLowLevelMemoryAccessor.exact(new SunLowLevelMemoryAccessor(), 1024);
+    AccountingStatistics before = accessor.statistics();
+    accessor.freeMemory(accessor.allocateMemory(10));
+    AccountingStatistics after = accessor.statistics();
+    assertTrue(after.allocationRate(before) > 0);
+    assertTrue(after.freeRate(before) > 0);
+    assertTrue(after.allocatedByteRate(before) > 0);
+  }
+
+  @Test
+  void rejectsBadIntervals() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new AccountingLowLevelMemoryAccessor(new SunLowLevelMemoryAccessor(), 0));
+  }
+
+}
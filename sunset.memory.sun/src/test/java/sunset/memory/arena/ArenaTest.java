@@ -0,0 +1,95 @@
+package sunset.memory.arena;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class ArenaTest {
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
+  @Test
+  void allocationsAreAlignedAndDisjoint() {
+    try (Arena arena = new Arena(accessor, 4096, 1024)) {
+      long a = arena.allocate(3);
+      long b = arena.allocate(8);
+      long c = arena.allocate(1, 64);
+      assertEquals(0, a % Arena.DEFAULT_ALIGNMENT);
+      assertEquals(0, b % Arena.DEFAULT_ALIGNMENT);
+      assertEquals(0, c % 64);
+      assertTrue(b >= a + 3);
+      assertTrue(c >= b + 8);
+      accessor.putLong(null, b, 42);
+      assertEquals(42, accessor.getLong(null, b));
+      assertEquals(1024, arena.claimed());
+    }
+  }
+
+  @Test
+  void largeAllocationsBypassChunks() {
+    try (Arena arena = new Arena(accessor, 4096, 1024)) {
+      long small = arena.allocate(8);
+      long large = arena.allocate(2048);
+      assertTrue(large >= small + 1024);
+      assertEquals(small + 16, arena.allocate(8));
+    }
+  }
+
+  @Test
+  void exhaustionAndReset() {
+    try (Arena arena = new Arena(accessor, 1024, 256)) {
+      long first = arena.allocate(100); // Two fit in each chunk
+      for (int i = 0; i < 7; i++) {
+        arena.allocate(100);
+      }
+      assertThrows(OutOfMemoryError.class, () -> arena.allocate(100));
+      arena.reset();
+      assertEquals(0, arena.claimed());
+      assertEquals(first, arena.allocate(100));
+    }
+  }
+
+  @Test
+  void threadsGetSeparateChunks() throws InterruptedException {
+    Set<Long> addresses = ConcurrentHashMap.newKeySet();
+    try (Arena arena = new Arena(accessor, 1 << 20, 4096)) {
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new Thread(() -> {
+          for (int j = 0; j < 100; j++) {
+            assertTrue(addresses.add(arena.allocate(16)));
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(400, addresses.size());
+      assertEquals(4 * 4096, arena.claimed());
+    }
+  }
+
+  @Test
+  void closedArenaRejectsAllocations() {
+    Arena arena = new Arena(accessor, 1024, 256);
+    arena.allocate(8);
+    arena.close();
+    arena.close();
+    assertThrows(IllegalStateException.class, () -> arena.allocate(8));
+  }
+
+  @Test
+  void invalidArguments() {
+    try (Arena arena = new Arena(accessor, 1024, 256)) {
+      assertThrows(IllegalArgumentException.class, () -> arena.allocate(-1));
+      assertThrows(IllegalArgumentException.class, () -> arena.allocate(8, 3));
+    }
+    assertThrows(IllegalArgumentException.class, () -> new Arena(accessor, -1, 256));
+  }
+
+}
@@ -0,0 +1,125 @@
+package sunset.memory.array;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class OffHeapArrayTest {
+
+  /** Large enough to be split into several parallel ranges. */
+  private static final long LENGTH = 5 * OffHeapArray.PARALLEL_THRESHOLD + 123;
+
+  /** Runs the bulk operations in parallel even on a single-processor machine. */
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
+  @AfterAll
+  static void shutDown() {
+    POOL.shutdown();
+  }
+
+  private static void inPool(Runnable task) throws InterruptedException, ExecutionException {
+    task.run();
+    POOL.submit(task).get();
+  }
+
+  @Test
+  void getAndSet() {
+    try (OffHeapLongArray array = new OffHeapLongArray(accessor, 10)) {
+      assertEquals(10, array.length());
+      assertEquals(0, array.get(9));
+      array.set(9, Long.MIN_VALUE);
+      assertEquals(Long.MIN_VALUE, array.get(9));
+      assertThrows(IndexOutOfBoundsException.class, () -> array.get(10));
+      assertThrows(IndexOutOfBoundsException.class, () -> array.set(-1, 0));
+      array.close();
+      assertFalse(array.isOpen());
+      assertThrows(IllegalStateException.class, () -> array.get(0));
+    }
+    assertThrows(IllegalArgumentException.class, () -> new OffHeapIntArray(accessor, -1));
+  }
+
+  @Test
+  void fillAndSetAll() throws Exception {
+    try (OffHeapLongArray longs = new OffHeapLongArray(accessor, LENGTH);
+        OffHeapIntArray ints = new OffHeapIntArray(accessor, LENGTH);
+        OffHeapDoubleArray doubles = new OffHeapDoubleArray(accessor, LENGTH)) {
+      inPool(() -> {
+        longs.fill(-1);
+        assertEquals(-LENGTH, longs.stream().sum());
+        longs.fill(0x0102030405060708L);
+        assertEquals(0x0102030405060708L, longs.get(LENGTH - 1));
+        longs.fill(10, 20, 7);
+        assertEquals(7, longs.get(19));
+        assertEquals(0x0102030405060708L, longs.get(20));
+
+        ints.setAll(i -> (int) (i % 3));
+        assertEquals((LENGTH + 1) / 3, ints.parallelStream().filter(i -> i == 1).count());
+        assertEquals((LENGTH - 1) % 3, ints.get(LENGTH - 1));
+
+        doubles.setAll(i -> i * 0.5);
+        assertEquals(LENGTH * (LENGTH - 1) * 0.25, doubles.parallelStream().sum());
+        doubles.fill(1.5);
+        assertEquals(1.5 * LENGTH, doubles.stream().sum());
+      });
+      assertThrows(IndexOutOfBoundsException.class, () -> ints.fill(5, LENGTH + 1, 0));
+    }
+  }
+
+  @Test
+  void copy() throws Exception {
+    try (OffHeapLongArray src = new OffHeapLongArray(accessor, LENGTH);
+        OffHeapLongArray dest = new OffHeapLongArray(accessor, LENGTH + 10)) {
+      inPool(() -> {
+        src.setAll(i -> i);
+        src.copyTo(0, dest, 10, LENGTH);
+        assertEquals(0, dest.get(9));
+        assertEquals(LENGTH - 1, dest.get(LENGTH + 9));
+        // Overlapping ranges of the same array
+        dest.copyTo(10, dest, 11, LENGTH - 1);
+        assertEquals(0, dest.get(11));
+        assertEquals(LENGTH - 2, dest.get(LENGTH + 9));
+      });
+      long[] heap = {1, 2, 3, 4};
+      src.copyFrom(heap, 1, 5, 3);
+      assertEquals(4, src.get(7));
+      long[] out = new long[3];
+      src.copyTo(5, out, 0, 3);
+      assertArrayEquals(new long[] {2, 3, 4}, out);
+      assertThrows(IndexOutOfBoundsException.class, () -> src.copyFrom(heap, 2, 0, 3));
+      assertThrows(IndexOutOfBoundsException.class, () -> src.copyTo(LENGTH - 1, dest, 0, 2));
+    }
+  }
+
+  @Test
+  void prefix() throws Exception {
+    try (OffHeapLongArray longs = new OffHeapLongArray(accessor, LENGTH);
+        OffHeapIntArray ints = new OffHeapIntArray(accessor, LENGTH)) {
+      inPool(() -> {
+        longs.setAll(i -> i + 1);
+        longs.parallelPrefix(Long::sum);
+        for (long i = 0; i < LENGTH; i += 997) {
+          assertEquals((i + 1) * (i + 2) / 2, longs.get(i));
+        }
+        assertEquals(LENGTH * (LENGTH + 1) / 2, longs.get(LENGTH - 1));
+
+        ints.setAll(i -> (int) (i * 7919 % 1000));
+        ints.set(LENGTH / 2, 5000);
+        ints.parallelPrefix(Math::max);
+        assertEquals(999, ints.get(LENGTH / 2 - 1));
+        assertEquals(5000, ints.get(LENGTH - 1));
+      });
+    }
+    try (OffHeapDoubleArray empty = new OffHeapDoubleArray(accessor, 0)) {
+      empty.parallelPrefix(Double::sum);
+      assertEquals(0, empty.stream().count());
+    }
+  }
+
+}
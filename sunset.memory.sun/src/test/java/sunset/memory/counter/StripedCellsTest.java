@@ -0,0 +1,98 @@
+package sunset.memory.counter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class StripedCellsTest {
+
+  private static final int THREADS = 4;
+  private static final int UPDATES = 100_000;
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
+  private static void runConcurrently(Runnable task) throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    for (int i = 0; i < THREADS; i++) {
+      threads[i] = new Thread(task);
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  void layout() {
+    int lineSize = StripedCells.cacheLineSize();
+    assertEquals(1, Integer.bitCount(lineSize));
+    try (StripedLongCounter counter = new StripedLongCounter(accessor, 5)) {
+      assertEquals(8, counter.stripes());
+      for (int i = 0; i < counter.stripes(); i++) {
+        assertEquals(0, counter.cell(i) % lineSize);
+        if (i > 0) {
+          assertEquals(lineSize, counter.cell(i) - counter.cell(i - 1));
+        }
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> new StripedLongCounter(accessor, 0));
+  }
+
+  @Test
+  void lineSize() {
+    assertEquals(128, StripedCells.lineSize(0, "128\n"));
+    assertEquals(64, StripedCells.lineSize(0, "0\n"));
+    assertEquals(64, StripedCells.lineSize(0, "96"));
+    assertEquals(64, StripedCells.lineSize(0, "?"));
+    assertEquals(64, StripedCells.lineSize(0, null));
+    assertEquals(256, StripedCells.lineSize(256, "64"));
+    assertThrows(IllegalArgumentException.class, () -> StripedCells.lineSize(96, "64"));
+    assertThrows(IllegalArgumentException.class, () -> StripedCells.lineSize(-64, null));
+  }
+
+  @Test
+  void counter() throws InterruptedException {
+    try (StripedLongCounter counter = new StripedLongCounter(accessor)) {
+      counter.add(10);
+      counter.decrement();
+      assertEquals(9, counter.sum());
+      runConcurrently(() -> {
+        for (int i = 0; i < UPDATES; i++) {
+          counter.increment();
+        }
+      });
+      assertEquals(9 + THREADS * UPDATES, counter.sum());
+      assertEquals(9 + THREADS * UPDATES, counter.sumThenReset());
+      assertEquals(0, counter.sum());
+      counter.add(3);
+      counter.reset();
+      assertEquals("0", counter.toString());
+    }
+  }
+
+  @Test
+  void accumulator() throws InterruptedException {
+    try (StripedDoubleAccumulator adder = StripedDoubleAccumulator.adder(accessor)) {
+      runConcurrently(() -> {
+        for (int i = 0; i < UPDATES; i++) {
+          adder.accumulate(0.5);
+        }
+      });
+      assertEquals(THREADS * UPDATES * 0.5, adder.get());
+      assertEquals(THREADS * UPDATES * 0.5, adder.getThenReset());
+      assertEquals(0, adder.get());
+    }
+    try (StripedDoubleAccumulator max =
+        new StripedDoubleAccumulator(accessor, Math::max, Double.NEGATIVE_INFINITY, 2)) {
+      assertEquals(Double.NEGATIVE_INFINITY, max.get());
+      max.accumulate(3);
+      max.accumulate(-1);
+      assertEquals(3, max.get());
+      max.reset();
+      assertEquals(Double.NEGATIVE_INFINITY, max.get());
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+package sunset.memory.field;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+import sunset.memory.varhandle.VarHandleLowLevelMemoryAccessor;
+import sunset.serial.ctor.sun.SunConstructorMunger;
+
+class FastClonerTest {
+
+  static class Base {
+    final long inherited;
+    final List<String> list;
+
+    Base(long inherited) {
+      this.inherited = inherited;
+      this.list = new ArrayList<>();
+    }
+  }
+
+  static class Dto extends Base {
+    static int constructed;
+
+    boolean z;
+    byte b;
+    short s;
+    char c;
+    int i;
+    long j;
+    float f;
+    double d;
+    String string;
+    Object object;
+    boolean z2;
+    byte b2;
+
+    Dto(long inherited) {
+      super(inherited);
+      constructed++;
+    }
+  }
+
+  static class SubDto extends Dto {
+    SubDto() {
+      super(0);
+    }
+  }
+
+  /** Without final fields, which {@link VarHandleLowLevelMemoryAccessor} can't write. */
+  static class Plain {
+    boolean z;
+    byte b;
+    short s;
+    char c;
+    int i;
+    long j;
+    float f;
+    double d;
+    String string;
+    byte b2;
+  }
+
+  private static Dto dto() {
+    Dto dto = new Dto(-1);
+    dto.z = true;
+    dto.b = -2;
+    dto.s = -3;
+    dto.c = '\uFFFC';
+    dto.i = -5;
+    dto.j = Long.MIN_VALUE + 6;
+    dto.f = 7.5f;
+    dto.d = -8.25;
+    dto.string = "nine";
+    dto.object = new Object();
+    dto.z2 = true;
+    dto.b2 = 11;
+    dto.list.add("twelve");
+    return dto;
+  }
+
+  private static void assertCopy(Dto expected, Dto actual) {
+    assertEquals(expected.inherited, actual.inherited);
+    assertSame(expected.list, actual.list);
+    assertEquals(expected.z, actual.z);
+    assertEquals(expected.b, actual.b);
+    assertEquals(expected.s, actual.s);
+    assertEquals(expected.c, actual.c);
+    assertEquals(expected.i, actual.i);
+    assertEquals(expected.j, actual.j);
+    assertEquals(expected.f, actual.f);
+    assertEquals(expected.d, actual.d);
+    assertSame(expected.string, actual.string);
+    assertSame(expected.object, actual.object);
+    assertEquals(expected.z2, actual.z2);
+    assertEquals(expected.b2, actual.b2);
+  }
+
+  @Test
+  void copy() {
+    FastCloner<Dto> cloner = new FastCloner<>(
+        new SunLowLevelMemoryAccessor(), new SunConstructorMunger(), Dto.class);
+    Dto original = dto();
+    int constructed = Dto.constructed;
+    Dto copy = cloner.copy(original);
+    assertEquals(constructed, Dto.constructed);
+    assertNotSame(original, copy);
+    assertSame(Dto.class, copy.getClass());
+    assertCopy(original, copy);
+
+    Dto target = new Dto(3);
+    cloner.copyInto(original, target);
+    assertCopy(original, target);
+    Dto empty = new Dto(0);
+    cloner.copyInto(empty, target);
+    assertCopy(empty, target);
+  }
+
+  @Test
+  void copyThroughVarHandles() {
+    FastCloner<Plain> cloner = new FastCloner<>(
+        new VarHandleLowLevelMemoryAccessor(), new SunConstructorMunger(), Plain.class);
+    Plain original = new Plain();
+    original.z = true;
+    original.b = -2;
+    original.s = -3;
+    original.c = '\uFFFC';
+    original.i = -5;
+    original.j = Long.MIN_VALUE + 6;
+    original.f = 7.5f;
+    original.d = -8.25;
+    original.string = "nine";
+    original.b2 = 10;
+    Plain copy = cloner.copy(original);
+    assertNotSame(original, copy);
+    assertEquals(original.z, copy.z);
+    assertEquals(original.b, copy.b);
+    assertEquals(original.s, copy.s);
+    assertEquals(original.c, copy.c);
+    assertEquals(original.i, copy.i);
+    assertEquals(original.j, copy.j);
+    assertEquals(original.f, copy.f);
+    assertEquals(original.d, copy.d);
+    assertSame(original.string, copy.string);
+    assertEquals(original.b2, copy.b2);
+
+    assertThrows(IllegalArgumentException.class, () -> new FastCloner<>(
+        new VarHandleLowLevelMemoryAccessor(), new SunConstructorMunger(), Dto.class));
+  }
+
+  @Test
+  void newInstance() {
+    int constructed = Dto.constructed;
+    Dto dto = FastCloner.of(Dto.class).newInstance();
+    assertEquals(constructed, Dto.constructed);
+    assertNull(dto.list);
+    assertEquals(0, dto.inherited);
+  }
+
+  @Test
+  void of() {
+    assertSame(FastCloner.of(Dto.class), FastCloner.of(Dto.class));
+    Dto original = dto();
+    assertCopy(original, FastCloner.of(Dto.class).copy(original));
+    assertThrows(IllegalArgumentException.class,
+        () -> FastCloner.of(Dto.class).copy(new SubDto()));
+    assertThrows(IllegalArgumentException.class, () -> FastCloner.of(Runnable.class));
+    assertThrows(IllegalArgumentException.class, () -> FastCloner.of(int[].class));
+  }
+
+}
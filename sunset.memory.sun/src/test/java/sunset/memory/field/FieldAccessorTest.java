@@ -0,0 +1,134 @@
+package sunset.memory.field;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class FieldAccessorTest {
+
+  static class Base {
+    long inherited;
+  }
+
+  static class Fields extends Base {
+    static int counter;
+
+    boolean z;
+    byte b;
+    short s;
+    char c;
+    int i;
+    long j;
+    float f;
+    double d;
+    String string;
+  }
+
+  @Test
+  void primitives() {
+    Fields fields = new Fields();
+    BooleanFieldAccessor.of(Fields.class, "z").set(fields, true);
+    ByteFieldAccessor.of(Fields.class, "b").set(fields, (byte) 1);
+    ShortFieldAccessor.of(Fields.class, "s").set(fields, (short) 2);
+    CharFieldAccessor.of(Fields.class, "c").setVolatile(fields, 'c');
+    IntFieldAccessor.of(Fields.class, "i").setOrdered(fields, 4);
+    LongFieldAccessor.of(Fields.class, "j").set(fields, 5);
+    FloatFieldAccessor.of(Fields.class, "f").set(fields, 6);
+    DoubleFieldAccessor.of(Fields.class, "d").setVolatile(fields, 7);
+    assertTrue(fields.z);
+    assertEquals(1, fields.b);
+    assertEquals(2, fields.s);
+    assertEquals('c', fields.c);
+    assertEquals(4, fields.i);
+    assertEquals(5, fields.j);
+    assertEquals(6, fields.f);
+    assertEquals(7, fields.d);
+    assertEquals(2, ShortFieldAccessor.of(Fields.class, "s").getVolatile(fields));
+    assertEquals(7, DoubleFieldAccessor.of(Fields.class, "d").get(fields));
+  }
+
+  @Test
+  void atomics() {
+    Fields fields = new Fields();
+    IntFieldAccessor<Fields> i = IntFieldAccessor.of(Fields.class, "i");
+    assertTrue(i.compareAndSet(fields, 0, 10));
+    assertFalse(i.compareAndSet(fields, 0, 20));
+    assertEquals(10, i.getAndAdd(fields, 5));
+    assertEquals(20, i.addAndGet(fields, 5));
+    assertEquals(20, i.getAndSet(fields, 1));
+    assertEquals(1, fields.i);
+
+    LongFieldAccessor<Fields> j = LongFieldAccessor.of(Fields.class, "j");
+    assertEquals(0, j.getAndAdd(fields, 3));
+    assertTrue(j.compareAndSet(fields, 3, Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, fields.j);
+
+    DoubleFieldAccessor<Fields> d = DoubleFieldAccessor.of(Fields.class, "d");
+    assertEquals(0, d.getAndAdd(fields, 1.5));
+    assertEquals(3, d.addAndGet(fields, 1.5));
+    assertTrue(d.compareAndSet(fields, 3, -0.0));
+    assertFalse(d.compareAndSet(fields, 0.0, 1), "compares bits, like AtomicDouble");
+
+    BooleanFieldAccessor<Fields> z = BooleanFieldAccessor.of(Fields.class, "z");
+    ByteFieldAccessor<Fields> b = ByteFieldAccessor.of(Fields.class, "b");
+    ShortFieldAccessor<Fields> s = ShortFieldAccessor.of(Fields.class, "s");
+    CharFieldAccessor<Fields> c = CharFieldAccessor.of(Fields.class, "c");
+    assertTrue(z.compareAndSet(fields, false, true));
+    assertFalse(z.compareAndSet(fields, false, true));
+    assertTrue(z.getAndSet(fields, false));
+    assertEquals(0, b.getAndAdd(fields, (byte) 127));
+    assertEquals(-128, b.addAndGet(fields, (byte) 1));
+    assertTrue(b.compareAndSet(fields, (byte) -128, (byte) 3));
+    assertEquals(3, b.getAndSet(fields, (byte) 4));
+    assertEquals(0, s.getAndAdd(fields, (short) -1));
+    assertTrue(s.compareAndSet(fields, (short) -1, Short.MAX_VALUE));
+    assertFalse(s.compareAndSet(fields, (short) -1, (short) 0));
+    assertEquals(0, c.getAndSet(fields, 'a'));
+    assertEquals('b', c.addAndGet(fields, (char) 1));
+    assertTrue(c.compareAndSet(fields, 'b', '\uFFFF'));
+    // The neighbouring fields in the same word are left alone
+    assertFalse(fields.z);
+    assertEquals(4, fields.b);
+    assertEquals(Short.MAX_VALUE, fields.s);
+    assertEquals('\uFFFF', fields.c);
+    assertEquals(1, fields.i);
+
+    ObjectFieldAccessor<Fields, String> string =
+        ObjectFieldAccessor.of(Fields.class, "string", String.class);
+    assertNull(string.getAndSet(fields, "a"));
+    assertTrue(string.compareAndSet(fields, "a", "b"));
+    assertEquals("b", string.get(fields));
+  }
+
+  @Test
+  void staticAndInheritedFields() {
+    IntFieldAccessor<Fields> counter = IntFieldAccessor.of(Fields.class, "counter");
+    assertTrue(counter.isStatic());
+    counter.set(null, 42);
+    assertEquals(42, Fields.counter);
+    assertEquals(42, counter.getAndAdd(null, 1));
+    assertEquals(43, Fields.counter);
+
+    Fields fields = new Fields();
+    LongFieldAccessor<Fields> inherited = LongFieldAccessor.of(Fields.class, "inherited");
+    assertFalse(inherited.isStatic());
+    inherited.set(fields, 9);
+    assertEquals(9, fields.inherited);
+  }
+
+  @Test
+  void cached() {
+    assertSame(FieldAccessor.of(Fields.class, "j"), LongFieldAccessor.of(Fields.class, "j"));
+    assertTrue(FieldAccessor.of(Fields.class, "string") instanceof ObjectFieldAccessor);
+  }
+
+  @Test
+  void wrongTypeOrName() {
+    assertThrows(IllegalArgumentException.class, () -> IntFieldAccessor.of(Fields.class, "j"));
+    assertThrows(IllegalArgumentException.class,
+        () -> ObjectFieldAccessor.of(Fields.class, "string", Object.class));
+    assertThrows(IllegalArgumentException.class,
+        () -> LongFieldAccessor.of(Fields.class, "missing"));
+  }
+
+}
@@ -0,0 +1,98 @@
+package sunset.memory.field;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+import sunset.memory.varhandle.VarHandleLowLevelMemoryAccessor;
+
+class MemoryMeterTest {
+
+  static class Fields {
+    int i;
+    long j;
+    Object ref;
+  }
+
+  static class Node {
+    Node next;
+    Object[] children;
+    byte[] payload;
+  }
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+  private final MemoryMeter meter = new MemoryMeter(accessor);
+
+  private long align(long size) {
+    long alignment = meter.objectAlignment();
+    return (size + alignment - 1) / alignment * alignment;
+  }
+
+  @Test
+  void shallow() {
+    long header = meter.headerSize();
+    int reference = meter.referenceSize();
+    assertEquals(align(header), meter.measure(new Object()));
+    assertTrue(meter.measure(new Fields()) >= align(header + 12 + reference));
+    assertEquals(align(accessor.arrayBaseOffset(long[].class) + 8 * 100),
+        meter.measure(new long[100]));
+    assertEquals(align(accessor.arrayBaseOffset(Object[].class) + reference * 9L),
+        meter.measure(new Object[9]));
+    assertEquals(0, meter.measure(null));
+    if (header == 12 && reference == 4 && meter.objectAlignment() == 8) {
+      // The sizes Instrumentation.getObjectSize reports with compressed oops
+      assertEquals(16, meter.measure(new Object()));
+      assertEquals(32, meter.measure(new Fields()));
+      assertEquals(16, meter.measure(new byte[0]));
+      assertEquals(24, meter.measure(new byte[5]));
+      assertEquals(24, meter.measure(new long[1]));
+      assertEquals(24, meter.measure(new Object[2]));
+      assertEquals(16, meter.measure(Integer.valueOf(1000)));
+    }
+  }
+
+  @Test
+  void deep() {
+    Node a = new Node();
+    Node b = new Node();
+    a.next = b;
+    b.next = a;
+    a.payload = new byte[64];
+    b.payload = a.payload;
+    a.children = new Object[] {a, b, Node.class, null};
+    long expected = meter.measure(a) + meter.measure(b) + meter.measure(a.payload)
+        + meter.measure(a.children);
+    assertEquals(expected, meter.measureDeep(a));
+    assertEquals(expected, meter.measureDeep(b));
+    assertEquals(expected, meter.measureDeepParallel(a));
+    assertEquals(0, meter.measureDeep(null));
+  }
+
+  @Test
+  void parallelMatchesSequential() throws Exception {
+    Map<Integer, Object> map = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      map.put(i, i % 3 == 0 ? "value " + i : new long[i % 7]);
+    }
+    long expected = meter.measureDeep(map);
+    assertTrue(expected > 100_000 * (meter.measure(1) + meter.referenceSize()));
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(expected, (long) pool.submit(() -> meter.measureDeepParallel(map)).get());
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(expected, meter.measureDeepParallel(map));
+  }
+
+  @Test
+  void rejectsAccessorsWithoutObjectLayout() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new MemoryMeter(new VarHandleLowLevelMemoryAccessor()));
+  }
+
+}
@@ -0,0 +1,156 @@
+package sunset.memory.field;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+import sunset.serial.ctor.sun.SunConstructorMunger;
+
+class OffHeapSerializerTest {
+
+  private static final int CAPACITY = 1 << 16;
+
+  static class Base {
+    final long id;
+
+    Base(long id) {
+      this.id = id;
+    }
+  }
+
+  static class Value extends Base {
+    static int constructed;
+
+    boolean z;
+    byte b;
+    short s;
+    char c;
+    int i;
+    float f;
+    double d;
+    String name;
+    TimeUnit unit;
+    int[] ints;
+    double[] doubles;
+    String[] names;
+    Object other;
+    Integer boxed;
+    transient Object cache;
+
+    Value(long id) {
+      super(id);
+      constructed++;
+    }
+  }
+
+  static class Node {
+    final String label;
+    Node[] edges;
+    Node next;
+
+    Node(String label) {
+      this.label = label;
+    }
+  }
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+  private final OffHeapSerializer serializer = new OffHeapSerializer(
+      accessor, new SunConstructorMunger(), getClass().getClassLoader());
+  private final long address = accessor.allocateMemory(CAPACITY);
+
+  @AfterEach
+  void tearDown() {
+    accessor.freeMemory(address);
+  }
+
+  private Object roundTrip(Object obj) {
+    long length = serializer.serialize(obj, address, CAPACITY);
+    assertTrue(length > 0);
+    return serializer.deserialize(address, length);
+  }
+
+  @Test
+  void values() {
+    Value value = new Value(-1);
+    value.z = true;
+    value.b = -2;
+    value.s = 3;
+    value.c = 'é';
+    value.i = Integer.MIN_VALUE;
+    value.f = 5.5f;
+    value.d = -6.25;
+    value.name = "café 😀";
+    value.unit = TimeUnit.SECONDS;
+    value.ints = new int[] {1, 2, 3};
+    value.doubles = new double[0];
+    value.names = new String[] {"a", null, value.name};
+    value.other = Arrays.asList(1L, "two");
+    value.boxed = 1234567;
+    value.cache = new Object();
+
+    int constructed = Value.constructed;
+    Value copy = serializer.deserialize(address, serializer.serialize(value, address, CAPACITY),
+        Value.class);
+    assertEquals(constructed, Value.constructed);
+    assertEquals(value.id, copy.id);
+    assertEquals(value.z, copy.z);
+    assertEquals(value.b, copy.b);
+    assertEquals(value.s, copy.s);
+    assertEquals(value.c, copy.c);
+    assertEquals(value.i, copy.i);
+    assertEquals(value.f, copy.f);
+    assertEquals(value.d, copy.d);
+    assertEquals(value.name, copy.name);
+    assertSame(TimeUnit.SECONDS, copy.unit);
+    assertArrayEquals(value.ints, copy.ints);
+    assertArrayEquals(value.doubles, copy.doubles);
+    assertArrayEquals(value.names, copy.names);
+    assertSame(copy.name, copy.names[2]);
+    assertEquals(value.other, copy.other);
+    assertEquals(value.boxed, copy.boxed);
+    assertNull(copy.cache);
+    assertNull(roundTrip(null));
+    assertEquals("", roundTrip(""));
+  }
+
+  @Test
+  void sharedReferencesAndCycles() {
+    Node a = new Node("a");
+    Node b = new Node("b");
+    a.next = b;
+    b.next = a;
+    a.edges = new Node[] {b, a};
+    Node copy = (Node) roundTrip(a);
+    assertEquals("a", copy.label);
+    assertEquals("b", copy.next.label);
+    assertSame(copy, copy.next.next);
+    assertSame(copy.next, copy.edges[0]);
+    assertSame(copy, copy.edges[1]);
+
+    Object[] self = new Object[1];
+    self[0] = self;
+    Object[] selfCopy = (Object[]) roundTrip(self);
+    assertSame(selfCopy, selfCopy[0]);
+  }
+
+  @Test
+  void overflowAndMalformed() {
+    long[] big = new long[CAPACITY];
+    assertEquals(-1, serializer.serialize(big, address, CAPACITY));
+    assertEquals(-1, serializer.serialize("x", address, 4));
+
+    long length = serializer.serialize(new Value(1), address, CAPACITY);
+    assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(address, length - 1));
+    assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(address + 1, length));
+    assertThrows(IllegalArgumentException.class,
+        () -> serializer.serialize(String.class, address, CAPACITY));
+    assertThrows(IllegalArgumentException.class,
+        () -> serializer.serialize(new ArrayList<>(), address, CAPACITY));
+  }
+
+}
@@ -0,0 +1,204 @@
+package sunset.memory.pool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class PooledLowLevelMemoryAccessorTest {
+
+  private final PooledLowLevelMemoryAccessor accessor =
+      new PooledLowLevelMemoryAccessor(new SunLowLevelMemoryAccessor());
+
+  @AfterEach
+  void close() {
+    accessor.close();
+  }
+
+  @Test
+  void sizeClasses() {
+    int[] sizes = PooledLowLevelMemoryAccessor.sizeClasses();
+    assertEquals(16, sizes[0]);
+    assertEquals(PooledLowLevelMemoryAccessor.MAX_SMALL_SIZE, sizes[sizes.length - 1]);
+    for (int i = 1; i < sizes.length; i++) {
+      assertTrue(sizes[i] > sizes[i - 1]);
+      assertEquals(0, sizes[i] % 16);
+    }
+  }
+
+  @Test
+  void smallBlocksAreReused() {
+    long a = accessor.allocateMemory(24);
+    long b = accessor.allocateMemory(32);
+    assertEquals(0, a % 16);
+    assertEquals(a + 32, b);
+    accessor.putLong(null, a, 1);
+    accessor.putLong(null, b + 24, 2);
+    assertEquals(1, accessor.getLong(null, a));
+    accessor.freeMemory(a);
+    assertEquals(a, accessor.allocateMemory(17));
+    PoolStatistics statistics = accessor.statistics();
+    assertEquals(64, statistics.liveSmallBytes());
+    assertEquals(1, statistics.slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE);
+  }
+
+  @Test
+  void largeBlocks() {
+    long large = accessor.allocateMemory(100_000);
+    assertEquals(8, large % 16);
+    accessor.setMemory(large, 100_000, (byte) 3);
+    assertEquals(1, accessor.statistics().largeBlocks());
+    assertEquals(100_000, accessor.statistics().largeBytes());
+    large = accessor.reallocateMemory(large, 1_000_000);
+    assertEquals(3, accessor.getByte(null, large + 99_999));
+    assertEquals(1_000_000, accessor.statistics().largeBytes());
+    long small = accessor.reallocateMemory(large, 100);
+    assertEquals(0, small % 16);
+    assertEquals(3, accessor.getByte(null, small + 99));
+    assertEquals(0, accessor.statistics().largeBlocks());
+    accessor.freeMemory(small);
+  }
+
+  @Test
+  void reallocateSmall() {
+    long address = accessor.allocateMemory(40);
+    accessor.putLong(null, address + 32, 42);
+    assertEquals(address, accessor.reallocateMemory(address, 48));
+    long grown = accessor.reallocateMemory(address, 200);
+    assertNotEquals(address, grown);
+    assertEquals(42, accessor.getLong(null, grown + 32));
+    assertEquals(0, accessor.reallocateMemory(grown, 0));
+    assertEquals(0, accessor.allocateMemory(0));
+    accessor.freeMemory(0);
+    assertThrows(IllegalArgumentException.class, () -> accessor.allocateMemory(-1));
+  }
+
+  @Test
+  void emptySlabsAreReleased() {
+    int count = (int) (PooledLowLevelMemoryAccessor.SLAB_SIZE / 64) * 3;
+    long[] blocks = new long[count];
+    for (int i = 0; i < count; i++) {
+      blocks[i] = accessor.allocateMemory(64);
+    }
+    assertEquals(4, accessor.statistics().slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE);
+    for (long block : blocks) {
+      accessor.freeMemory(block);
+    }
+    assertEquals(0, accessor.statistics().liveSmallBytes());
+    // Freed slabs are released the next time the thread needs a slab
+    long next = accessor.allocateMemory(16);
+    assertTrue(accessor.statistics().slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE <= 2);
+    accessor.freeMemory(next);
+  }
+
+  @Test
+  void remoteFrees() throws InterruptedException {
+    BlockingQueue<Long> queue = new ArrayBlockingQueue<>(1024);
+    int count = 100_000;
+    Thread consumer = new Thread(() -> {
+      try {
+        for (int i = 0; i < count; i++) {
+          long block = queue.take();
+          assertEquals(block, accessor.getLong(null, block + 8));
+          accessor.freeMemory(block);
+        }
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    consumer.start();
+    Set<Long> live = new HashSet<>();
+    for (int i = 0; i < count; i++) {
+      long block = accessor.allocateMemory(48);
+      accessor.putLong(null, block + 8, block);
+      queue.put(block);
+      live.add(block);
+    }
+    consumer.join();
+    assertEquals(0, accessor.statistics().liveSmallBytes());
+    // Remotely freed blocks were reused, so few slabs were needed
+    assertTrue(live.size() < count);
+    assertTrue(accessor.statistics().reservedBytes()
+        <= (PooledLowLevelMemoryAccessor.SLABS_PER_SEGMENT + 1)
+        * PooledLowLevelMemoryAccessor.SLAB_SIZE);
+  }
+
+  @Test
+  void slabsOfExitedThreadsAreAdopted() throws InterruptedException {
+    int threads = 40;
+    long[] blocks = new long[threads * 2];
+    for (int i = 0; i < threads; i++) {
+      int index = i;
+      // Each thread leaves blocks allocated in two size classes, then exits
+      Thread thread = new Thread(() -> {
+        blocks[index * 2] = accessor.allocateMemory(64);
+        blocks[index * 2 + 1] = accessor.allocateMemory(1024);
+      });
+      thread.start();
+      thread.join();
+    }
+    // Each thread took over the slabs of the ones before it
+    assertEquals(2, accessor.statistics().slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE);
+    assertEquals(threads * (64 + 1024), accessor.statistics().liveSmallBytes());
+    for (long block : blocks) {
+      accessor.freeMemory(block);
+    }
+    // Until this thread needs a fresh slab and adopts them, the freed blocks pin them
+    accessor.freeMemory(accessor.allocateMemory(256));
+    assertEquals(0, accessor.statistics().liveSmallBytes());
+    assertEquals(1, accessor.statistics().slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE);
+    assertTrue(accessor.statistics().reservedBytes()
+        <= (PooledLowLevelMemoryAccessor.SLABS_PER_SEGMENT + 1)
+        * PooledLowLevelMemoryAccessor.SLAB_SIZE);
+  }
+
+  @Test
+  void fullSlabsOfExitedThreadsAreAdopted() throws InterruptedException {
+    int count = (int) (PooledLowLevelMemoryAccessor.SLAB_SIZE / 4096) * 2;
+    long[] blocks = new long[count];
+    Thread thread = new Thread(() -> {
+      for (int i = 0; i < count; i++) {
+        blocks[i] = accessor.allocateMemory(4096);
+      }
+    });
+    thread.start();
+    thread.join();
+    long slabs = accessor.statistics().slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE;
+    assertTrue(slabs >= 2);
+    // Adopts the full slabs, which are queued to this thread once blocks are freed into them
+    accessor.freeMemory(accessor.allocateMemory(16));
+    for (long block : blocks) {
+      accessor.freeMemory(block);
+    }
+    accessor.freeMemory(accessor.allocateMemory(4096));
+    assertEquals(0, accessor.statistics().liveSmallBytes());
+    assertTrue(accessor.statistics().slabBytes() / PooledLowLevelMemoryAccessor.SLAB_SIZE <= 2);
+  }
+
+  @Test
+  void allocatingAfterCloseFails() {
+    long small = accessor.allocateMemory(64);
+    long large = accessor.allocateMemory(100_000);
+    accessor.close();
+    assertThrows(IllegalStateException.class, () -> accessor.allocateMemory(64));
+    assertThrows(IllegalStateException.class, () -> accessor.allocateMemory(100_000));
+    // Small blocks went with their slabs, and large ones are still freed
+    accessor.freeMemory(small);
+    accessor.freeMemory(large);
+    assertEquals(0, accessor.statistics().largeBlocks());
+  }
+
+  @Test
+  void forwardsOtherMethods() {
+    int[] ints = {1, 2};
+    long offset = accessor.arrayBaseOffset(int[].class) + accessor.arrayIndexScale(int[].class);
+    assertEquals(2, accessor.getAndAddInt(ints, offset, 3));
+    assertEquals(5, ints[1]);
+  }
+
+}
@@ -0,0 +1,198 @@
+package sunset.memory.ring;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import sunset.memory.CheckedLowLevelMemoryAccessor;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class RingBufferTest {
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
+  private String string(long address, int length) {
+    byte[] bytes = new byte[length];
+    accessor.copyMemory(null, address, bytes, accessor.arrayBaseOffset(byte[].class), length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void offerAndRead(RingBuffer ring) {
+    assertEquals(48, ring.maxMessageLength());
+    byte[] hello = "hello".getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(hello, 0, 5));
+    }
+    assertFalse(ring.offer(hello, 0, 5));
+    assertEquals(4, ring.size());
+    List<String> read = new ArrayList<>();
+    assertEquals(3, ring.read((address, length) -> read.add(string(address, length)), 3));
+    assertEquals(List.of("hello", "hello", "hello"), read);
+    assertTrue(ring.offer(hello, 1, 4));
+    read.clear();
+    assertEquals(2, ring.read((address, length) -> read.add(string(address, length)), 10));
+    assertEquals(List.of("hello", "ello"), read);
+    assertEquals(0, ring.read((address, length) -> fail("empty"), 10));
+    assertThrows(IllegalArgumentException.class, () -> ring.offer(new byte[49], 0, 49));
+  }
+
+  private void batchClaim(RingBuffer ring) {
+    assertThrows(IllegalArgumentException.class, () -> ring.tryClaim(5));
+    long first = ring.tryClaim(3);
+    assertEquals(0, first);
+    assertEquals(0, ring.size());
+    for (int i = 0; i < 3; i++) {
+      accessor.putLong(null, ring.address(first + i), 100 + i);
+      ring.setLength(first + i, 8);
+    }
+    ring.commit(first, 3);
+    long[] sum = new long[1];
+    assertEquals(3, ring.read((address, length) -> sum[0] += accessor.getLong(null, address), 10));
+    assertEquals(303, sum[0]);
+    assertEquals(3, ring.tryClaim(4));
+  }
+
+  @Test
+  void spsc() {
+    try (RingBuffer ring = new SpscRingBuffer(accessor, 4, 64)) {
+      offerAndRead(ring);
+    }
+    try (RingBuffer ring = new SpscRingBuffer(accessor, 4, 64)) {
+      batchClaim(ring);
+    }
+  }
+
+  @Test
+  void mpsc() {
+    try (RingBuffer ring = new MpscRingBuffer(accessor, 4, 64)) {
+      offerAndRead(ring);
+    }
+    try (RingBuffer ring = new MpscRingBuffer(accessor, 4, 64)) {
+      batchClaim(ring);
+    }
+  }
+
+  @Test
+  void closeLeavesCallersMemory() {
+    CheckedLowLevelMemoryAccessor checked = new CheckedLowLevelMemoryAccessor(accessor);
+    long bytes = RingBuffer.size(4, 64);
+    long base = checked.allocateMemory(bytes);
+    checked.setMemory(base, bytes, (byte) 0);
+    try (RingBuffer ring = new MpscRingBuffer(checked, base, 4, 64)) {
+      offerAndRead(ring);
+    }
+    assertEquals(1, checked.liveBlocks());
+    checked.freeMemory(base);
+    try (RingBuffer ring = new MpscRingBuffer(checked, 4, 64)) {
+      assertEquals(1, checked.liveBlocks());
+    }
+    assertEquals(0, checked.liveBlocks());
+  }
+
+  @Test
+  void closeTwice() {
+    CheckedLowLevelMemoryAccessor checked = new CheckedLowLevelMemoryAccessor(accessor);
+    RingBuffer spsc = new SpscRingBuffer(checked, 4, 64);
+    spsc.close();
+    spsc.close();
+    RingBuffer mpsc = new MpscRingBuffer(checked, 4, 64);
+    mpsc.close();
+    mpsc.close();
+    assertEquals(0, checked.liveBlocks());
+  }
+
+  @Test
+  void mpscStopsAtUncommittedSlot() {
+    try (RingBuffer ring = new MpscRingBuffer(accessor, 8, 32)) {
+      long first = ring.tryClaim(1);
+      long second = ring.tryClaim(1);
+      ring.setLength(second, 0);
+      ring.commit(second, 1);
+      assertEquals(0, ring.size());
+      ring.setLength(first, 0);
+      ring.commit(first, 1);
+      assertEquals(2, ring.size());
+    }
+  }
+
+  @Test
+  void invalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer(accessor, 3, 64));
+    assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer(accessor, 4, 16));
+  }
+
+  @Test
+  void concurrentProducers() throws InterruptedException {
+    int producers = 3;
+    int perProducer = 100_000;
+    try (RingBuffer ring = new MpscRingBuffer(accessor, 256, 32)) {
+      Thread[] threads = new Thread[producers];
+      for (int p = 0; p < producers; p++) {
+        int producer = p;
+        threads[p] = new Thread(() -> {
+          for (int i = 0; i < perProducer; i++) {
+            long sequence;
+            while ((sequence = ring.tryClaim(1)) < 0) {
+              Thread.yield();
+            }
+            accessor.putInt(null, ring.address(sequence), producer);
+            accessor.putInt(null, ring.address(sequence) + 4, i);
+            ring.setLength(sequence, 8);
+            ring.commit(sequence, 1);
+          }
+        });
+        threads[p].start();
+      }
+      int[] next = new int[producers];
+      int received = 0;
+      while (received < producers * perProducer) {
+        int read = ring.read((address, length) -> {
+          int producer = accessor.getInt(null, address);
+          assertEquals(next[producer]++, accessor.getInt(null, address + 4));
+        }, 64);
+        if (read == 0) {
+          Thread.yield();
+        }
+        received += read;
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+  }
+
+  @Test
+  void spscAcrossThreads() throws InterruptedException {
+    int count = 200_000;
+    try (RingBuffer ring = new SpscRingBuffer(accessor, 64, 32)) {
+      Thread producer = new Thread(() -> {
+        for (int i = 0; i < count; ) {
+          long sequence = ring.tryClaim(4);
+          if (sequence < 0) {
+            Thread.yield();
+            continue;
+          }
+          for (int j = 0; j < 4; j++) {
+            accessor.putInt(null, ring.address(sequence + j), i + j);
+            ring.setLength(sequence + j, 4);
+          }
+          ring.commit(sequence, 4);
+          i += 4;
+        }
+      });
+      producer.start();
+      int[] next = new int[1];
+      while (next[0] < count) {
+        if (ring.read((address, length) ->
+            assertEquals(next[0]++, accessor.getInt(null, address)), 16) == 0) {
+          Thread.yield();
+        }
+      }
+      producer.join();
+    }
+  }
+
+}
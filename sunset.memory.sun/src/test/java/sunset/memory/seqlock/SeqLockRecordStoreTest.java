@@ -0,0 +1,135 @@
+package sunset.memory.seqlock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import sunset.memory.CheckedLowLevelMemoryAccessor;
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.sun.SunLowLevelMemoryAccessor;
+
+class SeqLockRecordStoreTest {
+
+  private static final int LONGS = 8;
+
+  private final LowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
+  @Test
+  void seqLock() {
+    long address = accessor.allocateMemory(8);
+    try {
+      accessor.putLong(null, address, 0);
+      SeqLock lock = new SeqLock(accessor, address);
+      long version = lock.beginRead();
+      assertTrue(lock.validate(version));
+      lock.beginWrite();
+      assertFalse(lock.validate(version));
+      lock.endWrite();
+      assertFalse(lock.validate(version));
+      assertEquals(version + 2, lock.beginRead());
+      assertThrows(IllegalArgumentException.class, () -> new SeqLock(accessor, address + 4));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void writeAndRead() {
+    try (SeqLockRecordStore store = new SeqLockRecordStore(accessor, 3, 20)) {
+      assertEquals(3, store.records());
+      assertEquals(20, store.recordSize());
+      byte[] record = new byte[24];
+      for (int i = 0; i < record.length; i++) {
+        record[i] = (byte) i;
+      }
+      store.write(1, record, 4);
+      byte[] read = new byte[20];
+      assertEquals(2, store.read(1, read, 0));
+      for (int i = 0; i < read.length; i++) {
+        assertEquals(i + 4, read[i]);
+      }
+      assertEquals(0, store.read(0, read, 0));
+      assertArrayEquals(new byte[20], read);
+
+      long address = store.beginWrite(2);
+      assertEquals(0, address & 7);
+      accessor.putLong(null, address, 42);
+      store.endWrite(2);
+      long version = store.beginRead(2);
+      assertEquals(42, accessor.getLong(null, store.address(2)));
+      assertTrue(store.validate(2, version));
+      store.write(2, record, 0);
+      assertFalse(store.validate(2, version));
+
+      assertThrows(IndexOutOfBoundsException.class, () -> store.read(3, read, 0));
+      assertThrows(IndexOutOfBoundsException.class, () -> store.read(-1, read, 0));
+      assertThrows(IndexOutOfBoundsException.class, () -> store.write(0, record, 5));
+      assertThrows(IndexOutOfBoundsException.class, () -> store.read(0, new byte[19], 0));
+    }
+    assertThrows(IllegalArgumentException.class, () -> new SeqLockRecordStore(accessor, 1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new SeqLockRecordStore(accessor, -1, 8));
+  }
+
+  @Test
+  void closeTwice() {
+    CheckedLowLevelMemoryAccessor checked = new CheckedLowLevelMemoryAccessor(accessor);
+    SeqLockRecordStore store = new SeqLockRecordStore(checked, 2, 8);
+    store.close();
+    store.close();
+    assertEquals(0, checked.liveBlocks());
+  }
+
+  @Test
+  void readersSeeConsistentSnapshots() throws InterruptedException {
+    int records = 4;
+    try (SeqLockRecordStore store = new SeqLockRecordStore(accessor, records, LONGS * 8)) {
+      AtomicBoolean done = new AtomicBoolean();
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      List<Thread> readers = new ArrayList<>();
+      for (int r = 0; r < 3; r++) {
+        Thread reader = new Thread(() -> {
+          long snapshot = accessor.allocateMemory(LONGS * 8);
+          try {
+            long[] last = new long[records];
+            while (!done.get()) {
+              for (int i = 0; i < records; i++) {
+                store.read(i, snapshot);
+                long value = accessor.getLong(null, snapshot);
+                for (int j = 1; j < LONGS; j++) {
+                  assertEquals(value, accessor.getLong(null, snapshot + j * 8));
+                }
+                assertTrue(value >= last[i], "went backwards");
+                last[i] = value;
+              }
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            accessor.freeMemory(snapshot);
+          }
+        });
+        reader.start();
+        readers.add(reader);
+      }
+      for (long value = 1; value <= 200_000; value++) {
+        int record = (int) (value % records);
+        long address = store.beginWrite(record);
+        for (int j = 0; j < LONGS; j++) {
+          accessor.putLong(null, address + j * 8, value);
+        }
+        store.endWrite(record);
+      }
+      done.set(true);
+      for (Thread reader : readers) {
+        reader.join();
+      }
+      if (failure.get() != null) {
+        throw new AssertionError(failure.get());
+      }
+    }
+  }
+
+}
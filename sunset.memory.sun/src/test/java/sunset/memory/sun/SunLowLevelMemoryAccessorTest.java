@@ -9,6 +9,8 @@ import org.junit.jupiter.api.Test;
  */
 class SunLowLevelMemoryAccessorTest {
 
+  private final SunLowLevelMemoryAccessor accessor = new SunLowLevelMemoryAccessor();
+
   @Test
   void getInt() {
   }
@@ -101,6 +103,25 @@ class SunLowLevelMemoryAccessorTest {
   void freeMemory() {
   }
 
+  @Test
+  void allocateAligned() {
+    for (long alignment : new long[] {1, 8, 64, 4096, 1 << 21}) {
+      long address = accessor.allocateAligned(100, alignment);
+      try {
+        assertEquals(0, address % alignment);
+        accessor.setMemory(address, 100, (byte) 1);
+      } finally {
+        accessor.freeAligned(address);
+      }
+    }
+    long page = accessor.allocatePageAligned(1);
+    assertEquals(0, page % accessor.pageSize());
+    accessor.freeAligned(page);
+    accessor.freeAligned(0);
+    assertThrows(IllegalArgumentException.class, () -> accessor.allocateAligned(8, 24));
+    assertThrows(IllegalArgumentException.class, () -> accessor.allocateAligned(-1, 8));
+  }
+
   @Test
   void arrayBaseOffset() {
   }
@@ -237,4 +258,86 @@ class SunLowLevelMemoryAccessorTest {
   void compareAndSwapLong() {
   }
 
-}
\ No newline at end of file
+  @Test
+  void compareAndSwapSubword() {
+    long address = accessor.allocateMemory(8);
+    try {
+      for (int i = 0; i < 8; i++) {
+        accessor.putLong(null, address, 0x0807060504030201L);
+        assertFalse(accessor.compareAndSwapByte(null, address + i, (byte) 0, (byte) -1));
+        assertTrue(accessor.compareAndSwapByte(null, address + i, (byte) (i + 1), (byte) -1));
+        for (int j = 0; j < 8; j++) {
+          assertEquals(i == j ? -1 : j + 1, accessor.getByte(null, address + j));
+        }
+      }
+      for (int i = 0; i < 8; i += 2) {
+        accessor.putLong(null, address, 0);
+        assertTrue(accessor.compareAndSwapShort(null, address + i, (short) 0, (short) -2));
+        assertFalse(accessor.compareAndSwapShort(null, address + i, (short) 0, (short) 3));
+        for (int j = 0; j < 8; j += 2) {
+          assertEquals(i == j ? -2 : 0, accessor.getShort(null, address + j));
+        }
+      }
+      assertThrows(IllegalArgumentException.class,
+          () -> accessor.compareAndSwapShort(null, address + 1, (short) 0, (short) 1));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void compareAndExchange() {
+    long address = accessor.allocateMemory(16);
+    try {
+      accessor.putLong(null, address, 5);
+      assertEquals(5, accessor.compareAndExchangeLong(null, address, 5, 6));
+      assertEquals(6, accessor.compareAndExchangeLong(null, address, 5, 7));
+      assertEquals(6, accessor.getLongAcquire(null, address));
+      accessor.putIntRelease(null, address + 8, 1);
+      assertEquals(1, accessor.compareAndExchangeIntAcquire(null, address + 8, 1, 2));
+      assertTrue(accessor.weakCompareAndSetIntPlain(null, address + 8, 2, 3));
+      assertEquals(3, accessor.getIntOpaque(null, address + 8));
+    } finally {
+      accessor.freeMemory(address);
+    }
+    Object[] objects = {"a"};
+    long base = accessor.arrayBaseOffset(Object[].class);
+    assertEquals("a", accessor.compareAndExchangeObject(objects, base, "a", "b"));
+    assertEquals("b", accessor.compareAndExchangeObjectRelease(objects, base, "a", "c"));
+  }
+
+  @Test
+  void getAndBitwise() {
+    long address = accessor.allocateMemory(16);
+    try {
+      accessor.putLong(null, address, 0b1100);
+      assertEquals(0b1100, accessor.getAndBitwiseOrLong(null, address, 0b0011));
+      assertEquals(0b1111, accessor.getAndBitwiseAndLong(null, address, 0b0110));
+      assertEquals(0b0110, accessor.getAndBitwiseXorLong(null, address, 0b0101));
+      assertEquals(0b0011, accessor.getLong(null, address));
+      accessor.putInt(null, address + 8, -1);
+      assertEquals(-1, accessor.getAndBitwiseAndInt(null, address + 8, 0xFF));
+      assertEquals(0xFF, accessor.getAndBitwiseXorInt(null, address + 8, 0xF0));
+      assertEquals(0x0F, accessor.getAndBitwiseOrInt(null, address + 8, 0x100));
+      assertEquals(0x10F, accessor.getInt(null, address + 8));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+  @Test
+  void releaseAndOpaque() {
+    long address = accessor.allocateMemory(8);
+    try {
+      accessor.putByteRelease(null, address, (byte) 1);
+      accessor.putShortOpaque(null, address + 2, (short) 2);
+      accessor.putFloatRelease(null, address + 4, 3f);
+      assertEquals(1, accessor.getByteAcquire(null, address));
+      assertEquals(2, accessor.getShortOpaque(null, address + 2));
+      assertEquals(3f, accessor.getFloatAcquire(null, address + 4));
+    } finally {
+      accessor.freeMemory(address);
+    }
+  }
+
+}
@@ -0,0 +1,585 @@
+package sunset.memory.varhandle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates, for a field, an object that reads and writes it with plain {@code getfield} and
+ * {@code putfield} instructions, which the JIT can inline into callers of
+ * {@link VarHandleLowLevelMemoryAccessor} the way it inlines the {@link sun.misc.Unsafe}
+ * intrinsics, unlike a {@link java.lang.invoke.MethodHandle} that isn't a constant.
+ * <p>
+ * The object's class is a hidden nestmate of the field's declaring class, so that it can access
+ * private fields, and implements JDK functional interfaces, so that it links against any class
+ * loader. The field's value is passed as an {@code int} for {@code boolean}, {@code byte},
+ * {@code short}, {@code char}, {@code int} and {@code float} fields (a {@code float} as its raw
+ * bits), as a {@code long} for {@code long} and {@code double} fields, and as an {@link Object}
+ * for references:
+ * <ul>
+ * <li>{@link java.util.function.ToIntFunction} and {@link java.util.function.ObjIntConsumer}
+ * <li>{@link java.util.function.ToLongFunction} and {@link java.util.function.ObjLongConsumer}
+ * <li>{@link java.util.function.Function} and {@link java.util.function.BiConsumer}
+ * </ul>
+ * The consumer interface is only implemented if the field isn't final. A non-final {@code int},
+ * {@code long}, {@code float}, {@code double} or reference field also gets {@link IntAtomics},
+ * {@link LongAtomics} or {@link ObjectAtomics}, which go through a {@code static final}
+ * {@link java.lang.invoke.VarHandle} in the generated class, so that the JIT sees a constant handle
+ * and compiles each access mode to the same code as the {@link sun.misc.Unsafe} intrinsic. Those
+ * interfaces are only implemented if the field's class loader can see them.
+ * <p>
+ * Hidden classes need JDK 15, so {@code Lookup.defineHiddenClass} is called reflectively, and on
+ * older JDKs no object is generated.
+ */
+final class FieldAccessGenerator {
+
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_PRIVATE = 0x0002;
+  private static final int ACC_STATIC = 0x0008;
+  private static final int ACC_FINAL = 0x0010;
+  private static final int ACC_SUPER = 0x0020;
+  /** Java 8, the last version whose methods don't need stack map frames without branches. */
+  private static final int CLASS_VERSION = 52;
+
+  private static final int LDC_W = 0x13;
+  private static final int ILOAD = 0x15;
+  private static final int LLOAD = 0x16;
+  private static final int ALOAD = 0x19;
+  private static final int ALOAD_0 = 0x2a;
+  private static final int ALOAD_1 = 0x2b;
+  private static final int ILOAD_2 = 0x1c;
+  private static final int LLOAD_2 = 0x20;
+  private static final int ALOAD_2 = 0x2c;
+  private static final int DUP = 0x59;
+  private static final int IRETURN = 0xac;
+  private static final int LRETURN = 0xad;
+  private static final int ARETURN = 0xb0;
+  private static final int RETURN = 0xb1;
+  private static final int GETSTATIC = 0xb2;
+  private static final int PUTSTATIC = 0xb3;
+  private static final int GETFIELD = 0xb4;
+  private static final int PUTFIELD = 0xb5;
+  private static final int INVOKEVIRTUAL = 0xb6;
+  private static final int INVOKESPECIAL = 0xb7;
+  private static final int INVOKESTATIC = 0xb8;
+  private static final int NEW = 0xbb;
+  private static final int ATHROW = 0xbf;
+  private static final int CHECKCAST = 0xc0;
+
+  private static final String VAR_HANDLE = "java/lang/invoke/VarHandle";
+
+  private static final Method DEFINE_HIDDEN_CLASS;
+  private static final Object NESTMATE;
+
+  static {
+    Method define = null;
+    Object nestmate = null;
+    try {
+      Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+      Object options = Array.newInstance(optionClass, 1);
+      for (Object option : optionClass.getEnumConstants()) {
+        if (((Enum<?>) option).name().equals("NESTMATE")) {
+          Array.set(options, 0, option);
+        }
+      }
+      define = Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class,
+          options.getClass());
+      nestmate = options;
+    } catch (ReflectiveOperationException e) {
+      // Before JDK 15
+    }
+    DEFINE_HIDDEN_CLASS = define;
+    NESTMATE = nestmate;
+  }
+
+  private FieldAccessGenerator() {}
+
+  /** Atomic accesses to an {@code int} field, or to a {@code float} field as its raw bits. */
+  public interface IntAtomics {
+    int getVolatile(Object o);
+
+    void setVolatile(Object o, int x);
+
+    void setRelease(Object o, int x);
+
+    boolean compareAndSet(Object o, int expected, int x);
+
+    int getAndSet(Object o, int x);
+
+    /** Throws {@link UnsupportedOperationException} for a {@code float} field. */
+    int getAndAdd(Object o, int delta);
+  }
+
+  /** Atomic accesses to a {@code long} field, or to a {@code double} field as its raw bits. */
+  public interface LongAtomics {
+    long getVolatile(Object o);
+
+    void setVolatile(Object o, long x);
+
+    void setRelease(Object o, long x);
+
+    boolean compareAndSet(Object o, long expected, long x);
+
+    long getAndSet(Object o, long x);
+
+    /** Throws {@link UnsupportedOperationException} for a {@code double} field. */
+    long getAndAdd(Object o, long delta);
+  }
+
+  /** Atomic accesses to a reference field. */
+  public interface ObjectAtomics {
+    Object getVolatile(Object o);
+
+    void setVolatile(Object o, Object x);
+
+    void setRelease(Object o, Object x);
+
+    boolean compareAndSet(Object o, Object expected, Object x);
+
+    Object getAndSet(Object o, Object x);
+  }
+
+  /**
+   * Returns an object that accesses the given field, as described above, or null if one can't be
+   * generated, such as on a JDK without hidden classes, or for a field of a hidden class.
+   *
+   * @param lookup a lookup with full privilege access in the field's declaring class
+   */
+  static Object generate(Lookup lookup, Field field) {
+    Class<?> owner = field.getDeclaringClass();
+    if (DEFINE_HIDDEN_CLASS == null || isHidden(owner)) {
+      return null;
+    }
+    Class<?> type = field.getType();
+    boolean writable = !Modifier.isFinal(field.getModifiers())
+        && (type.isPrimitive() || canName(owner, type));
+    boolean atomics = writable && (!type.isPrimitive() || type == int.class
+        || type == long.class || type == float.class || type == double.class);
+    Object access = define(lookup, field, writable, atomics);
+    if (access == null && atomics) {
+      // Such as when the field's class loader can't see the atomics interfaces
+      access = define(lookup, field, writable, false);
+    }
+    return access;
+  }
+
+  private static Object define(Lookup lookup, Field field, boolean writable, boolean atomics) {
+    try {
+      byte[] bytes = classBytes(field, writable, atomics);
+      Lookup hidden = (Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup, bytes, true, NESTMATE);
+      return hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+          .invoke();
+    } catch (VirtualMachineError e) {
+      throw e;
+    } catch (Throwable t) {
+      // Fall back to the field's VarHandle
+      return null;
+    }
+  }
+
+  private static boolean isHidden(Class<?> type) {
+    return type.getName().indexOf('/') >= 0;
+  }
+
+  /** Returns true if a class in the owner's nest can refer to the given type by name. */
+  private static boolean canName(Class<?> owner, Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    return !isHidden(type) && (Modifier.isPublic(type.getModifiers())
+        || type.getClassLoader() == owner.getClassLoader()
+            && type.getPackage() == owner.getPackage());
+  }
+
+  private static String internalName(Class<?> type) {
+    return type.getName().replace('.', '/');
+  }
+
+  private static String descriptor(Class<?> type) {
+    if (type == boolean.class) {
+      return "Z";
+    } else if (type == byte.class) {
+      return "B";
+    } else if (type == short.class) {
+      return "S";
+    } else if (type == char.class) {
+      return "C";
+    } else if (type == int.class) {
+      return "I";
+    } else if (type == long.class) {
+      return "J";
+    } else if (type == float.class) {
+      return "F";
+    } else if (type == double.class) {
+      return "D";
+    } else if (type.isArray()) {
+      return internalName(type);
+    }
+    return "L" + internalName(type) + ";";
+  }
+
+  private static byte[] classBytes(Field field, boolean writable, boolean atomics)
+      throws IOException {
+    Class<?> owner = field.getDeclaringClass();
+    Class<?> type = field.getType();
+    boolean isStatic = Modifier.isStatic(field.getModifiers());
+    boolean isLong = type == long.class || type == double.class;
+    boolean isInt = type.isPrimitive() && !isLong;
+    String getterInterface;
+    String getterName;
+    String getterDescriptor;
+    String setterInterface;
+    String setterDescriptor;
+    if (isInt) {
+      getterInterface = "java/util/function/ToIntFunction";
+      getterName = "applyAsInt";
+      getterDescriptor = "(Ljava/lang/Object;)I";
+      setterInterface = "java/util/function/ObjIntConsumer";
+      setterDescriptor = "(Ljava/lang/Object;I)V";
+    } else if (isLong) {
+      getterInterface = "java/util/function/ToLongFunction";
+      getterName = "applyAsLong";
+      getterDescriptor = "(Ljava/lang/Object;)J";
+      setterInterface = "java/util/function/ObjLongConsumer";
+      setterDescriptor = "(Ljava/lang/Object;J)V";
+    } else {
+      getterInterface = "java/util/function/Function";
+      getterName = "apply";
+      getterDescriptor = "(Ljava/lang/Object;)Ljava/lang/Object;";
+      setterInterface = "java/util/function/BiConsumer";
+      setterDescriptor = "(Ljava/lang/Object;Ljava/lang/Object;)V";
+    }
+
+    ConstantPool pool = new ConstantPool();
+    String ownerName = internalName(owner);
+    String thisName = ownerName + "$$Access$" + field.getName();
+    int thisClass = pool.classRef(thisName);
+    int objectClass = pool.classRef("java/lang/Object");
+    int ownerClass = pool.classRef(ownerName);
+    int fieldRef = pool.memberRef(9, ownerName, field.getName(), descriptor(type));
+
+    ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    DataOutputStream methods = new DataOutputStream(methodBytes);
+    int methodCount = 0;
+
+    Code init = new Code();
+    init.op(ALOAD_0).op(INVOKESPECIAL)
+        .u2(pool.memberRef(10, "java/lang/Object", "<init>", "()V")).op(RETURN);
+    init.write(methods, pool, ACC_PUBLIC, "<init>", "()V");
+    methodCount++;
+
+    Code get = new Code();
+    if (isStatic) {
+      get.op(GETSTATIC).u2(fieldRef);
+    } else {
+      get.op(ALOAD_1).op(CHECKCAST).u2(ownerClass).op(GETFIELD).u2(fieldRef);
+    }
+    if (type == float.class) {
+      get.op(INVOKESTATIC).u2(pool.memberRef(10, "java/lang/Float", "floatToRawIntBits", "(F)I"));
+    } else if (type == double.class) {
+      get.op(INVOKESTATIC)
+          .u2(pool.memberRef(10, "java/lang/Double", "doubleToRawLongBits", "(D)J"));
+    }
+    get.op(isInt ? IRETURN : isLong ? LRETURN : ARETURN);
+    get.write(methods, pool, ACC_PUBLIC, getterName, getterDescriptor);
+    methodCount++;
+
+    if (writable) {
+      Code set = new Code();
+      if (!isStatic) {
+        set.op(ALOAD_1).op(CHECKCAST).u2(ownerClass);
+      }
+      if (isInt) {
+        set.op(ILOAD_2);
+      } else if (isLong) {
+        set.op(LLOAD_2);
+      } else {
+        set.op(ALOAD_2).op(CHECKCAST).u2(pool.classRef(internalName(type)));
+      }
+      if (type == float.class) {
+        set.op(INVOKESTATIC)
+            .u2(pool.memberRef(10, "java/lang/Float", "intBitsToFloat", "(I)F"));
+      } else if (type == double.class) {
+        set.op(INVOKESTATIC)
+            .u2(pool.memberRef(10, "java/lang/Double", "longBitsToDouble", "(J)D"));
+      }
+      set.op(isStatic ? PUTSTATIC : PUTFIELD).u2(fieldRef).op(RETURN);
+      set.write(methods, pool, ACC_PUBLIC, "accept", setterDescriptor);
+      methodCount++;
+    }
+
+    if (atomics) {
+      int handleRef = pool.memberRef(9, thisName, "HANDLE", "L" + VAR_HANDLE + ";");
+      Code clinit = new Code();
+      clinit.op(INVOKESTATIC).u2(pool.memberRef(10, "java/lang/invoke/MethodHandles", "lookup",
+          "()Ljava/lang/invoke/MethodHandles$Lookup;"));
+      clinit.op(LDC_W).u2(ownerClass).op(LDC_W).u2(pool.string(field.getName()));
+      if (type.isPrimitive()) {
+        String wrapper = isInt ? "java/lang/Integer" : "java/lang/Long";
+        if (type == float.class) {
+          wrapper = "java/lang/Float";
+        } else if (type == double.class) {
+          wrapper = "java/lang/Double";
+        }
+        clinit.op(GETSTATIC).u2(pool.memberRef(9, wrapper, "TYPE", "Ljava/lang/Class;"));
+      } else {
+        clinit.op(LDC_W).u2(pool.classRef(internalName(type)));
+      }
+      clinit.op(INVOKEVIRTUAL).u2(pool.memberRef(10, "java/lang/invoke/MethodHandles$Lookup",
+          isStatic ? "findStaticVarHandle" : "findVarHandle",
+          "(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/Class;)L" + VAR_HANDLE + ";"));
+      clinit.op(PUTSTATIC).u2(handleRef).op(RETURN);
+      clinit.write(methods, pool, ACC_STATIC, "<clinit>", "()V");
+      methodCount++;
+
+      methodCount += atomic(methods, pool, field, handleRef, "getVolatile", 0, 'T');
+      methodCount += atomic(methods, pool, field, handleRef, "setVolatile", 1, 'V');
+      methodCount += atomic(methods, pool, field, handleRef, "setRelease", 1, 'V');
+      methodCount += atomic(methods, pool, field, handleRef, "compareAndSet", 2, 'Z');
+      methodCount += atomic(methods, pool, field, handleRef, "getAndSet", 1, 'T');
+      if (type.isPrimitive()) {
+        methodCount += atomic(methods, pool, field, handleRef, "getAndAdd", 1, 'T');
+      }
+    }
+
+    int[] interfaces = new int[3];
+    int interfaceCount = 0;
+    interfaces[interfaceCount++] = pool.classRef(getterInterface);
+    if (writable) {
+      interfaces[interfaceCount++] = pool.classRef(setterInterface);
+    }
+    if (atomics) {
+      Class<?> atomicsInterface = isInt ? IntAtomics.class
+          : isLong ? LongAtomics.class : ObjectAtomics.class;
+      interfaces[interfaceCount++] = pool.classRef(internalName(atomicsInterface));
+    }
+    pool.utf8("Code");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    out.writeShort(CLASS_VERSION);
+    pool.writeTo(out);
+    out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+    out.writeShort(thisClass);
+    out.writeShort(objectClass);
+    out.writeShort(interfaceCount);
+    for (int i = 0; i < interfaceCount; i++) {
+      out.writeShort(interfaces[i]);
+    }
+    if (atomics) {
+      out.writeShort(1);
+      out.writeShort(ACC_PRIVATE | ACC_STATIC | ACC_FINAL);
+      out.writeShort(pool.utf8("HANDLE"));
+      out.writeShort(pool.utf8("L" + VAR_HANDLE + ";"));
+      out.writeShort(0);
+    } else {
+      out.writeShort(0);
+    }
+    out.writeShort(methodCount);
+    methods.flush();
+    methodBytes.writeTo(out);
+    out.writeShort(0);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes a method of one of the atomics interfaces, which calls the method of the same name on
+   * the generated class's {@link java.lang.invoke.VarHandle} with the field's own types, converting
+   * a {@code float} or {@code double} to and from its raw bits. Returns the number of methods
+   * written.
+   *
+   * @param values the number of value arguments after the object
+   * @param returns {@code 'V'} for void, {@code 'Z'} for boolean or {@code 'T'} for the value
+   */
+  private static int atomic(DataOutputStream methods, ConstantPool pool, Field field,
+      int handleRef, String name, int values, char returns) throws IOException {
+    Class<?> owner = field.getDeclaringClass();
+    Class<?> type = field.getType();
+    boolean isLong = type == long.class || type == double.class;
+    String valueDescriptor = !type.isPrimitive() ? "Ljava/lang/Object;" : isLong ? "J" : "I";
+    StringBuilder descriptor = new StringBuilder("(Ljava/lang/Object;");
+    StringBuilder handleDescriptor = new StringBuilder("(");
+    Code code = new Code();
+    if (name.equals("getAndAdd") && (type == float.class || type == double.class)) {
+      descriptor.append(valueDescriptor).append(')').append(valueDescriptor);
+      code.op(NEW).u2(pool.classRef("java/lang/UnsupportedOperationException")).op(DUP)
+          .op(INVOKESPECIAL)
+          .u2(pool.memberRef(10, "java/lang/UnsupportedOperationException", "<init>", "()V"))
+          .op(ATHROW);
+      code.write(methods, pool, ACC_PUBLIC, name, descriptor.toString());
+      return 1;
+    }
+
+    code.op(GETSTATIC).u2(handleRef);
+    if (!Modifier.isStatic(field.getModifiers())) {
+      code.op(ALOAD_1).op(CHECKCAST).u2(pool.classRef(internalName(owner)));
+      handleDescriptor.append(descriptor(owner));
+    }
+    int local = 2;
+    for (int i = 0; i < values; i++) {
+      descriptor.append(valueDescriptor);
+      handleDescriptor.append(descriptor(type));
+      if (!type.isPrimitive()) {
+        code.op(ALOAD).op(local).op(CHECKCAST).u2(pool.classRef(internalName(type)));
+        local++;
+      } else if (isLong) {
+        code.op(LLOAD).op(local);
+        local += 2;
+      } else {
+        code.op(ILOAD).op(local);
+        local++;
+      }
+      if (type == float.class) {
+        code.op(INVOKESTATIC)
+            .u2(pool.memberRef(10, "java/lang/Float", "intBitsToFloat", "(I)F"));
+      } else if (type == double.class) {
+        code.op(INVOKESTATIC)
+            .u2(pool.memberRef(10, "java/lang/Double", "longBitsToDouble", "(J)D"));
+      }
+    }
+
+    if (returns == 'T') {
+      descriptor.append(')').append(valueDescriptor);
+      handleDescriptor.append(')').append(descriptor(type));
+    } else {
+      descriptor.append(')').append(returns);
+      handleDescriptor.append(')').append(returns);
+    }
+    code.op(INVOKEVIRTUAL).u2(pool.memberRef(10, VAR_HANDLE, name, handleDescriptor.toString()));
+    if (returns == 'V') {
+      code.op(RETURN);
+    } else if (returns == 'Z') {
+      code.op(IRETURN);
+    } else {
+      if (type == float.class) {
+        code.op(INVOKESTATIC)
+            .u2(pool.memberRef(10, "java/lang/Float", "floatToRawIntBits", "(F)I"));
+      } else if (type == double.class) {
+        code.op(INVOKESTATIC)
+            .u2(pool.memberRef(10, "java/lang/Double", "doubleToRawLongBits", "(D)J"));
+      }
+      code.op(!type.isPrimitive() ? ARETURN : isLong ? LRETURN : IRETURN);
+    }
+    code.write(methods, pool, ACC_PUBLIC, name, descriptor.toString());
+    return 1;
+  }
+
+  /** The constant pool of a class file, with each constant added once. */
+  private static final class ConstantPool {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private int count = 1;
+
+    private int add(String key) {
+      indexes.put(key, count);
+      return count++;
+    }
+
+    int utf8(String value) throws IOException {
+      Integer index = indexes.get("U" + value);
+      if (index != null) {
+        return index;
+      }
+      out.writeByte(1);
+      out.writeUTF(value);
+      return add("U" + value);
+    }
+
+    int string(String value) throws IOException {
+      Integer index = indexes.get("S" + value);
+      if (index != null) {
+        return index;
+      }
+      int utf8 = utf8(value);
+      out.writeByte(8);
+      out.writeShort(utf8);
+      return add("S" + value);
+    }
+
+    int classRef(String internalName) throws IOException {
+      Integer index = indexes.get("C" + internalName);
+      if (index != null) {
+        return index;
+      }
+      int name = utf8(internalName);
+      out.writeByte(7);
+      out.writeShort(name);
+      return add("C" + internalName);
+    }
+
+    /** Adds a field (tag 9) or method (tag 10) reference. */
+    int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+      String key = tag + owner + '.' + name + ':' + descriptor;
+      Integer index = indexes.get(key);
+      if (index != null) {
+        return index;
+      }
+      int ownerClass = classRef(owner);
+      int nameIndex = utf8(name);
+      int descriptorIndex = utf8(descriptor);
+      out.writeByte(12);
+      out.writeShort(nameIndex);
+      out.writeShort(descriptorIndex);
+      int nameAndType = add("N" + key);
+      out.writeByte(tag);
+      out.writeShort(ownerClass);
+      out.writeShort(nameAndType);
+      return add(key);
+    }
+
+    void writeTo(DataOutputStream dest) throws IOException {
+      out.flush();
+      dest.writeShort(count);
+      bytes.writeTo(dest);
+    }
+  }
+
+  /** The bytecode of a method, which takes at most five slots of arguments after this. */
+  private static final class Code {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    Code op(int opcode) {
+      bytes.write(opcode);
+      return this;
+    }
+
+    Code u2(int value) {
+      bytes.write(value >>> 8);
+      bytes.write(value);
+      return this;
+    }
+
+    void write(DataOutputStream methods, ConstantPool pool, int access, String name,
+        String descriptor) throws IOException {
+      methods.writeShort(access);
+      methods.writeShort(pool.utf8(name));
+      methods.writeShort(pool.utf8(descriptor));
+      methods.writeShort(1);
+      methods.writeShort(pool.utf8("Code"));
+      methods.writeInt(12 + bytes.size());
+      // Enough for a handle or the receiver, the object and two longs, on the stack and in locals
+      methods.writeShort(6);
+      methods.writeShort(6);
+      methods.writeInt(bytes.size());
+      bytes.writeTo(methods);
+      methods.writeShort(0);
+      methods.writeShort(0);
+    }
+  }
+
+}
@@ -0,0 +1,1694 @@
+package sunset.memory.varhandle;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.invoke.VarHandle.AccessMode;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.varhandle.FieldAccessGenerator.IntAtomics;
+import sunset.memory.varhandle.FieldAccessGenerator.LongAtomics;
+import sunset.memory.varhandle.FieldAccessGenerator.ObjectAtomics;
+
+/**
+ * An implementation of {@link LowLevelMemoryAccessor} using {@link VarHandle}, for JDKs on which
+ * {@link sun.misc.Unsafe} is deprecated or restricted.
+ * <p>
+ * Only Java heap variables are supported:
+ * <ul>
+ * <li>Array offsets are byte offsets from the first element, so {@link #arrayBaseOffset} is
+ * always zero and {@link #arrayIndexScale} is the element size. A {@code byte[]} can be read and
+ * written as any primitive type, in native byte order.
+ * <li>Field offsets are negative cookies that index a table of {@link VarHandle}s, so a field can
+ * only be accessed as its own type, or a {@code float} or {@code double} field as the raw bits of
+ * an {@code int} or {@code long}. Final fields are read-only.
+ * <li>Native memory (a null base object, {@link #allocateMemory} and friends) is not supported,
+ * and those methods throw {@link UnsupportedOperationException}.
+ * </ul>
+ * Array accesses go through constant {@link VarHandle}s and compile to the same code as the
+ * {@link sun.misc.Unsafe} intrinsics. Field accesses go through a class generated for each field by
+ * {@link FieldAccessGenerator}, which the JIT inlines like an ordinary field access, or an atomic
+ * one, when a call site only sees a few fields. Access modes the generated class doesn't have, such
+ * as a compare-and-swap of a {@code short} field, and every field access on JDKs before 15, go
+ * through the field's {@link VarHandle}, which is looked up in the table on every call and can't be
+ * inlined as well.
+ */
+public class VarHandleLowLevelMemoryAccessor implements LowLevelMemoryAccessor {
+
+  private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+  private static final int ADDRESS_SIZE = Integer.getInteger("sun.arch.data.model", 64) / 8;
+  private static final int REFERENCE_SHIFT = Integer.numberOfTrailingZeros(ADDRESS_SIZE);
+
+  private static final VarHandle BOOLEAN_ARRAY =
+      MethodHandles.arrayElementVarHandle(boolean[].class);
+  private static final VarHandle BYTE_ARRAY = MethodHandles.arrayElementVarHandle(byte[].class);
+  private static final VarHandle SHORT_ARRAY = MethodHandles.arrayElementVarHandle(short[].class);
+  private static final VarHandle CHAR_ARRAY = MethodHandles.arrayElementVarHandle(char[].class);
+  private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+  private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final VarHandle FLOAT_ARRAY = MethodHandles.arrayElementVarHandle(float[].class);
+  private static final VarHandle DOUBLE_ARRAY =
+      MethodHandles.arrayElementVarHandle(double[].class);
+  private static final VarHandle OBJECT_ARRAY =
+      MethodHandles.arrayElementVarHandle(Object[].class);
+
+  private static final VarHandle SHORT_VIEW =
+      MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+  private static final VarHandle CHAR_VIEW =
+      MethodHandles.byteArrayViewVarHandle(char[].class, ByteOrder.nativeOrder());
+  private static final VarHandle INT_VIEW =
+      MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+  private static final VarHandle LONG_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final VarHandle FLOAT_VIEW =
+      MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.nativeOrder());
+  private static final VarHandle DOUBLE_VIEW =
+      MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.nativeOrder());
+
+  /**
+   * A field registered through {@link #objectFieldOffset} or {@link #staticFieldOffset}. The
+   * field's offset is the complement of its index in {@link #fieldSlots}, so that field offsets
+   * are negative and array offsets aren't, and each access method can tell which it has been given
+   * before checking the object's type.
+   */
+  private static final class FieldSlot {
+    private final VarHandle handle;
+    private final boolean isStatic;
+    /** The field's type if primitive, or {@code Object.class}. */
+    private final Class<?> kind;
+    /** From {@link FieldAccessGenerator}, or null. */
+    private final Object access;
+    private final boolean writable;
+    /**
+     * The generated object as whichever atomics interface of {@link FieldAccessGenerator} it
+     * implements, or null, so that a caller only checks for null rather than for an interface.
+     */
+    private final IntAtomics intAtomics;
+    private final LongAtomics longAtomics;
+    private final ObjectAtomics objectAtomics;
+    private final MethodHandle[] invokers = new MethodHandle[AccessMode.values().length];
+
+    FieldSlot(VarHandle handle, Field field, Object access) {
+      this.handle = handle;
+      this.isStatic = Modifier.isStatic(field.getModifiers());
+      this.kind = field.getType().isPrimitive() ? field.getType() : Object.class;
+      this.access = access;
+      this.writable = access instanceof ObjIntConsumer || access instanceof ObjLongConsumer
+          || access instanceof BiConsumer;
+      this.intAtomics = access instanceof IntAtomics ? (IntAtomics) access : null;
+      this.longAtomics = access instanceof LongAtomics ? (LongAtomics) access : null;
+      this.objectAtomics = access instanceof ObjectAtomics ? (ObjectAtomics) access : null;
+    }
+
+    /**
+     * Returns the generated getter, typed as described in {@link FieldAccessGenerator}, if the
+     * field is of the given kind, or null to go through {@link #invoker}.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getter(Class<?> kind) {
+      return this.kind == kind ? (T) access : null;
+    }
+
+    /** As {@link #getter}, but for the generated setter, which final fields don't have. */
+    @SuppressWarnings("unchecked")
+    <T> T setter(Class<?> kind) {
+      return this.kind == kind && writable ? (T) access : null;
+    }
+
+    /**
+     * Returns a {@link MethodHandle} for the given access mode whose first parameter is the base
+     * object as an {@link Object}, so that instance and static fields can both be invoked exactly.
+     * Reference-typed values are erased to {@link Object} too. Adapting once here is much cheaper
+     * than letting every {@link VarHandle} call adapt its arguments.
+     */
+    MethodHandle invoker(AccessMode mode) {
+      MethodHandle invoker = invokers[mode.ordinal()];
+      if (invoker == null) {
+        invoker = handle.toMethodHandle(mode);
+        if (isStatic) {
+          invoker = MethodHandles.dropArguments(invoker, 0, Object.class);
+        }
+        invoker = invoker.asType(invoker.type().erase());
+        invokers[mode.ordinal()] = invoker;
+      }
+      return invoker;
+    }
+  }
+
+  private static final Map<Field, Integer> fieldCookies = new ConcurrentHashMap<>();
+  private static volatile FieldSlot[] fieldSlots = new FieldSlot[0];
+
+  private static int index(long offset, int shift) {
+    return (int) (offset >> shift);
+  }
+
+  private static UnsupportedOperationException unsupportedNative() {
+    return new UnsupportedOperationException(
+        "VarHandleLowLevelMemoryAccessor does not support native memory");
+  }
+
+  /** Looks up the field registered under the given offset, which the caller has checked is one. */
+  private static FieldSlot slot(Object o, long offset) {
+    if (o == null) {
+      throw unsupportedNative();
+    }
+    return fieldSlots[(int) ~offset];
+  }
+
+  /** Returns the exception for an offset that isn't a field's and an object that isn't an array. */
+  private static UnsupportedOperationException unsupported(Object o) {
+    if (o == null) {
+      return unsupportedNative();
+    } else if (o.getClass().isArray()) {
+      return new UnsupportedOperationException(
+          "Cannot access " + o.getClass().getSimpleName() + " as this type");
+    }
+    return new UnsupportedOperationException(
+        "Not a field offset, or an array: " + o.getClass().getName());
+  }
+
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new RuntimeException(t);
+  }
+
+  private static void checkArray(Object o) {
+    if (!o.getClass().isArray()) {
+      throw new UnsupportedOperationException("Bulk operations are only supported on arrays");
+    }
+  }
+
+  private static long cookieFor(Field f, boolean isStatic) {
+    if (Modifier.isStatic(f.getModifiers()) != isStatic) {
+      throw new IllegalArgumentException(f + (isStatic ? " is not static" : " is static"));
+    }
+    Integer index = fieldCookies.get(f);
+    return ~(long) (index != null ? index : register(f, isStatic));
+  }
+
+  private static synchronized int register(Field f, boolean isStatic) {
+    Integer cookie = fieldCookies.get(f);
+    if (cookie != null) {
+      return cookie;
+    }
+    MethodHandles.Lookup lookup;
+    VarHandle handle;
+    try {
+      lookup = MethodHandles.privateLookupIn(f.getDeclaringClass(), MethodHandles.lookup());
+      handle = lookup.unreflectVarHandle(f);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    FieldSlot[] slots = Arrays.copyOf(fieldSlots, fieldSlots.length + 1);
+    slots[slots.length - 1] = new FieldSlot(handle, f, FieldAccessGenerator.generate(lookup, f));
+    fieldSlots = slots;
+    fieldCookies.put(f, slots.length - 1);
+    return slots.length - 1;
+  }
+
+  /** log2 of the size of an array element of the given type, as seen through this accessor. */
+  private static int shift(Class<?> componentType) {
+    if (!componentType.isPrimitive()) {
+      return REFERENCE_SHIFT;
+    } else if (componentType == long.class || componentType == double.class) {
+      return 3;
+    } else if (componentType == int.class || componentType == float.class) {
+      return 2;
+    } else if (componentType == short.class || componentType == char.class) {
+      return 1;
+    } else {
+      return 0;
+    }
+  }
+
+  /**
+   * Reads an element of a primitive array as raw bits, so that its individual bytes can be read
+   * and written. Used when a non-{@code byte[]} array is accessed one byte at a time.
+   */
+  private static long elementBits(Object array, int index) {
+    if (array instanceof long[]) {
+      return ((long[]) array)[index];
+    } else if (array instanceof int[]) {
+      return ((int[]) array)[index];
+    } else if (array instanceof short[]) {
+      return ((short[]) array)[index];
+    } else if (array instanceof char[]) {
+      return ((char[]) array)[index];
+    } else if (array instanceof double[]) {
+      return Double.doubleToRawLongBits(((double[]) array)[index]);
+    } else if (array instanceof float[]) {
+      return Float.floatToRawIntBits(((float[]) array)[index]);
+    } else if (array instanceof boolean[]) {
+      return ((boolean[]) array)[index] ? 1 : 0;
+    }
+    throw new UnsupportedOperationException(
+        "Cannot access " + array.getClass().getSimpleName() + " as bytes");
+  }
+
+  /** Inverse of {@link #elementBits}. */
+  private static void setElementBits(Object array, int index, long bits) {
+    if (array instanceof long[]) {
+      ((long[]) array)[index] = bits;
+    } else if (array instanceof int[]) {
+      ((int[]) array)[index] = (int) bits;
+    } else if (array instanceof short[]) {
+      ((short[]) array)[index] = (short) bits;
+    } else if (array instanceof char[]) {
+      ((char[]) array)[index] = (char) bits;
+    } else if (array instanceof double[]) {
+      ((double[]) array)[index] = Double.longBitsToDouble(bits);
+    } else if (array instanceof float[]) {
+      ((float[]) array)[index] = Float.intBitsToFloat((int) bits);
+    } else if (array instanceof boolean[]) {
+      ((boolean[]) array)[index] = bits != 0;
+    } else {
+      throw new UnsupportedOperationException(
+          "Cannot access " + array.getClass().getSimpleName() + " as bytes");
+    }
+  }
+
+  /** Bit position, within an element of 2^shift bytes, of the byte at the given offset. */
+  private static int bitPosition(long offset, int shift) {
+    int byteInElement = (int) offset & ((1 << shift) - 1);
+    if (BIG_ENDIAN) {
+      byteInElement = (1 << shift) - 1 - byteInElement;
+    }
+    return byteInElement << 3;
+  }
+
+  @Override
+  public int getInt(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToIntFunction<Object> getter = slot.getter(int.class);
+      if (getter != null) {
+        return getter.applyAsInt(o);
+      }
+      try {
+        return (int) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.get((int[]) o, index(offset, 2));
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.get((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putInt(Object o, long offset, int x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjIntConsumer<Object> setter = slot.setter(int.class);
+      if (setter != null) {
+        setter.accept(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof int[]) {
+      INT_ARRAY.set((int[]) o, index(offset, 2), x);
+    } else if (o instanceof byte[]) {
+      INT_VIEW.set((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public Object getObject(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      Function<Object, Object> getter = slot.getter(Object.class);
+      if (getter != null) {
+        return getter.apply(o);
+      }
+      try {
+        return (Object) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof Object[]) {
+      return OBJECT_ARRAY.get((Object[]) o, index(offset, REFERENCE_SHIFT));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putObject(Object o, long offset, Object x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      BiConsumer<Object, Object> setter = slot.setter(Object.class);
+      if (setter != null) {
+        setter.accept(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof Object[]) {
+      OBJECT_ARRAY.set((Object[]) o, index(offset, REFERENCE_SHIFT), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public boolean getBoolean(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToIntFunction<Object> getter = slot.getter(boolean.class);
+      if (getter != null) {
+        return getter.applyAsInt(o) != 0;
+      }
+      try {
+        return (boolean) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof boolean[]) {
+      return (boolean) BOOLEAN_ARRAY.get((boolean[]) o, index(offset, 0));
+    } else if (o instanceof byte[]) {
+      return (byte) BYTE_ARRAY.get((byte[]) o, index(offset, 0)) != 0;
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putBoolean(Object o, long offset, boolean x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjIntConsumer<Object> setter = slot.setter(boolean.class);
+      if (setter != null) {
+        setter.accept(o, x ? 1 : 0);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof boolean[]) {
+      BOOLEAN_ARRAY.set((boolean[]) o, index(offset, 0), x);
+    } else if (o instanceof byte[]) {
+      BYTE_ARRAY.set((byte[]) o, index(offset, 0), (byte) (x ? 1 : 0));
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Unlike the other getters, this one also accepts any primitive array, so that
+   * {@link #copyMemory} and {@link #setMemory} can move bytes between arrays of different types.
+   */
+  @Override
+  public byte getByte(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToIntFunction<Object> getter = slot.getter(byte.class);
+      if (getter != null) {
+        return (byte) getter.applyAsInt(o);
+      }
+      try {
+        return (byte) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof byte[]) {
+      return (byte) BYTE_ARRAY.get((byte[]) o, index(offset, 0));
+    } else if (o != null && o.getClass().isArray()) {
+      int shift = shift(o.getClass().getComponentType());
+      return (byte) (elementBits(o, index(offset, shift)) >>> bitPosition(offset, shift));
+    }
+    throw unsupported(o);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Unlike the other setters, this one also accepts any primitive array, so that
+   * {@link #copyMemory} and {@link #setMemory} can move bytes between arrays of different types.
+   */
+  @Override
+  public void putByte(Object o, long offset, byte x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjIntConsumer<Object> setter = slot.setter(byte.class);
+      if (setter != null) {
+        setter.accept(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof byte[]) {
+      BYTE_ARRAY.set((byte[]) o, index(offset, 0), x);
+    } else if (o != null && o.getClass().isArray()) {
+      int shift = shift(o.getClass().getComponentType());
+      int index = index(offset, shift);
+      int bitPosition = bitPosition(offset, shift);
+      long bits = elementBits(o, index) & ~(0xFFL << bitPosition);
+      setElementBits(o, index, bits | ((x & 0xFFL) << bitPosition));
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public short getShort(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToIntFunction<Object> getter = slot.getter(short.class);
+      if (getter != null) {
+        return (short) getter.applyAsInt(o);
+      }
+      try {
+        return (short) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof short[]) {
+      return (short) SHORT_ARRAY.get((short[]) o, index(offset, 1));
+    } else if (o instanceof byte[]) {
+      return (short) SHORT_VIEW.get((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putShort(Object o, long offset, short x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjIntConsumer<Object> setter = slot.setter(short.class);
+      if (setter != null) {
+        setter.accept(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof short[]) {
+      SHORT_ARRAY.set((short[]) o, index(offset, 1), x);
+    } else if (o instanceof byte[]) {
+      SHORT_VIEW.set((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public char getChar(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToIntFunction<Object> getter = slot.getter(char.class);
+      if (getter != null) {
+        return (char) getter.applyAsInt(o);
+      }
+      try {
+        return (char) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof char[]) {
+      return (char) CHAR_ARRAY.get((char[]) o, index(offset, 1));
+    } else if (o instanceof byte[]) {
+      return (char) CHAR_VIEW.get((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putChar(Object o, long offset, char x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjIntConsumer<Object> setter = slot.setter(char.class);
+      if (setter != null) {
+        setter.accept(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof char[]) {
+      CHAR_ARRAY.set((char[]) o, index(offset, 1), x);
+    } else if (o instanceof byte[]) {
+      CHAR_VIEW.set((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public long getLong(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToLongFunction<Object> getter = slot.getter(long.class);
+      if (getter != null) {
+        return getter.applyAsLong(o);
+      }
+      try {
+        return (long) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.get((long[]) o, index(offset, 3));
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.get((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putLong(Object o, long offset, long x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjLongConsumer<Object> setter = slot.setter(long.class);
+      if (setter != null) {
+        setter.accept(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof long[]) {
+      LONG_ARRAY.set((long[]) o, index(offset, 3), x);
+    } else if (o instanceof byte[]) {
+      LONG_VIEW.set((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public float getFloat(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToIntFunction<Object> getter = slot.getter(float.class);
+      if (getter != null) {
+        return Float.intBitsToFloat(getter.applyAsInt(o));
+      }
+      try {
+        return (float) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof float[]) {
+      return (float) FLOAT_ARRAY.get((float[]) o, index(offset, 2));
+    } else if (o instanceof byte[]) {
+      return (float) FLOAT_VIEW.get((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putFloat(Object o, long offset, float x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjIntConsumer<Object> setter = slot.setter(float.class);
+      if (setter != null) {
+        setter.accept(o, Float.floatToRawIntBits(x));
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof float[]) {
+      FLOAT_ARRAY.set((float[]) o, index(offset, 2), x);
+    } else if (o instanceof byte[]) {
+      FLOAT_VIEW.set((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public double getDouble(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ToLongFunction<Object> getter = slot.getter(double.class);
+      if (getter != null) {
+        return Double.longBitsToDouble(getter.applyAsLong(o));
+      }
+      try {
+        return (double) slot.invoker(AccessMode.GET).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof double[]) {
+      return (double) DOUBLE_ARRAY.get((double[]) o, index(offset, 3));
+    } else if (o instanceof byte[]) {
+      return (double) DOUBLE_VIEW.get((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putDouble(Object o, long offset, double x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjLongConsumer<Object> setter = slot.setter(double.class);
+      if (setter != null) {
+        setter.accept(o, Double.doubleToRawLongBits(x));
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof double[]) {
+      DOUBLE_ARRAY.set((double[]) o, index(offset, 3), x);
+    } else if (o instanceof byte[]) {
+      DOUBLE_VIEW.set((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public long allocateMemory(long bytes) {
+    throw unsupportedNative();
+  }
+
+  @Override
+  public long reallocateMemory(long address, long bytes) {
+    throw unsupportedNative();
+  }
+
+  @Override
+  public void setMemory(Object o, long offset, long bytes, byte value) {
+    if (o == null) {
+      throw unsupportedNative();
+    }
+    checkArray(o);
+    if (o instanceof byte[]) {
+      Arrays.fill((byte[]) o, (int) offset, (int) (offset + bytes), value);
+      return;
+    }
+    int shift = shift(o.getClass().getComponentType());
+    if (((offset | bytes) & ((1 << shift) - 1)) == 0) {
+      long pattern = (value & 0xFFL) * 0x0101010101010101L;
+      int end = index(offset + bytes, shift);
+      for (int i = index(offset, shift); i < end; i++) {
+        setElementBits(o, i, pattern);
+      }
+    } else {
+      for (long i = 0; i < bytes; i++) {
+        putByte(o, offset + i, value);
+      }
+    }
+  }
+
+  @Override
+  public void copyMemory(Object srcBase, long srcOffset, Object destBase, long destOffset,
+      long bytes) {
+    if (srcBase == null || destBase == null) {
+      throw unsupportedNative();
+    }
+    checkArray(srcBase);
+    checkArray(destBase);
+    Class<?> arrayClass = srcBase.getClass();
+    if (arrayClass == destBase.getClass()) {
+      int shift = shift(arrayClass.getComponentType());
+      if (((srcOffset | destOffset | bytes) & ((1 << shift) - 1)) == 0) {
+        System.arraycopy(srcBase, index(srcOffset, shift), destBase, index(destOffset, shift),
+            index(bytes, shift));
+        return;
+      }
+    }
+    if (srcBase == destBase && destOffset > srcOffset) {
+      for (long i = bytes - 1; i >= 0; i--) {
+        putByte(destBase, destOffset + i, getByte(srcBase, srcOffset + i));
+      }
+    } else {
+      for (long i = 0; i < bytes; i++) {
+        putByte(destBase, destOffset + i, getByte(srcBase, srcOffset + i));
+      }
+    }
+  }
+
+  @Override
+  public void freeMemory(long address) {
+    throw unsupportedNative();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The result is a cookie for use with {@link #staticFieldBase}, not a real offset.
+   */
+  @Override
+  public long staticFieldOffset(Field f) {
+    return cookieFor(f, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The result is a cookie that identifies the field, not a real offset, and cannot be used with
+   * objects of any other class.
+   */
+  @Override
+  public long objectFieldOffset(Field f) {
+    return cookieFor(f, false);
+  }
+
+  @Override
+  public Object staticFieldBase(Field f) {
+    return f.getDeclaringClass();
+  }
+
+  /** Always zero, since array offsets are relative to the first element. */
+  @Override
+  public int arrayBaseOffset(Class<?> arrayClass) {
+    return 0;
+  }
+
+  /**
+   * The size in bytes of a primitive array element, or {@link #addressSize()} for arrays of
+   * references.
+   */
+  @Override
+  public int arrayIndexScale(Class<?> arrayClass) {
+    return 1 << shift(arrayClass.getComponentType());
+  }
+
+  @Override
+  public int addressSize() {
+    return ADDRESS_SIZE;
+  }
+
+  /** Not supported, since no standard API exposes the page size. */
+  @Override
+  public int pageSize() {
+    throw unsupportedNative();
+  }
+
+  /** Always false, since only Java heap variables are supported. */
+  @Override
+  public boolean supportsNativeMemory() {
+    return false;
+  }
+
+  /** Always false, since field offsets are cookies and array offsets exclude the header. */
+  @Override
+  public boolean exposesObjectLayout() {
+    return false;
+  }
+
+  @Override
+  public Object getObjectVolatile(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjectAtomics atomics = slot.objectAtomics;
+      if (atomics != null) {
+        return atomics.getVolatile(o);
+      }
+      try {
+        return (Object) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof Object[]) {
+      return OBJECT_ARRAY.getVolatile((Object[]) o, index(offset, REFERENCE_SHIFT));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putObjectVolatile(Object o, long offset, Object x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjectAtomics atomics = slot.objectAtomics;
+      if (atomics != null) {
+        atomics.setVolatile(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof Object[]) {
+      OBJECT_ARRAY.setVolatile((Object[]) o, index(offset, REFERENCE_SHIFT), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public int getIntVolatile(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        return atomics.getVolatile(o);
+      }
+      try {
+        if (slot.kind == float.class) {
+          float value = (float) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+          return Float.floatToRawIntBits(value);
+        }
+        return (int) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.getVolatile((int[]) o, index(offset, 2));
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putIntVolatile(Object o, long offset, int x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        atomics.setVolatile(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof int[]) {
+      INT_ARRAY.setVolatile((int[]) o, index(offset, 2), x);
+    } else if (o instanceof byte[]) {
+      INT_VIEW.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public boolean getBooleanVolatile(Object o, long offset) {
+    if (offset < 0) {
+      try {
+        return (boolean) slot(o, offset).invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof boolean[]) {
+      return (boolean) BOOLEAN_ARRAY.getVolatile((boolean[]) o, index(offset, 0));
+    } else if (o instanceof byte[]) {
+      return (byte) BYTE_ARRAY.getVolatile((byte[]) o, index(offset, 0)) != 0;
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putBooleanVolatile(Object o, long offset, boolean x) {
+    if (offset < 0) {
+      try {
+        slot(o, offset).invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof boolean[]) {
+      BOOLEAN_ARRAY.setVolatile((boolean[]) o, index(offset, 0), x);
+    } else if (o instanceof byte[]) {
+      BYTE_ARRAY.setVolatile((byte[]) o, index(offset, 0), (byte) (x ? 1 : 0));
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public byte getByteVolatile(Object o, long offset) {
+    if (offset < 0) {
+      try {
+        return (byte) slot(o, offset).invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof byte[]) {
+      return (byte) BYTE_ARRAY.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putByteVolatile(Object o, long offset, byte x) {
+    if (offset < 0) {
+      try {
+        slot(o, offset).invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof byte[]) {
+      BYTE_ARRAY.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public short getShortVolatile(Object o, long offset) {
+    if (offset < 0) {
+      try {
+        return (short) slot(o, offset).invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof short[]) {
+      return (short) SHORT_ARRAY.getVolatile((short[]) o, index(offset, 1));
+    } else if (o instanceof byte[]) {
+      return (short) SHORT_VIEW.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putShortVolatile(Object o, long offset, short x) {
+    if (offset < 0) {
+      try {
+        slot(o, offset).invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof short[]) {
+      SHORT_ARRAY.setVolatile((short[]) o, index(offset, 1), x);
+    } else if (o instanceof byte[]) {
+      SHORT_VIEW.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public char getCharVolatile(Object o, long offset) {
+    if (offset < 0) {
+      try {
+        return (char) slot(o, offset).invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof char[]) {
+      return (char) CHAR_ARRAY.getVolatile((char[]) o, index(offset, 1));
+    } else if (o instanceof byte[]) {
+      return (char) CHAR_VIEW.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putCharVolatile(Object o, long offset, char x) {
+    if (offset < 0) {
+      try {
+        slot(o, offset).invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof char[]) {
+      CHAR_ARRAY.setVolatile((char[]) o, index(offset, 1), x);
+    } else if (o instanceof byte[]) {
+      CHAR_VIEW.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public long getLongVolatile(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        return atomics.getVolatile(o);
+      }
+      try {
+        if (slot.kind == double.class) {
+          double value = (double) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+          return Double.doubleToRawLongBits(value);
+        }
+        return (long) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.getVolatile((long[]) o, index(offset, 3));
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putLongVolatile(Object o, long offset, long x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        atomics.setVolatile(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof long[]) {
+      LONG_ARRAY.setVolatile((long[]) o, index(offset, 3), x);
+    } else if (o instanceof byte[]) {
+      LONG_VIEW.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public float getFloatVolatile(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        return Float.intBitsToFloat(atomics.getVolatile(o));
+      }
+      try {
+        return (float) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof float[]) {
+      return (float) FLOAT_ARRAY.getVolatile((float[]) o, index(offset, 2));
+    } else if (o instanceof byte[]) {
+      return (float) FLOAT_VIEW.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putFloatVolatile(Object o, long offset, float x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        atomics.setVolatile(o, Float.floatToRawIntBits(x));
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof float[]) {
+      FLOAT_ARRAY.setVolatile((float[]) o, index(offset, 2), x);
+    } else if (o instanceof byte[]) {
+      FLOAT_VIEW.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public double getDoubleVolatile(Object o, long offset) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        return Double.longBitsToDouble(atomics.getVolatile(o));
+      }
+      try {
+        return (double) slot.invoker(AccessMode.GET_VOLATILE).invokeExact(o);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof double[]) {
+      return (double) DOUBLE_ARRAY.getVolatile((double[]) o, index(offset, 3));
+    } else if (o instanceof byte[]) {
+      return (double) DOUBLE_VIEW.getVolatile((byte[]) o, index(offset, 0));
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void putDoubleVolatile(Object o, long offset, double x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        atomics.setVolatile(o, Double.doubleToRawLongBits(x));
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_VOLATILE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof double[]) {
+      DOUBLE_ARRAY.setVolatile((double[]) o, index(offset, 3), x);
+    } else if (o instanceof byte[]) {
+      DOUBLE_VIEW.setVolatile((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public void putOrderedObject(Object o, long offset, Object x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjectAtomics atomics = slot.objectAtomics;
+      if (atomics != null) {
+        atomics.setRelease(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_RELEASE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof Object[]) {
+      OBJECT_ARRAY.setRelease((Object[]) o, index(offset, REFERENCE_SHIFT), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public void putOrderedInt(Object o, long offset, int x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        atomics.setRelease(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_RELEASE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof int[]) {
+      INT_ARRAY.setRelease((int[]) o, index(offset, 2), x);
+    } else if (o instanceof byte[]) {
+      INT_VIEW.setRelease((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public void putOrderedLong(Object o, long offset, long x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        atomics.setRelease(o, x);
+        return;
+      }
+      try {
+        slot.invoker(AccessMode.SET_RELEASE).invokeExact(o, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    } else if (o instanceof long[]) {
+      LONG_ARRAY.setRelease((long[]) o, index(offset, 3), x);
+    } else if (o instanceof byte[]) {
+      LONG_VIEW.setRelease((byte[]) o, index(offset, 0), x);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  @Override
+  public boolean compareAndSwapObject(Object o, long offset, Object expected, Object x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjectAtomics atomics = slot.objectAtomics;
+      if (atomics != null) {
+        return atomics.compareAndSet(o, expected, x);
+      }
+      try {
+        return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+            .invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof Object[]) {
+      return OBJECT_ARRAY.compareAndSet((Object[]) o, index(offset, REFERENCE_SHIFT), expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public boolean compareAndSwapInt(Object o, long offset, int expected, int x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        return atomics.compareAndSet(o, expected, x);
+      }
+      try {
+        if (slot.kind == float.class) {
+          return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+              .invokeExact(o, Float.intBitsToFloat(expected), Float.intBitsToFloat(x));
+        }
+        return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+            .invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return INT_ARRAY.compareAndSet((int[]) o, index(offset, 2), expected, x);
+    } else if (o instanceof byte[]) {
+      return INT_VIEW.compareAndSet((byte[]) o, index(offset, 0), expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public boolean compareAndSwapByte(Object o, long offset, byte expected, byte x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      try {
+        if (slot.kind == boolean.class) {
+          return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+              .invokeExact(o, expected != 0, x != 0);
+        }
+        return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET).invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof byte[]) {
+      return BYTE_ARRAY.compareAndSet((byte[]) o, index(offset, 0), expected, x);
+    } else if (o instanceof boolean[]) {
+      return BOOLEAN_ARRAY.compareAndSet((boolean[]) o, index(offset, 0), expected != 0, x != 0);
+    }
+    throw unsupported(o);
+  }
+
+  /** Shorts in a {@code byte[]} are updated through the aligned {@code int} that holds them. */
+  @Override
+  public boolean compareAndSwapShort(Object o, long offset, short expected, short x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      try {
+        if (slot.kind == char.class) {
+          return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+              .invokeExact(o, (char) expected, (char) x);
+        }
+        return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET).invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof short[]) {
+      return SHORT_ARRAY.compareAndSet((short[]) o, index(offset, 1), expected, x);
+    } else if (o instanceof char[]) {
+      return CHAR_ARRAY.compareAndSet((char[]) o, index(offset, 1), (char) expected, (char) x);
+    } else if (o instanceof byte[]) {
+      return LowLevelMemoryAccessor.super.compareAndSwapShort(o, offset, expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public boolean compareAndSwapLong(Object o, long offset, long expected, long x) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        return atomics.compareAndSet(o, expected, x);
+      }
+      try {
+        if (slot.kind == double.class) {
+          return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+              .invokeExact(o, Double.longBitsToDouble(expected), Double.longBitsToDouble(x));
+        }
+        return (boolean) slot.invoker(AccessMode.COMPARE_AND_SET)
+            .invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return LONG_ARRAY.compareAndSet((long[]) o, index(offset, 3), expected, x);
+    } else if (o instanceof byte[]) {
+      return LONG_VIEW.compareAndSet((byte[]) o, index(offset, 0), expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public int getAndAddInt(Object o, long offset, int delta) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        return atomics.getAndAdd(o, delta);
+      }
+      try {
+        return (int) slot.invoker(AccessMode.GET_AND_ADD)
+            .invokeExact(o, delta);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.getAndAdd((int[]) o, index(offset, 2), delta);
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.getAndAdd((byte[]) o, index(offset, 0), delta);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public long getAndAddLong(Object o, long offset, long delta) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        return atomics.getAndAdd(o, delta);
+      }
+      try {
+        return (long) slot.invoker(AccessMode.GET_AND_ADD)
+            .invokeExact(o, delta);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.getAndAdd((long[]) o, index(offset, 3), delta);
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.getAndAdd((byte[]) o, index(offset, 0), delta);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public int getAndSetInt(Object o, long offset, int newValue) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      IntAtomics atomics = slot.intAtomics;
+      if (atomics != null) {
+        return atomics.getAndSet(o, newValue);
+      }
+      try {
+        if (slot.kind == float.class) {
+          float previous = (float) slot.invoker(AccessMode.GET_AND_SET)
+              .invokeExact(o, Float.intBitsToFloat(newValue));
+          return Float.floatToRawIntBits(previous);
+        }
+        return (int) slot.invoker(AccessMode.GET_AND_SET)
+            .invokeExact(o, newValue);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.getAndSet((int[]) o, index(offset, 2), newValue);
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.getAndSet((byte[]) o, index(offset, 0), newValue);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public long getAndSetLong(Object o, long offset, long newValue) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      LongAtomics atomics = slot.longAtomics;
+      if (atomics != null) {
+        return atomics.getAndSet(o, newValue);
+      }
+      try {
+        if (slot.kind == double.class) {
+          double previous = (double) slot.invoker(AccessMode.GET_AND_SET)
+              .invokeExact(o, Double.longBitsToDouble(newValue));
+          return Double.doubleToRawLongBits(previous);
+        }
+        return (long) slot.invoker(AccessMode.GET_AND_SET)
+            .invokeExact(o, newValue);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.getAndSet((long[]) o, index(offset, 3), newValue);
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.getAndSet((byte[]) o, index(offset, 0), newValue);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public Object getAndSetObject(Object o, long offset, Object newValue) {
+    if (offset < 0) {
+      FieldSlot slot = slot(o, offset);
+      ObjectAtomics atomics = slot.objectAtomics;
+      if (atomics != null) {
+        return atomics.getAndSet(o, newValue);
+      }
+      try {
+        return (Object) slot.invoker(AccessMode.GET_AND_SET)
+            .invokeExact(o, newValue);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof Object[]) {
+      return OBJECT_ARRAY.getAndSet((Object[]) o, index(offset, REFERENCE_SHIFT), newValue);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public Object compareAndExchangeObject(Object o, long offset, Object expected, Object x) {
+    if (offset < 0) {
+      try {
+        return (Object) slot(o, offset).invoker(AccessMode.COMPARE_AND_EXCHANGE)
+            .invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof Object[]) {
+      return (Object) OBJECT_ARRAY.compareAndExchange(
+          (Object[]) o, index(offset, REFERENCE_SHIFT), expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public int compareAndExchangeInt(Object o, long offset, int expected, int x) {
+    if (offset < 0) {
+      try {
+        return (int) slot(o, offset).invoker(AccessMode.COMPARE_AND_EXCHANGE)
+            .invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.compareAndExchange((int[]) o, index(offset, 2), expected, x);
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.compareAndExchange((byte[]) o, index(offset, 0), expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public long compareAndExchangeLong(Object o, long offset, long expected, long x) {
+    if (offset < 0) {
+      try {
+        return (long) slot(o, offset).invoker(AccessMode.COMPARE_AND_EXCHANGE)
+            .invokeExact(o, expected, x);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.compareAndExchange((long[]) o, index(offset, 3), expected, x);
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.compareAndExchange((byte[]) o, index(offset, 0), expected, x);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public int getAndBitwiseOrInt(Object o, long offset, int mask) {
+    if (offset < 0) {
+      try {
+        return (int) slot(o, offset).invoker(AccessMode.GET_AND_BITWISE_OR)
+            .invokeExact(o, mask);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.getAndBitwiseOr((int[]) o, index(offset, 2), mask);
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.getAndBitwiseOr((byte[]) o, index(offset, 0), mask);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public int getAndBitwiseAndInt(Object o, long offset, int mask) {
+    if (offset < 0) {
+      try {
+        return (int) slot(o, offset).invoker(AccessMode.GET_AND_BITWISE_AND)
+            .invokeExact(o, mask);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.getAndBitwiseAnd((int[]) o, index(offset, 2), mask);
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.getAndBitwiseAnd((byte[]) o, index(offset, 0), mask);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public int getAndBitwiseXorInt(Object o, long offset, int mask) {
+    if (offset < 0) {
+      try {
+        return (int) slot(o, offset).invoker(AccessMode.GET_AND_BITWISE_XOR)
+            .invokeExact(o, mask);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof int[]) {
+      return (int) INT_ARRAY.getAndBitwiseXor((int[]) o, index(offset, 2), mask);
+    } else if (o instanceof byte[]) {
+      return (int) INT_VIEW.getAndBitwiseXor((byte[]) o, index(offset, 0), mask);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public long getAndBitwiseOrLong(Object o, long offset, long mask) {
+    if (offset < 0) {
+      try {
+        return (long) slot(o, offset).invoker(AccessMode.GET_AND_BITWISE_OR)
+            .invokeExact(o, mask);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.getAndBitwiseOr((long[]) o, index(offset, 3), mask);
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.getAndBitwiseOr((byte[]) o, index(offset, 0), mask);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public long getAndBitwiseAndLong(Object o, long offset, long mask) {
+    if (offset < 0) {
+      try {
+        return (long) slot(o, offset).invoker(AccessMode.GET_AND_BITWISE_AND)
+            .invokeExact(o, mask);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.getAndBitwiseAnd((long[]) o, index(offset, 3), mask);
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.getAndBitwiseAnd((byte[]) o, index(offset, 0), mask);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public long getAndBitwiseXorLong(Object o, long offset, long mask) {
+    if (offset < 0) {
+      try {
+        return (long) slot(o, offset).invoker(AccessMode.GET_AND_BITWISE_XOR)
+            .invokeExact(o, mask);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    if (o instanceof long[]) {
+      return (long) LONG_ARRAY.getAndBitwiseXor((long[]) o, index(offset, 3), mask);
+    } else if (o instanceof byte[]) {
+      return (long) LONG_VIEW.getAndBitwiseXor((byte[]) o, index(offset, 0), mask);
+    }
+    throw unsupported(o);
+  }
+
+  @Override
+  public void loadFence() {
+    VarHandle.acquireFence();
+  }
+
+  @Override
+  public void storeFence() {
+    VarHandle.releaseFence();
+  }
+
+  @Override
+  public void fullFence() {
+    VarHandle.fullFence();
+  }
+
+}
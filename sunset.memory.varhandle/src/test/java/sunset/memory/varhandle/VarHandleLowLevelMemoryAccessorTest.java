@@ -0,0 +1,379 @@
+package sunset.memory.varhandle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.Test;
+import sunset.memory.LowLevelMemoryAccessor;
+
+class VarHandleLowLevelMemoryAccessorTest {
+
+  private static class Fields {
+    static long staticLong = 5;
+    int anInt = 1;
+    long aLong = 2;
+    Object anObject = "hello";
+    volatile boolean aBoolean;
+    double aDouble = 3.0;
+    String aString = "x";
+  }
+
+  private static final class AllTypes {
+    static int staticInt = 1;
+    private boolean aBoolean;
+    private byte aByte;
+    private short aShort;
+    private char aChar;
+    private int anInt;
+    private long aLong;
+    private float aFloat;
+    private double aDouble;
+    private Fields fields;
+    private final int finalInt = 7;
+  }
+
+  private final LowLevelMemoryAccessor accessor = new VarHandleLowLevelMemoryAccessor();
+
+  private long offset(String name) throws NoSuchFieldException {
+    return accessor.objectFieldOffset(Fields.class.getDeclaredField(name));
+  }
+
+  @Test
+  void getInstance() {
+    // The only implementation on this module's class path
+    assertTrue(LowLevelMemoryAccessor.getInstance() instanceof VarHandleLowLevelMemoryAccessor);
+    assertFalse(accessor.supportsNativeMemory());
+  }
+
+  @Test
+  void instanceFields() throws NoSuchFieldException {
+    Fields fields = new Fields();
+    assertEquals(1, accessor.getInt(fields, offset("anInt")));
+    accessor.putInt(fields, offset("anInt"), 10);
+    assertEquals(10, fields.anInt);
+    accessor.putLong(fields, offset("aLong"), 20);
+    assertEquals(20, accessor.getLongVolatile(fields, offset("aLong")));
+    assertEquals("hello", accessor.getObject(fields, offset("anObject")));
+    accessor.putBooleanVolatile(fields, offset("aBoolean"), true);
+    assertTrue(fields.aBoolean);
+    accessor.putDouble(fields, offset("aDouble"), 4.5);
+    assertEquals(4.5, fields.aDouble);
+  }
+
+  @Test
+  void allFieldTypes() throws NoSuchFieldException {
+    AllTypes o = new AllTypes();
+    Fields fields = new Fields();
+    // Repeated so that both the interpreter and compiled code go through the generated accessors
+    for (int i = 0; i < 20_000; i++) {
+      accessor.putBoolean(o, field("aBoolean"), true);
+      accessor.putByte(o, field("aByte"), (byte) -3);
+      accessor.putShort(o, field("aShort"), (short) -300);
+      accessor.putChar(o, field("aChar"), 'c');
+      accessor.putInt(o, field("anInt"), i);
+      accessor.putLong(o, field("aLong"), -1L << 40);
+      accessor.putFloat(o, field("aFloat"), -0.5f);
+      accessor.putDouble(o, field("aDouble"), Double.NaN);
+      accessor.putObject(o, field("fields"), fields);
+      assertTrue(accessor.getBoolean(o, field("aBoolean")));
+      assertEquals(-3, accessor.getByte(o, field("aByte")));
+      assertEquals(-300, accessor.getShort(o, field("aShort")));
+      assertEquals('c', accessor.getChar(o, field("aChar")));
+      assertEquals(i, accessor.getInt(o, field("anInt")));
+      assertEquals(-1L << 40, accessor.getLong(o, field("aLong")));
+      assertEquals(-0.5f, accessor.getFloat(o, field("aFloat")));
+      assertTrue(Double.isNaN(accessor.getDouble(o, field("aDouble"))));
+      assertSame(fields, accessor.getObject(o, field("fields")));
+    }
+    assertEquals(19_999, o.anInt);
+    assertEquals(-0.5f, o.aFloat);
+    assertSame(fields, o.fields);
+  }
+
+  private long field(String name) throws NoSuchFieldException {
+    return accessor.objectFieldOffset(AllTypes.class.getDeclaredField(name));
+  }
+
+  @Test
+  void generatesFieldAccessors() throws ReflectiveOperationException {
+    assumeTrue(Runtime.version().major() >= 15, "Hidden classes need JDK 15");
+    MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(AllTypes.class,
+        MethodHandles.lookup());
+    Object access = FieldAccessGenerator.generate(lookup, AllTypes.class.getDeclaredField("aLong"));
+    assertTrue(access instanceof ToLongFunction && access instanceof ObjLongConsumer);
+    assertTrue(access instanceof FieldAccessGenerator.LongAtomics);
+    access = FieldAccessGenerator.generate(lookup, AllTypes.class.getDeclaredField("finalInt"));
+    assertTrue(access instanceof ToIntFunction && !(access instanceof ObjIntConsumer));
+    assertFalse(access instanceof FieldAccessGenerator.IntAtomics);
+    access = FieldAccessGenerator.generate(lookup, AllTypes.class.getDeclaredField("fields"));
+    assertTrue(access instanceof Function && access instanceof BiConsumer);
+    assertTrue(access instanceof FieldAccessGenerator.ObjectAtomics);
+    access = FieldAccessGenerator.generate(lookup, AllTypes.class.getDeclaredField("aFloat"));
+    assertTrue(access instanceof FieldAccessGenerator.IntAtomics);
+    access = FieldAccessGenerator.generate(lookup, AllTypes.class.getDeclaredField("staticInt"));
+    assertTrue(access instanceof FieldAccessGenerator.IntAtomics);
+    access = FieldAccessGenerator.generate(lookup, AllTypes.class.getDeclaredField("aShort"));
+    assertFalse(access instanceof FieldAccessGenerator.IntAtomics);
+  }
+
+  @Test
+  void atomicFieldAccess() throws NoSuchFieldException {
+    AllTypes o = new AllTypes();
+    Fields fields = new Fields();
+    // Repeated so that both the interpreter and compiled code go through the generated accessors
+    for (int i = 0; i < 20_000; i++) {
+      accessor.putIntVolatile(o, field("anInt"), i);
+      assertTrue(accessor.compareAndSwapInt(o, field("anInt"), i, i + 1));
+      assertFalse(accessor.compareAndSwapInt(o, field("anInt"), i, i + 2));
+      assertEquals(i + 1, accessor.getAndAddInt(o, field("anInt"), 2));
+      assertEquals(i + 3, accessor.getAndSetInt(o, field("anInt"), i));
+      accessor.putOrderedInt(o, field("anInt"), accessor.getIntVolatile(o, field("anInt")) + 1);
+
+      accessor.putLongVolatile(o, field("aLong"), i);
+      assertTrue(accessor.compareAndSwapLong(o, field("aLong"), i, -1L << 40));
+      assertEquals(-1L << 40, accessor.getAndAddLong(o, field("aLong"), 1));
+      assertEquals((-1L << 40) + 1, accessor.getAndSetLong(o, field("aLong"), i));
+      accessor.putOrderedLong(o, field("aLong"), accessor.getLongVolatile(o, field("aLong")) * 2);
+
+      accessor.putFloatVolatile(o, field("aFloat"), i);
+      assertEquals(i, accessor.getFloatVolatile(o, field("aFloat")));
+      accessor.putDoubleVolatile(o, field("aDouble"), -i);
+      assertEquals(-i, accessor.getDoubleVolatile(o, field("aDouble")));
+
+      accessor.putObjectVolatile(o, field("fields"), null);
+      assertTrue(accessor.compareAndSwapObject(o, field("fields"), null, fields));
+      assertSame(fields, accessor.getAndSetObject(o, field("fields"), null));
+      accessor.putOrderedObject(o, field("fields"), fields);
+      assertSame(fields, accessor.getObjectVolatile(o, field("fields")));
+    }
+    assertEquals(20_000, o.anInt);
+    assertEquals(2 * 19_999, o.aLong);
+    assertEquals(-19_999.0, o.aDouble);
+    assertSame(fields, o.fields);
+  }
+
+  /** As {@code FloatFieldAccessor} and {@code DoubleFieldAccessor} use them. */
+  @Test
+  void floatingPointFieldsAsBits() throws NoSuchFieldException {
+    AllTypes o = new AllTypes();
+    o.aFloat = 1.5f;
+    int bits = accessor.getIntVolatile(o, field("aFloat"));
+    assertEquals(Float.floatToRawIntBits(1.5f), bits);
+    assertTrue(accessor.compareAndSwapInt(o, field("aFloat"), bits, Float.floatToRawIntBits(2f)));
+    assertFalse(accessor.compareAndSwapInt(o, field("aFloat"), bits, 0));
+    assertEquals(2f, Float.intBitsToFloat(accessor.getAndSetInt(o, field("aFloat"), bits)));
+    assertEquals(1.5f, o.aFloat);
+
+    o.aDouble = Double.NaN;
+    long longBits = accessor.getLongVolatile(o, field("aDouble"));
+    assertEquals(Double.doubleToRawLongBits(Double.NaN), longBits);
+    assertTrue(accessor.compareAndSwapLong(o, field("aDouble"), longBits,
+        Double.doubleToRawLongBits(-0.0)));
+    assertEquals(-0.0, Double.longBitsToDouble(accessor.getAndSetLong(o, field("aDouble"), 0)));
+    assertEquals(0.0, o.aDouble);
+  }
+
+  @Test
+  void fieldOffsetsAreNegative() throws NoSuchFieldException {
+    assertTrue(offset("anInt") < 0);
+    assertTrue(accessor.staticFieldOffset(Fields.class.getDeclaredField("staticLong")) < 0);
+    // Anything else is an array offset, which a plain object doesn't have
+    assertThrows(UnsupportedOperationException.class, () -> accessor.getInt(new Fields(), 12));
+    assertThrows(UnsupportedOperationException.class, () -> accessor.getInt(new long[2], 0));
+  }
+
+  @Test
+  void fieldAccessChecksTypes() throws NoSuchFieldException {
+    AllTypes o = new AllTypes();
+    assertEquals(7, accessor.getInt(o, field("finalInt")));
+    assertThrows(UnsupportedOperationException.class,
+        () -> accessor.putInt(o, field("finalInt"), 8));
+    assertThrows(RuntimeException.class, () -> accessor.getLong(o, field("anInt")));
+    assertThrows(RuntimeException.class, () -> accessor.putInt(o, field("aLong"), 1));
+    assertThrows(ClassCastException.class, () -> accessor.getInt(new Fields(), field("anInt")));
+
+    java.lang.reflect.Field staticInt = AllTypes.class.getDeclaredField("staticInt");
+    Object base = accessor.staticFieldBase(staticInt);
+    long offset = accessor.staticFieldOffset(staticInt);
+    accessor.putInt(base, offset, 2);
+    assertEquals(2, AllTypes.staticInt);
+    assertEquals(2, accessor.getInt(base, offset));
+  }
+
+  @Test
+  void objectFieldOffsetIsStable() throws NoSuchFieldException {
+    assertEquals(offset("anInt"), offset("anInt"));
+    assertNotEquals(offset("anInt"), offset("aLong"));
+  }
+
+  @Test
+  void staticFields() throws NoSuchFieldException {
+    java.lang.reflect.Field field = Fields.class.getDeclaredField("staticLong");
+    Object base = accessor.staticFieldBase(field);
+    long offset = accessor.staticFieldOffset(field);
+    assertEquals(5, accessor.getLong(base, offset));
+    accessor.putLong(base, offset, 6);
+    assertEquals(6, Fields.staticLong);
+    assertThrows(IllegalArgumentException.class, () -> accessor.objectFieldOffset(field));
+  }
+
+  @Test
+  void compareAndSwap() throws NoSuchFieldException {
+    Fields fields = new Fields();
+    assertTrue(accessor.compareAndSwapInt(fields, offset("anInt"), 1, 2));
+    assertFalse(accessor.compareAndSwapInt(fields, offset("anInt"), 1, 3));
+    assertEquals(2, fields.anInt);
+    assertTrue(accessor.compareAndSwapObject(fields, offset("anObject"), "hello", "world"));
+    assertEquals("world", fields.anObject);
+
+    long[] array = {7};
+    long base = accessor.arrayBaseOffset(long[].class);
+    assertTrue(accessor.compareAndSwapLong(array, base, 7, 8));
+    assertEquals(8, array[0]);
+  }
+
+  @Test
+  void compareAndSwapSubword() throws NoSuchFieldException {
+    AllTypes all = new AllTypes();
+    long aByte = accessor.objectFieldOffset(AllTypes.class.getDeclaredField("aByte"));
+    long aBoolean = accessor.objectFieldOffset(AllTypes.class.getDeclaredField("aBoolean"));
+    long aShort = accessor.objectFieldOffset(AllTypes.class.getDeclaredField("aShort"));
+    long aChar = accessor.objectFieldOffset(AllTypes.class.getDeclaredField("aChar"));
+    assertTrue(accessor.compareAndSwapByte(all, aByte, (byte) 0, (byte) 5));
+    assertFalse(accessor.compareAndSwapByte(all, aByte, (byte) 0, (byte) 6));
+    assertEquals(5, all.aByte);
+    assertTrue(accessor.compareAndSwapByte(all, aBoolean, (byte) 0, (byte) 1));
+    assertTrue(all.aBoolean);
+    assertTrue(accessor.compareAndSwapShort(all, aShort, (short) 0, (short) -7));
+    assertEquals(-7, all.aShort);
+    assertTrue(accessor.compareAndSwapShort(all, aChar, (short) 0, (short) '\uFFFF'));
+    assertEquals('\uFFFF', all.aChar);
+
+    byte[] bytes = {1, 2, 3, 4};
+    assertTrue(accessor.compareAndSwapByte(bytes, 1, (byte) 2, (byte) 9));
+    short expected = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).getShort(2);
+    assertTrue(accessor.compareAndSwapShort(bytes, 2, expected, (short) 0));
+    assertArrayEquals(new byte[] {1, 9, 0, 0}, bytes);
+    char[] chars = {'a', 'b'};
+    assertTrue(accessor.compareAndSwapShort(chars, 2, (short) 'b', (short) 'c'));
+    assertArrayEquals(new char[] {'a', 'c'}, chars);
+  }
+
+  @Test
+  void getAndAdd() throws NoSuchFieldException {
+    Fields fields = new Fields();
+    assertEquals(2, accessor.getAndAddLong(fields, offset("aLong"), 5));
+    assertEquals(7, fields.aLong);
+    int[] array = new int[4];
+    long offset = accessor.arrayBaseOffset(int[].class) + 2 * accessor.arrayIndexScale(int[].class);
+    assertEquals(0, accessor.getAndAddInt(array, offset, 3));
+    assertEquals(3, accessor.getAndSetInt(array, offset, 9));
+    assertEquals(9, array[2]);
+  }
+
+  @Test
+  void compareAndExchange() throws NoSuchFieldException {
+    Fields fields = new Fields();
+    assertEquals(1, accessor.compareAndExchangeInt(fields, offset("anInt"), 1, 2));
+    assertEquals(2, accessor.compareAndExchangeInt(fields, offset("anInt"), 1, 3));
+    assertEquals("x", accessor.compareAndExchangeObject(fields, offset("aString"), "x", "y"));
+    assertEquals("y", accessor.getAndSetObject(fields, offset("aString"), "z"));
+    assertEquals("z", fields.aString);
+
+    byte[] bytes = new byte[16];
+    assertEquals(0, accessor.compareAndExchangeLong(bytes, 8, 0, 9));
+    assertEquals(9, accessor.getLongAcquire(bytes, 8));
+  }
+
+  @Test
+  void getAndBitwise() throws NoSuchFieldException {
+    Fields fields = new Fields();
+    assertEquals(2, accessor.getAndBitwiseOrLong(fields, offset("aLong"), 1));
+    assertEquals(3, accessor.getAndBitwiseXorLong(fields, offset("aLong"), 6));
+    assertEquals(5, fields.aLong);
+
+    int[] ints = {0b1010};
+    long base = accessor.arrayBaseOffset(int[].class);
+    assertEquals(0b1010, accessor.getAndBitwiseAndInt(ints, base, 0b0110));
+    assertEquals(0b0010, ints[0]);
+  }
+
+  @Test
+  void arrays() {
+    long[] longs = new long[4];
+    long scale = accessor.arrayIndexScale(long[].class);
+    accessor.putLong(longs, accessor.arrayBaseOffset(long[].class) + 3 * scale, 42);
+    assertEquals(42, longs[3]);
+
+    String[] strings = {"a", "b"};
+    long objectScale = accessor.arrayIndexScale(String[].class);
+    assertEquals("b", accessor.getObjectVolatile(strings, objectScale));
+    accessor.putOrderedObject(strings, 0, "c");
+    assertEquals("c", strings[0]);
+  }
+
+  @Test
+  void byteArrayPunning() {
+    byte[] bytes = new byte[16];
+    accessor.putLong(bytes, 8, 0x0102030405060708L);
+    assertEquals(0x0102030405060708L,
+        ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).getLong(8));
+    assertEquals(0x0102030405060708L, accessor.getLong(bytes, 8));
+    accessor.putDouble(bytes, 0, 1.5);
+    assertEquals(1.5, accessor.getDouble(bytes, 0));
+    assertEquals(ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).getInt(4),
+        accessor.getInt(bytes, 4));
+  }
+
+  @Test
+  void setMemory() {
+    byte[] bytes = new byte[8];
+    accessor.setMemory(bytes, 2, 4, (byte) 7);
+    assertArrayEquals(new byte[] {0, 0, 7, 7, 7, 7, 0, 0}, bytes);
+
+    int[] ints = new int[4];
+    accessor.setMemory(ints, 4, 8, (byte) 1);
+    assertArrayEquals(new int[] {0, 0x01010101, 0x01010101, 0}, ints);
+  }
+
+  @Test
+  void copyMemory() {
+    long[] src = {1, 2, 3, 4};
+    long[] dest = new long[4];
+    accessor.copyMemory(src, 8, dest, 0, 24);
+    assertArrayEquals(new long[] {2, 3, 4, 0}, dest);
+
+    byte[] bytes = new byte[16];
+    accessor.copyMemory(src, 0, bytes, 0, 16);
+    assertEquals(1, accessor.getLong(bytes, 0));
+    assertEquals(2, accessor.getLong(bytes, 8));
+
+    accessor.copyMemory(src, 0, src, 8, 24);
+    assertArrayEquals(new long[] {1, 1, 2, 3}, src);
+  }
+
+  @Test
+  void nativeMemoryUnsupported() {
+    assertThrows(UnsupportedOperationException.class, () -> accessor.allocateMemory(8));
+    assertThrows(UnsupportedOperationException.class, () -> accessor.getLong(null, 8));
+    assertThrows(UnsupportedOperationException.class, () -> accessor.copyMemory(8, 16, 8));
+  }
+
+  @Test
+  void fences() {
+    accessor.loadFence();
+    accessor.storeFence();
+    accessor.fullFence();
+  }
+
+}
@@ -0,0 +1,893 @@
+package sunset.memory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A {@link LowLevelMemoryAccessor} that validates every access to native memory against a registry
+ * of the blocks it has allocated, and throws instead of letting a bad address crash the JVM. It
+ * catches accesses outside any live block, such as use after free or out-of-bounds accesses, as
+ * well as double frees and frees of addresses it didn't allocate. Accesses to Java objects are
+ * not checked.
+ * <p>
+ * {@link LowLevelMemoryAccessor#getInstance()} wraps the default accessor in this class when the
+ * {@value #PROPERTY} system property is {@code true} at startup. The property is read into
+ * {@link #ENABLED}, a {@code static final} field, so when it is off, {@code getInstance()} returns
+ * the unwrapped accessor and callers pay nothing. When it is on, {@code getInstance()} always
+ * returns the same checked accessor, and {@link MemoryMapper} implementations register the regions
+ * they map with it through {@link #registerWithDefault}. Memory obtained elsewhere must be
+ * {@link #register registered} before it is accessed through this class.
+ * <p>
+ * Every check takes a lookup in a concurrent sorted map, so this accessor is meant for testing and
+ * staging, not for production.
+ */
+public class CheckedLowLevelMemoryAccessor extends ForwardingLowLevelMemoryAccessor {
+
+  /** The system property that enables checked mode. */
+  public static final String PROPERTY = "sunset.memory.checked";
+
+  /** Whether {@link LowLevelMemoryAccessor#getInstance()} returns a checked accessor. */
+  public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+  /** Number of freed blocks remembered, to tell use after free from a wild address. */
+  private static final int FREED_HISTORY = 4096;
+
+  /** Start and size of each live block. */
+  private final ConcurrentSkipListMap<Long, Long> blocks = new ConcurrentSkipListMap<>();
+  /** Start and size of recently freed blocks. Guarded by its own monitor. */
+  private final NavigableMap<Long, Long> freed = new TreeMap<>();
+  /** Starts of the blocks in {@link #freed}, oldest first. Guarded by {@link #freed}. */
+  private final ArrayDeque<Long> freedOrder = new ArrayDeque<>();
+
+  public CheckedLowLevelMemoryAccessor(LowLevelMemoryAccessor delegate) {
+    super(delegate);
+  }
+
+  /**
+   * Adds a block of native memory that was not allocated by this accessor, so that it can be
+   * accessed through it.
+   *
+   * @throws IllegalArgumentException if the size isn't positive, or the block overlaps a live one
+   */
+  public void register(long address, long bytes) {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("Size must be positive: " + bytes);
+    }
+    Map.Entry<Long, Long> overlapping = blocks.lowerEntry(address + bytes);
+    if (overlapping != null && overlapping.getKey() + overlapping.getValue() > address) {
+      throw new IllegalArgumentException(describe(address, bytes) + " overlaps live block "
+          + describe(overlapping.getKey(), overlapping.getValue()));
+    }
+    blocks.put(address, bytes);
+  }
+
+  /**
+   * Removes a block added by {@link #register}, after which it can no longer be accessed through
+   * this accessor.
+   *
+   * @throws IllegalStateException if there is no live block at the address
+   */
+  public void unregister(long address) {
+    release(address);
+  }
+
+  /**
+   * Registers a block of native memory with the accessor returned by
+   * {@link LowLevelMemoryAccessor#getInstance()} if checked mode is on, and otherwise does nothing.
+   * A block of 0 bytes is never registered.
+   *
+   * @throws IllegalArgumentException if the block overlaps a live one
+   */
+  public static void registerWithDefault(long address, long bytes) {
+    if (ENABLED && bytes > 0 && DefaultAccessor.INSTANCE instanceof CheckedLowLevelMemoryAccessor) {
+      ((CheckedLowLevelMemoryAccessor) DefaultAccessor.INSTANCE).register(address, bytes);
+    }
+  }
+
+  /**
+   * Removes a block added by {@link #registerWithDefault} with the same arguments.
+   *
+   * @throws IllegalStateException if there is no live block at the address
+   */
+  public static void unregisterFromDefault(long address, long bytes) {
+    if (ENABLED && bytes > 0 && DefaultAccessor.INSTANCE instanceof CheckedLowLevelMemoryAccessor) {
+      ((CheckedLowLevelMemoryAccessor) DefaultAccessor.INSTANCE).unregister(address);
+    }
+  }
+
+  /** Returns the number of live blocks. */
+  public int liveBlocks() {
+    return blocks.size();
+  }
+
+  @Override
+  public long allocateMemory(long bytes) {
+    long address = delegate.allocateMemory(bytes);
+    if (address != 0) {
+      blocks.put(address, bytes);
+    }
+    return address;
+  }
+
+  @Override
+  public long reallocateMemory(long address, long bytes) {
+    if (address != 0) {
+      long size = release(address);
+      try {
+        address = delegate.reallocateMemory(address, bytes);
+      } catch (RuntimeException | Error e) {
+        blocks.put(address, size);
+        throw e;
+      }
+    } else {
+      address = delegate.reallocateMemory(0, bytes);
+    }
+    if (address != 0) {
+      blocks.put(address, bytes);
+    }
+    return address;
+  }
+
+  @Override
+  public void freeMemory(long address) {
+    if (address != 0) {
+      release(address);
+      delegate.freeMemory(address);
+    }
+  }
+
+  /**
+   * Removes the live block that starts at the given address, and returns its size.
+   *
+   * @throws IllegalStateException if there is none
+   */
+  private long release(long address) {
+    Long size = blocks.remove(address);
+    if (size == null) {
+      Map.Entry<Long, Long> freed = freedBlock(address, 1);
+      if (freed != null && freed.getKey() == address) {
+        throw new IllegalStateException("Double free of " + describe(address, freed.getValue()));
+      }
+      throw new IllegalStateException(
+          "Free of 0x" + Long.toHexString(address) + ", which is not the start of a live block");
+    }
+    synchronized (freed) {
+      if (freed.put(address, size) == null) {
+        freedOrder.add(address);
+        if (freedOrder.size() > FREED_HISTORY) {
+          freed.remove(freedOrder.remove());
+        }
+      }
+    }
+    return size;
+  }
+
+  /** Returns the recently freed block that contains the given range, or null if none does. */
+  private Map.Entry<Long, Long> freedBlock(long address, long bytes) {
+    synchronized (freed) {
+      Map.Entry<Long, Long> block = freed.floorEntry(address);
+      return block != null && contains(block, address, bytes) ? block : null;
+    }
+  }
+
+  private static boolean contains(Map.Entry<Long, Long> block, long address, long bytes) {
+    return address - block.getKey() <= block.getValue() - bytes;
+  }
+
+  private static String describe(long address, long bytes) {
+    return "[0x" + Long.toHexString(address) + ", 0x" + Long.toHexString(address + bytes) + ")";
+  }
+
+  /**
+   * Checks that the given range is within a live block. Empty ranges are always allowed.
+   *
+   * @throws IndexOutOfBoundsException if it starts in a live block but runs past its end
+   * @throws IllegalStateException if it isn't in any live block
+   */
+  protected void checkAccess(long address, long bytes) {
+    if (bytes == 0) {
+      return;
+    }
+    Map.Entry<Long, Long> block = blocks.floorEntry(address);
+    if (block != null && bytes >= 0 && contains(block, address, bytes)) {
+      return;
+    }
+    if (block != null && address - block.getKey() < block.getValue()) {
+      throw new IndexOutOfBoundsException("Access to " + describe(address, bytes)
+          + " runs past the end of live block " + describe(block.getKey(), block.getValue()));
+    }
+    Map.Entry<Long, Long> freed = freedBlock(address, Math.max(bytes, 0));
+    if (freed != null) {
+      throw new IllegalStateException("Access to " + describe(address, bytes)
+          + " after free of block " + describe(freed.getKey(), freed.getValue()));
+    }
+    throw new IllegalStateException(
+        "Access to " + describe(address, bytes) + ", which is not in any live block");
+  }
+
+  /** Checks the given range if the base is null, which makes the offset an absolute address. */
+  private void checkAccess(Object o, long offset, long bytes) {
+    if (o == null) {
+      checkAccess(offset, bytes);
+    }
+  }
+
+  @Override
+  public void setMemory(Object o, long offset, long bytes, byte value) {
+    checkAccess(o, offset, bytes);
+    delegate.setMemory(o, offset, bytes, value);
+  }
+
+  @Override
+  public void setMemory(long address, long bytes, byte value) {
+    checkAccess(address, bytes);
+    delegate.setMemory(address, bytes, value);
+  }
+
+  @Override
+  public void copyMemory(Object srcBase, long srcOffset, Object destBase, long destOffset,
+      long bytes) {
+    checkAccess(srcBase, srcOffset, bytes);
+    checkAccess(destBase, destOffset, bytes);
+    delegate.copyMemory(srcBase, srcOffset, destBase, destOffset, bytes);
+  }
+
+  @Override
+  public void copyMemory(long srcAddress, long destAddress, long bytes) {
+    checkAccess(srcAddress, bytes);
+    checkAccess(destAddress, bytes);
+    delegate.copyMemory(srcAddress, destAddress, bytes);
+  }
+
+  @Override
+  public int getInt(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getInt(o, offset);
+  }
+
+  @Override
+  public void putInt(Object o, long offset, int x) {
+    checkAccess(o, offset, 4);
+    delegate.putInt(o, offset, x);
+  }
+
+  @Override
+  public boolean getBoolean(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getBoolean(o, offset);
+  }
+
+  @Override
+  public void putBoolean(Object o, long offset, boolean x) {
+    checkAccess(o, offset, 1);
+    delegate.putBoolean(o, offset, x);
+  }
+
+  @Override
+  public byte getByte(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getByte(o, offset);
+  }
+
+  @Override
+  public void putByte(Object o, long offset, byte x) {
+    checkAccess(o, offset, 1);
+    delegate.putByte(o, offset, x);
+  }
+
+  @Override
+  public short getShort(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getShort(o, offset);
+  }
+
+  @Override
+  public void putShort(Object o, long offset, short x) {
+    checkAccess(o, offset, 2);
+    delegate.putShort(o, offset, x);
+  }
+
+  @Override
+  public char getChar(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getChar(o, offset);
+  }
+
+  @Override
+  public void putChar(Object o, long offset, char x) {
+    checkAccess(o, offset, 2);
+    delegate.putChar(o, offset, x);
+  }
+
+  @Override
+  public long getLong(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getLong(o, offset);
+  }
+
+  @Override
+  public void putLong(Object o, long offset, long x) {
+    checkAccess(o, offset, 8);
+    delegate.putLong(o, offset, x);
+  }
+
+  @Override
+  public float getFloat(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getFloat(o, offset);
+  }
+
+  @Override
+  public void putFloat(Object o, long offset, float x) {
+    checkAccess(o, offset, 4);
+    delegate.putFloat(o, offset, x);
+  }
+
+  @Override
+  public double getDouble(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getDouble(o, offset);
+  }
+
+  @Override
+  public void putDouble(Object o, long offset, double x) {
+    checkAccess(o, offset, 8);
+    delegate.putDouble(o, offset, x);
+  }
+
+  @Override
+  public byte getByte(long address) {
+    checkAccess(address, 1);
+    return delegate.getByte(address);
+  }
+
+  @Override
+  public void putByte(long address, byte x) {
+    checkAccess(address, 1);
+    delegate.putByte(address, x);
+  }
+
+  @Override
+  public short getShort(long address) {
+    checkAccess(address, 2);
+    return delegate.getShort(address);
+  }
+
+  @Override
+  public void putShort(long address, short x) {
+    checkAccess(address, 2);
+    delegate.putShort(address, x);
+  }
+
+  @Override
+  public char getChar(long address) {
+    checkAccess(address, 2);
+    return delegate.getChar(address);
+  }
+
+  @Override
+  public void putChar(long address, char x) {
+    checkAccess(address, 2);
+    delegate.putChar(address, x);
+  }
+
+  @Override
+  public int getInt(long address) {
+    checkAccess(address, 4);
+    return delegate.getInt(address);
+  }
+
+  @Override
+  public void putInt(long address, int x) {
+    checkAccess(address, 4);
+    delegate.putInt(address, x);
+  }
+
+  @Override
+  public long getLong(long address) {
+    checkAccess(address, 8);
+    return delegate.getLong(address);
+  }
+
+  @Override
+  public void putLong(long address, long x) {
+    checkAccess(address, 8);
+    delegate.putLong(address, x);
+  }
+
+  @Override
+  public float getFloat(long address) {
+    checkAccess(address, 4);
+    return delegate.getFloat(address);
+  }
+
+  @Override
+  public void putFloat(long address, float x) {
+    checkAccess(address, 4);
+    delegate.putFloat(address, x);
+  }
+
+  @Override
+  public double getDouble(long address) {
+    checkAccess(address, 8);
+    return delegate.getDouble(address);
+  }
+
+  @Override
+  public void putDouble(long address, double x) {
+    checkAccess(address, 8);
+    delegate.putDouble(address, x);
+  }
+
+  @Override
+  public boolean compareAndSwapInt(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.compareAndSwapInt(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapByte(Object o, long offset, byte expected, byte x) {
+    checkAccess(o, offset, 1);
+    return delegate.compareAndSwapByte(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapShort(Object o, long offset, short expected, short x) {
+    checkAccess(o, offset, 2);
+    return delegate.compareAndSwapShort(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapLong(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.compareAndSwapLong(o, offset, expected, x);
+  }
+
+  @Override
+  public int getIntVolatile(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getIntVolatile(o, offset);
+  }
+
+  @Override
+  public void putIntVolatile(Object o, long offset, int x) {
+    checkAccess(o, offset, 4);
+    delegate.putIntVolatile(o, offset, x);
+  }
+
+  @Override
+  public boolean getBooleanVolatile(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getBooleanVolatile(o, offset);
+  }
+
+  @Override
+  public void putBooleanVolatile(Object o, long offset, boolean x) {
+    checkAccess(o, offset, 1);
+    delegate.putBooleanVolatile(o, offset, x);
+  }
+
+  @Override
+  public byte getByteVolatile(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getByteVolatile(o, offset);
+  }
+
+  @Override
+  public void putByteVolatile(Object o, long offset, byte x) {
+    checkAccess(o, offset, 1);
+    delegate.putByteVolatile(o, offset, x);
+  }
+
+  @Override
+  public short getShortVolatile(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getShortVolatile(o, offset);
+  }
+
+  @Override
+  public void putShortVolatile(Object o, long offset, short x) {
+    checkAccess(o, offset, 2);
+    delegate.putShortVolatile(o, offset, x);
+  }
+
+  @Override
+  public char getCharVolatile(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getCharVolatile(o, offset);
+  }
+
+  @Override
+  public void putCharVolatile(Object o, long offset, char x) {
+    checkAccess(o, offset, 2);
+    delegate.putCharVolatile(o, offset, x);
+  }
+
+  @Override
+  public long getLongVolatile(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getLongVolatile(o, offset);
+  }
+
+  @Override
+  public void putLongVolatile(Object o, long offset, long x) {
+    checkAccess(o, offset, 8);
+    delegate.putLongVolatile(o, offset, x);
+  }
+
+  @Override
+  public float getFloatVolatile(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getFloatVolatile(o, offset);
+  }
+
+  @Override
+  public void putFloatVolatile(Object o, long offset, float x) {
+    checkAccess(o, offset, 4);
+    delegate.putFloatVolatile(o, offset, x);
+  }
+
+  @Override
+  public double getDoubleVolatile(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getDoubleVolatile(o, offset);
+  }
+
+  @Override
+  public void putDoubleVolatile(Object o, long offset, double x) {
+    checkAccess(o, offset, 8);
+    delegate.putDoubleVolatile(o, offset, x);
+  }
+
+  @Override
+  public void putOrderedInt(Object o, long offset, int x) {
+    checkAccess(o, offset, 4);
+    delegate.putOrderedInt(o, offset, x);
+  }
+
+  @Override
+  public void putOrderedLong(Object o, long offset, long x) {
+    checkAccess(o, offset, 8);
+    delegate.putOrderedLong(o, offset, x);
+  }
+
+  @Override
+  public int getIntAcquire(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getIntAcquire(o, offset);
+  }
+
+  @Override
+  public void putIntRelease(Object o, long offset, int x) {
+    checkAccess(o, offset, 4);
+    delegate.putIntRelease(o, offset, x);
+  }
+
+  @Override
+  public int getIntOpaque(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getIntOpaque(o, offset);
+  }
+
+  @Override
+  public void putIntOpaque(Object o, long offset, int x) {
+    checkAccess(o, offset, 4);
+    delegate.putIntOpaque(o, offset, x);
+  }
+
+  @Override
+  public boolean getBooleanAcquire(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getBooleanAcquire(o, offset);
+  }
+
+  @Override
+  public void putBooleanRelease(Object o, long offset, boolean x) {
+    checkAccess(o, offset, 1);
+    delegate.putBooleanRelease(o, offset, x);
+  }
+
+  @Override
+  public boolean getBooleanOpaque(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getBooleanOpaque(o, offset);
+  }
+
+  @Override
+  public void putBooleanOpaque(Object o, long offset, boolean x) {
+    checkAccess(o, offset, 1);
+    delegate.putBooleanOpaque(o, offset, x);
+  }
+
+  @Override
+  public byte getByteAcquire(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getByteAcquire(o, offset);
+  }
+
+  @Override
+  public void putByteRelease(Object o, long offset, byte x) {
+    checkAccess(o, offset, 1);
+    delegate.putByteRelease(o, offset, x);
+  }
+
+  @Override
+  public byte getByteOpaque(Object o, long offset) {
+    checkAccess(o, offset, 1);
+    return delegate.getByteOpaque(o, offset);
+  }
+
+  @Override
+  public void putByteOpaque(Object o, long offset, byte x) {
+    checkAccess(o, offset, 1);
+    delegate.putByteOpaque(o, offset, x);
+  }
+
+  @Override
+  public short getShortAcquire(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getShortAcquire(o, offset);
+  }
+
+  @Override
+  public void putShortRelease(Object o, long offset, short x) {
+    checkAccess(o, offset, 2);
+    delegate.putShortRelease(o, offset, x);
+  }
+
+  @Override
+  public short getShortOpaque(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getShortOpaque(o, offset);
+  }
+
+  @Override
+  public void putShortOpaque(Object o, long offset, short x) {
+    checkAccess(o, offset, 2);
+    delegate.putShortOpaque(o, offset, x);
+  }
+
+  @Override
+  public char getCharAcquire(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getCharAcquire(o, offset);
+  }
+
+  @Override
+  public void putCharRelease(Object o, long offset, char x) {
+    checkAccess(o, offset, 2);
+    delegate.putCharRelease(o, offset, x);
+  }
+
+  @Override
+  public char getCharOpaque(Object o, long offset) {
+    checkAccess(o, offset, 2);
+    return delegate.getCharOpaque(o, offset);
+  }
+
+  @Override
+  public void putCharOpaque(Object o, long offset, char x) {
+    checkAccess(o, offset, 2);
+    delegate.putCharOpaque(o, offset, x);
+  }
+
+  @Override
+  public long getLongAcquire(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getLongAcquire(o, offset);
+  }
+
+  @Override
+  public void putLongRelease(Object o, long offset, long x) {
+    checkAccess(o, offset, 8);
+    delegate.putLongRelease(o, offset, x);
+  }
+
+  @Override
+  public long getLongOpaque(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getLongOpaque(o, offset);
+  }
+
+  @Override
+  public void putLongOpaque(Object o, long offset, long x) {
+    checkAccess(o, offset, 8);
+    delegate.putLongOpaque(o, offset, x);
+  }
+
+  @Override
+  public float getFloatAcquire(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getFloatAcquire(o, offset);
+  }
+
+  @Override
+  public void putFloatRelease(Object o, long offset, float x) {
+    checkAccess(o, offset, 4);
+    delegate.putFloatRelease(o, offset, x);
+  }
+
+  @Override
+  public float getFloatOpaque(Object o, long offset) {
+    checkAccess(o, offset, 4);
+    return delegate.getFloatOpaque(o, offset);
+  }
+
+  @Override
+  public void putFloatOpaque(Object o, long offset, float x) {
+    checkAccess(o, offset, 4);
+    delegate.putFloatOpaque(o, offset, x);
+  }
+
+  @Override
+  public double getDoubleAcquire(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getDoubleAcquire(o, offset);
+  }
+
+  @Override
+  public void putDoubleRelease(Object o, long offset, double x) {
+    checkAccess(o, offset, 8);
+    delegate.putDoubleRelease(o, offset, x);
+  }
+
+  @Override
+  public double getDoubleOpaque(Object o, long offset) {
+    checkAccess(o, offset, 8);
+    return delegate.getDoubleOpaque(o, offset);
+  }
+
+  @Override
+  public void putDoubleOpaque(Object o, long offset, double x) {
+    checkAccess(o, offset, 8);
+    delegate.putDoubleOpaque(o, offset, x);
+  }
+
+  @Override
+  public int getAndAddInt(Object o, long offset, int delta) {
+    checkAccess(o, offset, 4);
+    return delegate.getAndAddInt(o, offset, delta);
+  }
+
+  @Override
+  public long getAndAddLong(Object o, long offset, long delta) {
+    checkAccess(o, offset, 8);
+    return delegate.getAndAddLong(o, offset, delta);
+  }
+
+  @Override
+  public int getAndSetInt(Object o, long offset, int newValue) {
+    checkAccess(o, offset, 4);
+    return delegate.getAndSetInt(o, offset, newValue);
+  }
+
+  @Override
+  public long getAndSetLong(Object o, long offset, long newValue) {
+    checkAccess(o, offset, 8);
+    return delegate.getAndSetLong(o, offset, newValue);
+  }
+
+  @Override
+  public int compareAndExchangeInt(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.compareAndExchangeInt(o, offset, expected, x);
+  }
+
+  @Override
+  public int compareAndExchangeIntAcquire(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.compareAndExchangeIntAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public int compareAndExchangeIntRelease(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.compareAndExchangeIntRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetInt(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.weakCompareAndSetInt(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetIntPlain(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.weakCompareAndSetIntPlain(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetIntAcquire(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.weakCompareAndSetIntAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetIntRelease(Object o, long offset, int expected, int x) {
+    checkAccess(o, offset, 4);
+    return delegate.weakCompareAndSetIntRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLong(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.compareAndExchangeLong(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLongAcquire(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.compareAndExchangeLongAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLongRelease(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.compareAndExchangeLongRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLong(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.weakCompareAndSetLong(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLongPlain(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.weakCompareAndSetLongPlain(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLongAcquire(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.weakCompareAndSetLongAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLongRelease(Object o, long offset, long expected, long x) {
+    checkAccess(o, offset, 8);
+    return delegate.weakCompareAndSetLongRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public int getAndBitwiseOrInt(Object o, long offset, int mask) {
+    checkAccess(o, offset, 4);
+    return delegate.getAndBitwiseOrInt(o, offset, mask);
+  }
+
+  @Override
+  public int getAndBitwiseAndInt(Object o, long offset, int mask) {
+    checkAccess(o, offset, 4);
+    return delegate.getAndBitwiseAndInt(o, offset, mask);
+  }
+
+  @Override
+  public int getAndBitwiseXorInt(Object o, long offset, int mask) {
+    checkAccess(o, offset, 4);
+    return delegate.getAndBitwiseXorInt(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseOrLong(Object o, long offset, long mask) {
+    checkAccess(o, offset, 8);
+    return delegate.getAndBitwiseOrLong(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseAndLong(Object o, long offset, long mask) {
+    checkAccess(o, offset, 8);
+    return delegate.getAndBitwiseAndLong(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseXorLong(Object o, long offset, long mask) {
+    checkAccess(o, offset, 8);
+    return delegate.getAndBitwiseXorLong(o, offset, mask);
+  }
+
+}
@@ -0,0 +1,63 @@
+package sunset.memory;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import sunset.memory.pool.PooledLowLevelMemoryAccessor;
+
+/**
+ * Selects and holds the implementation returned by {@link LowLevelMemoryAccessor#getInstance()}.
+ */
+final class DefaultAccessor {
+
+  /**
+   * The selected implementation, wrapped in a {@link PooledLowLevelMemoryAccessor} if
+   * {@link PooledLowLevelMemoryAccessor#ENABLED pooling} is on, and in a
+   * {@link CheckedLowLevelMemoryAccessor} if {@link CheckedLowLevelMemoryAccessor#ENABLED checked
+   * mode} is on, or null if none is installed. There is only one, so that memory allocated through
+   * it can be accessed through it anywhere, and so that there is a single pool and a single
+   * registry of checked blocks.
+   */
+  static final LowLevelMemoryAccessor INSTANCE =
+      check(pool(select(ServiceLoader.load(LowLevelMemoryAccessor.class))));
+
+  private DefaultAccessor() {}
+
+  private static LowLevelMemoryAccessor check(LowLevelMemoryAccessor accessor) {
+    return CheckedLowLevelMemoryAccessor.ENABLED && accessor != null
+        ? new CheckedLowLevelMemoryAccessor(accessor) : accessor;
+  }
+
+  private static LowLevelMemoryAccessor pool(LowLevelMemoryAccessor accessor) {
+    return PooledLowLevelMemoryAccessor.ENABLED && accessor != null
+        && accessor.supportsNativeMemory() ? new PooledLowLevelMemoryAccessor(accessor) : accessor;
+  }
+
+  /**
+   * Returns the first of the given implementations that supports native memory, or failing that,
+   * the first one, or null if there are none. Implementations that can't be loaded in this JVM,
+   * such as ones that need {@code --enable-preview}, are skipped.
+   */
+  static LowLevelMemoryAccessor select(Iterable<LowLevelMemoryAccessor> accessors) {
+    LowLevelMemoryAccessor heapOnly = null;
+    Iterator<LowLevelMemoryAccessor> iterator = accessors.iterator();
+    while (true) {
+      LowLevelMemoryAccessor accessor;
+      try {
+        if (!iterator.hasNext()) {
+          return heapOnly;
+        }
+        accessor = iterator.next();
+      } catch (ServiceConfigurationError | LinkageError e) {
+        continue;
+      }
+      if (accessor.supportsNativeMemory()) {
+        return accessor;
+      } else if (heapOnly == null) {
+        heapOnly = accessor;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+package sunset.memory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lets a writer free native memory that lock-free readers may still be reading. Readers bracket
+ * each read with {@link #enter} and {@link #exit}; a writer that has unlinked some memory calls
+ * {@link #synchronize}, which returns once every reader that could have seen it has exited.
+ * <p>
+ * Readers are counted in one of two sets of striped counters, chosen by the parity of the current
+ * epoch. {@link #synchronize} flips the epoch and waits for the old parity's counters to drain.
+ * A reader that enters after the flip can only see what was published before it. A reader
+ * re-reads the epoch after counting itself, and retries if it changed, so that it is never counted
+ * under a parity that a writer has already seen drained.
+ */
+final class EpochGate {
+
+  private static final int STRIPES = 16;
+  /** Longs between counters, so that each stripe has its own cache line. */
+  private static final int PADDING = 16;
+
+  private final AtomicLongArray counters = new AtomicLongArray(2 * STRIPES * PADDING);
+  private volatile int epoch;
+
+  private static int index(int parity) {
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    return (parity * STRIPES + stripe) * PADDING;
+  }
+
+  /** Marks the start of a read, and returns the token to pass to {@link #exit}. */
+  int enter() {
+    while (true) {
+      int current = epoch;
+      int index = index(current & 1);
+      counters.getAndIncrement(index);
+      // If a synchronize flipped the epoch in between, it may already have seen that parity
+      // drained, so the reader must count itself under the new one
+      if (epoch == current) {
+        return index;
+      }
+      counters.getAndDecrement(index);
+    }
+  }
+
+  /** Marks the end of the read started by the {@link #enter} call that returned the token. */
+  void exit(int token) {
+    counters.getAndDecrement(token);
+  }
+
+  /**
+   * Waits until every read that was in progress when this method was called has ended. Calls must
+   * not overlap.
+   */
+  void synchronize() {
+    int parity = epoch & 1;
+    epoch++;
+    for (int spins = 0; ; spins++) {
+      long readers = 0;
+      for (int stripe = 0; stripe < STRIPES; stripe++) {
+        readers += counters.get((parity * STRIPES + stripe) * PADDING);
+      }
+      if (readers == 0) {
+        return;
+      }
+      if (spins < 100) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,747 @@
+package sunset.memory;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link LowLevelMemoryAccessor} that forwards every method, including the default ones, to
+ * another accessor. Subclasses override the methods they want to decorate. Forwarding the default
+ * methods too means the delegate's intrinsics are used instead of the fallbacks. The exceptions are
+ * {@link #allocateAligned}, {@link #allocatePageAligned} and {@link #freeAligned}, which are built
+ * on {@link #allocateMemory} and {@link #freeMemory} so that subclasses decorating those see
+ * aligned blocks too.
+ */
+public abstract class ForwardingLowLevelMemoryAccessor implements LowLevelMemoryAccessor {
+
+  protected final LowLevelMemoryAccessor delegate;
+
+  protected ForwardingLowLevelMemoryAccessor(LowLevelMemoryAccessor delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public int getInt(Object o, long offset) {
+    return delegate.getInt(o, offset);
+  }
+
+  @Override
+  public void putInt(Object o, long offset, int x) {
+    delegate.putInt(o, offset, x);
+  }
+
+  @Override
+  public Object getObject(Object o, long offset) {
+    return delegate.getObject(o, offset);
+  }
+
+  @Override
+  public void putObject(Object o, long offset, Object x) {
+    delegate.putObject(o, offset, x);
+  }
+
+  @Override
+  public boolean getBoolean(Object o, long offset) {
+    return delegate.getBoolean(o, offset);
+  }
+
+  @Override
+  public void putBoolean(Object o, long offset, boolean x) {
+    delegate.putBoolean(o, offset, x);
+  }
+
+  @Override
+  public byte getByte(Object o, long offset) {
+    return delegate.getByte(o, offset);
+  }
+
+  @Override
+  public void putByte(Object o, long offset, byte x) {
+    delegate.putByte(o, offset, x);
+  }
+
+  @Override
+  public short getShort(Object o, long offset) {
+    return delegate.getShort(o, offset);
+  }
+
+  @Override
+  public void putShort(Object o, long offset, short x) {
+    delegate.putShort(o, offset, x);
+  }
+
+  @Override
+  public char getChar(Object o, long offset) {
+    return delegate.getChar(o, offset);
+  }
+
+  @Override
+  public void putChar(Object o, long offset, char x) {
+    delegate.putChar(o, offset, x);
+  }
+
+  @Override
+  public long getLong(Object o, long offset) {
+    return delegate.getLong(o, offset);
+  }
+
+  @Override
+  public void putLong(Object o, long offset, long x) {
+    delegate.putLong(o, offset, x);
+  }
+
+  @Override
+  public float getFloat(Object o, long offset) {
+    return delegate.getFloat(o, offset);
+  }
+
+  @Override
+  public void putFloat(Object o, long offset, float x) {
+    delegate.putFloat(o, offset, x);
+  }
+
+  @Override
+  public double getDouble(Object o, long offset) {
+    return delegate.getDouble(o, offset);
+  }
+
+  @Override
+  public void putDouble(Object o, long offset, double x) {
+    delegate.putDouble(o, offset, x);
+  }
+
+  @Override
+  public byte getByte(long address) {
+    return delegate.getByte(address);
+  }
+
+  @Override
+  public void putByte(long address, byte x) {
+    delegate.putByte(address, x);
+  }
+
+  @Override
+  public short getShort(long address) {
+    return delegate.getShort(address);
+  }
+
+  @Override
+  public void putShort(long address, short x) {
+    delegate.putShort(address, x);
+  }
+
+  @Override
+  public char getChar(long address) {
+    return delegate.getChar(address);
+  }
+
+  @Override
+  public void putChar(long address, char x) {
+    delegate.putChar(address, x);
+  }
+
+  @Override
+  public int getInt(long address) {
+    return delegate.getInt(address);
+  }
+
+  @Override
+  public void putInt(long address, int x) {
+    delegate.putInt(address, x);
+  }
+
+  @Override
+  public long getLong(long address) {
+    return delegate.getLong(address);
+  }
+
+  @Override
+  public void putLong(long address, long x) {
+    delegate.putLong(address, x);
+  }
+
+  @Override
+  public float getFloat(long address) {
+    return delegate.getFloat(address);
+  }
+
+  @Override
+  public void putFloat(long address, float x) {
+    delegate.putFloat(address, x);
+  }
+
+  @Override
+  public double getDouble(long address) {
+    return delegate.getDouble(address);
+  }
+
+  @Override
+  public void putDouble(long address, double x) {
+    delegate.putDouble(address, x);
+  }
+
+  @Override
+  public long allocateMemory(long bytes) {
+    return delegate.allocateMemory(bytes);
+  }
+
+  @Override
+  public long reallocateMemory(long address, long bytes) {
+    return delegate.reallocateMemory(address, bytes);
+  }
+
+  @Override
+  public void setMemory(Object o, long offset, long bytes, byte value) {
+    delegate.setMemory(o, offset, bytes, value);
+  }
+
+  @Override
+  public void setMemory(long address, long bytes, byte value) {
+    delegate.setMemory(address, bytes, value);
+  }
+
+  @Override
+  public void copyMemory(Object srcBase, long srcOffset, Object destBase, long destOffset,
+      long bytes) {
+    delegate.copyMemory(srcBase, srcOffset, destBase, destOffset, bytes);
+  }
+
+  @Override
+  public void copyMemory(long srcAddress, long destAddress, long bytes) {
+    delegate.copyMemory(srcAddress, destAddress, bytes);
+  }
+
+  @Override
+  public void freeMemory(long address) {
+    delegate.freeMemory(address);
+  }
+
+  @Override
+  public long staticFieldOffset(Field f) {
+    return delegate.staticFieldOffset(f);
+  }
+
+  @Override
+  public long objectFieldOffset(Field f) {
+    return delegate.objectFieldOffset(f);
+  }
+
+  @Override
+  public Object staticFieldBase(Field f) {
+    return delegate.staticFieldBase(f);
+  }
+
+  @Override
+  public int arrayBaseOffset(Class<?> arrayClass) {
+    return delegate.arrayBaseOffset(arrayClass);
+  }
+
+  @Override
+  public int arrayIndexScale(Class<?> arrayClass) {
+    return delegate.arrayIndexScale(arrayClass);
+  }
+
+  @Override
+  public int addressSize() {
+    return delegate.addressSize();
+  }
+
+  @Override
+  public int pageSize() {
+    return delegate.pageSize();
+  }
+
+  @Override
+  public boolean supportsNativeMemory() {
+    return delegate.supportsNativeMemory();
+  }
+
+  @Override
+  public boolean exposesObjectLayout() {
+    return delegate.exposesObjectLayout();
+  }
+
+  @Override
+  public boolean compareAndSwapObject(Object o, long offset, Object expected, Object x) {
+    return delegate.compareAndSwapObject(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapInt(Object o, long offset, int expected, int x) {
+    return delegate.compareAndSwapInt(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapByte(Object o, long offset, byte expected, byte x) {
+    return delegate.compareAndSwapByte(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapShort(Object o, long offset, short expected, short x) {
+    return delegate.compareAndSwapShort(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean compareAndSwapLong(Object o, long offset, long expected, long x) {
+    return delegate.compareAndSwapLong(o, offset, expected, x);
+  }
+
+  @Override
+  public Object getObjectVolatile(Object o, long offset) {
+    return delegate.getObjectVolatile(o, offset);
+  }
+
+  @Override
+  public void putObjectVolatile(Object o, long offset, Object x) {
+    delegate.putObjectVolatile(o, offset, x);
+  }
+
+  @Override
+  public int getIntVolatile(Object o, long offset) {
+    return delegate.getIntVolatile(o, offset);
+  }
+
+  @Override
+  public void putIntVolatile(Object o, long offset, int x) {
+    delegate.putIntVolatile(o, offset, x);
+  }
+
+  @Override
+  public boolean getBooleanVolatile(Object o, long offset) {
+    return delegate.getBooleanVolatile(o, offset);
+  }
+
+  @Override
+  public void putBooleanVolatile(Object o, long offset, boolean x) {
+    delegate.putBooleanVolatile(o, offset, x);
+  }
+
+  @Override
+  public byte getByteVolatile(Object o, long offset) {
+    return delegate.getByteVolatile(o, offset);
+  }
+
+  @Override
+  public void putByteVolatile(Object o, long offset, byte x) {
+    delegate.putByteVolatile(o, offset, x);
+  }
+
+  @Override
+  public short getShortVolatile(Object o, long offset) {
+    return delegate.getShortVolatile(o, offset);
+  }
+
+  @Override
+  public void putShortVolatile(Object o, long offset, short x) {
+    delegate.putShortVolatile(o, offset, x);
+  }
+
+  @Override
+  public char getCharVolatile(Object o, long offset) {
+    return delegate.getCharVolatile(o, offset);
+  }
+
+  @Override
+  public void putCharVolatile(Object o, long offset, char x) {
+    delegate.putCharVolatile(o, offset, x);
+  }
+
+  @Override
+  public long getLongVolatile(Object o, long offset) {
+    return delegate.getLongVolatile(o, offset);
+  }
+
+  @Override
+  public void putLongVolatile(Object o, long offset, long x) {
+    delegate.putLongVolatile(o, offset, x);
+  }
+
+  @Override
+  public float getFloatVolatile(Object o, long offset) {
+    return delegate.getFloatVolatile(o, offset);
+  }
+
+  @Override
+  public void putFloatVolatile(Object o, long offset, float x) {
+    delegate.putFloatVolatile(o, offset, x);
+  }
+
+  @Override
+  public double getDoubleVolatile(Object o, long offset) {
+    return delegate.getDoubleVolatile(o, offset);
+  }
+
+  @Override
+  public void putDoubleVolatile(Object o, long offset, double x) {
+    delegate.putDoubleVolatile(o, offset, x);
+  }
+
+  @Override
+  public void putOrderedObject(Object o, long offset, Object x) {
+    delegate.putOrderedObject(o, offset, x);
+  }
+
+  @Override
+  public void putOrderedInt(Object o, long offset, int x) {
+    delegate.putOrderedInt(o, offset, x);
+  }
+
+  @Override
+  public void putOrderedLong(Object o, long offset, long x) {
+    delegate.putOrderedLong(o, offset, x);
+  }
+
+  @Override
+  public Object getObjectAcquire(Object o, long offset) {
+    return delegate.getObjectAcquire(o, offset);
+  }
+
+  @Override
+  public void putObjectRelease(Object o, long offset, Object x) {
+    delegate.putObjectRelease(o, offset, x);
+  }
+
+  @Override
+  public Object getObjectOpaque(Object o, long offset) {
+    return delegate.getObjectOpaque(o, offset);
+  }
+
+  @Override
+  public void putObjectOpaque(Object o, long offset, Object x) {
+    delegate.putObjectOpaque(o, offset, x);
+  }
+
+  @Override
+  public int getIntAcquire(Object o, long offset) {
+    return delegate.getIntAcquire(o, offset);
+  }
+
+  @Override
+  public void putIntRelease(Object o, long offset, int x) {
+    delegate.putIntRelease(o, offset, x);
+  }
+
+  @Override
+  public int getIntOpaque(Object o, long offset) {
+    return delegate.getIntOpaque(o, offset);
+  }
+
+  @Override
+  public void putIntOpaque(Object o, long offset, int x) {
+    delegate.putIntOpaque(o, offset, x);
+  }
+
+  @Override
+  public boolean getBooleanAcquire(Object o, long offset) {
+    return delegate.getBooleanAcquire(o, offset);
+  }
+
+  @Override
+  public void putBooleanRelease(Object o, long offset, boolean x) {
+    delegate.putBooleanRelease(o, offset, x);
+  }
+
+  @Override
+  public boolean getBooleanOpaque(Object o, long offset) {
+    return delegate.getBooleanOpaque(o, offset);
+  }
+
+  @Override
+  public void putBooleanOpaque(Object o, long offset, boolean x) {
+    delegate.putBooleanOpaque(o, offset, x);
+  }
+
+  @Override
+  public byte getByteAcquire(Object o, long offset) {
+    return delegate.getByteAcquire(o, offset);
+  }
+
+  @Override
+  public void putByteRelease(Object o, long offset, byte x) {
+    delegate.putByteRelease(o, offset, x);
+  }
+
+  @Override
+  public byte getByteOpaque(Object o, long offset) {
+    return delegate.getByteOpaque(o, offset);
+  }
+
+  @Override
+  public void putByteOpaque(Object o, long offset, byte x) {
+    delegate.putByteOpaque(o, offset, x);
+  }
+
+  @Override
+  public short getShortAcquire(Object o, long offset) {
+    return delegate.getShortAcquire(o, offset);
+  }
+
+  @Override
+  public void putShortRelease(Object o, long offset, short x) {
+    delegate.putShortRelease(o, offset, x);
+  }
+
+  @Override
+  public short getShortOpaque(Object o, long offset) {
+    return delegate.getShortOpaque(o, offset);
+  }
+
+  @Override
+  public void putShortOpaque(Object o, long offset, short x) {
+    delegate.putShortOpaque(o, offset, x);
+  }
+
+  @Override
+  public char getCharAcquire(Object o, long offset) {
+    return delegate.getCharAcquire(o, offset);
+  }
+
+  @Override
+  public void putCharRelease(Object o, long offset, char x) {
+    delegate.putCharRelease(o, offset, x);
+  }
+
+  @Override
+  public char getCharOpaque(Object o, long offset) {
+    return delegate.getCharOpaque(o, offset);
+  }
+
+  @Override
+  public void putCharOpaque(Object o, long offset, char x) {
+    delegate.putCharOpaque(o, offset, x);
+  }
+
+  @Override
+  public long getLongAcquire(Object o, long offset) {
+    return delegate.getLongAcquire(o, offset);
+  }
+
+  @Override
+  public void putLongRelease(Object o, long offset, long x) {
+    delegate.putLongRelease(o, offset, x);
+  }
+
+  @Override
+  public long getLongOpaque(Object o, long offset) {
+    return delegate.getLongOpaque(o, offset);
+  }
+
+  @Override
+  public void putLongOpaque(Object o, long offset, long x) {
+    delegate.putLongOpaque(o, offset, x);
+  }
+
+  @Override
+  public float getFloatAcquire(Object o, long offset) {
+    return delegate.getFloatAcquire(o, offset);
+  }
+
+  @Override
+  public void putFloatRelease(Object o, long offset, float x) {
+    delegate.putFloatRelease(o, offset, x);
+  }
+
+  @Override
+  public float getFloatOpaque(Object o, long offset) {
+    return delegate.getFloatOpaque(o, offset);
+  }
+
+  @Override
+  public void putFloatOpaque(Object o, long offset, float x) {
+    delegate.putFloatOpaque(o, offset, x);
+  }
+
+  @Override
+  public double getDoubleAcquire(Object o, long offset) {
+    return delegate.getDoubleAcquire(o, offset);
+  }
+
+  @Override
+  public void putDoubleRelease(Object o, long offset, double x) {
+    delegate.putDoubleRelease(o, offset, x);
+  }
+
+  @Override
+  public double getDoubleOpaque(Object o, long offset) {
+    return delegate.getDoubleOpaque(o, offset);
+  }
+
+  @Override
+  public void putDoubleOpaque(Object o, long offset, double x) {
+    delegate.putDoubleOpaque(o, offset, x);
+  }
+
+  @Override
+  public int getAndAddInt(Object o, long offset, int delta) {
+    return delegate.getAndAddInt(o, offset, delta);
+  }
+
+  @Override
+  public long getAndAddLong(Object o, long offset, long delta) {
+    return delegate.getAndAddLong(o, offset, delta);
+  }
+
+  @Override
+  public int getAndSetInt(Object o, long offset, int newValue) {
+    return delegate.getAndSetInt(o, offset, newValue);
+  }
+
+  @Override
+  public long getAndSetLong(Object o, long offset, long newValue) {
+    return delegate.getAndSetLong(o, offset, newValue);
+  }
+
+  @Override
+  public Object getAndSetObject(Object o, long offset, Object newValue) {
+    return delegate.getAndSetObject(o, offset, newValue);
+  }
+
+  @Override
+  public Object compareAndExchangeObject(Object o, long offset, Object expected, Object x) {
+    return delegate.compareAndExchangeObject(o, offset, expected, x);
+  }
+
+  @Override
+  public Object compareAndExchangeObjectAcquire(Object o, long offset, Object expected, Object x) {
+    return delegate.compareAndExchangeObjectAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public Object compareAndExchangeObjectRelease(Object o, long offset, Object expected, Object x) {
+    return delegate.compareAndExchangeObjectRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetObject(Object o, long offset, Object expected, Object x) {
+    return delegate.weakCompareAndSetObject(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetObjectPlain(Object o, long offset, Object expected, Object x) {
+    return delegate.weakCompareAndSetObjectPlain(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetObjectAcquire(Object o, long offset, Object expected, Object x) {
+    return delegate.weakCompareAndSetObjectAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetObjectRelease(Object o, long offset, Object expected, Object x) {
+    return delegate.weakCompareAndSetObjectRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public int compareAndExchangeInt(Object o, long offset, int expected, int x) {
+    return delegate.compareAndExchangeInt(o, offset, expected, x);
+  }
+
+  @Override
+  public int compareAndExchangeIntAcquire(Object o, long offset, int expected, int x) {
+    return delegate.compareAndExchangeIntAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public int compareAndExchangeIntRelease(Object o, long offset, int expected, int x) {
+    return delegate.compareAndExchangeIntRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetInt(Object o, long offset, int expected, int x) {
+    return delegate.weakCompareAndSetInt(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetIntPlain(Object o, long offset, int expected, int x) {
+    return delegate.weakCompareAndSetIntPlain(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetIntAcquire(Object o, long offset, int expected, int x) {
+    return delegate.weakCompareAndSetIntAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetIntRelease(Object o, long offset, int expected, int x) {
+    return delegate.weakCompareAndSetIntRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLong(Object o, long offset, long expected, long x) {
+    return delegate.compareAndExchangeLong(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLongAcquire(Object o, long offset, long expected, long x) {
+    return delegate.compareAndExchangeLongAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public long compareAndExchangeLongRelease(Object o, long offset, long expected, long x) {
+    return delegate.compareAndExchangeLongRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLong(Object o, long offset, long expected, long x) {
+    return delegate.weakCompareAndSetLong(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLongPlain(Object o, long offset, long expected, long x) {
+    return delegate.weakCompareAndSetLongPlain(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLongAcquire(Object o, long offset, long expected, long x) {
+    return delegate.weakCompareAndSetLongAcquire(o, offset, expected, x);
+  }
+
+  @Override
+  public boolean weakCompareAndSetLongRelease(Object o, long offset, long expected, long x) {
+    return delegate.weakCompareAndSetLongRelease(o, offset, expected, x);
+  }
+
+  @Override
+  public int getAndBitwiseOrInt(Object o, long offset, int mask) {
+    return delegate.getAndBitwiseOrInt(o, offset, mask);
+  }
+
+  @Override
+  public int getAndBitwiseAndInt(Object o, long offset, int mask) {
+    return delegate.getAndBitwiseAndInt(o, offset, mask);
+  }
+
+  @Override
+  public int getAndBitwiseXorInt(Object o, long offset, int mask) {
+    return delegate.getAndBitwiseXorInt(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseOrLong(Object o, long offset, long mask) {
+    return delegate.getAndBitwiseOrLong(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseAndLong(Object o, long offset, long mask) {
+    return delegate.getAndBitwiseAndLong(o, offset, mask);
+  }
+
+  @Override
+  public long getAndBitwiseXorLong(Object o, long offset, long mask) {
+    return delegate.getAndBitwiseXorLong(o, offset, mask);
+  }
+
+  @Override
+  public void loadFence() {
+    delegate.loadFence();
+  }
+
+  @Override
+  public void storeFence() {
+    delegate.storeFence();
+  }
+
+  @Override
+  public void fullFence() {
+    delegate.fullFence();
+  }
+
+}
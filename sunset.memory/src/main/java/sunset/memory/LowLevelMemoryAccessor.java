@@ -1,8 +1,7 @@
 package sunset.memory;
 
 import java.lang.reflect.Field;
-
-import sunset.common.SunsetUtil;
+import java.nio.ByteOrder;
 
 /**
  * Low-level memory-access methods that can be used for type punning. Descriptions and signatures
@@ -10,8 +9,21 @@ import sunset.common.SunsetUtil;
  */
 public interface LowLevelMemoryAccessor {
 
+  /**
+   * Returns the installed implementation, wrapped in a
+   * {@link sunset.memory.pool.PooledLowLevelMemoryAccessor} if
+   * {@link sunset.memory.pool.PooledLowLevelMemoryAccessor#ENABLED pooling} is on, and in a
+   * {@link CheckedLowLevelMemoryAccessor} if {@link CheckedLowLevelMemoryAccessor#ENABLED checked
+   * mode} is on. If several are installed, the first that {@link #supportsNativeMemory supports
+   * native memory} is preferred over heap-only ones, so that the order of the classpath doesn't
+   * decide whether off-heap types work. Every call returns the same instance.
+   */
   static LowLevelMemoryAccessor getInstance() {
-    return SunsetUtil.loadService(LowLevelMemoryAccessor.class);
+    LowLevelMemoryAccessor accessor = DefaultAccessor.INSTANCE;
+    if (accessor == null) {
+      throw new IllegalStateException("No implementation of LowLevelMemoryAccessor installed");
+    }
+    return accessor;
   }
 
   /**
@@ -138,6 +150,90 @@ public interface LowLevelMemoryAccessor {
   /** @see #putInt(Object, int, int) */
   void putDouble(Object o, long offset, double x);
 
+  /**
+   * Fetches a value from a given memory address. If the address is zero, or does not point into a
+   * block obtained from {@link #allocateMemory}, the results are undefined.
+   * <p>
+   * Equivalent to <code>getByte(null, address)</code>.
+   *
+   * @see #allocateMemory
+   */
+  default byte getByte(long address) {
+    return getByte(null, address);
+  }
+
+  /**
+   * Stores a value into a given memory address. If the address is zero, or does not point into a
+   * block obtained from {@link #allocateMemory}, the results are undefined.
+   * <p>
+   * Equivalent to <code>putByte(null, address, x)</code>.
+   *
+   * @see #getByte(long)
+   */
+  default void putByte(long address, byte x) {
+    putByte(null, address, x);
+  }
+
+  /** @see #getByte(long) */
+  default short getShort(long address) {
+    return getShort(null, address);
+  }
+
+  /** @see #putByte(long, byte) */
+  default void putShort(long address, short x) {
+    putShort(null, address, x);
+  }
+
+  /** @see #getByte(long) */
+  default char getChar(long address) {
+    return getChar(null, address);
+  }
+
+  /** @see #putByte(long, byte) */
+  default void putChar(long address, char x) {
+    putChar(null, address, x);
+  }
+
+  /** @see #getByte(long) */
+  default int getInt(long address) {
+    return getInt(null, address);
+  }
+
+  /** @see #putByte(long, byte) */
+  default void putInt(long address, int x) {
+    putInt(null, address, x);
+  }
+
+  /** @see #getByte(long) */
+  default long getLong(long address) {
+    return getLong(null, address);
+  }
+
+  /** @see #putByte(long, byte) */
+  default void putLong(long address, long x) {
+    putLong(null, address, x);
+  }
+
+  /** @see #getByte(long) */
+  default float getFloat(long address) {
+    return getFloat(null, address);
+  }
+
+  /** @see #putByte(long, byte) */
+  default void putFloat(long address, float x) {
+    putFloat(null, address, x);
+  }
+
+  /** @see #getByte(long) */
+  default double getDouble(long address) {
+    return getDouble(null, address);
+  }
+
+  /** @see #putByte(long, byte) */
+  default void putDouble(long address, double x) {
+    putDouble(null, address, x);
+  }
+
   /**
    * Allocates a new block of native memory, of the given size in bytes. The contents of the memory
    * are uninitialized; they will generally be garbage. The resulting native pointer will never be
@@ -239,6 +335,51 @@ public interface LowLevelMemoryAccessor {
    */
   void freeMemory(long address);
 
+  /**
+   * Allocates a new block of native memory of the given size, whose address is a multiple of the
+   * given alignment. The block is carved out of a larger one from {@link #allocateMemory}, with the
+   * address of that block stored in the 8 bytes just before the result, so decorators such as
+   * {@link CheckedLowLevelMemoryAccessor} see it as an ordinary allocation. Dispose of it with
+   * {@link #freeAligned}, not {@link #freeMemory}.
+   *
+   * @param alignment a power of two
+   * @throws IllegalArgumentException if the size is negative, or the alignment isn't a power of two
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  default long allocateAligned(long bytes, long alignment) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    }
+    if (alignment <= 0 || Long.bitCount(alignment) != 1) {
+      throw new IllegalArgumentException("Alignment is not a power of two: " + alignment);
+    }
+    alignment = Math.max(alignment, 8);
+    long block = allocateMemory(bytes + alignment + 8);
+    long address = (block + 8 + alignment - 1) & -alignment;
+    putLong(null, address - 8, block);
+    return address;
+  }
+
+  /**
+   * Allocates a new block of native memory of the given size that starts on a page boundary, as
+   * reported by {@link #pageSize()}. Dispose of it with {@link #freeAligned}.
+   *
+   * @see #allocateAligned
+   */
+  default long allocatePageAligned(long bytes) {
+    return allocateAligned(bytes, pageSize());
+  }
+
+  /**
+   * Disposes of a block of native memory obtained from {@link #allocateAligned} or
+   * {@link #allocatePageAligned}. The address may be zero, in which case no action is taken.
+   */
+  default void freeAligned(long address) {
+    if (address != 0) {
+      freeMemory(getLong(null, address - 8));
+    }
+  }
+
   /**
    * Report the location of a given field in the storage allocation of its class. Do not expect to
    * perform any sort of arithmetic on this offset; it is just a cookie which is passed to the
@@ -324,6 +465,26 @@ public interface LowLevelMemoryAccessor {
    */
   int pageSize();
 
+  /**
+   * Returns true if this accessor supports native memory: a null base object,
+   * {@link #allocateMemory} and the single-register methods. Heap-only implementations return
+   * false, and throw {@link UnsupportedOperationException} from those methods.
+   */
+  default boolean supportsNativeMemory() {
+    return true;
+  }
+
+  /**
+   * Returns true if {@link #objectFieldOffset} and {@link #arrayBaseOffset} are byte offsets from
+   * the start of an object, so that they show how the VM lays out objects: fields that are adjacent
+   * in memory can be accessed together as a wider type, and an array's base offset is the size of
+   * its header. Implementations whose field offsets are cookies return false; each field must then
+   * be accessed as its own type, and final fields may be read-only.
+   */
+  default boolean exposesObjectLayout() {
+    return true;
+  }
+
   /**
    * Atomically update Java variable to <tt>x</tt> if it is currently holding <tt>expected</tt>.
    * 
@@ -345,6 +506,57 @@ public interface LowLevelMemoryAccessor {
    */
   boolean compareAndSwapLong(Object o, long offset, long expected, long x);
 
+  /**
+   * Atomically update a {@code byte} variable to <tt>x</tt> if it is currently holding
+   * <tt>expected</tt>. A {@code boolean} variable is updated as the byte 0 or 1.
+   * <p>
+   * The default implementation, like {@code jdk.internal.misc.Unsafe}'s, updates the aligned
+   * {@code int} that holds the byte with {@link #compareAndSwapInt}. That needs the offset to be a
+   * byte offset, as it is for native memory and when {@link #exposesObjectLayout} is true; other
+   * implementations override it.
+   *
+   * @return <tt>true</tt> if successful
+   */
+  default boolean compareAndSwapByte(Object o, long offset, byte expected, byte x) {
+    return compareAndSwapInWord(o, offset, 0xFF, expected, x);
+  }
+
+  /**
+   * Atomically update a {@code short} variable to <tt>x</tt> if it is currently holding
+   * <tt>expected</tt>. A {@code char} variable is updated as the short with the same bits. The
+   * default implementation works as for {@link #compareAndSwapByte}.
+   *
+   * @return <tt>true</tt> if successful
+   * @throws IllegalArgumentException if the default implementation is given an odd offset
+   */
+  default boolean compareAndSwapShort(Object o, long offset, short expected, short x) {
+    if ((offset & 1) != 0) {
+      throw new IllegalArgumentException("Unaligned short at offset " + offset);
+    }
+    return compareAndSwapInWord(o, offset, 0xFFFF, expected, x);
+  }
+
+  /** Updates the bits under the given mask of the aligned {@code int} that holds the offset. */
+  private boolean compareAndSwapInWord(Object o, long offset, int mask, int expected, int x) {
+    int shift = (int) (offset & 3) << 3;
+    if (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) {
+      shift = 32 - Integer.bitCount(mask) - shift;
+    }
+    long wordOffset = offset & ~3L;
+    int wordMask = mask << shift;
+    int expectedBits = (expected & mask) << shift;
+    int xBits = (x & mask) << shift;
+    while (true) {
+      int word = getIntVolatile(o, wordOffset);
+      if ((word & wordMask) != expectedBits) {
+        return false;
+      }
+      if (compareAndSwapInt(o, wordOffset, word, (word & ~wordMask) | xBits)) {
+        return true;
+      }
+    }
+  }
+
   /**
    * Fetches a reference value from a given Java variable, with volatile load semantics. Otherwise
    * identical to {@link #getObject(Object, long)}
@@ -419,6 +631,199 @@ public interface LowLevelMemoryAccessor {
   /** Ordered/Lazy version of {@link #putLongVolatile(Object, long, long)} */
   void putOrderedLong(Object o, long offset, long x);
 
+  /**
+   * Acquire version of {@link #getObjectVolatile(Object, long)}. No load or store after it can be
+   * reordered before it.
+   * <p>
+   * The acquire, release and opaque accessors are weaker than the volatile ones and may be cheaper
+   * on some platforms. Their default implementations fall back to the volatile or ordered
+   * accessors, which is always correct.
+   */
+  default Object getObjectAcquire(Object o, long offset) {
+    return getObjectVolatile(o, offset);
+  }
+
+  /**
+   * Release version of {@link #putObjectVolatile(Object, long, Object)}. No load or store before
+   * it can be reordered after it. Equivalent to {@link #putOrderedObject(Object, long, Object)}.
+   */
+  default void putObjectRelease(Object o, long offset, Object x) {
+    putOrderedObject(o, offset, x);
+  }
+
+  /**
+   * Opaque version of {@link #getObjectVolatile(Object, long)}. The access is atomic and coherent
+   * with other accesses to the same variable, but imposes no ordering on other variables.
+   */
+  default Object getObjectOpaque(Object o, long offset) {
+    return getObjectVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putObjectVolatile(Object, long, Object)} */
+  default void putObjectOpaque(Object o, long offset, Object x) {
+    putObjectRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getIntVolatile(Object, long)} */
+  default int getIntAcquire(Object o, long offset) {
+    return getIntVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putIntVolatile(Object, long, int)} */
+  default void putIntRelease(Object o, long offset, int x) {
+    putOrderedInt(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getIntVolatile(Object, long)} */
+  default int getIntOpaque(Object o, long offset) {
+    return getIntVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putIntVolatile(Object, long, int)} */
+  default void putIntOpaque(Object o, long offset, int x) {
+    putIntRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getBooleanVolatile(Object, long)} */
+  default boolean getBooleanAcquire(Object o, long offset) {
+    return getBooleanVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putBooleanVolatile(Object, long, boolean)} */
+  default void putBooleanRelease(Object o, long offset, boolean x) {
+    putBooleanVolatile(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getBooleanVolatile(Object, long)} */
+  default boolean getBooleanOpaque(Object o, long offset) {
+    return getBooleanVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putBooleanVolatile(Object, long, boolean)} */
+  default void putBooleanOpaque(Object o, long offset, boolean x) {
+    putBooleanRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getByteVolatile(Object, long)} */
+  default byte getByteAcquire(Object o, long offset) {
+    return getByteVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putByteVolatile(Object, long, byte)} */
+  default void putByteRelease(Object o, long offset, byte x) {
+    putByteVolatile(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getByteVolatile(Object, long)} */
+  default byte getByteOpaque(Object o, long offset) {
+    return getByteVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putByteVolatile(Object, long, byte)} */
+  default void putByteOpaque(Object o, long offset, byte x) {
+    putByteRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getShortVolatile(Object, long)} */
+  default short getShortAcquire(Object o, long offset) {
+    return getShortVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putShortVolatile(Object, long, short)} */
+  default void putShortRelease(Object o, long offset, short x) {
+    putShortVolatile(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getShortVolatile(Object, long)} */
+  default short getShortOpaque(Object o, long offset) {
+    return getShortVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putShortVolatile(Object, long, short)} */
+  default void putShortOpaque(Object o, long offset, short x) {
+    putShortRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getCharVolatile(Object, long)} */
+  default char getCharAcquire(Object o, long offset) {
+    return getCharVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putCharVolatile(Object, long, char)} */
+  default void putCharRelease(Object o, long offset, char x) {
+    putCharVolatile(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getCharVolatile(Object, long)} */
+  default char getCharOpaque(Object o, long offset) {
+    return getCharVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putCharVolatile(Object, long, char)} */
+  default void putCharOpaque(Object o, long offset, char x) {
+    putCharRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getLongVolatile(Object, long)} */
+  default long getLongAcquire(Object o, long offset) {
+    return getLongVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putLongVolatile(Object, long, long)} */
+  default void putLongRelease(Object o, long offset, long x) {
+    putOrderedLong(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getLongVolatile(Object, long)} */
+  default long getLongOpaque(Object o, long offset) {
+    return getLongVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putLongVolatile(Object, long, long)} */
+  default void putLongOpaque(Object o, long offset, long x) {
+    putLongRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getFloatVolatile(Object, long)} */
+  default float getFloatAcquire(Object o, long offset) {
+    return getFloatVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putFloatVolatile(Object, long, float)} */
+  default void putFloatRelease(Object o, long offset, float x) {
+    putFloatVolatile(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getFloatVolatile(Object, long)} */
+  default float getFloatOpaque(Object o, long offset) {
+    return getFloatVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putFloatVolatile(Object, long, float)} */
+  default void putFloatOpaque(Object o, long offset, float x) {
+    putFloatRelease(o, offset, x);
+  }
+
+  /** Acquire version of {@link #getDoubleVolatile(Object, long)} */
+  default double getDoubleAcquire(Object o, long offset) {
+    return getDoubleVolatile(o, offset);
+  }
+
+  /** Release version of {@link #putDoubleVolatile(Object, long, double)} */
+  default void putDoubleRelease(Object o, long offset, double x) {
+    putDoubleVolatile(o, offset, x);
+  }
+
+  /** Opaque version of {@link #getDoubleVolatile(Object, long)} */
+  default double getDoubleOpaque(Object o, long offset) {
+    return getDoubleVolatile(o, offset);
+  }
+
+  /** Opaque version of {@link #putDoubleVolatile(Object, long, double)} */
+  default void putDoubleOpaque(Object o, long offset, double x) {
+    putDoubleRelease(o, offset, x);
+  }
+
   /**
    * Atomically adds the given value to the current value of a field or array element within the
    * given object <code>o</code> at the given <code>offset</code>.
@@ -509,6 +914,270 @@ public interface LowLevelMemoryAccessor {
     return v;
   }
 
+  /**
+   * Atomically updates Java variable to <tt>x</tt> if it is currently holding <tt>expected</tt>.
+   * Unlike {@link #compareAndSwapObject}, returns the value that was seen.
+   *
+   * @return the witness value, which will be the same as <tt>expected</tt> if successful
+   */
+  default Object compareAndExchangeObject(Object o, long offset, Object expected, Object x) {
+    Object v;
+    do {
+      v = getObjectVolatile(o, offset);
+      if (v != expected) {
+        return v;
+      }
+    } while (!compareAndSwapObject(o, offset, expected, x));
+    return v;
+  }
+
+  /** Acquire version of {@link #compareAndExchangeObject} */
+  default Object compareAndExchangeObjectAcquire(Object o, long offset, Object expected, Object x) {
+    return compareAndExchangeObject(o, offset, expected, x);
+  }
+
+  /** Release version of {@link #compareAndExchangeObject} */
+  default Object compareAndExchangeObjectRelease(Object o, long offset, Object expected, Object x) {
+    return compareAndExchangeObject(o, offset, expected, x);
+  }
+
+  /**
+   * Possibly atomically updates Java variable to <tt>x</tt> if it is currently holding
+   * <tt>expected</tt>. May fail spuriously even if the variable holds <tt>expected</tt>, so it is
+   * meant to be called in a retry loop, where it may be cheaper than
+   * {@link #compareAndSwapObject}. This version has volatile memory semantics.
+   *
+   * @return <tt>true</tt> if successful
+   */
+  default boolean weakCompareAndSetObject(Object o, long offset, Object expected, Object x) {
+    return compareAndSwapObject(o, offset, expected, x);
+  }
+
+  /** Plain version of {@link #weakCompareAndSetObject} */
+  default boolean weakCompareAndSetObjectPlain(Object o, long offset, Object expected, Object x) {
+    return weakCompareAndSetObject(o, offset, expected, x);
+  }
+
+  /** Acquire version of {@link #weakCompareAndSetObject} */
+  default boolean weakCompareAndSetObjectAcquire(Object o, long offset, Object expected, Object x) {
+    return weakCompareAndSetObject(o, offset, expected, x);
+  }
+
+  /** Release version of {@link #weakCompareAndSetObject} */
+  default boolean weakCompareAndSetObjectRelease(Object o, long offset, Object expected, Object x) {
+    return weakCompareAndSetObject(o, offset, expected, x);
+  }
+
+  /**
+   * Atomically updates Java variable to <tt>x</tt> if it is currently holding <tt>expected</tt>.
+   * Unlike {@link #compareAndSwapInt}, returns the value that was seen.
+   *
+   * @return the witness value, which will be the same as <tt>expected</tt> if successful
+   */
+  default int compareAndExchangeInt(Object o, long offset, int expected, int x) {
+    int v;
+    do {
+      v = getIntVolatile(o, offset);
+      if (v != expected) {
+        return v;
+      }
+    } while (!compareAndSwapInt(o, offset, expected, x));
+    return v;
+  }
+
+  /** Acquire version of {@link #compareAndExchangeInt} */
+  default int compareAndExchangeIntAcquire(Object o, long offset, int expected, int x) {
+    return compareAndExchangeInt(o, offset, expected, x);
+  }
+
+  /** Release version of {@link #compareAndExchangeInt} */
+  default int compareAndExchangeIntRelease(Object o, long offset, int expected, int x) {
+    return compareAndExchangeInt(o, offset, expected, x);
+  }
+
+  /**
+   * Possibly atomically updates Java variable to <tt>x</tt> if it is currently holding
+   * <tt>expected</tt>. May fail spuriously even if the variable holds <tt>expected</tt>, so it is
+   * meant to be called in a retry loop, where it may be cheaper than
+   * {@link #compareAndSwapInt}. This version has volatile memory semantics.
+   *
+   * @return <tt>true</tt> if successful
+   */
+  default boolean weakCompareAndSetInt(Object o, long offset, int expected, int x) {
+    return compareAndSwapInt(o, offset, expected, x);
+  }
+
+  /** Plain version of {@link #weakCompareAndSetInt} */
+  default boolean weakCompareAndSetIntPlain(Object o, long offset, int expected, int x) {
+    return weakCompareAndSetInt(o, offset, expected, x);
+  }
+
+  /** Acquire version of {@link #weakCompareAndSetInt} */
+  default boolean weakCompareAndSetIntAcquire(Object o, long offset, int expected, int x) {
+    return weakCompareAndSetInt(o, offset, expected, x);
+  }
+
+  /** Release version of {@link #weakCompareAndSetInt} */
+  default boolean weakCompareAndSetIntRelease(Object o, long offset, int expected, int x) {
+    return weakCompareAndSetInt(o, offset, expected, x);
+  }
+
+  /**
+   * Atomically updates Java variable to <tt>x</tt> if it is currently holding <tt>expected</tt>.
+   * Unlike {@link #compareAndSwapLong}, returns the value that was seen.
+   *
+   * @return the witness value, which will be the same as <tt>expected</tt> if successful
+   */
+  default long compareAndExchangeLong(Object o, long offset, long expected, long x) {
+    long v;
+    do {
+      v = getLongVolatile(o, offset);
+      if (v != expected) {
+        return v;
+      }
+    } while (!compareAndSwapLong(o, offset, expected, x));
+    return v;
+  }
+
+  /** Acquire version of {@link #compareAndExchangeLong} */
+  default long compareAndExchangeLongAcquire(Object o, long offset, long expected, long x) {
+    return compareAndExchangeLong(o, offset, expected, x);
+  }
+
+  /** Release version of {@link #compareAndExchangeLong} */
+  default long compareAndExchangeLongRelease(Object o, long offset, long expected, long x) {
+    return compareAndExchangeLong(o, offset, expected, x);
+  }
+
+  /**
+   * Possibly atomically updates Java variable to <tt>x</tt> if it is currently holding
+   * <tt>expected</tt>. May fail spuriously even if the variable holds <tt>expected</tt>, so it is
+   * meant to be called in a retry loop, where it may be cheaper than
+   * {@link #compareAndSwapLong}. This version has volatile memory semantics.
+   *
+   * @return <tt>true</tt> if successful
+   */
+  default boolean weakCompareAndSetLong(Object o, long offset, long expected, long x) {
+    return compareAndSwapLong(o, offset, expected, x);
+  }
+
+  /** Plain version of {@link #weakCompareAndSetLong} */
+  default boolean weakCompareAndSetLongPlain(Object o, long offset, long expected, long x) {
+    return weakCompareAndSetLong(o, offset, expected, x);
+  }
+
+  /** Acquire version of {@link #weakCompareAndSetLong} */
+  default boolean weakCompareAndSetLongAcquire(Object o, long offset, long expected, long x) {
+    return weakCompareAndSetLong(o, offset, expected, x);
+  }
+
+  /** Release version of {@link #weakCompareAndSetLong} */
+  default boolean weakCompareAndSetLongRelease(Object o, long offset, long expected, long x) {
+    return weakCompareAndSetLong(o, offset, expected, x);
+  }
+
+  /**
+   * Atomically replaces the current value of a field or array element within the given object
+   * with the result of bitwise OR between the current value and <code>mask</code>.
+   *
+   * @param o object/array to update the field/element in
+   * @param offset field/element offset
+   * @param mask the value to combine with the current value
+   * @return the previous value
+   */
+  default int getAndBitwiseOrInt(Object o, long offset, int mask) {
+    int v;
+    do {
+      v = getIntVolatile(o, offset);
+    } while (!compareAndSwapInt(o, offset, v, v | mask));
+    return v;
+  }
+
+  /**
+   * Atomically replaces the current value of a field or array element within the given object
+   * with the result of bitwise AND between the current value and <code>mask</code>.
+   *
+   * @param o object/array to update the field/element in
+   * @param offset field/element offset
+   * @param mask the value to combine with the current value
+   * @return the previous value
+   */
+  default int getAndBitwiseAndInt(Object o, long offset, int mask) {
+    int v;
+    do {
+      v = getIntVolatile(o, offset);
+    } while (!compareAndSwapInt(o, offset, v, v & mask));
+    return v;
+  }
+
+  /**
+   * Atomically replaces the current value of a field or array element within the given object
+   * with the result of bitwise XOR between the current value and <code>mask</code>.
+   *
+   * @param o object/array to update the field/element in
+   * @param offset field/element offset
+   * @param mask the value to combine with the current value
+   * @return the previous value
+   */
+  default int getAndBitwiseXorInt(Object o, long offset, int mask) {
+    int v;
+    do {
+      v = getIntVolatile(o, offset);
+    } while (!compareAndSwapInt(o, offset, v, v ^ mask));
+    return v;
+  }
+
+  /**
+   * Atomically replaces the current value of a field or array element within the given object
+   * with the result of bitwise OR between the current value and <code>mask</code>.
+   *
+   * @param o object/array to update the field/element in
+   * @param offset field/element offset
+   * @param mask the value to combine with the current value
+   * @return the previous value
+   */
+  default long getAndBitwiseOrLong(Object o, long offset, long mask) {
+    long v;
+    do {
+      v = getLongVolatile(o, offset);
+    } while (!compareAndSwapLong(o, offset, v, v | mask));
+    return v;
+  }
+
+  /**
+   * Atomically replaces the current value of a field or array element within the given object
+   * with the result of bitwise AND between the current value and <code>mask</code>.
+   *
+   * @param o object/array to update the field/element in
+   * @param offset field/element offset
+   * @param mask the value to combine with the current value
+   * @return the previous value
+   */
+  default long getAndBitwiseAndLong(Object o, long offset, long mask) {
+    long v;
+    do {
+      v = getLongVolatile(o, offset);
+    } while (!compareAndSwapLong(o, offset, v, v & mask));
+    return v;
+  }
+
+  /**
+   * Atomically replaces the current value of a field or array element within the given object
+   * with the result of bitwise XOR between the current value and <code>mask</code>.
+   *
+   * @param o object/array to update the field/element in
+   * @param offset field/element offset
+   * @param mask the value to combine with the current value
+   * @return the previous value
+   */
+  default long getAndBitwiseXorLong(Object o, long offset, long mask) {
+    long v;
+    do {
+      v = getLongVolatile(o, offset);
+    } while (!compareAndSwapLong(o, offset, v, v ^ mask));
+    return v;
+  }
+
 
   /**
    * Ensures lack of reordering of loads before the fence with loads or stores after the fence.
@@ -0,0 +1,58 @@
+package sunset.memory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A file mapped into native memory by a {@link MemoryMapper}. The bytes of the file start at
+ * {@link #address()}, and can be accessed with the single-register methods of
+ * {@link LowLevelMemoryAccessor}. Nothing is bounds-checked: accessing outside the region, writing
+ * to a {@link MapMode#READ_ONLY} region, or accessing it after it has been unmapped or resized may
+ * crash the JVM.
+ */
+public interface MappedRegion extends AutoCloseable {
+
+  /** Returns the address of the first byte of the region. Changes when the region is resized. */
+  long address();
+
+  /** Returns the size of the region in bytes. */
+  long size();
+
+  /** Returns the mode the file was mapped in. */
+  MapMode mode();
+
+  /**
+   * Writes any changes to the given range of the region back to the storage device, and waits
+   * until that is done. Has no effect unless the region is {@link MapMode#READ_WRITE}.
+   *
+   * @throws IndexOutOfBoundsException if the range isn't within the region
+   */
+  void force(long offset, long length);
+
+  /** Equivalent to <code>force(0, size())</code>. */
+  default void force() {
+    force(0, size());
+  }
+
+  /**
+   * Unmaps the region and maps the file again with the given size, extending the file if it is
+   * {@link MapMode#READ_WRITE} and shorter than that. The region's {@link #address()} will
+   * generally change, so no thread may use the old address afterwards.
+   *
+   * @throws IOException if the file can't be mapped
+   */
+  void resize(long size) throws IOException;
+
+  /**
+   * Unmaps the region and closes the file. No thread may use the region's address afterwards.
+   * Calling this more than once has no further effect.
+   */
+  void unmap() throws IOException;
+
+  /** Equivalent to {@link #unmap()}. */
+  @Override
+  default void close() throws IOException {
+    unmap();
+  }
+
+}
@@ -0,0 +1,49 @@
+package sunset.memory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+import sunset.common.SunsetUtil;
+
+/**
+ * Maps files into native memory as a single region of any size, so that they can be read and
+ * written through the single-register methods of {@link LowLevelMemoryAccessor}, such as
+ * {@link LowLevelMemoryAccessor#getLong(long)}, without the 2 GB limit and bounds checks of
+ * {@link java.nio.MappedByteBuffer}.
+ */
+public interface MemoryMapper {
+
+  static MemoryMapper getInstance() {
+    return SunsetUtil.loadService(MemoryMapper.class);
+  }
+
+  /**
+   * Maps the first {@code size} bytes of the given file. In {@link MapMode#READ_WRITE} mode, the
+   * file is created if it doesn't exist, and extended to {@code size} bytes if it is shorter;
+   * changes are written back to the file. In {@link MapMode#PRIVATE} mode, changes are private to
+   * this process.
+   *
+   * @throws IllegalArgumentException if the size is negative
+   * @throws IOException if the file can't be opened or mapped
+   */
+  MappedRegion map(Path file, MapMode mode, long size) throws IOException;
+
+  /**
+   * Maps a region of zeroed memory that isn't backed by a file, in {@link MapMode#PRIVATE} mode.
+   * Pages are only committed when first touched, which makes this a better fit than
+   * {@link LowLevelMemoryAccessor#allocateMemory} for regions of several gigabytes. If
+   * {@code hugePages} is true, the region is aligned to the huge page size, and the kernel is asked
+   * to back it with transparent huge pages, which cuts TLB misses on large, randomly accessed
+   * structures such as hash tables. That request is only a hint: the region is still usable if the
+   * kernel declines it. Resizing the region copies its contents to a new mapping.
+   *
+   * @throws IllegalArgumentException if the size is negative
+   * @throws IOException if the memory can't be mapped
+   * @throws UnsupportedOperationException if this mapper can't map anonymous memory
+   */
+  default MappedRegion mapAnonymous(long size, boolean hugePages) throws IOException {
+    throw new UnsupportedOperationException(getClass().getName() + " can't map anonymous memory");
+  }
+
+}
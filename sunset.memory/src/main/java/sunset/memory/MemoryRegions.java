@@ -0,0 +1,197 @@
+package sunset.memory;
+
+import java.nio.ByteOrder;
+
+/**
+ * Compares and hashes regions of memory eight bytes at a time, through
+ * {@link LowLevelMemoryAccessor#getLong(Object, long)}. Each region is given as a base, an offset
+ * and a length, where the base and offset are interpreted as with
+ * {@link LowLevelMemoryAccessor#getLong(Object, long)}: a null base and an absolute address for
+ * native memory, or an array and an offset from {@link LowLevelMemoryAccessor#arrayBaseOffset}
+ * for the heap. So keys in native memory can be compared with keys in {@code byte[]}s directly.
+ * <p>
+ * Bytes are compared as unsigned values, like {@link java.util.Arrays#compareUnsigned(byte[],
+ * byte[])}, so that regions sort in the same order as their UTF-8 text or big-endian numbers.
+ * Hashes are the 64-bit xxHash (XXH64) of the bytes, which is fast, well distributed and the
+ * same on every platform, but not cryptographic. Addresses are not checked.
+ */
+public final class MemoryRegions {
+
+  private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  private final LowLevelMemoryAccessor accessor;
+
+  public MemoryRegions(LowLevelMemoryAccessor accessor) {
+    this.accessor = accessor;
+  }
+
+  /**
+   * Returns the index of the first byte that differs between two regions, or the length of the
+   * shorter one if it is a prefix of the other, or -1 if they are equal, like
+   * {@link java.util.Arrays#mismatch(byte[], byte[])}.
+   *
+   * @throws IllegalArgumentException if a length is negative
+   */
+  public long mismatch(Object base1, long offset1, long length1, Object base2, long offset2,
+      long length2) {
+    checkLength(length1);
+    checkLength(length2);
+    long common = Math.min(length1, length2);
+    long index = mismatch(base1, offset1, base2, offset2, common);
+    if (index >= 0) {
+      return index;
+    }
+    return length1 == length2 ? -1 : common;
+  }
+
+  /**
+   * Compares two regions lexicographically as unsigned bytes, and returns a negative number, zero
+   * or a positive number if the first is less than, equal to or greater than the second. A proper
+   * prefix is less than the region it begins.
+   *
+   * @throws IllegalArgumentException if a length is negative
+   */
+  public int compare(Object base1, long offset1, long length1, Object base2, long offset2,
+      long length2) {
+    long index = mismatch(base1, offset1, length1, base2, offset2, length2);
+    if (index < 0) {
+      return 0;
+    }
+    if (index == length1 || index == length2) {
+      return Long.compare(length1, length2);
+    }
+    return Byte.toUnsignedInt(accessor.getByte(base1, offset1 + index))
+        - Byte.toUnsignedInt(accessor.getByte(base2, offset2 + index));
+  }
+
+  /**
+   * Returns whether two regions have the same length and bytes.
+   *
+   * @throws IllegalArgumentException if a length is negative
+   */
+  public boolean equals(Object base1, long offset1, long length1, Object base2, long offset2,
+      long length2) {
+    checkLength(length1);
+    checkLength(length2);
+    return length1 == length2 && mismatch(base1, offset1, base2, offset2, length1) < 0;
+  }
+
+  /**
+   * Returns the first index below the length where two regions differ, or -1. The last word is
+   * read so that it ends with the regions, overlapping the previous one, rather than byte by byte.
+   */
+  private long mismatch(Object base1, long offset1, Object base2, long offset2, long length) {
+    if (length >= 8) {
+      long last = length - 8;
+      for (long i = 0; ; i += 8) {
+        if (i > last) {
+          i = last;
+        }
+        long diff = accessor.getLong(base1, offset1 + i) ^ accessor.getLong(base2, offset2 + i);
+        if (diff != 0) {
+          return i + (LITTLE_ENDIAN
+              ? Long.numberOfTrailingZeros(diff) : Long.numberOfLeadingZeros(diff)) / 8;
+        }
+        if (i == last) {
+          return -1;
+        }
+      }
+    }
+    for (long i = 0; i < length; i++) {
+      if (accessor.getByte(base1, offset1 + i) != accessor.getByte(base2, offset2 + i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the 64-bit xxHash of a region with a seed of 0.
+   *
+   * @throws IllegalArgumentException if the length is negative
+   */
+  public long hash(Object base, long offset, long length) {
+    return hash(base, offset, length, 0);
+  }
+
+  /**
+   * Returns the 64-bit xxHash of a region with the given seed.
+   *
+   * @throws IllegalArgumentException if the length is negative
+   */
+  public long hash(Object base, long offset, long length, long seed) {
+    checkLength(length);
+    long end = offset + length;
+    long hash;
+    if (length >= 32) {
+      long v1 = seed + PRIME1 + PRIME2;
+      long v2 = seed + PRIME2;
+      long v3 = seed;
+      long v4 = seed - PRIME1;
+      long limit = end - 32;
+      do {
+        v1 = round(v1, getLongLE(base, offset));
+        v2 = round(v2, getLongLE(base, offset + 8));
+        v3 = round(v3, getLongLE(base, offset + 16));
+        v4 = round(v4, getLongLE(base, offset + 24));
+        offset += 32;
+      } while (offset <= limit);
+      hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+          + Long.rotateLeft(v4, 18);
+      hash = merge(hash, v1);
+      hash = merge(hash, v2);
+      hash = merge(hash, v3);
+      hash = merge(hash, v4);
+    } else {
+      hash = seed + PRIME5;
+    }
+    hash += length;
+    for (; offset <= end - 8; offset += 8) {
+      hash ^= round(0, getLongLE(base, offset));
+      hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+    }
+    if (offset <= end - 4) {
+      int word = accessor.getInt(base, offset);
+      hash ^= Integer.toUnsignedLong(LITTLE_ENDIAN ? word : Integer.reverseBytes(word)) * PRIME1;
+      hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+      offset += 4;
+    }
+    for (; offset < end; offset++) {
+      hash ^= Byte.toUnsignedLong(accessor.getByte(base, offset)) * PRIME5;
+      hash = Long.rotateLeft(hash, 11) * PRIME1;
+    }
+    hash ^= hash >>> 33;
+    hash *= PRIME2;
+    hash ^= hash >>> 29;
+    hash *= PRIME3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  /** Reads a word in little-endian order, which xxHash is defined in. */
+  private long getLongLE(Object base, long offset) {
+    long word = accessor.getLong(base, offset);
+    return LITTLE_ENDIAN ? word : Long.reverseBytes(word);
+  }
+
+  private static long round(long acc, long input) {
+    return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+  }
+
+  private static long merge(long hash, long acc) {
+    return (hash ^ round(0, acc)) * PRIME1 + PRIME4;
+  }
+
+  private static void checkLength(long length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Negative length: " + length);
+    }
+  }
+
+}
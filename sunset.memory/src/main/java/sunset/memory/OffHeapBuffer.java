@@ -0,0 +1,379 @@
+package sunset.memory;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+
+/**
+ * A block of native memory from {@link LowLevelMemoryAccessor#allocateMemory}, with bounds-checked
+ * accessors. The block is freed by {@link #close}, or by a shared {@link Cleaner} once the buffer
+ * becomes unreachable, so a buffer that escapes its try-with-resources block is not leaked.
+ * Unlike {@link java.nio.ByteBuffer#allocateDirect}, allocating a buffer takes no global lock and
+ * doesn't zero the memory.
+ * <p>
+ * Each accessor checks its offset with a single comparison against the buffer's size, which the
+ * JIT can hoist or fold, and then makes the raw access. After {@link #close}, every accessor
+ * throws {@link IllegalStateException}. Closing a buffer while another thread is using it is not
+ * safe, and must be prevented by the caller.
+ * <p>
+ * Multi-byte values are in the platform's native byte order and need not be aligned.
+ */
+public final class OffHeapBuffer implements AutoCloseable {
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  /** Frees the block. Must not refer to the buffer, or the buffer would never be unreachable. */
+  private static final class Deallocator implements Runnable {
+    private final LowLevelMemoryAccessor accessor;
+    private final long address;
+
+    Deallocator(LowLevelMemoryAccessor accessor, long address) {
+      this.accessor = accessor;
+      this.address = address;
+    }
+
+    @Override
+    public void run() {
+      accessor.freeMemory(address);
+    }
+  }
+
+  private final LowLevelMemoryAccessor accessor;
+  private final long address;
+  private final long size;
+  private final long byteArrayBase;
+  private final Cleaner.Cleanable cleanable;
+  /** The size while the buffer is open, and 0 once it is closed, so one check covers both. */
+  private long limit;
+  private boolean closed;
+
+  /**
+   * Allocates a buffer of the given size in bytes, using the default
+   * {@link LowLevelMemoryAccessor}. The contents are uninitialized.
+   *
+   * @throws IllegalArgumentException if the size is negative
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  public OffHeapBuffer(long size) {
+    this(LowLevelMemoryAccessor.getInstance(), size);
+  }
+
+  /**
+   * Allocates a buffer of the given size in bytes from the given accessor, which is also used to
+   * access and free it. The contents are uninitialized.
+   *
+   * @throws IllegalArgumentException if the size is negative
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  public OffHeapBuffer(LowLevelMemoryAccessor accessor, long size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative size: " + size);
+    }
+    this.accessor = accessor;
+    this.size = size;
+    this.limit = size;
+    this.byteArrayBase = accessor.arrayBaseOffset(byte[].class);
+    this.address = accessor.allocateMemory(size);
+    this.cleanable = CLEANER.register(this, new Deallocator(accessor, address));
+  }
+
+  /**
+   * Returns the address of the given number of bytes at the given offset, after checking that they
+   * are within the buffer.
+   */
+  private long address(long offset, long bytes) {
+    if ((offset | (limit - bytes - offset)) < 0) {
+      throw outOfBounds(offset, bytes);
+    }
+    return address + offset;
+  }
+
+  private RuntimeException outOfBounds(long offset, long bytes) {
+    if (closed) {
+      return new IllegalStateException("Buffer is closed");
+    }
+    return new IndexOutOfBoundsException(
+        "Range [" + offset + ", " + offset + " + " + bytes + ") out of bounds for size " + size);
+  }
+
+  /**
+   * Returns the address of the first byte of the buffer. Accesses through the address are not
+   * checked, and the caller must keep the buffer reachable and open while making them.
+   */
+  public long address() {
+    return address;
+  }
+
+  /** Returns the size of the buffer in bytes. */
+  public long size() {
+    return size;
+  }
+
+  /** Returns whether {@link #close} has not been called yet. */
+  public boolean isOpen() {
+    return !closed;
+  }
+
+  /**
+   * Returns the byte at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the byte isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public byte getByte(long offset) {
+    try {
+      return accessor.getByte(null, address(offset, 1));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given byte at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the byte isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putByte(long offset, byte value) {
+    try {
+      accessor.putByte(null, address(offset, 1), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Returns the short at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the short isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public short getShort(long offset) {
+    try {
+      return accessor.getShort(null, address(offset, 2));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given short at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the short isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putShort(long offset, short value) {
+    try {
+      accessor.putShort(null, address(offset, 2), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Returns the char at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the char isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public char getChar(long offset) {
+    try {
+      return accessor.getChar(null, address(offset, 2));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given char at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the char isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putChar(long offset, char value) {
+    try {
+      accessor.putChar(null, address(offset, 2), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Returns the int at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the int isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public int getInt(long offset) {
+    try {
+      return accessor.getInt(null, address(offset, 4));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given int at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the int isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putInt(long offset, int value) {
+    try {
+      accessor.putInt(null, address(offset, 4), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Returns the long at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the long isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public long getLong(long offset) {
+    try {
+      return accessor.getLong(null, address(offset, 8));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given long at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the long isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putLong(long offset, long value) {
+    try {
+      accessor.putLong(null, address(offset, 8), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Returns the float at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the float isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public float getFloat(long offset) {
+    try {
+      return accessor.getFloat(null, address(offset, 4));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given float at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the float isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putFloat(long offset, float value) {
+    try {
+      accessor.putFloat(null, address(offset, 4), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Returns the double at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the double isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public double getDouble(long offset) {
+    try {
+      return accessor.getDouble(null, address(offset, 8));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Writes the given double at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if the double isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putDouble(long offset, double value) {
+    try {
+      accessor.putDouble(null, address(offset, 8), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Copies bytes from the buffer, starting at the given offset, to the given array.
+   *
+   * @throws IndexOutOfBoundsException if either range is out of bounds
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void getBytes(long offset, byte[] array, int arrayOffset, int length) {
+    checkArrayRange(array, arrayOffset, length);
+    try {
+      accessor.copyMemory(null, address(offset, length), array, byteArrayBase + arrayOffset,
+          length);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Copies bytes from the given array to the buffer, starting at the given offset.
+   *
+   * @throws IndexOutOfBoundsException if either range is out of bounds
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void putBytes(long offset, byte[] array, int arrayOffset, int length) {
+    checkArrayRange(array, arrayOffset, length);
+    try {
+      accessor.copyMemory(array, byteArrayBase + arrayOffset, null, address(offset, length),
+          length);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  private static void checkArrayRange(byte[] array, int offset, int length) {
+    if ((offset | length | (array.length - length - offset)) < 0) {
+      throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+          + ") out of bounds for length " + array.length);
+    }
+  }
+
+  /**
+   * Sets the given number of bytes, starting at the given offset, to the given value.
+   *
+   * @throws IndexOutOfBoundsException if the range isn't within the buffer
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void fill(long offset, long length, byte value) {
+    if (length < 0) {
+      throw outOfBounds(offset, length);
+    }
+    try {
+      accessor.setMemory(null, address(offset, length), length, value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Frees the buffer's memory. Further accesses throw {@link IllegalStateException}. Calling this
+   * more than once has no further effect.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    limit = 0;
+    cleanable.clean();
+  }
+
+}
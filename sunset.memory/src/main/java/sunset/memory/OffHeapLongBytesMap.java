@@ -0,0 +1,147 @@
+package sunset.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A map from {@code long} keys to byte strings, stored in native memory so that it costs the
+ * garbage collector nothing. Each value is copied into its own block from
+ * {@link LowLevelMemoryAccessor#allocateMemory}, prefixed by its length, and the table holds the
+ * block's address; so each entry takes 16 bytes in the table plus the value's length plus 4.
+ * <p>
+ * Reads take no locks and are safe from any thread; they see each entry either as it was before
+ * or as it was after any concurrent write. Writes are serialized. A replaced or removed value's
+ * block is freed once no reader can still be copying from it, in batches of
+ * {@value #RETIRED_BATCH}. The map must be {@link #close closed} to free its memory.
+ */
+public class OffHeapLongBytesMap extends OffHeapLongTable {
+
+  private static final int RETIRED_BATCH = 1024;
+  private static final int LENGTH_SIZE = 4;
+
+  /** Receives the entries of a map. */
+  public interface EntryConsumer {
+    /** Receives a value as the address and length of its bytes, which are only valid until then. */
+    void accept(long key, long address, int length);
+  }
+
+  private final long byteArrayBase;
+  /** Blocks of values that readers may still be copying. Accessed only under the monitor. */
+  private final List<Long> retired = new ArrayList<>();
+
+  /** Creates a map in memory from the default {@link LowLevelMemoryAccessor}. */
+  public OffHeapLongBytesMap(long expectedSize) {
+    this(LowLevelMemoryAccessor.getInstance(), expectedSize);
+  }
+
+  /**
+   * Creates a map in memory from the given accessor, with room for the given number of entries
+   * before it needs to grow.
+   */
+  public OffHeapLongBytesMap(LowLevelMemoryAccessor accessor, long expectedSize) {
+    super(accessor, expectedSize);
+    byteArrayBase = accessor.arrayBaseOffset(byte[].class);
+  }
+
+  /** Returns a copy of the value for the given key, or null if the key is absent. */
+  public byte[] get(long key) {
+    int token = gate.enter();
+    try {
+      long block = readSlot(key, 0);
+      if (block == 0) {
+        return null;
+      }
+      byte[] value = new byte[accessor.getInt(null, block)];
+      accessor.copyMemory(null, block + LENGTH_SIZE, value, byteArrayBase, value.length);
+      return value;
+    } finally {
+      gate.exit(token);
+    }
+  }
+
+  /** Returns the length of the value for the given key, or -1 if the key is absent. */
+  public int valueLength(long key) {
+    int token = gate.enter();
+    try {
+      long block = readSlot(key, 0);
+      return block == 0 ? -1 : accessor.getInt(null, block);
+    } finally {
+      gate.exit(token);
+    }
+  }
+
+  /** Maps the given key to a copy of the given value. Returns true if the key was absent. */
+  public boolean put(long key, byte[] value) {
+    return put(key, value, 0, value.length);
+  }
+
+  /**
+   * Maps the given key to a copy of the given range of the given array. Returns true if the key
+   * was absent.
+   */
+  public boolean put(long key, byte[] value, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > value.length - length) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length "
+              + value.length);
+    }
+    long block = accessor.allocateMemory(LENGTH_SIZE + length);
+    accessor.putInt(null, block, length);
+    accessor.copyMemory(value, byteArrayBase + offset, null, block + LENGTH_SIZE, length);
+    synchronized (this) {
+      if (writeSlot(key, block)) {
+        return true;
+      }
+      retire(previousSlot);
+      return false;
+    }
+  }
+
+  /** Removes the entry for the given key. Returns true if there was one. */
+  public synchronized boolean remove(long key) {
+    if (!removeSlot(key)) {
+      return false;
+    }
+    retire(previousSlot);
+    return true;
+  }
+
+  private void retire(long block) {
+    retired.add(block);
+    if (retired.size() >= RETIRED_BATCH) {
+      gate.synchronize();
+      freeRetired();
+    }
+  }
+
+  private void freeRetired() {
+    for (long block : retired) {
+      accessor.freeMemory(block);
+    }
+    retired.clear();
+  }
+
+  /**
+   * Passes every entry to the given consumer, in no particular order. Writes are blocked until
+   * this returns, so the consumer must not modify this map.
+   */
+  public void forEach(EntryConsumer consumer) {
+    forEachSlot((key, block) ->
+        consumer.accept(key, block + LENGTH_SIZE, accessor.getInt(null, block)));
+  }
+
+  /**
+   * Frees the map's native memory, including every value. The map must not be used afterwards,
+   * including by readers that are still running.
+   */
+  @Override
+  public synchronized void close() {
+    if (isClosed()) {
+      return;
+    }
+    forEachSlot((key, block) -> accessor.freeMemory(block));
+    super.close();
+    freeRetired();
+  }
+
+}
@@ -0,0 +1,76 @@
+package sunset.memory;
+
+/**
+ * A map from {@code long} keys to {@code long} values, stored in native memory so that it costs
+ * the garbage collector nothing. Each entry takes 16 bytes, in a table kept between 37.5% and 75%
+ * full.
+ * <p>
+ * Reads take no locks and are safe from any thread; they see each entry either as it was before
+ * or as it was after any concurrent write. Writes are serialized, and grow the table a little at a
+ * time instead of all at once. The map must be {@link #close closed} to free its memory.
+ */
+public class OffHeapLongLongMap extends OffHeapLongTable {
+
+  /** Receives the entries of a map. */
+  public interface EntryConsumer {
+    void accept(long key, long value);
+  }
+
+  /** Creates a map in memory from the default {@link LowLevelMemoryAccessor}. */
+  public OffHeapLongLongMap(long expectedSize) {
+    this(LowLevelMemoryAccessor.getInstance(), expectedSize);
+  }
+
+  /**
+   * Creates a map in memory from the given accessor, with room for the given number of entries
+   * before it needs to grow.
+   */
+  public OffHeapLongLongMap(LowLevelMemoryAccessor accessor, long expectedSize) {
+    super(accessor, expectedSize);
+  }
+
+  /** Returns the value for the given key, or the given default if the key is absent. */
+  public long get(long key, long defaultValue) {
+    int token = gate.enter();
+    try {
+      return readSlot(key, defaultValue);
+    } finally {
+      gate.exit(token);
+    }
+  }
+
+  /** Maps the given key to the given value. Returns true if the key was absent. */
+  public boolean put(long key, long value) {
+    return writeSlot(key, value);
+  }
+
+  /**
+   * Maps the given key to the given value, and returns the value it replaced, or the given default
+   * if the key was absent.
+   */
+  public synchronized long put(long key, long value, long defaultValue) {
+    return writeSlot(key, value) ? defaultValue : previousSlot;
+  }
+
+  /** Removes the entry for the given key. Returns true if there was one. */
+  public boolean remove(long key) {
+    return removeSlot(key);
+  }
+
+  /**
+   * Removes the entry for the given key, and returns its value, or the given default if there was
+   * none.
+   */
+  public synchronized long remove(long key, long defaultValue) {
+    return removeSlot(key) ? previousSlot : defaultValue;
+  }
+
+  /**
+   * Passes every entry to the given consumer, in no particular order. Writes are blocked until
+   * this returns, so the consumer must not modify this map.
+   */
+  public void forEach(EntryConsumer consumer) {
+    forEachSlot(consumer::accept);
+  }
+
+}
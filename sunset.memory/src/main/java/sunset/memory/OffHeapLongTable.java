@@ -0,0 +1,396 @@
+package sunset.memory;
+
+/**
+ * An open-addressing hash table in native memory, from {@code long} keys to {@code long} slots,
+ * shared by {@link OffHeapLongLongMap} and {@link OffHeapLongBytesMap}. Each entry is a key
+ * followed by its slot, and collisions are resolved by linear probing.
+ * <p>
+ * Writers are serialized by the table's monitor. Readers take no locks: they probe with
+ * {@link LowLevelMemoryAccessor#getLongVolatile} and re-check the key after reading the slot, so
+ * they never return a slot that belonged to a different key. Writers publish a new entry's slot
+ * before its key, with {@link LowLevelMemoryAccessor#putLongVolatile}.
+ * <p>
+ * Removed entries leave a tombstone key behind. When live entries plus tombstones reach
+ * {@value #MAX_LOAD_PERCENT}% of the capacity, a new table is allocated, and each later write moves
+ * up to {@value #MIGRATION_BATCH} slots of the old table into it, so that no single write pays for
+ * the whole resize. While a migration is in progress, readers search the old table before the new
+ * one; an entry is copied to the new table before it is removed from the old one, so readers
+ * always find it. A reader that misses a key re-checks that no resize started while it searched.
+ * Tables are freed once {@link EpochGate#synchronize} shows no reader can still be in them.
+ * <p>
+ * The keys {@value #EMPTY} and {@link #TOMBSTONE} mark free and removed entries, so they are stored
+ * in fields instead of the table.
+ */
+abstract class OffHeapLongTable implements AutoCloseable {
+
+  static final long EMPTY = 0;
+  static final long TOMBSTONE = Long.MIN_VALUE;
+  private static final int ENTRY_SIZE = 16;
+  private static final int MAX_LOAD_PERCENT = 75;
+  private static final int MIGRATION_BATCH = 64;
+  private static final long MIN_CAPACITY = 16;
+
+  /** Entries of one generation of the table. */
+  private static final class Table {
+    final long address;
+    final long capacity;
+    final long mask;
+    final long threshold;
+    /** Written only under the monitor. */
+    long tombstones;
+
+    Table(long address, long capacity) {
+      this.address = address;
+      this.capacity = capacity;
+      this.mask = capacity - 1;
+      this.threshold = capacity * MAX_LOAD_PERCENT / 100;
+    }
+  }
+
+  /** The current table, and the one being migrated from, if any. */
+  private static final class Tables {
+    final Table current;
+    final Table old;
+
+    Tables(Table current, Table old) {
+      this.current = current;
+      this.old = old;
+    }
+  }
+
+  /** Receives the live entries of a table. */
+  interface SlotConsumer {
+    void accept(long key, long slot);
+  }
+
+  final LowLevelMemoryAccessor accessor;
+  final EpochGate gate = new EpochGate();
+  private volatile Tables tables;
+  /** Number of slots of {@link Tables#old} already migrated. Written only under the monitor. */
+  private long migrated;
+  private volatile long size;
+
+  private volatile boolean hasEmptyKey;
+  private volatile long emptyKeySlot;
+  private volatile boolean hasTombstoneKey;
+  private volatile long tombstoneKeySlot;
+
+  /** The slot displaced by the last write or removal. Written only under the monitor. */
+  long previousSlot;
+
+  OffHeapLongTable(LowLevelMemoryAccessor accessor, long expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Negative size: " + expectedSize);
+    }
+    this.accessor = accessor;
+    long capacity = MIN_CAPACITY;
+    while (capacity * MAX_LOAD_PERCENT / 100 < expectedSize) {
+      capacity <<= 1;
+    }
+    tables = new Tables(allocateTable(capacity), null);
+  }
+
+  private Table allocateTable(long capacity) {
+    long bytes = capacity * ENTRY_SIZE;
+    long address = accessor.allocateMemory(bytes);
+    accessor.setMemory(address, bytes, (byte) 0);
+    return new Table(address, capacity);
+  }
+
+  /** Murmur3's 64-bit finalizer, so that sequential keys don't form long probe runs. */
+  private static long hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    return key ^ (key >>> 33);
+  }
+
+  private static boolean isSpecial(long key) {
+    return key == EMPTY || key == TOMBSTONE;
+  }
+
+  /** Returns the number of entries. */
+  public long size() {
+    return size;
+  }
+
+  /** Returns the number of entries the current table has room for. */
+  public long capacity() {
+    return tables.current.capacity;
+  }
+
+  /**
+   * Returns the slot for the given key, or {@code absent} if there is none. Must be called between
+   * {@link EpochGate#enter} and {@link EpochGate#exit}, which also keep whatever the slot points to
+   * from being freed until then.
+   */
+  final long readSlot(long key, long absent) {
+    if (isSpecial(key)) {
+      if (key == EMPTY) {
+        return hasEmptyKey ? emptyKeySlot : absent;
+      }
+      return hasTombstoneKey ? tombstoneKeySlot : absent;
+    }
+    retry:
+    while (true) {
+      Tables tables = this.tables;
+      for (Table table = tables.old != null ? tables.old : tables.current; ;
+          table = tables.current) {
+        long index = hash(key) & table.mask;
+        while (true) {
+          long entry = table.address + index * ENTRY_SIZE;
+          long found = accessor.getLongVolatile(null, entry);
+          if (found == key) {
+            long slot = accessor.getLongVolatile(null, entry + 8);
+            if (accessor.getLongVolatile(null, entry) != key) {
+              // Removed or migrated while we were reading it
+              continue retry;
+            }
+            return slot;
+          } else if (found == EMPTY) {
+            break;
+          }
+          index = (index + 1) & table.mask;
+        }
+        if (table == tables.current) {
+          if (tables != this.tables) {
+            // A resize started, so the key may have been migrated out of the tables we searched
+            continue retry;
+          }
+          return absent;
+        }
+      }
+    }
+  }
+
+  /** Returns whether there is an entry for the given key. */
+  public boolean containsKey(long key) {
+    if (isSpecial(key)) {
+      return key == EMPTY ? hasEmptyKey : hasTombstoneKey;
+    }
+    int token = gate.enter();
+    try {
+      // The slot can be anything, so look for the key with two different defaults
+      return readSlot(key, 0) != 0 || readSlot(key, 1) != 1;
+    } finally {
+      gate.exit(token);
+    }
+  }
+
+  /** Returns the address of the entry for the given key in the given table, or 0 if none. */
+  private long find(Table table, long key) {
+    long index = hash(key) & table.mask;
+    while (true) {
+      long entry = table.address + index * ENTRY_SIZE;
+      long found = accessor.getLong(null, entry);
+      if (found == key) {
+        return entry;
+      } else if (found == EMPTY) {
+        return 0;
+      }
+      index = (index + 1) & table.mask;
+    }
+  }
+
+  /** Adds an entry for a key known to be absent from the table, which must have room for it. */
+  private void insert(Table table, long key, long slot) {
+    long index = hash(key) & table.mask;
+    while (true) {
+      long entry = table.address + index * ENTRY_SIZE;
+      long found = accessor.getLong(null, entry);
+      if (found == EMPTY || found == TOMBSTONE) {
+        if (found == TOMBSTONE) {
+          table.tombstones--;
+        }
+        accessor.putLong(null, entry + 8, slot);
+        accessor.putLongVolatile(null, entry, key);
+        return;
+      }
+      index = (index + 1) & table.mask;
+    }
+  }
+
+  private void remove(Table table, long entry) {
+    accessor.putLongVolatile(null, entry, TOMBSTONE);
+    table.tombstones++;
+  }
+
+  /**
+   * Maps the given key to the given slot. Returns true if the key was absent; otherwise, sets
+   * {@link #previousSlot} to the slot it replaced.
+   */
+  final synchronized boolean writeSlot(long key, long slot) {
+    if (isSpecial(key)) {
+      boolean added;
+      if (key == EMPTY) {
+        previousSlot = emptyKeySlot;
+        added = !hasEmptyKey;
+        emptyKeySlot = slot;
+        hasEmptyKey = true;
+      } else {
+        previousSlot = tombstoneKeySlot;
+        added = !hasTombstoneKey;
+        tombstoneKeySlot = slot;
+        hasTombstoneKey = true;
+      }
+      if (added) {
+        size++;
+      }
+      return added;
+    }
+    Tables tables = migrate(MIGRATION_BATCH);
+    if (size + tables.current.tombstones >= tables.current.threshold) {
+      resize();
+      tables = this.tables;
+    }
+    if (tables.old != null) {
+      long entry = find(tables.old, key);
+      if (entry != 0) {
+        previousSlot = accessor.getLong(null, entry + 8);
+        insert(tables.current, key, slot);
+        remove(tables.old, entry);
+        return false;
+      }
+    }
+    Table table = tables.current;
+    long entry = find(table, key);
+    if (entry != 0) {
+      previousSlot = accessor.getLong(null, entry + 8);
+      accessor.putLongVolatile(null, entry + 8, slot);
+      return false;
+    }
+    insert(table, key, slot);
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes the entry for the given key. Returns true if there was one, and sets
+   * {@link #previousSlot} to its slot.
+   */
+  final synchronized boolean removeSlot(long key) {
+    if (isSpecial(key)) {
+      boolean removed;
+      if (key == EMPTY) {
+        previousSlot = emptyKeySlot;
+        removed = hasEmptyKey;
+        hasEmptyKey = false;
+      } else {
+        previousSlot = tombstoneKeySlot;
+        removed = hasTombstoneKey;
+        hasTombstoneKey = false;
+      }
+      if (removed) {
+        size--;
+      }
+      return removed;
+    }
+    Tables tables = migrate(MIGRATION_BATCH);
+    for (Table table : new Table[] {tables.old, tables.current}) {
+      if (table != null) {
+        long entry = find(table, key);
+        if (entry != 0) {
+          previousSlot = accessor.getLong(null, entry + 8);
+          remove(table, entry);
+          size--;
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Starts moving the entries to a new table, twice as large unless most of the current table is
+   * tombstones, after finishing any migration in progress.
+   */
+  private void resize() {
+    migrate(Long.MAX_VALUE);
+    Table table = tables.current;
+    long capacity = table.capacity;
+    if (size >= table.threshold / 2) {
+      capacity <<= 1;
+    }
+    Table resized = allocateTable(capacity);
+    migrated = 0;
+    tables = new Tables(resized, table);
+  }
+
+  /**
+   * Moves up to the given number of slots from the old table to the current one, and frees the
+   * old table once it is empty. Returns the tables as they are afterwards.
+   */
+  private Tables migrate(long slots) {
+    Tables tables = this.tables;
+    Table old = tables.old;
+    if (old == null) {
+      return tables;
+    }
+    long end = Math.min(old.capacity, migrated + Math.min(slots, old.capacity));
+    for (; migrated < end; migrated++) {
+      long entry = old.address + migrated * ENTRY_SIZE;
+      long key = accessor.getLong(null, entry);
+      if (key != EMPTY && key != TOMBSTONE) {
+        insert(tables.current, key, accessor.getLong(null, entry + 8));
+        remove(old, entry);
+      }
+    }
+    if (migrated < old.capacity) {
+      return tables;
+    }
+    tables = new Tables(tables.current, null);
+    this.tables = tables;
+    gate.synchronize();
+    accessor.freeMemory(old.address);
+    return tables;
+  }
+
+  /**
+   * Passes every entry to the given consumer. Writers are blocked until this returns, so the
+   * consumer must not modify this table.
+   */
+  final synchronized void forEachSlot(SlotConsumer consumer) {
+    if (hasEmptyKey) {
+      consumer.accept(EMPTY, emptyKeySlot);
+    }
+    if (hasTombstoneKey) {
+      consumer.accept(TOMBSTONE, tombstoneKeySlot);
+    }
+    Tables tables = this.tables;
+    for (Table table : new Table[] {tables.old, tables.current}) {
+      if (table != null) {
+        for (long index = 0; index < table.capacity; index++) {
+          long entry = table.address + index * ENTRY_SIZE;
+          long key = accessor.getLong(null, entry);
+          if (key != EMPTY && key != TOMBSTONE) {
+            consumer.accept(key, accessor.getLong(null, entry + 8));
+          }
+        }
+      }
+    }
+  }
+
+  final boolean isClosed() {
+    return tables == null;
+  }
+
+  /**
+   * Frees the table's native memory. The table must not be used afterwards, including by readers
+   * that are still running.
+   */
+  @Override
+  public synchronized void close() {
+    Tables tables = this.tables;
+    if (tables == null) {
+      return;
+    }
+    this.tables = null;
+    gate.synchronize();
+    accessor.freeMemory(tables.current.address);
+    if (tables.old != null) {
+      accessor.freeMemory(tables.old.address);
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+package sunset.memory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Copies and fills large blocks of native memory on several threads, for the multi-gigabyte
+ * regions where a single {@link LowLevelMemoryAccessor#copyMemory} or
+ * {@link LowLevelMemoryAccessor#setMemory} call is bound by one core's memory bandwidth.
+ * <p>
+ * Blocks of at least the threshold are split into chunks on page boundaries of the destination,
+ * so that no two threads write to the same page, and the chunks are processed in a
+ * {@link ForkJoinPool}. Smaller blocks, overlapping copies, and pools with a single worker take the
+ * accessor's single-threaded path.
+ */
+public final class ParallelMemory {
+
+  /** Default number of bytes below which blocks are not split. */
+  public static final long DEFAULT_THRESHOLD = 16 << 20;
+  /** Smallest chunk a block is split into. */
+  private static final long MIN_CHUNK = 1 << 20;
+
+  /** Processes one chunk of a block. */
+  private interface ChunkAction {
+    void apply(long offset, long bytes);
+  }
+
+  /** Splits a range of chunks in halves until there is one left. */
+  private static final class ChunkTask extends RecursiveAction {
+    private final long start;
+    private final long end;
+    private final long firstBoundary;
+    private final long chunkSize;
+    private final long from;
+    private final long to;
+    private final ChunkAction action;
+
+    /**
+     * Processes chunks {@code [from, to)} of the block {@code [start, end)}, where each chunk but
+     * the first and last begins at a multiple of the chunk size past the first boundary.
+     */
+    ChunkTask(long start, long end, long firstBoundary, long chunkSize, long from, long to,
+        ChunkAction action) {
+      this.start = start;
+      this.end = end;
+      this.firstBoundary = firstBoundary;
+      this.chunkSize = chunkSize;
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    private long boundary(long chunk) {
+      return chunk == 0 ? start : Math.min(end, firstBoundary + (chunk - 1) * chunkSize);
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        long chunkStart = boundary(from);
+        action.apply(chunkStart - start, boundary(to) - chunkStart);
+      } else {
+        long mid = (from + to) >>> 1;
+        invokeAll(new ChunkTask(start, end, firstBoundary, chunkSize, from, mid, action),
+            new ChunkTask(start, end, firstBoundary, chunkSize, mid, to, action));
+      }
+    }
+  }
+
+  private final LowLevelMemoryAccessor accessor;
+  /** The pool to use, or null to use the current thread's pool, or else the common pool. */
+  private final ForkJoinPool pool;
+  private final long threshold;
+
+  /**
+   * Creates an instance that splits blocks of at least {@value #DEFAULT_THRESHOLD} bytes, and
+   * processes them in the {@link ForkJoinPool} of the calling thread if it is in one, or else in
+   * the common pool.
+   */
+  public ParallelMemory(LowLevelMemoryAccessor accessor) {
+    this(accessor, null, DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Creates an instance that splits blocks of at least the given number of bytes, and processes
+   * them in the given pool, or as {@link #ParallelMemory(LowLevelMemoryAccessor)} does if it is
+   * null.
+   *
+   * @throws IllegalArgumentException if the threshold is negative
+   */
+  public ParallelMemory(LowLevelMemoryAccessor accessor, ForkJoinPool pool, long threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Negative threshold: " + threshold);
+    }
+    this.accessor = accessor;
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+
+  /** Returns the number of bytes below which blocks are not split. */
+  public long threshold() {
+    return threshold;
+  }
+
+  /**
+   * Copies the given number of bytes from one address to another. Overlapping blocks are copied by
+   * a single {@link LowLevelMemoryAccessor#copyMemory} call, which handles them.
+   *
+   * @throws IllegalArgumentException if the size is negative
+   */
+  public void copyMemory(long srcAddress, long destAddress, long bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    }
+    boolean overlapping = srcAddress < destAddress + bytes && destAddress < srcAddress + bytes;
+    if (overlapping || !split(destAddress, bytes, (offset, chunk) -> accessor.copyMemory(
+        srcAddress + offset, destAddress + offset, chunk))) {
+      accessor.copyMemory(srcAddress, destAddress, bytes);
+    }
+  }
+
+  /**
+   * Sets the given number of bytes at the given address to the given value.
+   *
+   * @throws IllegalArgumentException if the size is negative
+   */
+  public void setMemory(long address, long bytes, byte value) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    }
+    if (!split(address, bytes,
+        (offset, chunk) -> accessor.setMemory(address + offset, chunk, value))) {
+      accessor.setMemory(address, bytes, value);
+    }
+  }
+
+  /**
+   * Applies the action to page-aligned chunks of the block in parallel, and returns true, or
+   * returns false if the block should be processed in one piece instead.
+   */
+  private boolean split(long address, long bytes, ChunkAction action) {
+    ForkJoinPool pool = this.pool;
+    if (pool == null) {
+      pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+    }
+    int parallelism = pool.getParallelism();
+    if (bytes < threshold || bytes < 2 * MIN_CHUNK || parallelism <= 1) {
+      return false;
+    }
+    long pageSize = accessor.pageSize();
+    // About four chunks per worker, so that faster workers can take more of them
+    long chunkSize = Math.max(MIN_CHUNK, bytes / (4L * parallelism));
+    chunkSize = (chunkSize + pageSize - 1) & -pageSize;
+    long end = address + bytes;
+    long firstBoundary = ((address + pageSize - 1) & -pageSize) + chunkSize;
+    long chunks = 1;
+    if (firstBoundary < end) {
+      chunks += (end - firstBoundary + chunkSize - 1) / chunkSize;
+    }
+    ChunkTask task = new ChunkTask(address, end, firstBoundary, chunkSize, 0, chunks, action);
+    if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+      task.invoke();
+    } else {
+      pool.invoke(task);
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,303 @@
+package sunset.memory;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes strings into native memory as UTF-8 or Latin-1, and decodes them back, without the
+ * intermediate {@code byte[]} of {@link String#getBytes} and {@code new String(byte[])}.
+ * <p>
+ * ASCII text is found eight bytes at a time, and copied in bulk. When the accessor can read the
+ * private fields of {@link String}, and the string is stored as Latin-1 (which JDK 9 and later do
+ * for strings with no char above U+00FF), bytes are read straight from its backing array;
+ * otherwise they go through {@link String#charAt}. Decoding goes through a per-thread scratch
+ * array, so that the only allocation is the resulting string.
+ * <p>
+ * Like {@link String#getBytes(java.nio.charset.Charset)}, chars that can't be encoded, such as
+ * unpaired surrogates in UTF-8, are written as {@code '?'}; like
+ * {@link String#String(byte[], java.nio.charset.Charset)}, malformed UTF-8 is decoded as
+ * U+FFFD. Addresses are not checked: callers must make sure there is room for
+ * {@link #utf8Length} or {@link String#length} bytes.
+ */
+public final class StringCodec {
+
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  /** Largest scratch array kept for reuse by each thread. */
+  private static final int MAX_SCRATCH = 8192;
+
+  /** Per-thread arrays that strings are decoded into. */
+  private static final class Scratch {
+    byte[] bytes = new byte[64];
+    char[] chars = new char[64];
+  }
+
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  private final LowLevelMemoryAccessor accessor;
+  private final long byteBase;
+  /** Offset of {@code String.value}, or -1 if strings' bytes can't be read directly. */
+  private final long valueOffset;
+  private final long coderOffset;
+
+  public StringCodec(LowLevelMemoryAccessor accessor) {
+    this.accessor = accessor;
+    this.byteBase = accessor.arrayBaseOffset(byte[].class);
+    long valueOffset = -1;
+    long coderOffset = -1;
+    try {
+      Field value = String.class.getDeclaredField("value");
+      Field coder = String.class.getDeclaredField("coder");
+      if (value.getType() == byte[].class && coder.getType() == byte.class) {
+        valueOffset = accessor.objectFieldOffset(value);
+        coderOffset = accessor.objectFieldOffset(coder);
+        // Make sure the fields mean what we expect: "a" is stored as Latin-1, U+0100 is not
+        String latin1 = new String(new char[] {'a'});
+        Object bytes = accessor.getObject(latin1, valueOffset);
+        if (!(bytes instanceof byte[]) || ((byte[]) bytes).length != 1
+            || accessor.getByte(latin1, coderOffset) != 0
+            || accessor.getByte(new String(new char[] {'\u0100'}), coderOffset) == 0) {
+          valueOffset = -1;
+        }
+      }
+    } catch (NoSuchFieldException | RuntimeException e) {
+      // Strings are char[] before JDK 9, or the accessor can't open java.lang
+      valueOffset = -1;
+    }
+    this.valueOffset = valueOffset;
+    this.coderOffset = coderOffset;
+  }
+
+  /** Returns the bytes of the given string if they are Latin-1, or null. */
+  private byte[] latin1Bytes(String s) {
+    if (valueOffset < 0 || accessor.getByte(s, coderOffset) != 0) {
+      return null;
+    }
+    return (byte[]) accessor.getObject(s, valueOffset);
+  }
+
+  /** Returns the number of bytes {@link #encodeUtf8} writes for the given string. */
+  public int utf8Length(String s) {
+    byte[] latin1 = latin1Bytes(s);
+    int length = s.length();
+    int bytes = length;
+    int i = 0;
+    if (latin1 != null) {
+      for (; i <= length - 8; i += 8) {
+        bytes += Long.bitCount(accessor.getLong(latin1, byteBase + i) & HIGH_BITS);
+      }
+      for (; i < length; i++) {
+        bytes += latin1[i] >>> 31;
+      }
+      return bytes;
+    }
+    for (; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          bytes++;
+        } else if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(s.charAt(i + 1))) {
+          // Four bytes for two chars
+          bytes += 2;
+          i++;
+        } else if (!Character.isSurrogate(c)) {
+          bytes += 2;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes the given string as UTF-8 at the given address, and returns the number of bytes
+   * written, which is {@link #utf8Length}.
+   */
+  public int encodeUtf8(String s, long address) {
+    int length = s.length();
+    long start = address;
+    int i = 0;
+    byte[] latin1 = latin1Bytes(s);
+    if (latin1 != null) {
+      i = asciiPrefix(latin1, length);
+      accessor.copyMemory(latin1, byteBase, null, address, i);
+      address += i;
+      for (; i < length; i++) {
+        int c = latin1[i] & 0xff;
+        if (c < 0x80) {
+          accessor.putByte(null, address++, (byte) c);
+        } else {
+          accessor.putByte(null, address++, (byte) (0xc0 | (c >> 6)));
+          accessor.putByte(null, address++, (byte) (0x80 | (c & 0x3f)));
+        }
+      }
+      return (int) (address - start);
+    }
+    for (; i < length; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        accessor.putByte(null, address++, (byte) c);
+      } else if (c < 0x800) {
+        accessor.putByte(null, address++, (byte) (0xc0 | (c >> 6)));
+        accessor.putByte(null, address++, (byte) (0x80 | (c & 0x3f)));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, s.charAt(++i));
+          accessor.putByte(null, address++, (byte) (0xf0 | (cp >> 18)));
+          accessor.putByte(null, address++, (byte) (0x80 | ((cp >> 12) & 0x3f)));
+          accessor.putByte(null, address++, (byte) (0x80 | ((cp >> 6) & 0x3f)));
+          accessor.putByte(null, address++, (byte) (0x80 | (cp & 0x3f)));
+        } else {
+          accessor.putByte(null, address++, (byte) '?');
+        }
+      } else {
+        accessor.putByte(null, address++, (byte) (0xe0 | (c >> 12)));
+        accessor.putByte(null, address++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+        accessor.putByte(null, address++, (byte) (0x80 | (c & 0x3f)));
+      }
+    }
+    return (int) (address - start);
+  }
+
+  /**
+   * Writes the given string as Latin-1 at the given address, one byte per char, and returns the
+   * number of bytes written, which is the string's length. Unlike {@link String#getBytes}, a
+   * surrogate pair is written as two {@code '?'}s, not one.
+   */
+  public int encodeLatin1(String s, long address) {
+    int length = s.length();
+    byte[] latin1 = latin1Bytes(s);
+    if (latin1 != null) {
+      accessor.copyMemory(latin1, byteBase, null, address, length);
+      return length;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      accessor.putByte(null, address + i, (byte) (c <= 0xff ? c : '?'));
+    }
+    return length;
+  }
+
+  /** Returns the string encoded as Latin-1 in the given number of bytes at the given address. */
+  public String decodeLatin1(long address, int bytes) {
+    byte[] scratch = scratchBytes(bytes);
+    accessor.copyMemory(null, address, scratch, byteBase, bytes);
+    return new String(scratch, 0, bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  /** Returns the string encoded as UTF-8 in the given number of bytes at the given address. */
+  public String decodeUtf8(long address, int bytes) {
+    byte[] scratch = scratchBytes(bytes);
+    accessor.copyMemory(null, address, scratch, byteBase, bytes);
+    int ascii = asciiPrefix(scratch, bytes);
+    if (ascii == bytes) {
+      return new String(scratch, 0, bytes, StandardCharsets.ISO_8859_1);
+    }
+    return decodeUtf8(address, bytes, scratch, ascii);
+  }
+
+  /** Returns the number of ASCII bytes at the start of the first {@code length} of the array. */
+  private int asciiPrefix(byte[] bytes, int length) {
+    int i = 0;
+    for (; i <= length - 8; i += 8) {
+      if ((accessor.getLong(bytes, byteBase + i) & HIGH_BITS) != 0) {
+        break;
+      }
+    }
+    while (i < length && bytes[i] >= 0) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Decodes the rest of a UTF-8 string, whose first {@code ascii} bytes are already in scratch. */
+  private String decodeUtf8(long address, int bytes, byte[] scratch, int ascii) {
+    // Never more chars than bytes
+    char[] chars = scratchChars(bytes);
+    for (int j = 0; j < ascii; j++) {
+      chars[j] = (char) scratch[j];
+    }
+    int count = ascii;
+    long end = address + bytes;
+    address += ascii;
+    while (address < end) {
+      int b = accessor.getByte(null, address);
+      if (b >= 0) {
+        chars[count++] = (char) b;
+        address++;
+        continue;
+      }
+      b &= 0xff;
+      int needed;
+      int min = 0x80;
+      int max = 0xbf;
+      if (b >= 0xc2 && b <= 0xdf) {
+        needed = 1;
+      } else if (b >= 0xe0 && b <= 0xef) {
+        needed = 2;
+        if (b == 0xe0) {
+          // No overlong encodings
+          min = 0xa0;
+        }
+      } else if (b >= 0xf0 && b <= 0xf4) {
+        needed = 3;
+        if (b == 0xf0) {
+          min = 0x90;
+        } else if (b == 0xf4) {
+          // Nothing above U+10FFFF
+          max = 0x8f;
+        }
+      } else {
+        chars[count++] = '\ufffd';
+        address++;
+        continue;
+      }
+      int cp = b & (0x3f >> needed);
+      int consumed = 1;
+      for (; consumed <= needed && address + consumed < end; consumed++) {
+        int next = accessor.getByte(null, address + consumed) & 0xff;
+        if (next < min || next > max) {
+          break;
+        }
+        cp = (cp << 6) | (next & 0x3f);
+        min = 0x80;
+        max = 0xbf;
+      }
+      address += consumed;
+      if (consumed <= needed) {
+        // Replace the longest valid prefix of the sequence
+        chars[count++] = '\ufffd';
+      } else if (cp < 0x10000) {
+        // An encoded surrogate is replaced as a whole, as by the JDK's decoder
+        chars[count++] = Character.isSurrogate((char) cp) ? '\ufffd' : (char) cp;
+      } else {
+        chars[count++] = Character.highSurrogate(cp);
+        chars[count++] = Character.lowSurrogate(cp);
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  private static byte[] scratchBytes(int length) {
+    if (length > MAX_SCRATCH) {
+      return new byte[length];
+    }
+    Scratch scratch = SCRATCH.get();
+    if (scratch.bytes.length < length) {
+      scratch.bytes = new byte[Math.max(length, 2 * scratch.bytes.length)];
+    }
+    return scratch.bytes;
+  }
+
+  private static char[] scratchChars(int length) {
+    if (length > MAX_SCRATCH) {
+      return new char[length];
+    }
+    Scratch scratch = SCRATCH.get();
+    if (scratch.chars.length < length) {
+      scratch.chars = new char[Math.max(length, 2 * scratch.chars.length)];
+    }
+    return scratch.chars;
+  }
+
+}
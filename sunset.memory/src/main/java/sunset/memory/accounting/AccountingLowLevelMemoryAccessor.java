@@ -0,0 +1,463 @@
+package sunset.memory.accounting;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import sunset.memory.ForwardingLowLevelMemoryAccessor;
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A {@link LowLevelMemoryAccessor} that keeps count of the native memory allocated through it, so
+ * that off-heap usage can be monitored and leaks can be traced to the code that allocated them.
+ * Every other method is forwarded to the underlying accessor.
+ * <p>
+ * One allocation in {@link #sampleInterval()}, on average, is sampled: the caller's stack is
+ * captured and kept until the block is freed, and its size, scaled by the interval, is added to a
+ * per-call-site histogram. {@link #leaks()} returns the sampled blocks that are still allocated,
+ * and {@link #reportLeaksAtShutdown} prints them when the JVM exits. An interval of 1 samples every
+ * allocation, which finds every leak but is expensive.
+ * <p>
+ * By default, only sampled allocations are counted, and {@link #liveBytes()} and the
+ * {@link #statistics()} are estimated from them by scaling by the interval. An allocation that
+ * isn't sampled then costs a decrement of its thread's countdown, and a free one load from a small
+ * table that tells whether the address may have been sampled. That adds about 3 ns to a 64-byte
+ * allocate and free pair that takes about 70 ns with the C allocator; at the default interval of
+ * {@value #DEFAULT_SAMPLE_INTERVAL}, the samples themselves add less than 1 ns.
+ * <p>
+ * An accessor created with {@link #exact} counts every block instead, which adds about 10 ns to
+ * the pair. Each block is then allocated with a {@value #HEADER_SIZE}-byte header that holds its
+ * size, so that {@link #freeMemory} can account for it without a lookup; blocks are therefore
+ * aligned to 8 bytes, which is enough for all Java value types. Each thread counts its allocations
+ * and frees in counters of its own, which only it writes, so the counters cost no atomic
+ * instructions and threads allocating concurrently don't contend on them. Reading the totals sums
+ * the counters of every thread, and folds those of threads that have exited into a single total.
+ * <p>
+ * In either mode the peak of the live bytes is only checked on sampled allocations, so
+ * {@link AccountingStatistics#sampledPeakBytes} is a lower bound. Where even sampling matters,
+ * account for a {@link sunset.memory.pool.PooledLowLevelMemoryAccessor}'s segments rather than for
+ * each block.
+ * <p>
+ * Only addresses returned by this accessor may be passed to its {@link #freeMemory} and
+ * {@link #reallocateMemory}, and vice versa.
+ */
+public class AccountingLowLevelMemoryAccessor extends ForwardingLowLevelMemoryAccessor {
+
+  /** The sample interval used unless another is given. */
+  public static final int DEFAULT_SAMPLE_INTERVAL = 16 * 1024;
+
+  /** Space before each block of an {@link #exact} accessor, which holds its size. */
+  static final int HEADER_SIZE = 8;
+
+  /** Frames kept for each sampled allocation. */
+  private static final int MAX_STACK_DEPTH = 32;
+
+  private static final String CLASS_NAME = AccountingLowLevelMemoryAccessor.class.getName();
+
+  private static final int ALLOCATIONS = 0;
+  private static final int FREES = 1;
+  private static final int ALLOCATED_BYTES = 2;
+  private static final int FREED_BYTES = 3;
+  private static final int COUNTERS = 4;
+
+  /** Size of {@link #recent}, and number of {@link #countdowns}. */
+  private static final int RECENT_THREADS = 64;
+
+  /** Distance between two {@link #countdowns}, so that they fall on different cache lines. */
+  private static final int COUNTDOWN_SPACING = 16;
+
+  /** Size of {@link #sampledFilter}, a power of two. */
+  private static final int FILTER_SIZE = 4096;
+
+  /**
+   * A thread's counters, indexed by {@link #ALLOCATIONS} and so on. Only that thread writes them,
+   * with {@link AtomicLongArray#lazySet}, so that other threads can read them without tearing.
+   * Only {@link #exact} accessors use them.
+   */
+  private static final class Counters extends AtomicLongArray {
+    final Thread thread = Thread.currentThread();
+
+    Counters() {
+      super(COUNTERS);
+    }
+
+    void add(int index, long delta) {
+      lazySet(index, get(index) + delta);
+    }
+  }
+
+  private final int sampleInterval;
+  private final boolean exact;
+  private final ThreadLocal<Counters> counters = ThreadLocal.withInitial(this::register);
+  /**
+   * Counters of recently seen threads, indexed by thread ID, which are cheaper to look up than
+   * {@link #counters}. An entry is only used by the thread it belongs to.
+   */
+  private final Counters[] recent = new Counters[RECENT_THREADS];
+  /**
+   * Allocations until the next sample, indexed by thread ID times {@link #COUNTDOWN_SPACING}.
+   * Threads whose IDs collide share a countdown, which only makes the samples a little less even.
+   */
+  private final int[] countdowns = new int[RECENT_THREADS * COUNTDOWN_SPACING];
+  /** The counters of every live thread. Guarded by this accessor's monitor. */
+  private final List<Counters> threads = new ArrayList<>();
+  /** The sums of the counters of threads that have exited. Guarded by this accessor's monitor. */
+  private final long[] exited = new long[COUNTERS];
+  /*
+   * Sampled allocations are rare, so the fields below are guarded by this accessor's monitor, which
+   * is cheaper for code that stays cold than atomics and concurrent maps.
+   */
+  /** The counters of the sampled allocations, which estimate the totals unless {@link #exact}. */
+  private final long[] sampledTotals = new long[COUNTERS];
+  /**
+   * The number of sampled blocks whose address hashes to each entry, so that freeing a block that
+   * wasn't sampled needs no lookup in {@link #sampled}. It is read without the monitor, since a
+   * block is sampled before its address is returned to anyone who could free it.
+   */
+  private final int[] sampledFilter = new int[FILTER_SIZE];
+  private long sampledPeakBytes;
+  private final Map<Long, AllocationRecord> sampled = new HashMap<>();
+  private final Map<StackTraceElement, Long> bytesBySite = new HashMap<>();
+
+  /** Creates an accessor that samples with the {@link #DEFAULT_SAMPLE_INTERVAL}. */
+  public AccountingLowLevelMemoryAccessor(LowLevelMemoryAccessor delegate) {
+    this(delegate, DEFAULT_SAMPLE_INTERVAL);
+  }
+
+  /**
+   * Creates an accessor that samples one allocation in the given number, on average, and
+   * estimates its totals from the samples.
+   *
+   * @throws IllegalArgumentException if the interval isn't positive
+   */
+  public AccountingLowLevelMemoryAccessor(LowLevelMemoryAccessor delegate, int sampleInterval) {
+    this(delegate, sampleInterval, false);
+  }
+
+  private AccountingLowLevelMemoryAccessor(LowLevelMemoryAccessor delegate, int sampleInterval,
+      boolean exact) {
+    super(delegate);
+    if (sampleInterval <= 0) {
+      throw new IllegalArgumentException("Sample interval must be positive: " + sampleInterval);
+    }
+    this.sampleInterval = sampleInterval;
+    this.exact = exact;
+    for (int i = 0; i < countdowns.length; i += COUNTDOWN_SPACING) {
+      countdowns[i] = nextCountdown();
+    }
+  }
+
+  /**
+   * Returns an accessor that counts every block exactly, and samples one allocation in the given
+   * number, on average.
+   *
+   * @throws IllegalArgumentException if the interval isn't positive
+   */
+  public static AccountingLowLevelMemoryAccessor exact(LowLevelMemoryAccessor delegate,
+      int sampleInterval) {
+    return new AccountingLowLevelMemoryAccessor(delegate, sampleInterval, true);
+  }
+
+  private synchronized Counters register() {
+    sweep();
+    Counters counters = new Counters();
+    threads.add(counters);
+    return counters;
+  }
+
+  /** Returns the current thread's counters. */
+  private Counters counters() {
+    Thread thread = Thread.currentThread();
+    int index = (int) thread.getId() & (RECENT_THREADS - 1);
+    Counters counters = recent[index];
+    return counters != null && counters.thread == thread ? counters : countersSlow(index);
+  }
+
+  private Counters countersSlow(int index) {
+    Counters counters = this.counters.get();
+    Counters other = recent[index];
+    if (other == null || !other.thread.isAlive()) {
+      recent[index] = counters;
+    }
+    return counters;
+  }
+
+  /** Folds the counters of threads that have exited into {@link #exited}. */
+  private void sweep() {
+    threads.removeIf(counters -> {
+      if (counters.thread.isAlive()) {
+        return false;
+      }
+      for (int i = 0; i < COUNTERS; i++) {
+        exited[i] += counters.get(i);
+      }
+      return true;
+    });
+  }
+
+  /** Returns the totals of every thread's counters, or their estimates unless {@link #exact}. */
+  private synchronized long[] totals() {
+    long[] totals = new long[COUNTERS];
+    if (!exact) {
+      for (int i = 0; i < COUNTERS; i++) {
+        totals[i] = sampledTotals[i] * sampleInterval;
+      }
+      return totals;
+    }
+    sweep();
+    System.arraycopy(exited, 0, totals, 0, COUNTERS);
+    for (Counters counters : threads) {
+      for (int i = 0; i < COUNTERS; i++) {
+        totals[i] += counters.get(i);
+      }
+    }
+    return totals;
+  }
+
+  /** Returns the average number of allocations per sampled allocation. */
+  public int sampleInterval() {
+    return sampleInterval;
+  }
+
+  /** Returns whether every block is counted, rather than the totals estimated from samples. */
+  public boolean isExact() {
+    return exact;
+  }
+
+  @Override
+  public long allocateMemory(long bytes) {
+    if (!exact) {
+      return allocated(delegate.allocateMemory(bytes), bytes);
+    }
+    if (bytes <= 0 || bytes > Long.MAX_VALUE - HEADER_SIZE) {
+      return delegate.allocateMemory(bytes);
+    }
+    return track(delegate.allocateMemory(bytes + HEADER_SIZE), bytes);
+  }
+
+  @Override
+  public long reallocateMemory(long address, long bytes) {
+    if (address == 0) {
+      return allocateMemory(bytes);
+    }
+    if (bytes == 0) {
+      freeMemory(address);
+      return 0;
+    }
+    long extra = exact ? HEADER_SIZE : 0;
+    if (bytes < 0 || bytes > Long.MAX_VALUE - extra) {
+      throw new IllegalArgumentException("Invalid size: " + bytes);
+    }
+    long block = address - extra;
+    long header = exact ? delegate.getLong(null, block) : 0;
+    // Drop the record before reallocating, as another thread may get this address afterwards
+    AllocationRecord record = mayBeSampled(address) ? removeSample(address) : null;
+    long reallocated;
+    try {
+      reallocated = delegate.reallocateMemory(block, bytes + extra);
+    } catch (RuntimeException | Error e) {
+      if (record != null) {
+        synchronized (this) {
+          sampled.put(address, record);
+        }
+      }
+      throw e;
+    }
+    if (record != null) {
+      sampleFreed(address, record);
+    }
+    if (!exact) {
+      return allocated(reallocated, bytes);
+    }
+    untrack(header);
+    return track(reallocated, bytes);
+  }
+
+  @Override
+  public void freeMemory(long address) {
+    if (address == 0) {
+      return;
+    }
+    if (mayBeSampled(address)) {
+      AllocationRecord record = removeSample(address);
+      if (record != null) {
+        sampleFreed(address, record);
+      }
+    }
+    if (!exact) {
+      delegate.freeMemory(address);
+      return;
+    }
+    long block = address - HEADER_SIZE;
+    untrack(delegate.getLong(null, block));
+    delegate.freeMemory(block);
+  }
+
+  /** Samples a newly allocated block if it is due, for an accessor that isn't {@link #exact}. */
+  private long allocated(long address, long bytes) {
+    if (countDown()) {
+      sample(address, bytes);
+    }
+    return address;
+  }
+
+  /** Counts down the current thread's allocations, and returns whether one is due to be sampled. */
+  private boolean countDown() {
+    int index = ((int) Thread.currentThread().getId() & (RECENT_THREADS - 1)) * COUNTDOWN_SPACING;
+    // Below zero if threads sharing the countdown raced
+    if (--countdowns[index] > 0) {
+      return false;
+    }
+    countdowns[index] = nextCountdown();
+    return true;
+  }
+
+  /** Writes the header of a newly allocated block and counts it. Returns the caller's address. */
+  private long track(long block, long bytes) {
+    long address = block + HEADER_SIZE;
+    Counters counters = counters();
+    delegate.putLong(null, block, bytes);
+    counters.add(ALLOCATIONS, 1);
+    counters.add(ALLOCATED_BYTES, bytes);
+    if (countDown()) {
+      sample(address, bytes);
+    }
+    return address;
+  }
+
+  /**
+   * Returns a random number of allocations to skip until the next sample, averaging
+   * {@link #sampleInterval}, so that samples don't fall into step with a periodic allocation
+   * pattern.
+   */
+  private int nextCountdown() {
+    return (int) (1 + ThreadLocalRandom.current().nextLong(2L * sampleInterval - 1));
+  }
+
+  private void untrack(long bytes) {
+    Counters counters = counters();
+    counters.add(FREES, 1);
+    counters.add(FREED_BYTES, bytes);
+  }
+
+  /** Returns the entry of {@link #sampledFilter} for the given address. */
+  private static int filterIndex(long address) {
+    return (int) (address * 0x9E3779B97F4A7C15L >>> 52);
+  }
+
+  /** Returns false if the block at the given address is certainly not sampled. */
+  private boolean mayBeSampled(long address) {
+    return sampledFilter[filterIndex(address)] != 0;
+  }
+
+  private void sample(long address, long bytes) {
+    if (address == 0) {
+      return;
+    }
+    // A Throwable's stack is captured by the VM in one go, which, while sampling is rare enough for
+    // this code to stay cold, is several times cheaper than a StackWalker's stream
+    StackTraceElement[] frames = new Throwable().getStackTrace();
+    int from = 0;
+    while (from < frames.length && frames[from].getClassName().equals(CLASS_NAME)) {
+      from++;
+    }
+    StackTraceElement[] stack =
+        Arrays.copyOfRange(frames, from, Math.min(frames.length, from + MAX_STACK_DEPTH));
+    addSample(new AllocationRecord(address, bytes, Thread.currentThread().getName(), stack));
+  }
+
+  private synchronized void addSample(AllocationRecord record) {
+    sampled.put(record.address(), record);
+    sampledFilter[filterIndex(record.address())]++;
+    sampledTotals[ALLOCATIONS]++;
+    sampledTotals[ALLOCATED_BYTES] += record.size();
+    StackTraceElement site = record.site();
+    if (site != null) {
+      bytesBySite.merge(site, record.size() * sampleInterval, Long::sum);
+    }
+    updatePeak(totals());
+  }
+
+  private synchronized AllocationRecord removeSample(long address) {
+    return sampled.remove(address);
+  }
+
+  /** Accounts for a sampled block whose record has been removed from {@link #sampled}. */
+  private synchronized void sampleFreed(long address, AllocationRecord record) {
+    sampledFilter[filterIndex(address)]--;
+    sampledTotals[FREES]++;
+    sampledTotals[FREED_BYTES] += record.size();
+  }
+
+  private synchronized long updatePeak(long[] totals) {
+    sampledPeakBytes = Math.max(sampledPeakBytes, totals[ALLOCATED_BYTES] - totals[FREED_BYTES]);
+    return sampledPeakBytes;
+  }
+
+  /**
+   * Returns the bytes currently allocated through this accessor, estimated from the sampled blocks
+   * unless it is {@link #exact}.
+   */
+  public long liveBytes() {
+    long[] totals = totals();
+    return totals[ALLOCATED_BYTES] - totals[FREED_BYTES];
+  }
+
+  /**
+   * Returns a snapshot of the counters, estimated from the sampled blocks unless this accessor is
+   * {@link #exact}. Snapshots taken at different times can be compared to get allocation and free
+   * rates.
+   */
+  public synchronized AccountingStatistics statistics() {
+    long[] totals = totals();
+    long peak = updatePeak(totals);
+    Map<StackTraceElement, Long> sites = new HashMap<>(bytesBySite);
+    return new AccountingStatistics(System.nanoTime(), totals[ALLOCATIONS], totals[FREES],
+        totals[ALLOCATED_BYTES], totals[FREED_BYTES], peak, Collections.unmodifiableMap(sites));
+  }
+
+  /**
+   * Returns the sampled allocations that have not been freed, largest first. When the sample
+   * interval is 1, that is every block that has not been freed.
+   */
+  public synchronized List<AllocationRecord> leaks() {
+    List<AllocationRecord> leaks = new ArrayList<>(sampled.values());
+    leaks.sort((a, b) -> Long.compare(b.size(), a.size()));
+    return leaks;
+  }
+
+  /**
+   * Prints the number of bytes still allocated, followed by each of the {@link #leaks()}, to the
+   * given stream. Prints nothing if everything has been freed, or, unless this accessor is
+   * {@link #exact}, if every sampled block has been freed.
+   */
+  public void reportLeaks(PrintStream out) {
+    long[] totals = totals();
+    long blocks = totals[ALLOCATIONS] - totals[FREES];
+    if (blocks == 0) {
+      return;
+    }
+    List<AllocationRecord> leaks = leaks();
+    StringBuilder report = new StringBuilder(exact || sampleInterval == 1 ? "" : "About ")
+        .append(totals[ALLOCATED_BYTES] - totals[FREED_BYTES])
+        .append(" bytes of native memory in ").append(blocks).append(" blocks were not freed; ")
+        .append(leaks.size()).append(" were sampled:");
+    for (AllocationRecord leak : leaks) {
+      report.append(System.lineSeparator()).append(leak);
+    }
+    out.println(report);
+  }
+
+  /** Calls {@link #reportLeaks} with {@link System#err} when the JVM shuts down. */
+  public void reportLeaksAtShutdown() {
+    Runtime.getRuntime().addShutdownHook(
+        new Thread(() -> reportLeaks(System.err), "native-memory-leak-report"));
+  }
+
+}
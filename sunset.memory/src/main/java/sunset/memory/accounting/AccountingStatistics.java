@@ -0,0 +1,107 @@
+package sunset.memory.accounting;
+
+import java.util.Map;
+
+/**
+ * A snapshot of the native memory allocated through an {@link AccountingLowLevelMemoryAccessor}.
+ * Unless the accessor is {@link AccountingLowLevelMemoryAccessor#exact exact}, the counts are those
+ * of the sampled allocations scaled by the sample interval, and so are estimates.
+ *
+ * @see AccountingLowLevelMemoryAccessor#statistics()
+ */
+public final class AccountingStatistics {
+
+  private final long nanoTime;
+  private final long allocations;
+  private final long frees;
+  private final long allocatedBytes;
+  private final long freedBytes;
+  private final long sampledPeakBytes;
+  private final Map<StackTraceElement, Long> bytesBySite;
+
+  AccountingStatistics(long nanoTime, long allocations, long frees, long allocatedBytes,
+      long freedBytes, long sampledPeakBytes, Map<StackTraceElement, Long> bytesBySite) {
+    this.nanoTime = nanoTime;
+    this.allocations = allocations;
+    this.frees = frees;
+    this.allocatedBytes = allocatedBytes;
+    this.freedBytes = freedBytes;
+    this.sampledPeakBytes = sampledPeakBytes;
+    this.bytesBySite = bytesBySite;
+  }
+
+  /** Returns the value of {@link System#nanoTime()} when the snapshot was taken. */
+  public long nanoTime() {
+    return nanoTime;
+  }
+
+  /** Returns the number of allocations so far, counting each reallocation as one. */
+  public long allocations() {
+    return allocations;
+  }
+
+  /** Returns the number of frees so far, counting each reallocation as one. */
+  public long frees() {
+    return frees;
+  }
+
+  /** Returns the total bytes allocated so far. */
+  public long allocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /** Returns the total bytes freed so far. */
+  public long freedBytes() {
+    return freedBytes;
+  }
+
+  /** Returns the bytes currently allocated. */
+  public long liveBytes() {
+    return allocatedBytes - freedBytes;
+  }
+
+  /**
+   * Returns the largest value of {@link #liveBytes()} seen on a sampled allocation or when a
+   * snapshot was taken. It is a lower bound on the true peak: the totals are only summed then,
+   * since tracking the peak on every allocation would take a shared counter, so spikes between
+   * samples are missed.
+   */
+  public long sampledPeakBytes() {
+    return sampledPeakBytes;
+  }
+
+  /**
+   * Returns the estimated bytes allocated so far from each call site, scaled up from the sampled
+   * allocations.
+   */
+  public Map<StackTraceElement, Long> bytesBySite() {
+    return bytesBySite;
+  }
+
+  /** Returns allocations per second between the given earlier snapshot and this one. */
+  public double allocationRate(AccountingStatistics earlier) {
+    return perSecond(allocations - earlier.allocations, earlier);
+  }
+
+  /** Returns frees per second between the given earlier snapshot and this one. */
+  public double freeRate(AccountingStatistics earlier) {
+    return perSecond(frees - earlier.frees, earlier);
+  }
+
+  /** Returns bytes allocated per second between the given earlier snapshot and this one. */
+  public double allocatedByteRate(AccountingStatistics earlier) {
+    return perSecond(allocatedBytes - earlier.allocatedBytes, earlier);
+  }
+
+  private double perSecond(long delta, AccountingStatistics earlier) {
+    return delta * 1e9 / Math.max(1, nanoTime - earlier.nanoTime);
+  }
+
+  @Override
+  public String toString() {
+    return "AccountingStatistics[live=" + liveBytes() + ", sampledPeak=" + sampledPeakBytes
+        + ", allocations=" + allocations + ", frees=" + frees
+        + ", allocatedBytes=" + allocatedBytes + ", sites=" + bytesBySite.size() + "]";
+  }
+
+}
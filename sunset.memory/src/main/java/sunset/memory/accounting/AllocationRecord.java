@@ -0,0 +1,71 @@
+package sunset.memory.accounting;
+
+import java.util.Arrays;
+
+/** A sampled allocation, with the stack it was allocated from. */
+public final class AllocationRecord {
+
+  private final long address;
+  private final long size;
+  private final String threadName;
+  private final StackTraceElement[] stackTrace;
+
+  AllocationRecord(long address, long size, String threadName, StackTraceElement[] stackTrace) {
+    this.address = address;
+    this.size = size;
+    this.threadName = threadName;
+    this.stackTrace = stackTrace;
+  }
+
+  /** Returns the address that was returned to the caller. */
+  public long address() {
+    return address;
+  }
+
+  /** Returns the requested size in bytes. */
+  public long size() {
+    return size;
+  }
+
+  /** Returns the name of the thread that allocated the block. */
+  public String threadName() {
+    return threadName;
+  }
+
+  /** Returns the stack of the caller, starting at the frame that called the accessor. */
+  public StackTraceElement[] stackTrace() {
+    return stackTrace.clone();
+  }
+
+  /** Returns the frame that called the accessor, or null if the stack is unknown. */
+  public StackTraceElement site() {
+    return stackTrace.length == 0 ? null : stackTrace[0];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder()
+        .append(size).append(" bytes at 0x").append(Long.toHexString(address))
+        .append(", allocated by thread \"").append(threadName).append('"');
+    for (StackTraceElement element : stackTrace) {
+      builder.append(System.lineSeparator()).append("\tat ").append(element);
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof AllocationRecord)) {
+      return false;
+    }
+    AllocationRecord other = (AllocationRecord) o;
+    return address == other.address && size == other.size
+        && threadName.equals(other.threadName) && Arrays.equals(stackTrace, other.stackTrace);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(address);
+  }
+
+}
@@ -0,0 +1,196 @@
+package sunset.memory.arena;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A bump-pointer allocator for short-lived native memory, such as per-request scratch buffers. The
+ * arena reserves one slab with {@link LowLevelMemoryAccessor#allocateMemory} and hands out
+ * sub-allocations from it; nothing is freed individually. Instead, {@link #reset} reclaims every
+ * allocation at once, and {@link #close} frees the slab with a single
+ * {@link LowLevelMemoryAccessor#freeMemory} call.
+ * <p>
+ * Each thread bumps a pointer through its own chunk of the slab, so allocating takes no locks and
+ * touches no shared state until the chunk runs out. Requests larger than half a chunk are carved
+ * directly from the slab.
+ * <p>
+ * {@link #reset} and {@link #close} must not race with allocations, and memory from the arena must
+ * not be used after either is called.
+ */
+public class Arena implements AutoCloseable {
+
+  /** Alignment of {@link #allocate(long)}, which is enough for all value types. */
+  public static final long DEFAULT_ALIGNMENT = 16;
+
+  /** Size of the chunk each thread takes from the slab, unless the slab is smaller. */
+  public static final long DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  /** A thread's current chunk. Only that thread ever reads or writes it. */
+  private static final class Region {
+    long cursor;
+    long limit;
+    int generation = -1;
+  }
+
+  private final LowLevelMemoryAccessor accessor;
+  private final long base;
+  private final long capacity;
+  private final long chunkSize;
+  /** Bytes of the slab handed out to chunks or large allocations since the last reset. */
+  private final AtomicLong claimed = new AtomicLong();
+  private final ThreadLocal<Region> regions = ThreadLocal.withInitial(Region::new);
+  /** Incremented by {@link #reset} and {@link #close} to invalidate every thread's chunk. */
+  private volatile int generation;
+  private volatile boolean closed;
+
+  /**
+   * Creates an arena of the given capacity in bytes, using the default
+   * {@link LowLevelMemoryAccessor}.
+   */
+  public Arena(long capacity) {
+    this(LowLevelMemoryAccessor.getInstance(), capacity, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates an arena of the given capacity in bytes, whose slab comes from the given accessor and
+   * whose threads each take chunks of the given size.
+   *
+   * @throws IllegalArgumentException if the capacity is negative or the chunk size isn't positive
+   * @throws OutOfMemoryError if the slab can't be allocated
+   */
+  public Arena(LowLevelMemoryAccessor accessor, long capacity, long chunkSize) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative capacity: " + capacity);
+    }
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    this.accessor = accessor;
+    this.capacity = capacity;
+    this.chunkSize = Math.min(chunkSize, Math.max(capacity, 1));
+    this.base = accessor.allocateMemory(capacity);
+  }
+
+  private static long align(long address, long alignment) {
+    return (address + alignment - 1) & -alignment;
+  }
+
+  /**
+   * Allocates the given number of bytes, aligned for all value types. The contents are
+   * uninitialized.
+   *
+   * @throws OutOfMemoryError if the arena is exhausted
+   * @throws IllegalStateException if the arena is closed
+   */
+  public long allocate(long bytes) {
+    return allocate(bytes, DEFAULT_ALIGNMENT);
+  }
+
+  /**
+   * Allocates the given number of bytes, at an address that is a multiple of the given alignment.
+   * The contents are uninitialized.
+   *
+   * @param alignment a power of two
+   * @throws IllegalArgumentException if the size is negative or the alignment isn't a power of two
+   * @throws OutOfMemoryError if the arena is exhausted
+   * @throws IllegalStateException if the arena is closed
+   */
+  public long allocate(long bytes, long alignment) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    }
+    if (alignment <= 0 || (alignment & (alignment - 1)) != 0) {
+      throw new IllegalArgumentException("Alignment is not a power of two: " + alignment);
+    }
+    Region region = regions.get();
+    if (region.generation == generation) {
+      long start = align(region.cursor, alignment);
+      long end = start + bytes;
+      if (end <= region.limit && end >= start) {
+        region.cursor = end;
+        return start;
+      }
+    }
+    return allocateSlow(region, bytes, alignment);
+  }
+
+  private long allocateSlow(Region region, long bytes, long alignment) {
+    if (closed) {
+      throw new IllegalStateException("Arena is closed");
+    }
+    long padded = bytes + alignment - 1;
+    long chunk;
+    if (padded < 0 || padded > chunkSize / 2 || (chunk = tryClaim(chunkSize)) == 0) {
+      // Too big for a chunk, or the slab has less than a chunk left
+      return align(claim(padded), alignment);
+    }
+    region.generation = generation;
+    region.limit = chunk + chunkSize;
+    long start = align(chunk, alignment);
+    region.cursor = start + bytes;
+    return start;
+  }
+
+  /**
+   * Takes the given number of bytes from the slab and returns their address, or 0 if not enough
+   * are left.
+   */
+  private long tryClaim(long bytes) {
+    while (true) {
+      long offset = claimed.get();
+      if (bytes < 0 || bytes > capacity - offset) {
+        return 0;
+      }
+      if (claimed.compareAndSet(offset, offset + bytes)) {
+        return base + offset;
+      }
+    }
+  }
+
+  /** Like {@link #tryClaim}, but throws {@link OutOfMemoryError} if not enough bytes are left. */
+  private long claim(long bytes) {
+    long address = tryClaim(bytes);
+    if (address == 0) {
+      throw new OutOfMemoryError("Arena exhausted: " + bytes + " bytes requested, "
+          + (capacity - claimed.get()) + " of " + capacity + " left");
+    }
+    return address;
+  }
+
+  /** Returns the size of the slab in bytes. */
+  public long capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of bytes taken from the slab since the last reset. This includes the unused
+   * tails of chunks that threads are still allocating from.
+   */
+  public long claimed() {
+    return claimed.get();
+  }
+
+  /**
+   * Reclaims every allocation from this arena, so that its memory can be handed out again. Must not
+   * be called while other threads are allocating from or using memory from this arena.
+   */
+  public void reset() {
+    claimed.set(0);
+    generation++;
+  }
+
+  /**
+   * Frees the slab. Further allocations throw {@link IllegalStateException}. Calling this more than
+   * once has no further effect.
+   */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      generation++;
+      accessor.freeMemory(base);
+    }
+  }
+
+}
@@ -0,0 +1,206 @@
+package sunset.memory.array;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.ParallelMemory;
+
+/**
+ * An array of primitives in one contiguous block of native memory, indexed by {@code long}, so it
+ * isn't limited to 2<sup>31</sup> elements like a Java array. The elements start zeroed. Like
+ * {@link sunset.memory.OffHeapBuffer}, the block is freed by {@link #close}, or by a shared
+ * {@link Cleaner} once the array becomes unreachable, and every index is checked with a single
+ * comparison that also fails once the array is closed. Large arrays are zeroed and copied with
+ * {@link ParallelMemory}.
+ * <p>
+ * Bulk operations split the array into ranges of up to {@value #PARALLEL_THRESHOLD} elements
+ * and process them in parallel, in the {@link ForkJoinPool} of the calling thread if it is in one,
+ * or else in the common pool. So do parallel streams over the array, whose spliterators split it
+ * in halves. Closing an array while another thread is using it is not safe, and must be prevented
+ * by the caller.
+ */
+public abstract class OffHeapArray implements AutoCloseable {
+
+  /** Number of elements below which a range is not split further. */
+  static final long PARALLEL_THRESHOLD = 1 << 16;
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  /** Frees the block. Must not refer to the array, or the array would never be unreachable. */
+  private static final class Deallocator implements Runnable {
+    private final LowLevelMemoryAccessor accessor;
+    private final long address;
+
+    Deallocator(LowLevelMemoryAccessor accessor, long address) {
+      this.accessor = accessor;
+      this.address = address;
+    }
+
+    @Override
+    public void run() {
+      accessor.freeMemory(address);
+    }
+  }
+
+  /** Processes the elements in {@code [from, to)}. */
+  interface RangeAction {
+    void apply(long from, long to);
+  }
+
+  /** Splits a range in halves until they are no larger than the grain. */
+  private static final class RangeTask extends RecursiveAction {
+    private final long from;
+    private final long to;
+    private final long grain;
+    private final RangeAction action;
+
+    RangeTask(long from, long to, long grain, RangeAction action) {
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        action.apply(from, to);
+      } else {
+        long mid = (from + to) >>> 1;
+        invokeAll(new RangeTask(from, mid, grain, action), new RangeTask(mid, to, grain, action));
+      }
+    }
+  }
+
+  final LowLevelMemoryAccessor accessor;
+  private final ParallelMemory memory;
+  final long address;
+  private final long length;
+  private final int shift;
+  private final Cleaner.Cleanable cleanable;
+  /** The length while the array is open, and 0 once it is closed, so one check covers both. */
+  private long limit;
+  private boolean closed;
+
+  /**
+   * Allocates and zeroes an array.
+   *
+   * @param shift log2 of the element size
+   */
+  OffHeapArray(LowLevelMemoryAccessor accessor, long length, int shift) {
+    if (length < 0 || length > Long.MAX_VALUE >> shift) {
+      throw new IllegalArgumentException("Length out of range: " + length);
+    }
+    this.accessor = accessor;
+    this.memory = new ParallelMemory(accessor);
+    this.length = length;
+    this.limit = length;
+    this.shift = shift;
+    this.address = accessor.allocateMemory(length << shift);
+    this.cleanable = CLEANER.register(this, new Deallocator(accessor, address));
+    memory.setMemory(address, length << shift, (byte) 0);
+  }
+
+  /** Returns the number of elements. */
+  public final long length() {
+    return length;
+  }
+
+  /**
+   * Returns the address of the first element. Accesses through the address are not checked, and
+   * the caller must keep the array reachable and open while making them.
+   */
+  public final long address() {
+    return address;
+  }
+
+  /** Returns whether {@link #close} has not been called yet. */
+  public final boolean isOpen() {
+    return !closed;
+  }
+
+  /** Returns the address of the given element, without checking the index. */
+  final long elementAddress(long index) {
+    return address + (index << shift);
+  }
+
+  /** Returns the address of the given element, after checking that it is within the array. */
+  final long checkedAddress(long index) {
+    if ((index | (limit - 1 - index)) < 0) {
+      throw outOfBounds(index, 1);
+    }
+    return address + (index << shift);
+  }
+
+  /** Checks that the given number of elements from the given index are within the array. */
+  final void checkRange(long index, long count) {
+    if ((index | count | (limit - count - index)) < 0) {
+      throw outOfBounds(index, count);
+    }
+  }
+
+  private RuntimeException outOfBounds(long index, long count) {
+    if (closed) {
+      return new IllegalStateException("Array is closed");
+    }
+    return new IndexOutOfBoundsException(
+        "Range [" + index + ", " + index + " + " + count + ") out of bounds for length " + length);
+  }
+
+  /** Copies the given number of elements to another array of the same type. */
+  final void copyElements(long srcIndex, OffHeapArray dest, long destIndex, long count) {
+    checkRange(srcIndex, count);
+    dest.checkRange(destIndex, count);
+    memory.copyMemory(elementAddress(srcIndex), dest.elementAddress(destIndex), count << shift);
+  }
+
+  /** Returns the start of each of the ranges that parallel scans process, followed by the end. */
+  final long[] chunkBounds() {
+    long chunks = Math.min((length + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD,
+        4L * pool().getParallelism());
+    int count = (int) Math.max(chunks, 1);
+    long[] bounds = new long[count + 1];
+    for (int i = 0; i <= count; i++) {
+      // The first length % count chunks get one more element than the others
+      bounds[i] = length / count * i + Math.min(i, length % count);
+    }
+    return bounds;
+  }
+
+  private static ForkJoinPool pool() {
+    ForkJoinPool pool = ForkJoinTask.getPool();
+    return pool != null ? pool : ForkJoinPool.commonPool();
+  }
+
+  /**
+   * Applies the action to ranges that together cover {@code [from, to)}, in parallel if there is
+   * more than one range of the given grain and more than one worker.
+   */
+  static void parallelFor(long from, long to, long grain, RangeAction action) {
+    ForkJoinPool pool = pool();
+    if (to - from <= grain || pool.getParallelism() <= 1) {
+      action.apply(from, to);
+    } else if (ForkJoinTask.inForkJoinPool()) {
+      new RangeTask(from, to, grain, action).invoke();
+    } else {
+      pool.invoke(new RangeTask(from, to, grain, action));
+    }
+  }
+
+  /**
+   * Frees the array. Calling this more than once has no further effect. No thread may use the
+   * array's {@link #address} afterwards.
+   */
+  @Override
+  public final void close() {
+    if (!closed) {
+      closed = true;
+      limit = 0;
+      cleanable.clean();
+    }
+  }
+
+}
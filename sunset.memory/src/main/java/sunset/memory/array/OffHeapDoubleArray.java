@@ -0,0 +1,285 @@
+package sunset.memory.array;
+
+import java.lang.ref.Reference;
+import java.util.Spliterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongToDoubleFunction;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * An {@link OffHeapArray} of {@code double}s.
+ */
+public final class OffHeapDoubleArray extends OffHeapArray {
+
+  /**
+   * Allocates an array of the given length, using the default {@link LowLevelMemoryAccessor}.
+   *
+   * @throws IllegalArgumentException if the length is negative or too large
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  public OffHeapDoubleArray(long length) {
+    this(LowLevelMemoryAccessor.getInstance(), length);
+  }
+
+  /**
+   * Allocates an array of the given length from the given accessor, which is also used to access
+   * and free it.
+   *
+   * @throws IllegalArgumentException if the length is negative or too large
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  public OffHeapDoubleArray(LowLevelMemoryAccessor accessor, long length) {
+    super(accessor, length, 3);
+  }
+
+  /**
+   * Returns the element at the given index.
+   *
+   * @throws IndexOutOfBoundsException if the index isn't within the array
+   * @throws IllegalStateException if the array is closed
+   */
+  public double get(long index) {
+    try {
+      return accessor.getDouble(null, checkedAddress(index));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Sets the element at the given index.
+   *
+   * @throws IndexOutOfBoundsException if the index isn't within the array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void set(long index, double value) {
+    try {
+      accessor.putDouble(null, checkedAddress(index), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /** Sets every element to the given value, in parallel. */
+  public void fill(double value) {
+    fill(0, length(), value);
+  }
+
+  /**
+   * Sets the elements in {@code [from, to)} to the given value, in parallel.
+   *
+   * @throws IndexOutOfBoundsException if the range isn't within the array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void fill(long from, long to, double value) {
+    checkRange(from, to - from);
+    long bits = Double.doubleToRawLongBits(value);
+    if (bits == (bits & 0xff) * 0x0101010101010101L) {
+      // Every byte is the same, so setMemory can do it
+      parallelFor(from, to, PARALLEL_THRESHOLD, (start, end) -> accessor.setMemory(
+          elementAddress(start), (end - start) << 3, (byte) bits));
+    } else {
+      parallelFor(from, to, PARALLEL_THRESHOLD, (start, end) -> {
+        for (long i = start; i < end; i++) {
+          accessor.putDouble(null, elementAddress(i), value);
+        }
+      });
+    }
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Sets each element to the result of the generator applied to its index, in parallel, like
+   * {@link java.util.Arrays#parallelSetAll}.
+   *
+   * @throws IllegalStateException if the array is closed
+   */
+  public void setAll(LongToDoubleFunction generator) {
+    checkRange(0, length());
+    parallelFor(0, length(), PARALLEL_THRESHOLD, (start, end) -> {
+      for (long i = start; i < end; i++) {
+        accessor.putDouble(null, elementAddress(i), generator.applyAsDouble(i));
+      }
+    });
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Copies the given number of elements from this array to another, or to another range of this
+   * array, with {@link sunset.memory.ParallelMemory}.
+   *
+   * @throws IndexOutOfBoundsException if either range isn't within its array
+   * @throws IllegalStateException if either array is closed
+   */
+  public void copyTo(long srcIndex, OffHeapDoubleArray dest, long destIndex, long length) {
+    copyElements(srcIndex, dest, destIndex, length);
+    Reference.reachabilityFence(this);
+    Reference.reachabilityFence(dest);
+  }
+
+  /**
+   * Copies the given number of elements of a Java array into this array.
+   *
+   * @throws IndexOutOfBoundsException if either range isn't within its array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void copyFrom(double[] src, int srcIndex, long destIndex, int length) {
+    if ((srcIndex | length | (src.length - length - srcIndex)) < 0) {
+      throw new IndexOutOfBoundsException("Range [" + srcIndex + ", " + srcIndex + " + " + length
+          + ") out of bounds for length " + src.length);
+    }
+    checkRange(destIndex, length);
+    accessor.copyMemory(src, arrayOffset(srcIndex), null, elementAddress(destIndex),
+        (long) length << 3);
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Copies the given number of elements of this array into a Java array.
+   *
+   * @throws IndexOutOfBoundsException if either range isn't within its array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void copyTo(long srcIndex, double[] dest, int destIndex, int length) {
+    if ((destIndex | length | (dest.length - length - destIndex)) < 0) {
+      throw new IndexOutOfBoundsException("Range [" + destIndex + ", " + destIndex + " + "
+          + length + ") out of bounds for length " + dest.length);
+    }
+    checkRange(srcIndex, length);
+    accessor.copyMemory(null, elementAddress(srcIndex), dest, arrayOffset(destIndex),
+        (long) length << 3);
+    Reference.reachabilityFence(this);
+  }
+
+  private long arrayOffset(int index) {
+    return accessor.arrayBaseOffset(double[].class)
+        + (long) index * accessor.arrayIndexScale(double[].class);
+  }
+
+  /**
+   * Replaces each element with the result of combining it with all the elements before it, in
+   * parallel, like {@link java.util.Arrays#parallelPrefix(double[], DoubleBinaryOperator)}. For
+   * example, {@code Double::sum} computes prefix sums. The function must be associative and free of
+   * side effects. Floating-point addition isn't associative, so prefix sums may differ slightly
+   * from those of a sequential loop.
+   *
+   * @throws IllegalStateException if the array is closed
+   */
+  public void parallelPrefix(DoubleBinaryOperator function) {
+    checkRange(0, length());
+    long[] bounds = chunkBounds();
+    int chunks = bounds.length - 1;
+    // Scan each chunk on its own
+    parallelFor(0, chunks, 1, (first, last) -> {
+      for (int chunk = (int) first; chunk < last; chunk++) {
+        long start = bounds[chunk];
+        long end = bounds[chunk + 1];
+        if (start == end) {
+          continue;
+        }
+        double total = accessor.getDouble(null, elementAddress(start));
+        for (long i = start + 1; i < end; i++) {
+          long element = elementAddress(i);
+          total = function.applyAsDouble(total, accessor.getDouble(null, element));
+          accessor.putDouble(null, element, total);
+        }
+      }
+    });
+    // Finish the last element of each chunk, in order
+    for (int chunk = 1; chunk < chunks; chunk++) {
+      long last = elementAddress(bounds[chunk + 1] - 1);
+      double before = accessor.getDouble(null, elementAddress(bounds[chunk] - 1));
+      accessor.putDouble(null, last,
+          function.applyAsDouble(before, accessor.getDouble(null, last)));
+    }
+    // Combine the rest of each chunk with the total of the chunks before it
+    parallelFor(1, chunks, 1, (first, last) -> {
+      for (int chunk = (int) first; chunk < last; chunk++) {
+        double carry = accessor.getDouble(null, elementAddress(bounds[chunk] - 1));
+        for (long i = bounds[chunk]; i < bounds[chunk + 1] - 1; i++) {
+          long element = elementAddress(i);
+          accessor.putDouble(null, element,
+              function.applyAsDouble(carry, accessor.getDouble(null, element)));
+        }
+      }
+    });
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Returns a spliterator over the elements, which splits in halves. The array must stay open
+   * while it is used.
+   */
+  public Spliterator.OfDouble spliterator() {
+    checkRange(0, length());
+    return new ElementSpliterator(0, length());
+  }
+
+  /** Returns a sequential stream of the elements. The array must stay open while it is used. */
+  public DoubleStream stream() {
+    return StreamSupport.doubleStream(spliterator(), false);
+  }
+
+  /**
+   * Returns a parallel stream of the elements, which runs in the fork-join pool of the terminal
+   * operation's caller. The array must stay open while it is used.
+   */
+  public DoubleStream parallelStream() {
+    return StreamSupport.doubleStream(spliterator(), true);
+  }
+
+  private final class ElementSpliterator implements Spliterator.OfDouble {
+    private long index;
+    private final long fence;
+
+    ElementSpliterator(long index, long fence) {
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public Spliterator.OfDouble trySplit() {
+      long mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      ElementSpliterator prefix = new ElementSpliterator(index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+      if (index >= fence) {
+        return false;
+      }
+      action.accept(accessor.getDouble(null, elementAddress(index++)));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+      long end = fence;
+      for (long i = index; i < end; i++) {
+        action.accept(accessor.getDouble(null, elementAddress(i)));
+      }
+      index = end;
+      Reference.reachabilityFence(OffHeapDoubleArray.this);
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+    }
+  }
+
+}
@@ -0,0 +1,283 @@
+package sunset.memory.array;
+
+import java.lang.ref.Reference;
+import java.util.Spliterator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.LongToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * An {@link OffHeapArray} of {@code int}s.
+ */
+public final class OffHeapIntArray extends OffHeapArray {
+
+  /**
+   * Allocates an array of the given length, using the default {@link LowLevelMemoryAccessor}.
+   *
+   * @throws IllegalArgumentException if the length is negative or too large
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  public OffHeapIntArray(long length) {
+    this(LowLevelMemoryAccessor.getInstance(), length);
+  }
+
+  /**
+   * Allocates an array of the given length from the given accessor, which is also used to access
+   * and free it.
+   *
+   * @throws IllegalArgumentException if the length is negative or too large
+   * @throws OutOfMemoryError if the allocation is refused by the system
+   */
+  public OffHeapIntArray(LowLevelMemoryAccessor accessor, long length) {
+    super(accessor, length, 2);
+  }
+
+  /**
+   * Returns the element at the given index.
+   *
+   * @throws IndexOutOfBoundsException if the index isn't within the array
+   * @throws IllegalStateException if the array is closed
+   */
+  public int get(long index) {
+    try {
+      return accessor.getInt(null, checkedAddress(index));
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Sets the element at the given index.
+   *
+   * @throws IndexOutOfBoundsException if the index isn't within the array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void set(long index, int value) {
+    try {
+      accessor.putInt(null, checkedAddress(index), value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /** Sets every element to the given value, in parallel. */
+  public void fill(int value) {
+    fill(0, length(), value);
+  }
+
+  /**
+   * Sets the elements in {@code [from, to)} to the given value, in parallel.
+   *
+   * @throws IndexOutOfBoundsException if the range isn't within the array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void fill(long from, long to, int value) {
+    checkRange(from, to - from);
+    long bits = value & 0xffffffffL;
+    if (bits == (bits & 0xff) * 0x01010101L) {
+      // Every byte is the same, so setMemory can do it
+      parallelFor(from, to, PARALLEL_THRESHOLD, (start, end) -> accessor.setMemory(
+          elementAddress(start), (end - start) << 2, (byte) bits));
+    } else {
+      parallelFor(from, to, PARALLEL_THRESHOLD, (start, end) -> {
+        for (long i = start; i < end; i++) {
+          accessor.putInt(null, elementAddress(i), value);
+        }
+      });
+    }
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Sets each element to the result of the generator applied to its index, in parallel, like
+   * {@link java.util.Arrays#parallelSetAll}.
+   *
+   * @throws IllegalStateException if the array is closed
+   */
+  public void setAll(LongToIntFunction generator) {
+    checkRange(0, length());
+    parallelFor(0, length(), PARALLEL_THRESHOLD, (start, end) -> {
+      for (long i = start; i < end; i++) {
+        accessor.putInt(null, elementAddress(i), generator.applyAsInt(i));
+      }
+    });
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Copies the given number of elements from this array to another, or to another range of this
+   * array, with {@link sunset.memory.ParallelMemory}.
+   *
+   * @throws IndexOutOfBoundsException if either range isn't within its array
+   * @throws IllegalStateException if either array is closed
+   */
+  public void copyTo(long srcIndex, OffHeapIntArray dest, long destIndex, long length) {
+    copyElements(srcIndex, dest, destIndex, length);
+    Reference.reachabilityFence(this);
+    Reference.reachabilityFence(dest);
+  }
+
+  /**
+   * Copies the given number of elements of a Java array into this array.
+   *
+   * @throws IndexOutOfBoundsException if either range isn't within its array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void copyFrom(int[] src, int srcIndex, long destIndex, int length) {
+    if ((srcIndex | length | (src.length - length - srcIndex)) < 0) {
+      throw new IndexOutOfBoundsException("Range [" + srcIndex + ", " + srcIndex + " + " + length
+          + ") out of bounds for length " + src.length);
+    }
+    checkRange(destIndex, length);
+    accessor.copyMemory(src, arrayOffset(srcIndex), null, elementAddress(destIndex),
+        (long) length << 2);
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Copies the given number of elements of this array into a Java array.
+   *
+   * @throws IndexOutOfBoundsException if either range isn't within its array
+   * @throws IllegalStateException if the array is closed
+   */
+  public void copyTo(long srcIndex, int[] dest, int destIndex, int length) {
+    if ((destIndex | length | (dest.length - length - destIndex)) < 0) {
+      throw new IndexOutOfBoundsException("Range [" + destIndex + ", " + destIndex + " + "
+          + length + ") out of bounds for length " + dest.length);
+    }
+    checkRange(srcIndex, length);
+    accessor.copyMemory(null, elementAddress(srcIndex), dest, arrayOffset(destIndex),
+        (long) length << 2);
+    Reference.reachabilityFence(this);
+  }
+
+  private long arrayOffset(int index) {
+    return accessor.arrayBaseOffset(int[].class)
+        + (long) index * accessor.arrayIndexScale(int[].class);
+  }
+
+  /**
+   * Replaces each element with the result of combining it with all the elements before it, in
+   * parallel, like {@link java.util.Arrays#parallelPrefix(int[], IntBinaryOperator)}. For example,
+   * {@code Integer::sum} computes prefix sums. The function must be associative and free of side
+   * effects.
+   *
+   * @throws IllegalStateException if the array is closed
+   */
+  public void parallelPrefix(IntBinaryOperator function) {
+    checkRange(0, length());
+    long[] bounds = chunkBounds();
+    int chunks = bounds.length - 1;
+    // Scan each chunk on its own
+    parallelFor(0, chunks, 1, (first, last) -> {
+      for (int chunk = (int) first; chunk < last; chunk++) {
+        long start = bounds[chunk];
+        long end = bounds[chunk + 1];
+        if (start == end) {
+          continue;
+        }
+        int total = accessor.getInt(null, elementAddress(start));
+        for (long i = start + 1; i < end; i++) {
+          long element = elementAddress(i);
+          total = function.applyAsInt(total, accessor.getInt(null, element));
+          accessor.putInt(null, element, total);
+        }
+      }
+    });
+    // Finish the last element of each chunk, in order
+    for (int chunk = 1; chunk < chunks; chunk++) {
+      long last = elementAddress(bounds[chunk + 1] - 1);
+      int before = accessor.getInt(null, elementAddress(bounds[chunk] - 1));
+      accessor.putInt(null, last, function.applyAsInt(before, accessor.getInt(null, last)));
+    }
+    // Combine the rest of each chunk with the total of the chunks before it
+    parallelFor(1, chunks, 1, (first, last) -> {
+      for (int chunk = (int) first; chunk < last; chunk++) {
+        int carry = accessor.getInt(null, elementAddress(bounds[chunk] - 1));
+        for (long i = bounds[chunk]; i < bounds[chunk + 1] - 1; i++) {
+          long element = elementAddress(i);
+          accessor.putInt(null, element,
+              function.applyAsInt(carry, accessor.getInt(null, element)));
+        }
+      }
+    });
+    Reference.reachabilityFence(this);
+  }
+
+  /**
+   * Returns a spliterator over the elements, which splits in halves. The array must stay open
+   * while it is used.
+   */
+  public Spliterator.OfInt spliterator() {
+    checkRange(0, length());
+    return new ElementSpliterator(0, length());
+  }
+
+  /** Returns a sequential stream of the elements. The array must stay open while it is used. */
+  public IntStream stream() {
+    return StreamSupport.intStream(spliterator(), false);
+  }
+
+  /**
+   * Returns a parallel stream of the elements, which runs in the fork-join pool of the terminal
+   * operation's caller. The array must stay open while it is used.
+   */
+  public IntStream parallelStream() {
+    return StreamSupport.intStream(spliterator(), true);
+  }
+
+  private final class ElementSpliterator implements Spliterator.OfInt {
+    private long index;
+    private final long fence;
+
+    ElementSpliterator(long index, long fence) {
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+      long mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      ElementSpliterator prefix = new ElementSpliterator(index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+      if (index >= fence) {
+        return false;
+      }
+      action.accept(accessor.getInt(null, elementAddress(index++)));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+      long end = fence;
+      for (long i = index; i < end; i++) {
+        action.accept(accessor.getInt(null, elementAddress(i)));
+      }
+      index = end;
+      Reference.reachabilityFence(OffHeapIntArray.this);
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+    }
+  }
+
+}
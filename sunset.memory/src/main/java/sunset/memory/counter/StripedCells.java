@@ -0,0 +1,165 @@
+package sunset.memory.counter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A fixed number of 8-byte cells in native memory, each on its own cache line, that threads update
+ * concurrently and readers combine. Unlike {@link java.util.concurrent.atomic.LongAdder}, whose
+ * cells are heap objects allocated as contention appears, all the cells are allocated up front, so
+ * the footprint is {@link #stripes()} times the cache line size, however busy the threads are.
+ * <p>
+ * A thread picks its cell from {@link ThreadLocalRandom}'s per-thread probe, as {@code LongAdder}
+ * does, when the accessor can read it from {@link Thread}; otherwise from a hash of its id. The
+ * cache line size is read from {@value #LINE_SIZE_PROPERTY} if set, then from Linux's
+ * {@code sysfs}, and is 64 bytes failing both, or if {@code sysfs} reports a size that isn't a
+ * power of two.
+ */
+public abstract class StripedCells implements AutoCloseable {
+
+  /** System property that overrides the detected cache line size, in bytes. */
+  public static final String LINE_SIZE_PROPERTY = "sunset.memory.cacheLineSize";
+
+  private static final int DEFAULT_LINE_SIZE = 64;
+  private static final int LINE_SIZE = detectLineSize();
+
+  final LowLevelMemoryAccessor accessor;
+  /** Address of the first cell, aligned to a cache line. */
+  private final long base;
+  private final int stripes;
+  private final int mask;
+  private final int lineShift;
+  /** Offset of {@code Thread.threadLocalRandomProbe}, or -1 if it can't be read. */
+  private final long probeOffset;
+  private boolean closed;
+
+  /**
+   * Allocates the cells, filled with the given initial bits.
+   *
+   * @param stripes number of cells, rounded up to a power of two
+   */
+  StripedCells(LowLevelMemoryAccessor accessor, int stripes, long initial) {
+    if (stripes <= 0 || stripes > 1 << 16) {
+      throw new IllegalArgumentException("Stripes out of range: " + stripes);
+    }
+    this.accessor = accessor;
+    this.stripes = roundUpToPowerOfTwo(stripes);
+    this.mask = this.stripes - 1;
+    this.lineShift = Integer.numberOfTrailingZeros(LINE_SIZE);
+    long bytes = (long) this.stripes << lineShift;
+    this.base = accessor.allocateAligned(bytes, LINE_SIZE);
+    for (int i = 0; i < this.stripes; i++) {
+      accessor.putLongVolatile(null, cell(i), initial);
+    }
+    long probeOffset;
+    try {
+      probeOffset =
+          accessor.objectFieldOffset(Thread.class.getDeclaredField("threadLocalRandomProbe"));
+      accessor.getInt(Thread.currentThread(), probeOffset);
+    } catch (NoSuchFieldException | RuntimeException e) {
+      // Not a JDK that has the field, or the accessor can't open java.lang
+      probeOffset = -1;
+    }
+    this.probeOffset = probeOffset;
+  }
+
+  /** Returns the number of processors, rounded up to a power of two. */
+  public static int defaultStripes() {
+    return roundUpToPowerOfTwo(Runtime.getRuntime().availableProcessors());
+  }
+
+  private static int roundUpToPowerOfTwo(int n) {
+    return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+  }
+
+  /** Returns the cache line size that cells are spaced by. */
+  public static int cacheLineSize() {
+    return LINE_SIZE;
+  }
+
+  private static int detectLineSize() {
+    int configured = Integer.getInteger(LINE_SIZE_PROPERTY, 0);
+    if (configured != 0) {
+      return lineSize(configured, null);
+    }
+    try {
+      return lineSize(0, new String(Files.readAllBytes(
+          Paths.get("/sys/devices/system/cpu/cpu0/cache/index0/coherency_line_size")),
+          StandardCharsets.US_ASCII));
+    } catch (IOException | SecurityException e) {
+      return DEFAULT_LINE_SIZE;
+    }
+  }
+
+  /**
+   * Returns the configured cache line size if not 0, or else the one the OS reported, or 64 if
+   * that is missing or not a power of two of at least 8, as some kernels report 0.
+   *
+   * @throws IllegalArgumentException if the configured size isn't a power of two of at least 8
+   */
+  static int lineSize(int configured, String reported) {
+    if (configured != 0) {
+      if (!isValidLineSize(configured)) {
+        throw new IllegalArgumentException(
+            "Cache line size is not a power of two >= 8: " + configured);
+      }
+      return configured;
+    }
+    int size;
+    try {
+      size = reported == null ? 0 : Integer.parseInt(reported.trim());
+    } catch (NumberFormatException e) {
+      size = 0;
+    }
+    return isValidLineSize(size) ? size : DEFAULT_LINE_SIZE;
+  }
+
+  private static boolean isValidLineSize(int size) {
+    return size >= 8 && Integer.bitCount(size) == 1;
+  }
+
+  /** Returns the number of cells. */
+  public int stripes() {
+    return stripes;
+  }
+
+  /** Returns the address of the given cell. */
+  final long cell(int stripe) {
+    return base + ((long) stripe << lineShift);
+  }
+
+  /** Returns the address of the current thread's cell. */
+  final long cell() {
+    return cell(probe() & mask);
+  }
+
+  private int probe() {
+    Thread thread = Thread.currentThread();
+    if (probeOffset < 0) {
+      long id = thread.getId() * 0x9e3779b97f4a7c15L;
+      return (int) (id ^ (id >>> 32));
+    }
+    int probe = accessor.getInt(thread, probeOffset);
+    if (probe == 0) {
+      // Initializes the probe of this thread
+      ThreadLocalRandom.current();
+      probe = accessor.getInt(thread, probeOffset);
+    }
+    return probe;
+  }
+
+  /** Frees the cells. Updates must not be in progress or made afterwards. */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      accessor.freeAligned(base);
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+package sunset.memory.counter;
+
+import java.util.function.DoubleBinaryOperator;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A {@code double} accumulated by a function in {@link StripedCells}, as a replacement for
+ * {@link java.util.concurrent.atomic.DoubleAccumulator} with a fixed off-heap footprint. Each cell
+ * holds the raw bits of a partial result, which {@link #accumulate} updates with a compare-and-swap
+ * loop, and {@link #get} combines with the same function. As with {@code DoubleAccumulator}, the
+ * function must be associative and commutative, and free of side effects, since it may be applied
+ * more than once to the same value.
+ */
+public final class StripedDoubleAccumulator extends StripedCells {
+
+  private final DoubleBinaryOperator function;
+  private final double identity;
+
+  /** Creates an accumulator with {@link #defaultStripes()} cells. */
+  public StripedDoubleAccumulator(LowLevelMemoryAccessor accessor, DoubleBinaryOperator function,
+      double identity) {
+    this(accessor, function, identity, defaultStripes());
+  }
+
+  /**
+   * Creates an accumulator with the given number of cells, rounded up to a power of two.
+   *
+   * @param identity the value of each cell at first, and after {@link #reset}
+   */
+  public StripedDoubleAccumulator(LowLevelMemoryAccessor accessor, DoubleBinaryOperator function,
+      double identity, int stripes) {
+    super(accessor, stripes, Double.doubleToRawLongBits(identity));
+    this.function = function;
+    this.identity = identity;
+  }
+
+  /** Returns an accumulator that sums, like {@link java.util.concurrent.atomic.DoubleAdder}. */
+  public static StripedDoubleAccumulator adder(LowLevelMemoryAccessor accessor) {
+    return new StripedDoubleAccumulator(accessor, Double::sum, 0);
+  }
+
+  /** Combines the given value into the current thread's cell. */
+  public void accumulate(double x) {
+    long cell = cell();
+    while (true) {
+      long bits = accessor.getLongVolatile(null, cell);
+      long updated =
+          Double.doubleToRawLongBits(function.applyAsDouble(Double.longBitsToDouble(bits), x));
+      if (bits == updated || accessor.compareAndSwapLong(null, cell, bits, updated)) {
+        return;
+      }
+    }
+  }
+
+  /** Returns the result of combining every cell, starting from the identity. */
+  public double get() {
+    double result = identity;
+    for (int i = 0; i < stripes(); i++) {
+      result = function.applyAsDouble(result,
+          Double.longBitsToDouble(accessor.getLongVolatile(null, cell(i))));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the result of combining every cell, and sets each of them to the identity. Updates made
+   * while this runs are either included or kept for the next call, never lost.
+   */
+  public double getThenReset() {
+    long identityBits = Double.doubleToRawLongBits(identity);
+    double result = identity;
+    for (int i = 0; i < stripes(); i++) {
+      result = function.applyAsDouble(result,
+          Double.longBitsToDouble(accessor.getAndSetLong(null, cell(i), identityBits)));
+    }
+    return result;
+  }
+
+  /** Sets every cell to the identity. Updates made while this runs may be lost. */
+  public void reset() {
+    long identityBits = Double.doubleToRawLongBits(identity);
+    for (int i = 0; i < stripes(); i++) {
+      accessor.putLongVolatile(null, cell(i), identityBits);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Double.toString(get());
+  }
+
+}
@@ -0,0 +1,72 @@
+package sunset.memory.counter;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A {@code long} sum kept in {@link StripedCells}, as a replacement for
+ * {@link java.util.concurrent.atomic.LongAdder} with a fixed off-heap footprint. Each update is one
+ * {@link LowLevelMemoryAccessor#getAndAddLong} on the current thread's cell; {@link #sum} reads
+ * every cell with {@link LowLevelMemoryAccessor#getLongVolatile}, so like {@code LongAdder}, it is
+ * not an atomic snapshot while updates are in progress.
+ */
+public final class StripedLongCounter extends StripedCells {
+
+  /** Creates a counter with {@link #defaultStripes()} cells. */
+  public StripedLongCounter(LowLevelMemoryAccessor accessor) {
+    this(accessor, defaultStripes());
+  }
+
+  /** Creates a counter with the given number of cells, rounded up to a power of two. */
+  public StripedLongCounter(LowLevelMemoryAccessor accessor, int stripes) {
+    super(accessor, stripes, 0);
+  }
+
+  /** Adds the given value. */
+  public void add(long x) {
+    accessor.getAndAddLong(null, cell(), x);
+  }
+
+  /** Adds one. */
+  public void increment() {
+    add(1);
+  }
+
+  /** Subtracts one. */
+  public void decrement() {
+    add(-1);
+  }
+
+  /** Returns the sum of the cells. */
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < stripes(); i++) {
+      sum += accessor.getLongVolatile(null, cell(i));
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the sum of the cells and sets each of them to zero. Updates made while this runs are
+   * either counted or kept for the next sum, never lost.
+   */
+  public long sumThenReset() {
+    long sum = 0;
+    for (int i = 0; i < stripes(); i++) {
+      sum += accessor.getAndSetLong(null, cell(i), 0);
+    }
+    return sum;
+  }
+
+  /** Sets every cell to zero. Updates made while this runs may be lost. */
+  public void reset() {
+    for (int i = 0; i < stripes(); i++) {
+      accessor.putLongVolatile(null, cell(i), 0);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+
+}
@@ -0,0 +1,75 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code boolean} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class BooleanFieldAccessor<T> extends FieldAccessor<T> {
+
+  BooleanFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the boolean field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a boolean
+   */
+  public static <T> BooleanFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, boolean.class);
+  }
+
+  /** Returns the value of the field. */
+  public boolean get(T obj) {
+    return ACCESSOR.getBoolean(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, boolean value) {
+    ACCESSOR.putBoolean(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public boolean getVolatile(T obj) {
+    return ACCESSOR.getBooleanVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, boolean value) {
+    ACCESSOR.putBooleanVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, boolean value) {
+    ACCESSOR.putBooleanRelease(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Returns
+   * whether it did.
+   */
+  public boolean compareAndSet(T obj, boolean expected, boolean value) {
+    return ACCESSOR.compareAndSwapByte(base(obj), offset, (byte) (expected ? 1 : 0),
+        (byte) (value ? 1 : 0));
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public boolean getAndSet(T obj, boolean value) {
+    Object base = base(obj);
+    while (true) {
+      boolean current = ACCESSOR.getBooleanVolatile(base, offset);
+      if (compareAndSet(obj, current, value)) {
+        return current;
+      }
+    }
+  }
+
+}
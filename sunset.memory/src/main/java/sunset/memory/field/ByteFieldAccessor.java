@@ -0,0 +1,90 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code byte} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class ByteFieldAccessor<T> extends FieldAccessor<T> {
+
+  ByteFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the byte field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a byte
+   */
+  public static <T> ByteFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, byte.class);
+  }
+
+  /** Returns the value of the field. */
+  public byte get(T obj) {
+    return ACCESSOR.getByte(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, byte value) {
+    ACCESSOR.putByte(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public byte getVolatile(T obj) {
+    return ACCESSOR.getByteVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, byte value) {
+    ACCESSOR.putByteVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, byte value) {
+    ACCESSOR.putByteRelease(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Returns
+   * whether it did.
+   */
+  public boolean compareAndSet(T obj, byte expected, byte value) {
+    return ACCESSOR.compareAndSwapByte(base(obj), offset, expected, value);
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public byte getAndSet(T obj, byte value) {
+    Object base = base(obj);
+    while (true) {
+      byte current = ACCESSOR.getByteVolatile(base, offset);
+      if (ACCESSOR.compareAndSwapByte(base, offset, current, value)) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public byte getAndAdd(T obj, byte delta) {
+    Object base = base(obj);
+    while (true) {
+      byte current = ACCESSOR.getByteVolatile(base, offset);
+      if (ACCESSOR.compareAndSwapByte(base, offset, current, (byte) (current + delta))) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public byte addAndGet(T obj, byte delta) {
+    return (byte) (getAndAdd(obj, delta) + delta);
+  }
+
+}
@@ -0,0 +1,90 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code char} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class CharFieldAccessor<T> extends FieldAccessor<T> {
+
+  CharFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the char field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a char
+   */
+  public static <T> CharFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, char.class);
+  }
+
+  /** Returns the value of the field. */
+  public char get(T obj) {
+    return ACCESSOR.getChar(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, char value) {
+    ACCESSOR.putChar(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public char getVolatile(T obj) {
+    return ACCESSOR.getCharVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, char value) {
+    ACCESSOR.putCharVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, char value) {
+    ACCESSOR.putCharRelease(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Returns
+   * whether it did.
+   */
+  public boolean compareAndSet(T obj, char expected, char value) {
+    return ACCESSOR.compareAndSwapShort(base(obj), offset, (short) expected, (short) value);
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public char getAndSet(T obj, char value) {
+    Object base = base(obj);
+    while (true) {
+      char current = ACCESSOR.getCharVolatile(base, offset);
+      if (ACCESSOR.compareAndSwapShort(base, offset, (short) current, (short) value)) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public char getAndAdd(T obj, char delta) {
+    Object base = base(obj);
+    while (true) {
+      char current = ACCESSOR.getCharVolatile(base, offset);
+      if (ACCESSOR.compareAndSwapShort(base, offset, (short) current, (short) (current + delta))) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public char addAndGet(T obj, char delta) {
+    return (char) (getAndAdd(obj, delta) + delta);
+  }
+
+}
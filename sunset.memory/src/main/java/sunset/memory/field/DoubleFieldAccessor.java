@@ -0,0 +1,88 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code double} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class DoubleFieldAccessor<T> extends FieldAccessor<T> {
+
+  DoubleFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the double field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a double
+   */
+  public static <T> DoubleFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, double.class);
+  }
+
+  /** Returns the value of the field. */
+  public double get(T obj) {
+    return ACCESSOR.getDouble(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, double value) {
+    ACCESSOR.putDouble(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public double getVolatile(T obj) {
+    return ACCESSOR.getDoubleVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, double value) {
+    ACCESSOR.putDoubleVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, double value) {
+    ACCESSOR.putDoubleRelease(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Values are
+   * compared by their bits, so NaN matches NaN but -0.0 doesn't match 0.0. Returns whether it did.
+   */
+  public boolean compareAndSet(T obj, double expected, double value) {
+    return ACCESSOR.compareAndSwapLong(base(obj), offset, Double.doubleToRawLongBits(expected),
+        Double.doubleToRawLongBits(value));
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public double getAndSet(T obj, double value) {
+    return Double.longBitsToDouble(
+        ACCESSOR.getAndSetLong(base(obj), offset, Double.doubleToRawLongBits(value)));
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public double getAndAdd(T obj, double delta) {
+    Object base = base(obj);
+    while (true) {
+      long bits = ACCESSOR.getLongVolatile(base, offset);
+      double current = Double.longBitsToDouble(bits);
+      long updated = Double.doubleToRawLongBits(current + delta);
+      if (ACCESSOR.compareAndSwapLong(base, offset, bits, updated)) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public double addAndGet(T obj, double delta) {
+    return getAndAdd(obj, delta) + delta;
+  }
+
+}
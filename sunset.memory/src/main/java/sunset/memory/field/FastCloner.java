@@ -0,0 +1,187 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.serial.ctor.ConstructorMunger;
+
+/**
+ * Makes shallow copies of objects of one class, without {@link Cloneable}, reflection, or running
+ * any of the class's constructors. The offsets of the class's instance fields, including those of
+ * its superclasses, are resolved once; each copy then creates an instance through a
+ * {@link ConstructorMunger} constructor that only runs {@code Object()}, and copies the fields
+ * through {@link LowLevelMemoryAccessor}.
+ * <p>
+ * Primitive fields that are adjacent in memory are copied together, as few aligned
+ * {@code long}s, {@code int}s, {@code short}s and {@code byte}s as cover them, rather than one
+ * field at a time, if the accessor {@linkplain LowLevelMemoryAccessor#exposesObjectLayout exposes
+ * the layout}; reference fields are copied with {@link LowLevelMemoryAccessor#getObject} and
+ * {@link LowLevelMemoryAccessor#putObject}, so that the garbage collector sees them. Like
+ * {@link Object#clone}, the copy shares the objects that the original's fields refer to, and
+ * {@code final} fields are copied too, so classes with them are rejected if the accessor doesn't
+ * expose the layout.
+ *
+ * @param <T> the class of the objects copied
+ */
+public final class FastCloner<T> {
+
+  private static final ClassValue<FastCloner<?>> CACHE = new ClassValue<FastCloner<?>>() {
+    @Override
+    protected FastCloner<?> computeValue(Class<?> type) {
+      return new FastCloner<>(FieldAccessor.ACCESSOR, DefaultMunger.MUNGER, type);
+    }
+  };
+
+  /** Holds the default munger, which is only loaded once a cloner from {@link #of} needs it. */
+  private static final class DefaultMunger {
+    static final ConstructorMunger MUNGER = ConstructorMunger.getInstance();
+  }
+
+  private final LowLevelMemoryAccessor accessor;
+  private final Class<T> type;
+  private final Constructor<T> constructor;
+  private final long[] longOffsets;
+  private final long[] intOffsets;
+  private final long[] shortOffsets;
+  private final long[] byteOffsets;
+  private final long[] fieldOffsets;
+  private final Class<?>[] fieldTypes;
+  private final long[] objectOffsets;
+
+  /**
+   * Returns the cloner for the given class, which uses the default {@link LowLevelMemoryAccessor}
+   * and {@link ConstructorMunger}. Cloners are cached per class.
+   *
+   * @throws IllegalArgumentException if the class is abstract, an interface, an array, a
+   *     primitive, or a record, or has final fields and the accessor doesn't
+   *     {@linkplain LowLevelMemoryAccessor#exposesObjectLayout expose the layout}
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> FastCloner<T> of(Class<T> type) {
+    return (FastCloner<T>) CACHE.get(type);
+  }
+
+  /**
+   * Creates a cloner for the given class, which reads and writes fields through the given accessor
+   * and creates instances with a constructor from the given munger.
+   *
+   * @throws IllegalArgumentException if the class is abstract, an interface, an array, a
+   *     primitive, or a record, or has final fields and the accessor doesn't
+   *     {@linkplain LowLevelMemoryAccessor#exposesObjectLayout expose the layout}
+   */
+  public FastCloner(LowLevelMemoryAccessor accessor, ConstructorMunger munger, Class<T> type) {
+    if (type.isArray() || type.isPrimitive()
+        || (type.getModifiers() & (Modifier.ABSTRACT | Modifier.INTERFACE)) != 0) {
+      throw new IllegalArgumentException("Can't clone instances of " + type.getName());
+    }
+    this.accessor = accessor;
+    this.type = type;
+    this.constructor = constructor(munger, type);
+    FieldLayout layout = new FieldLayout(accessor, type, true);
+    this.longOffsets = layout.longOffsets;
+    this.intOffsets = layout.intOffsets;
+    this.shortOffsets = layout.shortOffsets;
+    this.byteOffsets = layout.byteOffsets;
+    this.fieldOffsets = layout.fieldOffsets;
+    this.fieldTypes = layout.fieldTypes;
+    this.objectOffsets = layout.objectOffsets;
+  }
+
+  /**
+   * Returns a constructor from the given munger that creates instances of the given class by only
+   * running {@code Object()}.
+   */
+  static <T> Constructor<T> constructor(ConstructorMunger munger, Class<T> type) {
+    Constructor<T> constructor;
+    try {
+      constructor =
+          munger.newConstructorForSerialization(type, Object.class.getDeclaredConstructor());
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+    constructor.setAccessible(true);
+    return constructor;
+  }
+
+  /** Creates an instance with a constructor from {@link #constructor}. */
+  static <T> T newInstance(Constructor<T> constructor) {
+    try {
+      return constructor.newInstance();
+    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns the class whose instances this cloner copies. */
+  public Class<T> type() {
+    return type;
+  }
+
+  /**
+   * Returns a new instance whose fields are all zero or null, without running any of the class's
+   * constructors.
+   */
+  public T newInstance() {
+    return newInstance(constructor);
+  }
+
+  /**
+   * Returns a shallow copy of the given object.
+   *
+   * @throws IllegalArgumentException if the object's class isn't exactly {@link #type}
+   */
+  public T copy(T original) {
+    checkType(original);
+    T copy = newInstance();
+    copyFields(original, copy);
+    return copy;
+  }
+
+  /**
+   * Copies every instance field of the source to the target, so that the target becomes a
+   * shallow copy of the source without being created again.
+   *
+   * @throws IllegalArgumentException if either object's class isn't exactly {@link #type}
+   */
+  public void copyInto(T source, T target) {
+    checkType(source);
+    checkType(target);
+    copyFields(source, target);
+  }
+
+  private void checkType(T obj) {
+    if (obj.getClass() != type) {
+      throw new IllegalArgumentException(
+          "Expected a " + type.getName() + ", not a " + obj.getClass().getName());
+    }
+  }
+
+  private void copyFields(T source, T target) {
+    for (long offset : longOffsets) {
+      accessor.putLong(target, offset, accessor.getLong(source, offset));
+    }
+    for (long offset : intOffsets) {
+      accessor.putInt(target, offset, accessor.getInt(source, offset));
+    }
+    for (long offset : shortOffsets) {
+      accessor.putShort(target, offset, accessor.getShort(source, offset));
+    }
+    for (long offset : byteOffsets) {
+      accessor.putByte(target, offset, accessor.getByte(source, offset));
+    }
+    for (int i = 0; i < fieldOffsets.length; i++) {
+      FieldLayout.copy(accessor, fieldTypes[i], source, fieldOffsets[i], target, fieldOffsets[i]);
+    }
+    for (long offset : objectOffsets) {
+      accessor.putObject(target, offset, accessor.getObject(source, offset));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FastCloner[" + type.getName() + "]";
+  }
+
+}
@@ -0,0 +1,136 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * Reads and writes one field of a class through {@link LowLevelMemoryAccessor}, without reflection
+ * or boxing. The field's offset, and its base if it is static, are resolved once, and accessors are
+ * cached per class, so looking one up again is cheap; still, callers should keep accessors in
+ * {@code static final} fields, where the JIT treats the offset as a constant.
+ * <p>
+ * There is a subclass for each primitive type, such as {@link IntFieldAccessor}, and
+ * {@link ObjectFieldAccessor} for references. Their methods take the object whose field to access;
+ * for a static field, that argument is ignored and may be null. Unlike
+ * {@link java.util.concurrent.atomic.AtomicLongFieldUpdater}, the object's class is not checked:
+ * passing an object that doesn't have the field corrupts memory.
+ *
+ * @param <T> the class that declares the field
+ */
+public abstract class FieldAccessor<T> {
+
+  static final LowLevelMemoryAccessor ACCESSOR = LowLevelMemoryAccessor.getInstance();
+
+  private static final ClassValue<Map<String, FieldAccessor<?>>> CACHE =
+      new ClassValue<Map<String, FieldAccessor<?>>>() {
+        @Override
+        protected Map<String, FieldAccessor<?>> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  private final Field field;
+  final long offset;
+  /** The base of a static field, or null for an instance field. */
+  private final Object staticBase;
+
+  FieldAccessor(Field field) {
+    this.field = field;
+    if (Modifier.isStatic(field.getModifiers())) {
+      this.offset = ACCESSOR.staticFieldOffset(field);
+      this.staticBase = ACCESSOR.staticFieldBase(field);
+    } else {
+      this.offset = ACCESSOR.objectFieldOffset(field);
+      this.staticBase = null;
+    }
+  }
+
+  /**
+   * Returns the accessor for the field of the given class, or of one of its superclasses, with the
+   * given name.
+   *
+   * @throws IllegalArgumentException if there is no such field
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> FieldAccessor<T> of(Class<T> type, String name) {
+    return (FieldAccessor<T>) CACHE.get(type).computeIfAbsent(name, n -> create(find(type, n)));
+  }
+
+  /**
+   * Returns the accessor for the given field, which must be declared by the given class or one of
+   * its superclasses, and be of exactly the given type.
+   */
+  @SuppressWarnings("unchecked")
+  static <A extends FieldAccessor<?>> A lookup(Class<?> type, String name, Class<?> fieldType) {
+    FieldAccessor<?> accessor = of(type, name);
+    Class<?> actual = accessor.field.getType();
+    if (actual != fieldType) {
+      throw new IllegalArgumentException(
+          "Field " + name + " of " + type.getName() + " is a " + actual + ", not a " + fieldType);
+    }
+    return (A) accessor;
+  }
+
+  private static Field find(Class<?> type, String name) {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      try {
+        return c.getDeclaredField(name);
+      } catch (NoSuchFieldException e) {
+        // Keep looking in the superclass
+      }
+    }
+    throw new IllegalArgumentException(type.getName() + " has no field named " + name);
+  }
+
+  private static FieldAccessor<?> create(Field field) {
+    Class<?> type = field.getType();
+    if (type == int.class) {
+      return new IntFieldAccessor<>(field);
+    } else if (type == long.class) {
+      return new LongFieldAccessor<>(field);
+    } else if (type == boolean.class) {
+      return new BooleanFieldAccessor<>(field);
+    } else if (type == byte.class) {
+      return new ByteFieldAccessor<>(field);
+    } else if (type == short.class) {
+      return new ShortFieldAccessor<>(field);
+    } else if (type == char.class) {
+      return new CharFieldAccessor<>(field);
+    } else if (type == float.class) {
+      return new FloatFieldAccessor<>(field);
+    } else if (type == double.class) {
+      return new DoubleFieldAccessor<>(field);
+    }
+    return new ObjectFieldAccessor<>(field);
+  }
+
+  /** Returns the field this accessor reads and writes. */
+  public Field field() {
+    return field;
+  }
+
+  /** Returns the offset of the field, as reported by {@link LowLevelMemoryAccessor}. */
+  public long offset() {
+    return offset;
+  }
+
+  /** Returns whether the field is static. */
+  public boolean isStatic() {
+    return staticBase != null;
+  }
+
+  /** Returns the base to pass to {@link #ACCESSOR} along with {@link #offset}. */
+  final Object base(Object obj) {
+    return staticBase != null ? staticBase : obj;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + field + "]";
+  }
+
+}
@@ -0,0 +1,180 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * The offsets of a class's instance fields, including those of its superclasses, with the primitive
+ * fields grouped into as few aligned words as cover them. Only fields that are adjacent in memory
+ * are grouped, since a gap may hold a field that the VM hides from reflection, which could be a
+ * reference. If the accessor doesn't {@linkplain LowLevelMemoryAccessor#exposesObjectLayout
+ * expose the layout}, the primitive fields are listed one at a time with their types instead.
+ */
+final class FieldLayout {
+
+  /** Offsets of the {@code long}s, {@code int}s, {@code short}s and {@code byte}s to copy. */
+  final long[] longOffsets;
+  final long[] intOffsets;
+  final long[] shortOffsets;
+  final long[] byteOffsets;
+  /** Offsets and types of the primitive fields to copy one at a time, in the same order. */
+  final long[] fieldOffsets;
+  final Class<?>[] fieldTypes;
+  /** Offsets of the reference fields, in increasing order. */
+  final long[] objectOffsets;
+  /** Declared types of the reference fields, in the same order. */
+  final Class<?>[] objectTypes;
+  /** Number of bytes in all the words at {@link #longOffsets} to {@link #fieldOffsets}. */
+  final int primitiveBytes;
+  /** Hash of the fields' names, types and offsets, which changes if the layout does. */
+  final int fingerprint;
+
+  /**
+   * Finds the layout of the given class's instance fields, skipping transient ones unless asked.
+   *
+   * @throws IllegalArgumentException if the accessor can't find the offset of a field, as for the
+   *     fields of records and hidden classes, or if a field is final and the accessor doesn't
+   *     expose the layout, since such accessors may not write final fields
+   */
+  FieldLayout(LowLevelMemoryAccessor accessor, Class<?> type, boolean includeTransient) {
+    int skipped = Modifier.STATIC | (includeTransient ? 0 : Modifier.TRANSIENT);
+    boolean grouped = accessor.exposesObjectLayout();
+    List<Field> fields = new ArrayList<>();
+    List<long[]> primitives = new ArrayList<>();
+    List<Object[]> singles = new ArrayList<>();
+    List<Object[]> objects = new ArrayList<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if ((field.getModifiers() & skipped) != 0) {
+          continue;
+        }
+        if (!grouped && Modifier.isFinal(field.getModifiers())) {
+          throw new IllegalArgumentException(
+              "Can't write " + field + " through an accessor that doesn't expose the layout");
+        }
+        long offset;
+        try {
+          offset = accessor.objectFieldOffset(field);
+        } catch (UnsupportedOperationException e) {
+          throw new IllegalArgumentException("Can't find the offset of " + field, e);
+        }
+        fields.add(field);
+        Class<?> fieldType = field.getType();
+        if (fieldType.isPrimitive() && !grouped) {
+          singles.add(new Object[] {offset, fieldType});
+        } else if (fieldType.isPrimitive()) {
+          primitives.add(new long[] {offset, offset + size(fieldType)});
+        } else {
+          objects.add(new Object[] {offset, fieldType});
+        }
+      }
+    }
+    primitives.sort(Comparator.comparingLong(range -> range[0]));
+    objects.sort(Comparator.comparingLong(object -> (Long) object[0]));
+
+    List<Long> longs = new ArrayList<>();
+    List<Long> ints = new ArrayList<>();
+    List<Long> shorts = new ArrayList<>();
+    List<Long> bytes = new ArrayList<>();
+    long total = 0;
+    for (int i = 0; i < primitives.size(); ) {
+      long start = primitives.get(i)[0];
+      long end = primitives.get(i)[1];
+      for (i++; i < primitives.size() && primitives.get(i)[0] == end; i++) {
+        end = primitives.get(i)[1];
+      }
+      total += end - start;
+      for (long offset = start; offset < end; ) {
+        if ((offset & 7) == 0 && end - offset >= 8) {
+          longs.add(offset);
+          offset += 8;
+        } else if ((offset & 3) == 0 && end - offset >= 4) {
+          ints.add(offset);
+          offset += 4;
+        } else if ((offset & 1) == 0 && end - offset >= 2) {
+          shorts.add(offset);
+          offset += 2;
+        } else {
+          bytes.add(offset);
+          offset++;
+        }
+      }
+    }
+    this.longOffsets = toArray(longs);
+    this.intOffsets = toArray(ints);
+    this.shortOffsets = toArray(shorts);
+    this.byteOffsets = toArray(bytes);
+    this.fieldOffsets = new long[singles.size()];
+    this.fieldTypes = new Class<?>[singles.size()];
+    for (int i = 0; i < fieldOffsets.length; i++) {
+      fieldOffsets[i] = (Long) singles.get(i)[0];
+      fieldTypes[i] = (Class<?>) singles.get(i)[1];
+      total += size(fieldTypes[i]);
+    }
+    this.objectOffsets = new long[objects.size()];
+    this.objectTypes = new Class<?>[objects.size()];
+    for (int i = 0; i < objectOffsets.length; i++) {
+      objectOffsets[i] = (Long) objects.get(i)[0];
+      objectTypes[i] = (Class<?>) objects.get(i)[1];
+    }
+    this.primitiveBytes = (int) total;
+
+    fields.sort(Comparator.comparingLong(accessor::objectFieldOffset));
+    int hash = type.getName().hashCode();
+    for (Field field : fields) {
+      hash = 31 * hash + (field.getName() + ':' + field.getType().getName() + '@'
+          + accessor.objectFieldOffset(field)).hashCode();
+    }
+    this.fingerprint = hash;
+  }
+
+  static int size(Class<?> primitive) {
+    if (primitive == long.class || primitive == double.class) {
+      return 8;
+    } else if (primitive == int.class || primitive == float.class) {
+      return 4;
+    } else if (primitive == short.class || primitive == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  /**
+   * Copies a primitive of the given type from one variable to another, either of which may be in
+   * native memory, with a null base.
+   */
+  static void copy(LowLevelMemoryAccessor accessor, Class<?> type, Object source,
+      long sourceOffset, Object target, long targetOffset) {
+    if (type == long.class) {
+      accessor.putLong(target, targetOffset, accessor.getLong(source, sourceOffset));
+    } else if (type == int.class) {
+      accessor.putInt(target, targetOffset, accessor.getInt(source, sourceOffset));
+    } else if (type == short.class) {
+      accessor.putShort(target, targetOffset, accessor.getShort(source, sourceOffset));
+    } else if (type == byte.class) {
+      accessor.putByte(target, targetOffset, accessor.getByte(source, sourceOffset));
+    } else if (type == double.class) {
+      accessor.putDouble(target, targetOffset, accessor.getDouble(source, sourceOffset));
+    } else if (type == float.class) {
+      accessor.putFloat(target, targetOffset, accessor.getFloat(source, sourceOffset));
+    } else if (type == char.class) {
+      accessor.putChar(target, targetOffset, accessor.getChar(source, sourceOffset));
+    } else {
+      accessor.putBoolean(target, targetOffset, accessor.getBoolean(source, sourceOffset));
+    }
+  }
+
+  private static long[] toArray(List<Long> list) {
+    long[] array = new long[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+
+}
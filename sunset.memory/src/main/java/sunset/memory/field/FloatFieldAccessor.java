@@ -0,0 +1,88 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code float} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class FloatFieldAccessor<T> extends FieldAccessor<T> {
+
+  FloatFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the float field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a float
+   */
+  public static <T> FloatFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, float.class);
+  }
+
+  /** Returns the value of the field. */
+  public float get(T obj) {
+    return ACCESSOR.getFloat(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, float value) {
+    ACCESSOR.putFloat(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public float getVolatile(T obj) {
+    return ACCESSOR.getFloatVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, float value) {
+    ACCESSOR.putFloatVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, float value) {
+    ACCESSOR.putFloatRelease(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Values are
+   * compared by their bits, so NaN matches NaN but -0.0 doesn't match 0.0. Returns whether it did.
+   */
+  public boolean compareAndSet(T obj, float expected, float value) {
+    return ACCESSOR.compareAndSwapInt(base(obj), offset, Float.floatToRawIntBits(expected),
+        Float.floatToRawIntBits(value));
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public float getAndSet(T obj, float value) {
+    return Float.intBitsToFloat(
+        ACCESSOR.getAndSetInt(base(obj), offset, Float.floatToRawIntBits(value)));
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public float getAndAdd(T obj, float delta) {
+    Object base = base(obj);
+    while (true) {
+      int bits = ACCESSOR.getIntVolatile(base, offset);
+      float current = Float.intBitsToFloat(bits);
+      int updated = Float.floatToRawIntBits(current + delta);
+      if (ACCESSOR.compareAndSwapInt(base, offset, bits, updated)) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public float addAndGet(T obj, float delta) {
+    return getAndAdd(obj, delta) + delta;
+  }
+
+}
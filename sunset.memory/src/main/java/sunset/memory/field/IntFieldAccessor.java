@@ -0,0 +1,78 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for an {@code int} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class IntFieldAccessor<T> extends FieldAccessor<T> {
+
+  IntFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the int field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't an int
+   */
+  public static <T> IntFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, int.class);
+  }
+
+  /** Returns the value of the field. */
+  public int get(T obj) {
+    return ACCESSOR.getInt(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, int value) {
+    ACCESSOR.putInt(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public int getVolatile(T obj) {
+    return ACCESSOR.getIntVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, int value) {
+    ACCESSOR.putIntVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, int value) {
+    ACCESSOR.putOrderedInt(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Returns
+   * whether it did.
+   */
+  public boolean compareAndSet(T obj, int expected, int value) {
+    return ACCESSOR.compareAndSwapInt(base(obj), offset, expected, value);
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public int getAndSet(T obj, int value) {
+    return ACCESSOR.getAndSetInt(base(obj), offset, value);
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public int getAndAdd(T obj, int delta) {
+    return ACCESSOR.getAndAddInt(base(obj), offset, delta);
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public int addAndGet(T obj, int delta) {
+    return ACCESSOR.getAndAddInt(base(obj), offset, delta) + delta;
+  }
+
+}
@@ -0,0 +1,78 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code long} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class LongFieldAccessor<T> extends FieldAccessor<T> {
+
+  LongFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the long field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a long
+   */
+  public static <T> LongFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, long.class);
+  }
+
+  /** Returns the value of the field. */
+  public long get(T obj) {
+    return ACCESSOR.getLong(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, long value) {
+    ACCESSOR.putLong(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public long getVolatile(T obj) {
+    return ACCESSOR.getLongVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, long value) {
+    ACCESSOR.putLongVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, long value) {
+    ACCESSOR.putOrderedLong(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Returns
+   * whether it did.
+   */
+  public boolean compareAndSet(T obj, long expected, long value) {
+    return ACCESSOR.compareAndSwapLong(base(obj), offset, expected, value);
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public long getAndSet(T obj, long value) {
+    return ACCESSOR.getAndSetLong(base(obj), offset, value);
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public long getAndAdd(T obj, long delta) {
+    return ACCESSOR.getAndAddLong(base(obj), offset, delta);
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public long addAndGet(T obj, long delta) {
+    return ACCESSOR.getAndAddLong(base(obj), offset, delta) + delta;
+  }
+
+}
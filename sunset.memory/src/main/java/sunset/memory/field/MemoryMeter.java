@@ -0,0 +1,357 @@
+package sunset.memory.field;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * Measures how much heap objects take, without a {@code -javaagent} for
+ * {@link java.lang.instrument.Instrumentation#getObjectSize}. The shallow size of an object is
+ * worked out from where its last field ends, as reported by
+ * {@link LowLevelMemoryAccessor#objectFieldOffset}, and of an array from
+ * {@link LowLevelMemoryAccessor#arrayBaseOffset} and
+ * {@link LowLevelMemoryAccessor#arrayIndexScale}, rounded up to the object alignment; each class's
+ * size and reference fields are worked out once. The deep size of an object is the sum of the
+ * shallow sizes of the objects reachable from it, each counted once, leaving out {@link Class}
+ * objects, which are shared metadata rather than data.
+ * <p>
+ * The object alignment is read from {@value #ALIGNMENT_PROPERTY} if set, then from HotSpot's
+ * {@code ObjectAlignmentInBytes} option, and is 8 bytes failing both. For records and hidden
+ * classes, whose field offsets can't be found, and for JDK classes with fields hidden from
+ * reflection, sizes are estimates. Objects must not be changed while they are measured. The
+ * accessor must {@linkplain LowLevelMemoryAccessor#exposesObjectLayout expose the object layout},
+ * which accessors built on {@link java.lang.invoke.VarHandle}s don't.
+ */
+public final class MemoryMeter {
+
+  /** The system property that overrides the object alignment. */
+  public static final String ALIGNMENT_PROPERTY = "sunset.memory.objectAlignment";
+
+  private static final int DEFAULT_ALIGNMENT = 8;
+  /** Number of pending objects above which a parallel walk hands half of them to a new task. */
+  private static final int SPLIT_THRESHOLD = 1024;
+
+  /** A class with one field, which follows the object header. */
+  private static final class Probe {
+    byte field;
+  }
+
+  /** The size and references of instances of a class. */
+  private static final class ClassInfo {
+    /** The aligned size of an instance, or the base offset of an array. */
+    final long size;
+    /** The size of an array element, or 0 if the class isn't an array. */
+    final int scale;
+    final boolean objectArray;
+    /** Offsets of the reference fields, or null if they can't be found. */
+    final long[] referenceOffsets;
+    /** The accessible reference fields, if their offsets can't be found. */
+    final Field[] referenceFields;
+
+    ClassInfo(long size, int scale, boolean objectArray, long[] referenceOffsets,
+        Field[] referenceFields) {
+      this.size = size;
+      this.scale = scale;
+      this.objectArray = objectArray;
+      this.referenceOffsets = referenceOffsets;
+      this.referenceFields = referenceFields;
+    }
+  }
+
+  /** Records objects as visited, and returns whether they weren't already. */
+  private interface Visited {
+    boolean add(Object obj);
+  }
+
+  /** Wraps an object so that it is compared by identity in a {@link ConcurrentHashMap}. */
+  private static final class IdentityKey {
+    private final Object obj;
+
+    IdentityKey(Object obj) {
+      this.obj = obj;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof IdentityKey && ((IdentityKey) other).obj == obj;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(obj);
+    }
+  }
+
+  /** Walks the objects reachable from those pending, splitting off tasks while there are many. */
+  private final class WalkTask extends RecursiveTask<Long> {
+    private final Deque<Object> pending;
+    private final Visited visited;
+
+    WalkTask(Deque<Object> pending, Visited visited) {
+      this.pending = pending;
+      this.visited = visited;
+    }
+
+    @Override
+    protected Long compute() {
+      long total = 0;
+      List<WalkTask> forked = new ArrayList<>();
+      Object obj;
+      while ((obj = pending.poll()) != null) {
+        total += visit(obj, visited, pending);
+        if (pending.size() >= SPLIT_THRESHOLD) {
+          Deque<Object> half = new ArrayDeque<>();
+          for (int i = pending.size() / 2; i > 0; i--) {
+            half.push(pending.pollLast());
+          }
+          WalkTask task = new WalkTask(half, visited);
+          task.fork();
+          forked.add(task);
+        }
+      }
+      for (WalkTask task : forked) {
+        total += task.join();
+      }
+      return total;
+    }
+  }
+
+  private final LowLevelMemoryAccessor accessor;
+  private final long headerSize;
+  private final long alignment;
+  private final int referenceSize;
+  private final ClassValue<ClassInfo> classes = new ClassValue<ClassInfo>() {
+    @Override
+    protected ClassInfo computeValue(Class<?> type) {
+      return createInfo(type);
+    }
+  };
+
+  /**
+   * Creates a meter that uses the default {@link LowLevelMemoryAccessor}.
+   *
+   * @throws IllegalArgumentException as for {@link #MemoryMeter(LowLevelMemoryAccessor)}
+   */
+  public MemoryMeter() {
+    this(LowLevelMemoryAccessor.getInstance());
+  }
+
+  /**
+   * Creates a meter that finds offsets and reads references through the given accessor.
+   *
+   * @throws IllegalArgumentException if the accessor doesn't
+   *     {@linkplain LowLevelMemoryAccessor#exposesObjectLayout expose the object layout}, so that
+   *     neither the header size nor where fields end can be found
+   */
+  public MemoryMeter(LowLevelMemoryAccessor accessor) {
+    if (!accessor.exposesObjectLayout()) {
+      throw new IllegalArgumentException("Accessor doesn't expose the object layout: " + accessor);
+    }
+    this.accessor = accessor;
+    try {
+      this.headerSize = accessor.objectFieldOffset(Probe.class.getDeclaredField("field"));
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException(e);
+    }
+    this.alignment = detectAlignment();
+    this.referenceSize = accessor.arrayIndexScale(Object[].class);
+  }
+
+  private static long detectAlignment() {
+    int alignment = Integer.getInteger(ALIGNMENT_PROPERTY, 0);
+    if (alignment == 0) {
+      try {
+        alignment = Integer.parseInt(ManagementFactory
+            .getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+            .getVMOption("ObjectAlignmentInBytes").getValue());
+      } catch (RuntimeException | LinkageError e) {
+        // Not HotSpot, or no java.management
+        alignment = DEFAULT_ALIGNMENT;
+      }
+    }
+    if (alignment < 8 || Integer.bitCount(alignment) != 1) {
+      throw new IllegalArgumentException("Object alignment is not a power of two >= 8: "
+          + alignment);
+    }
+    return alignment;
+  }
+
+  /** Returns the size of the header of an object that isn't an array. */
+  public long headerSize() {
+    return headerSize;
+  }
+
+  /** Returns the number of bytes that object sizes are rounded up to a multiple of. */
+  public long objectAlignment() {
+    return alignment;
+  }
+
+  /** Returns the size of a reference in a field or an array. */
+  public int referenceSize() {
+    return referenceSize;
+  }
+
+  private long align(long size) {
+    return (size + alignment - 1) & -alignment;
+  }
+
+  private ClassInfo createInfo(Class<?> type) {
+    if (type.isArray()) {
+      return new ClassInfo(accessor.arrayBaseOffset(type), accessor.arrayIndexScale(type),
+          !type.getComponentType().isPrimitive(), null, null);
+    }
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          fields.add(field);
+        }
+      }
+    }
+    try {
+      long end = headerSize;
+      List<Long> offsets = new ArrayList<>();
+      for (Field field : fields) {
+        long offset = accessor.objectFieldOffset(field);
+        end = Math.max(end, offset + size(field.getType()));
+        if (!field.getType().isPrimitive()) {
+          offsets.add(offset);
+        }
+      }
+      long[] referenceOffsets = new long[offsets.size()];
+      for (int i = 0; i < referenceOffsets.length; i++) {
+        referenceOffsets[i] = offsets.get(i);
+      }
+      return new ClassInfo(align(end), 0, false, referenceOffsets, null);
+    } catch (UnsupportedOperationException e) {
+      // A record or a hidden class: assume the fields are packed, and read them by reflection
+      long size = headerSize;
+      List<Field> references = new ArrayList<>();
+      for (Field field : fields) {
+        size += size(field.getType());
+        if (!field.getType().isPrimitive() && field.trySetAccessible()) {
+          references.add(field);
+        }
+      }
+      return new ClassInfo(align(size), 0, false, null, references.toArray(new Field[0]));
+    }
+  }
+
+  private long size(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return referenceSize;
+    } else if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  /** Returns the shallow size of the given object, or 0 if it is null. */
+  public long measure(Object obj) {
+    if (obj == null) {
+      return 0;
+    }
+    ClassInfo info = classes.get(obj.getClass());
+    if (info.scale == 0) {
+      return info.size;
+    }
+    return align(info.size + (long) Array.getLength(obj) * info.scale);
+  }
+
+  /**
+   * Returns the deep size of the given object: the sum of the shallow sizes of the objects
+   * reachable from it, including itself, other than {@link Class} objects.
+   */
+  public long measureDeep(Object root) {
+    if (root == null) {
+      return 0;
+    }
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    visited.add(root);
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    long total = 0;
+    Object obj;
+    while ((obj = pending.poll()) != null) {
+      total += visit(obj, visited::add, pending);
+    }
+    return total;
+  }
+
+  /**
+   * Returns the deep size of the given object like {@link #measureDeep}, walking the graph in
+   * parallel once it branches out, in the {@link ForkJoinPool} of the calling thread if it is in
+   * one, or else in the common pool. Tracking visited objects across threads costs more than
+   * tracking them in one, so this only pays off for large graphs on several cores.
+   */
+  public long measureDeepParallel(Object root) {
+    if (root == null) {
+      return 0;
+    }
+    ConcurrentHashMap<IdentityKey, Boolean> visited = new ConcurrentHashMap<>();
+    visited.put(new IdentityKey(root), Boolean.TRUE);
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    WalkTask task = new WalkTask(pending,
+        obj -> visited.putIfAbsent(new IdentityKey(obj), Boolean.TRUE) == null);
+    return ForkJoinTask.inForkJoinPool() ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
+  }
+
+  /**
+   * Returns the shallow size of the given object, after adding the objects it refers to that
+   * haven't been visited yet to those pending.
+   */
+  private long visit(Object obj, Visited visited, Deque<Object> pending) {
+    ClassInfo info = classes.get(obj.getClass());
+    if (info.scale != 0) {
+      int length = Array.getLength(obj);
+      if (info.objectArray) {
+        for (Object element : (Object[]) obj) {
+          push(element, visited, pending);
+        }
+      }
+      return align(info.size + (long) length * info.scale);
+    }
+    if (info.referenceOffsets != null) {
+      for (long offset : info.referenceOffsets) {
+        push(accessor.getObject(obj, offset), visited, pending);
+      }
+    } else {
+      for (Field field : info.referenceFields) {
+        try {
+          push(field.get(obj), visited, pending);
+        } catch (IllegalAccessException e) {
+          // trySetAccessible succeeded, so this can't happen
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return info.size;
+  }
+
+  private static void push(Object obj, Visited visited, Deque<Object> pending) {
+    if (obj != null && !(obj instanceof Class) && visited.add(obj)) {
+      pending.push(obj);
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a reference field.
+ *
+ * @param <T> the class that declares the field
+ * @param <V> the type of the field
+ */
+public final class ObjectFieldAccessor<T, V> extends FieldAccessor<T> {
+
+  ObjectFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the field of the given class, or of one of its superclasses, with the given name and
+   * type. As with {@link java.util.concurrent.atomic.AtomicReferenceFieldUpdater}, the field must
+   * be declared with exactly that type.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it is of another type
+   */
+  public static <T, V> ObjectFieldAccessor<T, V> of(Class<T> type, String name,
+      Class<V> valueType) {
+    return lookup(type, name, valueType);
+  }
+
+  /** Returns the value of the field. */
+  @SuppressWarnings("unchecked")
+  public V get(T obj) {
+    return (V) ACCESSOR.getObject(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, V value) {
+    ACCESSOR.putObject(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  @SuppressWarnings("unchecked")
+  public V getVolatile(T obj) {
+    return (V) ACCESSOR.getObjectVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, V value) {
+    ACCESSOR.putObjectVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, V value) {
+    ACCESSOR.putOrderedObject(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it is the same reference as the expected value.
+   * Returns whether it did.
+   */
+  public boolean compareAndSet(T obj, V expected, V value) {
+    return ACCESSOR.compareAndSwapObject(base(obj), offset, expected, value);
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  @SuppressWarnings("unchecked")
+  public V getAndSet(T obj, V value) {
+    return (V) ACCESSOR.getAndSetObject(base(obj), offset, value);
+  }
+
+}
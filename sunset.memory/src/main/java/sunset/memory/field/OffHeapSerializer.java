@@ -0,0 +1,505 @@
+package sunset.memory.field;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.StringCodec;
+import sunset.serial.ctor.ConstructorMunger;
+
+/**
+ * Writes graphs of objects straight into native memory, such as a block from
+ * {@link LowLevelMemoryAccessor#allocateMemory} or a {@link sunset.memory.MappedRegion}, and reads
+ * them back, without {@link java.io.Serializable}, streams or reflection. Each class's instance
+ * fields are laid out once, as in {@link FastCloner}: runs of adjacent primitive fields are written
+ * as the aligned words that cover them, primitive arrays are copied in bulk with
+ * {@link LowLevelMemoryAccessor#copyMemory}, and objects are read back through a
+ * {@link ConstructorMunger} constructor that only runs {@code Object()}, so none of their classes'
+ * constructors run.
+ * <p>
+ * Shared references and cycles are preserved. Strings are written as UTF-8, and enums by ordinal,
+ * so that they keep their identity. Transient and static fields are skipped, and transient ones
+ * read back as zero or null. Classes that define their own serialized form, such as
+ * {@code ArrayList} and {@code HashMap}, whose state isn't just their fields, are rejected: this is
+ * meant for plain value objects and arrays of them. The first object of each class is preceded by
+ * the class's name and a fingerprint of its field layout; reading fails if the class has changed
+ * since, or if the data is truncated or malformed. The format uses the native byte order and the
+ * VM's field offsets, so it is meant for data that is read back by the same build of an application
+ * on the same kind of VM, such as a cache spilled to disk, rather than for long-term storage or
+ * exchange. Graphs are walked recursively, so very long chains of references, such as long linked
+ * lists, may overflow the stack.
+ * <p>
+ * Instances are thread-safe, and cache the layout of each class they see.
+ */
+public final class OffHeapSerializer {
+
+  /** Written at the start of the data, so that reading other data fails early. */
+  private static final int MAGIC = 0x53534F31;
+
+  private enum Kind {
+    STRING, ENUM, PRIMITIVE_ARRAY, OBJECT_ARRAY, OBJECT
+  }
+
+  /** How instances of a class are written and read. */
+  private static final class Schema {
+    final Class<?> type;
+    final Kind kind;
+    final int fingerprint;
+    /** For {@link Kind#OBJECT}. */
+    final FieldLayout layout;
+    final Constructor<?> constructor;
+    /** For {@link Kind#ENUM}. */
+    final Object[] constants;
+    /** For arrays. */
+    final long base;
+    final int shift;
+
+    Schema(Class<?> type, Kind kind, int fingerprint, FieldLayout layout,
+        Constructor<?> constructor, Object[] constants, long base, int shift) {
+      this.type = type;
+      this.kind = kind;
+      this.fingerprint = fingerprint;
+      this.layout = layout;
+      this.constructor = constructor;
+      this.constants = constants;
+      this.base = base;
+      this.shift = shift;
+    }
+  }
+
+  /** Thrown by {@link Writer} when the data doesn't fit. Preallocated, as it is only a signal. */
+  private static final class Overflow extends RuntimeException {
+    Overflow() {
+      super(null, null, false, false);
+    }
+  }
+
+  private static final Overflow OVERFLOW = new Overflow();
+
+  private final LowLevelMemoryAccessor accessor;
+  private final ConstructorMunger munger;
+  private final ClassLoader loader;
+  private final StringCodec codec;
+  private final ClassValue<Schema> schemas = new ClassValue<Schema>() {
+    @Override
+    protected Schema computeValue(Class<?> type) {
+      return createSchema(type);
+    }
+  };
+  private final Map<String, Class<?>> classesByName = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a serializer that uses the default {@link LowLevelMemoryAccessor} and
+   * {@link ConstructorMunger}, and resolves classes in the context class loader of the current
+   * thread.
+   */
+  public OffHeapSerializer() {
+    this(LowLevelMemoryAccessor.getInstance(), ConstructorMunger.getInstance(),
+        Thread.currentThread().getContextClassLoader());
+  }
+
+  /**
+   * Creates a serializer that reads and writes through the given accessor, creates objects with
+   * constructors from the given munger, and resolves classes in the given loader.
+   */
+  public OffHeapSerializer(LowLevelMemoryAccessor accessor, ConstructorMunger munger,
+      ClassLoader loader) {
+    this.accessor = accessor;
+    this.munger = munger;
+    this.loader = loader;
+    this.codec = new StringCodec(accessor);
+  }
+
+  private Schema createSchema(Class<?> type) {
+    if (type == String.class) {
+      return new Schema(type, Kind.STRING, 0, null, null, null, 0, 0);
+    } else if (type.isEnum()) {
+      Object[] constants = type.getEnumConstants();
+      int fingerprint = type.getName().hashCode();
+      for (Object constant : constants) {
+        fingerprint = 31 * fingerprint + ((Enum<?>) constant).name().hashCode();
+      }
+      return new Schema(type, Kind.ENUM, fingerprint, null, null, constants, 0, 0);
+    } else if (type.isArray()) {
+      long base = accessor.arrayBaseOffset(type);
+      if (!type.getComponentType().isPrimitive()) {
+        return new Schema(type, Kind.OBJECT_ARRAY, 0, null, null, null, base, 0);
+      }
+      int shift = Integer.numberOfTrailingZeros(accessor.arrayIndexScale(type));
+      return new Schema(type, Kind.PRIMITIVE_ARRAY, 0, null, null, null, base, shift);
+    } else if (type == Class.class) {
+      // A class is identified by its loader, which fields can't capture
+      throw new IllegalArgumentException("Can't serialize instances of " + type.getName());
+    }
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      if (Externalizable.class.isAssignableFrom(c)
+          || declares(c, "writeObject", ObjectOutputStream.class)
+          || declares(c, "readObject", ObjectInputStream.class)
+          || declares(c, "writeReplace") || declares(c, "readResolve")) {
+        // Their fields alone aren't their state, as with the transient array of an ArrayList
+        throw new IllegalArgumentException(
+            c.getName() + " defines its own serialized form, so its fields can't be copied");
+      }
+    }
+    FieldLayout layout = new FieldLayout(accessor, type, false);
+    return new Schema(type, Kind.OBJECT, layout.fingerprint, layout,
+        FastCloner.constructor(munger, type), null, 0, 0);
+  }
+
+  private static boolean declares(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      type.getDeclaredMethod(name, parameterTypes);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Writes the graph of objects reachable from the given root, which may be null, at the given
+   * address, and returns the number of bytes written, or -1 if they don't fit in the given
+   * capacity, in which case the contents of the block are undefined.
+   *
+   * @throws IllegalArgumentException if the graph contains an object that can't be serialized:
+   *     a {@link Class}, a record, or an instance of a class that defines its own serialized form
+   *     with {@code writeObject}, {@code readObject}, {@code writeReplace}, {@code readResolve} or
+   *     {@link Externalizable}, such as most collections, or, if the accessor doesn't
+   *     {@linkplain LowLevelMemoryAccessor#exposesObjectLayout expose the layout}, an instance of
+   *     a class with final fields that aren't transient
+   */
+  public long serialize(Object root, long address, long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative capacity: " + capacity);
+    }
+    Writer writer = new Writer(address, address + capacity);
+    try {
+      writer.writeInt(MAGIC);
+      writer.writeObject(root);
+    } catch (Overflow e) {
+      return -1;
+    }
+    return writer.position - address;
+  }
+
+  /**
+   * Reads a graph written by {@link #serialize} from the given number of bytes at the given
+   * address, and returns its root.
+   *
+   * @throws IllegalArgumentException if the data is truncated or malformed, or a class in it has
+   *     changed since it was written
+   */
+  public Object deserialize(long address, long length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Negative length: " + length);
+    }
+    Reader reader = new Reader(address, address + length);
+    if (reader.readInt() != MAGIC) {
+      throw new IllegalArgumentException("Not serialized data at " + address);
+    }
+    return reader.readObject();
+  }
+
+  /**
+   * Reads a graph as {@link #deserialize(long, long)} does, and checks that its root is an instance
+   * of the given class.
+   *
+   * @throws ClassCastException if the root isn't null or an instance of the given class
+   */
+  public <T> T deserialize(long address, long length, Class<T> type) {
+    return type.cast(deserialize(address, length));
+  }
+
+  /** Writes one graph, keeping track of the objects and classes already written. */
+  private final class Writer {
+    long position;
+    final long limit;
+    /** Handles of the objects written so far, which are their indices in the order written. */
+    final Map<Object, Integer> handles = new IdentityHashMap<>(8);
+    /** Classes written so far, in order. There are usually few enough to search. */
+    final List<Class<?>> classes = new ArrayList<>(4);
+
+    Writer(long position, long limit) {
+      this.position = position;
+      this.limit = limit;
+    }
+
+    /** Returns the address of the next given number of bytes, and moves past them. */
+    long reserve(long bytes) {
+      if (bytes > limit - position) {
+        throw OVERFLOW;
+      }
+      long address = position;
+      position += bytes;
+      return address;
+    }
+
+    void writeInt(int value) {
+      accessor.putInt(null, reserve(4), value);
+    }
+
+    void writeString(String s) {
+      int length = codec.utf8Length(s);
+      writeInt(length);
+      codec.encodeUtf8(s, reserve(length));
+    }
+
+    /**
+     * Writes a reference as a tag: 0 for null, a positive number for the handle + 1 of an object
+     * already written, or a negative number for -1 - the id of the class of the new object that
+     * follows. A class id that hasn't been used yet is followed by the class's name and
+     * fingerprint.
+     */
+    void writeObject(Object obj) {
+      if (obj == null) {
+        writeInt(0);
+        return;
+      }
+      Integer handle = handles.putIfAbsent(obj, handles.size());
+      if (handle != null) {
+        writeInt(handle + 1);
+        return;
+      }
+      Class<?> type = obj instanceof Enum ? ((Enum<?>) obj).getDeclaringClass() : obj.getClass();
+      Schema schema = schemas.get(type);
+      writeClass(schema);
+      switch (schema.kind) {
+        case STRING:
+          writeString((String) obj);
+          break;
+        case ENUM:
+          writeInt(((Enum<?>) obj).ordinal());
+          break;
+        case PRIMITIVE_ARRAY: {
+          int length = Array.getLength(obj);
+          writeInt(length);
+          long bytes = (long) length << schema.shift;
+          accessor.copyMemory(obj, schema.base, null, reserve(bytes), bytes);
+          break;
+        }
+        case OBJECT_ARRAY: {
+          Object[] array = (Object[]) obj;
+          writeInt(array.length);
+          for (Object element : array) {
+            writeObject(element);
+          }
+          break;
+        }
+        default:
+          writeFields(schema.layout, obj);
+      }
+    }
+
+    void writeClass(Schema schema) {
+      for (int i = 0; i < classes.size(); i++) {
+        if (classes.get(i) == schema.type) {
+          writeInt(-1 - i);
+          return;
+        }
+      }
+      writeInt(-1 - classes.size());
+      classes.add(schema.type);
+      writeString(schema.type.getName());
+      writeInt(schema.fingerprint);
+    }
+
+    void writeFields(FieldLayout layout, Object obj) {
+      long address = reserve(layout.primitiveBytes);
+      for (long offset : layout.longOffsets) {
+        accessor.putLong(null, address, accessor.getLong(obj, offset));
+        address += 8;
+      }
+      for (long offset : layout.intOffsets) {
+        accessor.putInt(null, address, accessor.getInt(obj, offset));
+        address += 4;
+      }
+      for (long offset : layout.shortOffsets) {
+        accessor.putShort(null, address, accessor.getShort(obj, offset));
+        address += 2;
+      }
+      for (long offset : layout.byteOffsets) {
+        accessor.putByte(null, address, accessor.getByte(obj, offset));
+        address++;
+      }
+      for (int i = 0; i < layout.fieldOffsets.length; i++) {
+        FieldLayout.copy(
+            accessor, layout.fieldTypes[i], obj, layout.fieldOffsets[i], null, address);
+        address += FieldLayout.size(layout.fieldTypes[i]);
+      }
+      for (long offset : layout.objectOffsets) {
+        writeObject(accessor.getObject(obj, offset));
+      }
+    }
+  }
+
+  /** Reads one graph, keeping track of the objects and classes already read. */
+  private final class Reader {
+    long position;
+    final long limit;
+    final List<Object> handles = new ArrayList<>();
+    final List<Schema> classes = new ArrayList<>(4);
+
+    Reader(long position, long limit) {
+      this.position = position;
+      this.limit = limit;
+    }
+
+    /** Returns the address of the next given number of bytes, and moves past them. */
+    long take(long bytes) {
+      if (bytes < 0 || bytes > limit - position) {
+        throw new IllegalArgumentException("Truncated data: " + bytes + " more bytes needed at "
+            + position + ", but " + (limit - position) + " are left");
+      }
+      long address = position;
+      position += bytes;
+      return address;
+    }
+
+    int readInt() {
+      return accessor.getInt(null, take(4));
+    }
+
+    String readString() {
+      int length = readInt();
+      return codec.decodeUtf8(take(length), length);
+    }
+
+    Object readObject() {
+      int tag = readInt();
+      if (tag == 0) {
+        return null;
+      } else if (tag > 0) {
+        if (tag > handles.size()) {
+          throw new IllegalArgumentException("Malformed data: no object " + tag);
+        }
+        return handles.get(tag - 1);
+      }
+      Schema schema = readClass(-1 - tag);
+      switch (schema.kind) {
+        case STRING:
+          return register(readString());
+        case ENUM: {
+          int ordinal = readInt();
+          if (ordinal < 0 || ordinal >= schema.constants.length) {
+            throw new IllegalArgumentException(
+                "Malformed data: no constant " + ordinal + " in " + schema.type.getName());
+          }
+          return register(schema.constants[ordinal]);
+        }
+        case PRIMITIVE_ARRAY: {
+          int length = readLength(1L << schema.shift);
+          long bytes = (long) length << schema.shift;
+          Object array = register(Array.newInstance(schema.type.getComponentType(), length));
+          accessor.copyMemory(null, take(bytes), array, schema.base, bytes);
+          return array;
+        }
+        case OBJECT_ARRAY: {
+          int length = readLength(4);
+          Object[] array =
+              (Object[]) register(Array.newInstance(schema.type.getComponentType(), length));
+          for (int i = 0; i < length; i++) {
+            Object element = readObject();
+            if (element != null && !schema.type.getComponentType().isInstance(element)) {
+              throw mismatch(element, schema.type.getComponentType());
+            }
+            array[i] = element;
+          }
+          return array;
+        }
+        default:
+          return readFields(schema.layout, register(FastCloner.newInstance(schema.constructor)));
+      }
+    }
+
+    /** Reads the length of an array whose elements take at least the given number of bytes. */
+    int readLength(long elementBytes) {
+      int length = readInt();
+      if (length < 0 || length * elementBytes > limit - position) {
+        throw new IllegalArgumentException("Malformed data: array of length " + length
+            + " at " + position + ", but " + (limit - position) + " bytes are left");
+      }
+      return length;
+    }
+
+    Schema readClass(int id) {
+      if (id < classes.size()) {
+        return classes.get(id);
+      } else if (id > classes.size()) {
+        throw new IllegalArgumentException("Malformed data: no class " + id);
+      }
+      String name = readString();
+      int fingerprint = readInt();
+      Schema schema = schemas.get(resolve(name));
+      if (schema.fingerprint != fingerprint) {
+        throw new IllegalArgumentException("The fields of " + name + " have changed");
+      }
+      classes.add(schema);
+      return schema;
+    }
+
+    Class<?> resolve(String name) {
+      Class<?> type = classesByName.get(name);
+      if (type == null) {
+        try {
+          type = Class.forName(name, false, loader);
+        } catch (ClassNotFoundException e) {
+          throw new IllegalArgumentException("Class not found: " + name, e);
+        }
+        classesByName.put(name, type);
+      }
+      return type;
+    }
+
+    Object register(Object obj) {
+      handles.add(obj);
+      return obj;
+    }
+
+    Object readFields(FieldLayout layout, Object obj) {
+      long address = take(layout.primitiveBytes);
+      for (long offset : layout.longOffsets) {
+        accessor.putLong(obj, offset, accessor.getLong(null, address));
+        address += 8;
+      }
+      for (long offset : layout.intOffsets) {
+        accessor.putInt(obj, offset, accessor.getInt(null, address));
+        address += 4;
+      }
+      for (long offset : layout.shortOffsets) {
+        accessor.putShort(obj, offset, accessor.getShort(null, address));
+        address += 2;
+      }
+      for (long offset : layout.byteOffsets) {
+        accessor.putByte(obj, offset, accessor.getByte(null, address));
+        address++;
+      }
+      for (int i = 0; i < layout.fieldOffsets.length; i++) {
+        FieldLayout.copy(
+            accessor, layout.fieldTypes[i], null, address, obj, layout.fieldOffsets[i]);
+        address += FieldLayout.size(layout.fieldTypes[i]);
+      }
+      for (int i = 0; i < layout.objectOffsets.length; i++) {
+        Object value = readObject();
+        // A field of the wrong type would break the VM's type safety, so check it
+        if (value != null && !layout.objectTypes[i].isInstance(value)) {
+          throw mismatch(value, layout.objectTypes[i]);
+        }
+        accessor.putObject(obj, layout.objectOffsets[i], value);
+      }
+      return obj;
+    }
+
+    IllegalArgumentException mismatch(Object value, Class<?> expected) {
+      return new IllegalArgumentException("Malformed data: a " + value.getClass().getName()
+          + " where a " + expected.getName() + " is expected");
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+package sunset.memory.field;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} for a {@code short} field.
+ *
+ * @param <T> the class that declares the field
+ */
+public final class ShortFieldAccessor<T> extends FieldAccessor<T> {
+
+  ShortFieldAccessor(Field field) {
+    super(field);
+  }
+
+  /**
+   * Returns the short field of the given class, or of one of its superclasses, with the given
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such field, or it isn't a short
+   */
+  public static <T> ShortFieldAccessor<T> of(Class<T> type, String name) {
+    return lookup(type, name, short.class);
+  }
+
+  /** Returns the value of the field. */
+  public short get(T obj) {
+    return ACCESSOR.getShort(base(obj), offset);
+  }
+
+  /** Sets the field to the given value. */
+  public void set(T obj, short value) {
+    ACCESSOR.putShort(base(obj), offset, value);
+  }
+
+  /** Returns the value of the field, with volatile semantics. */
+  public short getVolatile(T obj) {
+    return ACCESSOR.getShortVolatile(base(obj), offset);
+  }
+
+  /** Sets the field to the given value, with volatile semantics. */
+  public void setVolatile(T obj, short value) {
+    ACCESSOR.putShortVolatile(base(obj), offset, value);
+  }
+
+  /**
+   * Sets the field to the given value, after every earlier store but without waiting for the store
+   * to become visible to other threads, like
+   * {@link java.util.concurrent.atomic.AtomicLong#lazySet}.
+   */
+  public void setOrdered(T obj, short value) {
+    ACCESSOR.putShortRelease(base(obj), offset, value);
+  }
+
+  /**
+   * Atomically sets the field to the given value if it equals the expected value. Returns
+   * whether it did.
+   */
+  public boolean compareAndSet(T obj, short expected, short value) {
+    return ACCESSOR.compareAndSwapShort(base(obj), offset, expected, value);
+  }
+
+  /** Atomically sets the field to the given value, and returns its previous value. */
+  public short getAndSet(T obj, short value) {
+    Object base = base(obj);
+    while (true) {
+      short current = ACCESSOR.getShortVolatile(base, offset);
+      if (ACCESSOR.compareAndSwapShort(base, offset, current, value)) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its previous value. */
+  public short getAndAdd(T obj, short delta) {
+    Object base = base(obj);
+    while (true) {
+      short current = ACCESSOR.getShortVolatile(base, offset);
+      if (ACCESSOR.compareAndSwapShort(base, offset, current, (short) (current + delta))) {
+        return current;
+      }
+    }
+  }
+
+  /** Atomically adds the given value to the field, and returns its new value. */
+  public short addAndGet(T obj, short delta) {
+    return (short) (getAndAdd(obj, delta) + delta);
+  }
+
+}
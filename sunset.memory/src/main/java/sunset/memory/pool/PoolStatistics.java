@@ -0,0 +1,93 @@
+package sunset.memory.pool;
+
+/**
+ * A snapshot of the memory held by a {@link PooledLowLevelMemoryAccessor}.
+ *
+ * @see PooledLowLevelMemoryAccessor#statistics()
+ */
+public final class PoolStatistics {
+
+  private final long reservedBytes;
+  private final long slabBytes;
+  private final long liveSmallBytes;
+  private final int[] sizeClasses;
+  private final long[] liveBlocks;
+  private final long largeBlocks;
+  private final long largeBytes;
+
+  PoolStatistics(long reservedBytes, long slabBytes, long liveSmallBytes, int[] sizeClasses,
+      long[] liveBlocks, long largeBlocks, long largeBytes) {
+    this.reservedBytes = reservedBytes;
+    this.slabBytes = slabBytes;
+    this.liveSmallBytes = liveSmallBytes;
+    this.sizeClasses = sizeClasses;
+    this.liveBlocks = liveBlocks;
+    this.largeBlocks = largeBlocks;
+    this.largeBytes = largeBytes;
+  }
+
+  /** Returns the bytes of native memory taken from the underlying accessor for slabs. */
+  public long reservedBytes() {
+    return reservedBytes;
+  }
+
+  /** Returns the bytes of the slabs currently assigned to a size class. */
+  public long slabBytes() {
+    return slabBytes;
+  }
+
+  /** Returns the bytes of the small blocks that are allocated, counting whole blocks. */
+  public long liveSmallBytes() {
+    return liveSmallBytes;
+  }
+
+  /** Returns the number of allocated small blocks in the size class with the given block size. */
+  public long liveBlocks(int blockSize) {
+    for (int i = 0; i < sizeClasses.length; i++) {
+      if (sizeClasses[i] == blockSize) {
+        return liveBlocks[i];
+      }
+    }
+    throw new IllegalArgumentException("Not a size class: " + blockSize);
+  }
+
+  /** Returns the number of allocated blocks too large for a slab. */
+  public long largeBlocks() {
+    return largeBlocks;
+  }
+
+  /** Returns the total requested size of the allocated blocks too large for a slab. */
+  public long largeBytes() {
+    return largeBytes;
+  }
+
+  /** Returns the fraction of the bytes in assigned slabs that are allocated, or 1 if none are. */
+  public double utilization() {
+    return slabBytes == 0 ? 1 : (double) liveSmallBytes / slabBytes;
+  }
+
+  /**
+   * Returns the fraction of the reserved bytes that aren't allocated, either because they are
+   * free blocks in an assigned slab or because they are in an unassigned slab.
+   */
+  public double fragmentation() {
+    return reservedBytes == 0 ? 0 : 1 - (double) liveSmallBytes / reservedBytes;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("PoolStatistics[reserved=").append(reservedBytes)
+        .append(", slabs=").append(slabBytes)
+        .append(", live=").append(liveSmallBytes)
+        .append(", large=").append(largeBlocks).append('/').append(largeBytes)
+        .append(", utilization=").append(String.format("%.3f", utilization()))
+        .append(", blocks={");
+    for (int i = 0; i < sizeClasses.length; i++) {
+      if (liveBlocks[i] != 0) {
+        builder.append(sizeClasses[i]).append(':').append(liveBlocks[i]).append(' ');
+      }
+    }
+    return builder.append("}]").toString();
+  }
+
+}
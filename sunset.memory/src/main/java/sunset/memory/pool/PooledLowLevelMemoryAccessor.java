@@ -0,0 +1,550 @@
+package sunset.memory.pool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import sunset.memory.ForwardingLowLevelMemoryAccessor;
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A {@link LowLevelMemoryAccessor} whose {@link #allocateMemory}, {@link #reallocateMemory} and
+ * {@link #freeMemory} pool small blocks instead of calling the C allocator for each one. Every
+ * other method is forwarded to the underlying accessor, so call sites can switch to this class
+ * without other changes.
+ * <p>
+ * Requests of up to {@value #MAX_SMALL_SIZE} bytes are rounded up to one of
+ * {@link #sizeClasses()} and served from {@value #SLAB_SIZE}-byte slabs, each of which holds
+ * blocks of a single size class and belongs to a single thread. The owning thread allocates and
+ * frees without synchronization, by bumping a pointer through fresh slabs and through a free list
+ * threaded through freed blocks. Blocks freed by other threads are pushed onto a lock-free list
+ * that the owner takes over once its own free list runs dry. A slab whose blocks have all been
+ * freed goes back to a shared pool and can be reused by any thread for any size class.
+ * <p>
+ * Larger requests go to the underlying accessor's {@link #allocateMemory}, with a 16-byte header.
+ * Small blocks are aligned to 16 bytes; large blocks are aligned to 8 bytes, which is enough for
+ * all Java value types. That difference is how {@link #freeMemory} tells them apart.
+ * <p>
+ * Slabs are carved from segments of {@value #SLABS_PER_SEGMENT} slabs, which are only returned to
+ * the underlying accessor by {@link #close}. The slabs of a thread that has exited are adopted by
+ * the next thread that needs a fresh slab, which allocates from them, and releases them once they
+ * are empty.
+ * <p>
+ * {@link LowLevelMemoryAccessor#getInstance()} pools memory from the default accessor when the
+ * {@value #PROPERTY} system property is {@code true} at startup, so that code using the default
+ * accessor can switch without changes.
+ */
+public class PooledLowLevelMemoryAccessor extends ForwardingLowLevelMemoryAccessor
+    implements AutoCloseable {
+
+  /** The system property that makes {@link LowLevelMemoryAccessor#getInstance()} pool memory. */
+  public static final String PROPERTY = "sunset.memory.pooled";
+
+  /** Whether {@link LowLevelMemoryAccessor#getInstance()} returns a pooled accessor. */
+  public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+  /** Largest request served from a slab. */
+  public static final int MAX_SMALL_SIZE = 32 * 1024;
+
+  static final int SLAB_SHIFT = 18;
+  static final long SLAB_SIZE = 1L << SLAB_SHIFT;
+  static final int SLABS_PER_SEGMENT = 16;
+
+  /** Space at the start of each slab, which holds the slab's index in {@link #slabs}. */
+  private static final int SLAB_HEADER = 16;
+
+  /** Space before each large block, which holds its size and the underlying block's address. */
+  private static final int LARGE_HEADER = 16;
+
+  /** Two size classes per power of two, from 16 bytes to {@link #MAX_SMALL_SIZE}. */
+  private static final int[] SIZES;
+
+  /** Size class of each request size, indexed by the size in 16-byte granules, rounded up. */
+  private static final byte[] CLASS_BY_GRANULE = new byte[MAX_SMALL_SIZE / 16 + 1];
+
+  static {
+    List<Integer> sizes = new ArrayList<>();
+    sizes.add(16);
+    for (int size = 32; size <= MAX_SMALL_SIZE; size <<= 1) {
+      if (size >= 64) {
+        sizes.add(size * 3 / 4);
+      }
+      sizes.add(size);
+    }
+    SIZES = sizes.stream().mapToInt(Integer::intValue).toArray();
+    int sizeClass = 0;
+    for (int granules = 0; granules < CLASS_BY_GRANULE.length; granules++) {
+      if (granules * 16 > SIZES[sizeClass]) {
+        sizeClass++;
+      }
+      CLASS_BY_GRANULE[granules] = (byte) sizeClass;
+    }
+  }
+
+  /**
+   * A slab of blocks of one size class. Fields without a concurrent type are only written by the
+   * owning thread, or by the thread that takes the slab from {@link #freeSlabs}.
+   */
+  private static final class Slab {
+    final long base;
+    final int index;
+    int sizeClass;
+    int blockSize;
+    Thread owner;
+    ThreadCache cache;
+    /** Head of the owner's free list, linked through the first 8 bytes of each block. */
+    long localFree;
+    /** Next never-allocated block. */
+    long cursor;
+    /** End of the last whole block. */
+    long limit;
+    /** Blocks handed out and not yet known by the owner to be freed. */
+    int used;
+    /** Whether the slab is in its owner's {@link ThreadCache#available} queue. */
+    boolean available;
+    /** Head of the list of blocks freed by other threads. */
+    final AtomicLong remoteFree = new AtomicLong();
+    /** Set by the owner when it stops allocating from this slab for lack of free blocks. */
+    volatile boolean full;
+    /** Set by whoever adds a full slab with newly freed blocks to its owner's pending queue. */
+    final AtomicBoolean queued = new AtomicBoolean();
+
+    Slab(long base, int index) {
+      this.base = base;
+      this.index = index;
+    }
+  }
+
+  /** A thread's slabs. */
+  private static final class ThreadCache {
+    final Thread owner = Thread.currentThread();
+    /**
+     * The cache that took over this one's slabs after its owner exited. Slabs that other threads
+     * add to {@link #pending} afterwards are passed on to it.
+     */
+    volatile ThreadCache adoptedBy;
+    /** The slab being allocated from, for each size class. */
+    final Slab[] current = new Slab[SIZES.length];
+    /** Slabs with free blocks to fall back on, for each size class. Only used by the owner. */
+    final List<ArrayDeque<Slab>> available = new ArrayList<>();
+    /** Full slabs that have had blocks freed since. */
+    final ConcurrentLinkedQueue<Slab> pending = new ConcurrentLinkedQueue<>();
+
+    ThreadCache() {
+      for (int i = 0; i < SIZES.length; i++) {
+        available.add(new ArrayDeque<>());
+      }
+    }
+  }
+
+  private final ThreadLocal<ThreadCache> caches = ThreadLocal.withInitial(this::newCache);
+  /** Every thread's cache, until it is adopted. */
+  private final ConcurrentLinkedQueue<ThreadCache> threadCaches = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Slab> freeSlabs = new ConcurrentLinkedQueue<>();
+  private final List<Long> segments = new ArrayList<>();
+  private volatile Slab[] slabs = new Slab[0];
+
+  private final LongAdder[] liveBlocks = new LongAdder[SIZES.length];
+  private final AtomicInteger slabsInUse = new AtomicInteger();
+  private final LongAdder largeBlocks = new LongAdder();
+  private final LongAdder largeBytes = new LongAdder();
+  private volatile boolean closed;
+
+  /** Pools memory from the default {@link LowLevelMemoryAccessor}. */
+  public PooledLowLevelMemoryAccessor() {
+    this(LowLevelMemoryAccessor.getInstance());
+  }
+
+  /** Pools memory from the given accessor, and forwards all other methods to it. */
+  public PooledLowLevelMemoryAccessor(LowLevelMemoryAccessor delegate) {
+    super(delegate);
+    for (int i = 0; i < liveBlocks.length; i++) {
+      liveBlocks[i] = new LongAdder();
+    }
+  }
+
+  /** Returns the block size of each size class, in ascending order. */
+  public static int[] sizeClasses() {
+    return SIZES.clone();
+  }
+
+  private ThreadCache newCache() {
+    ThreadCache cache = new ThreadCache();
+    threadCaches.add(cache);
+    return cache;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException if the pool has been closed
+   */
+  @Override
+  public long allocateMemory(long bytes) {
+    if (closed) {
+      throw new IllegalStateException("Pool is closed");
+    }
+    if (bytes > MAX_SMALL_SIZE) {
+      return allocateLarge(bytes);
+    } else if (bytes <= 0) {
+      if (bytes < 0) {
+        throw new IllegalArgumentException("Negative size: " + bytes);
+      }
+      return 0;
+    }
+    int sizeClass = CLASS_BY_GRANULE[(int) ((bytes + 15) >>> 4)];
+    ThreadCache cache = caches.get();
+    Slab slab = cache.current[sizeClass];
+    if (slab == null || !hasFreeBlock(slab)) {
+      slab = refill(cache, sizeClass);
+    }
+    liveBlocks[sizeClass].increment();
+    return allocateFrom(slab);
+  }
+
+  private static boolean hasFreeBlock(Slab slab) {
+    return slab.localFree != 0 || slab.cursor < slab.limit;
+  }
+
+  private long allocateFrom(Slab slab) {
+    slab.used++;
+    long block = slab.localFree;
+    if (block != 0) {
+      slab.localFree = delegate.getLong(null, block);
+      return block;
+    }
+    block = slab.cursor;
+    slab.cursor = block + slab.blockSize;
+    return block;
+  }
+
+  /** Returns a slab of the given size class, owned by the current thread, with a free block. */
+  private Slab refill(ThreadCache cache, int sizeClass) {
+    Slab current = cache.current[sizeClass];
+    if (current != null) {
+      collectRemoteFrees(current);
+      if (hasFreeBlock(current)) {
+        return current;
+      }
+      retire(current);
+      cache.current[sizeClass] = null;
+    }
+    Slab pending;
+    while ((pending = cache.pending.poll()) != null) {
+      pending.full = false;
+      makeAvailable(cache, pending);
+    }
+    Slab slab = takeAvailable(cache, sizeClass);
+    if (slab != null) {
+      return slab;
+    }
+    adoptOrphans(cache);
+    slab = takeAvailable(cache, sizeClass);
+    if (slab != null) {
+      return slab;
+    }
+    slab = freeSlabs.poll();
+    if (slab == null) {
+      slab = newSlab();
+    }
+    assign(slab, cache, sizeClass);
+    cache.current[sizeClass] = slab;
+    return slab;
+  }
+
+  /** Adds a slab that isn't full to the cache's available queue, or releases it if it's empty. */
+  private void makeAvailable(ThreadCache cache, Slab slab) {
+    collectRemoteFrees(slab);
+    if (slab.used == 0) {
+      release(slab);
+    } else {
+      slab.available = true;
+      cache.available.get(slab.sizeClass).add(slab);
+    }
+  }
+
+  /** Makes the first available slab of the given size class with a free block current. */
+  private Slab takeAvailable(ThreadCache cache, int sizeClass) {
+    Slab slab;
+    while ((slab = cache.available.get(sizeClass).poll()) != null) {
+      slab.available = false;
+      collectRemoteFrees(slab);
+      if (hasFreeBlock(slab)) {
+        cache.current[sizeClass] = slab;
+        return slab;
+      }
+      retire(slab);
+    }
+    return null;
+  }
+
+  /**
+   * Takes over the slabs of every thread that has exited, so that the blocks they left allocated
+   * don't pin them forever. Their empty slabs are released, and the rest are made available to the
+   * given cache, or for full ones, queued to it once a block is freed into them.
+   */
+  private void adoptOrphans(ThreadCache cache) {
+    for (ThreadCache orphan : threadCaches) {
+      // Only one thread removes it, and the owner's writes happen-before isAlive returns false
+      if (orphan.owner.isAlive() || !threadCaches.remove(orphan)) {
+        continue;
+      }
+      for (Slab slab : slabs) {
+        if (slab.cache != orphan) {
+          continue;
+        }
+        slab.owner = cache.owner;
+        // Other threads only read the cache of a full slab, and if one reads the orphan's, the
+        // slab is passed on through adoptedBy
+        slab.cache = cache;
+        if (!slab.full) {
+          slab.available = false;
+          makeAvailable(cache, slab);
+        }
+      }
+      // Takes the slabs queued to the orphan before this, while enqueue passes on those queued
+      // after
+      orphan.adoptedBy = cache;
+      Slab pending;
+      while ((pending = orphan.pending.poll()) != null) {
+        cache.pending.add(pending);
+      }
+    }
+  }
+
+  /**
+   * Marks a slab as full. After this, whoever first frees a block into it queues it to be taken
+   * back by {@link #refill}. The {@link Slab#queued} flag stays set from then until the slab is
+   * next retired, so that a slab is never queued twice, nor queued after it has been released.
+   */
+  private void retire(Slab slab) {
+    slab.queued.set(false);
+    slab.full = true;
+    // A remote free that raced with setting the flag may not have seen it
+    if (slab.remoteFree.get() != 0) {
+      enqueue(slab);
+    }
+  }
+
+  /** Called after freeing a block into a full slab. */
+  private static void enqueue(Slab slab) {
+    if (slab.queued.compareAndSet(false, true)) {
+      ThreadCache cache = slab.cache;
+      cache.pending.add(slab);
+      // If the cache was adopted after the slab was read, pass the slab on to the adopter
+      ThreadCache adopter;
+      while ((adopter = cache.adoptedBy) != null) {
+        Slab pending;
+        while ((pending = cache.pending.poll()) != null) {
+          adopter.pending.add(pending);
+        }
+        cache = adopter;
+      }
+    }
+  }
+
+  /** Moves the blocks that other threads have freed into the owner's free list. */
+  private void collectRemoteFrees(Slab slab) {
+    long head = slab.remoteFree.getAndSet(0);
+    if (head == 0) {
+      return;
+    }
+    int count = 1;
+    long tail = head;
+    long next;
+    while ((next = delegate.getLong(null, tail)) != 0) {
+      tail = next;
+      count++;
+    }
+    delegate.putLong(null, tail, slab.localFree);
+    slab.localFree = head;
+    slab.used -= count;
+  }
+
+  private void assign(Slab slab, ThreadCache cache, int sizeClass) {
+    slab.sizeClass = sizeClass;
+    slab.blockSize = SIZES[sizeClass];
+    slab.owner = Thread.currentThread();
+    slab.cache = cache;
+    slab.localFree = 0;
+    slab.cursor = slab.base + SLAB_HEADER;
+    slab.limit = slab.cursor + (SLAB_SIZE - SLAB_HEADER) / slab.blockSize * slab.blockSize;
+    slab.used = 0;
+    slab.available = false;
+    slabsInUse.incrementAndGet();
+  }
+
+  private void release(Slab slab) {
+    slab.owner = null;
+    slab.cache = null;
+    slab.full = false;
+    slabsInUse.decrementAndGet();
+    freeSlabs.add(slab);
+  }
+
+  /** Carves a new segment into slabs, and returns one of them. */
+  private synchronized Slab newSlab() {
+    Slab slab = freeSlabs.poll();
+    if (slab != null) {
+      return slab;
+    }
+    long segment = delegate.allocateMemory((SLABS_PER_SEGMENT + 1) * SLAB_SIZE);
+    segments.add(segment);
+    long first = (segment + SLAB_SIZE - 1) & -SLAB_SIZE;
+    long end = segment + (SLABS_PER_SEGMENT + 1) * SLAB_SIZE;
+    Slab[] newSlabs = slabs;
+    for (long base = first; base + SLAB_SIZE <= end; base += SLAB_SIZE) {
+      newSlabs = Arrays.copyOf(newSlabs, newSlabs.length + 1);
+      Slab added = new Slab(base, newSlabs.length - 1);
+      delegate.putInt(null, base, added.index);
+      newSlabs[added.index] = added;
+      if (slab == null) {
+        slab = added;
+      } else {
+        freeSlabs.add(added);
+      }
+    }
+    slabs = newSlabs;
+    return slab;
+  }
+
+  private long allocateLarge(long bytes) {
+    long raw = delegate.allocateMemory(bytes + LARGE_HEADER + 8);
+    long address = largeAddress(raw);
+    delegate.putLong(null, address - 16, bytes);
+    delegate.putLong(null, address - 8, raw);
+    largeBlocks.increment();
+    largeBytes.add(bytes);
+    return address;
+  }
+
+  /** Returns the address 8 bytes past a multiple of 16 at which a large block starts. */
+  private static long largeAddress(long raw) {
+    return (raw & 8) == 0 ? raw + LARGE_HEADER + 8 : raw + LARGE_HEADER;
+  }
+
+  private static boolean isLarge(long address) {
+    return (address & 8) != 0;
+  }
+
+  private Slab slabOf(long address) {
+    return slabs[delegate.getInt(null, address & -SLAB_SIZE)];
+  }
+
+  /** Does nothing for small blocks once the pool has been closed, since their slabs are gone. */
+  @Override
+  public void freeMemory(long address) {
+    if (address == 0) {
+      return;
+    } else if (isLarge(address)) {
+      largeBlocks.decrement();
+      largeBytes.add(-delegate.getLong(null, address - 16));
+      delegate.freeMemory(delegate.getLong(null, address - 8));
+      return;
+    } else if (closed) {
+      return;
+    }
+    Slab slab = slabOf(address);
+    liveBlocks[slab.sizeClass].decrement();
+    if (slab.owner == Thread.currentThread()) {
+      delegate.putLong(null, address, slab.localFree);
+      slab.localFree = address;
+      slab.used--;
+    } else {
+      AtomicLong remoteFree = slab.remoteFree;
+      long head;
+      do {
+        head = remoteFree.get();
+        delegate.putLong(null, address, head);
+      } while (!remoteFree.compareAndSet(head, address));
+    }
+    if (slab.full) {
+      enqueue(slab);
+    }
+  }
+
+  @Override
+  public long reallocateMemory(long address, long bytes) {
+    if (address == 0) {
+      return allocateMemory(bytes);
+    } else if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    } else if (bytes == 0) {
+      freeMemory(address);
+      return 0;
+    }
+    long oldSize;
+    if (isLarge(address)) {
+      oldSize = delegate.getLong(null, address - 16);
+      if (bytes > MAX_SMALL_SIZE) {
+        long oldRaw = delegate.getLong(null, address - 8);
+        long raw = delegate.reallocateMemory(oldRaw, bytes + LARGE_HEADER + 8);
+        long moved = raw + (address - oldRaw);
+        long newAddress = largeAddress(raw);
+        if (newAddress != moved) {
+          delegate.copyMemory(moved, newAddress, Math.min(oldSize, bytes));
+        }
+        delegate.putLong(null, newAddress - 16, bytes);
+        delegate.putLong(null, newAddress - 8, raw);
+        largeBytes.add(bytes - oldSize);
+        return newAddress;
+      }
+    } else {
+      oldSize = SIZES[slabOf(address).sizeClass];
+      if (bytes <= oldSize && bytes > oldSize / 2) {
+        return address;
+      }
+    }
+    long newAddress = allocateMemory(bytes);
+    delegate.copyMemory(address, newAddress, Math.min(oldSize, bytes));
+    freeMemory(address);
+    return newAddress;
+  }
+
+  /**
+   * Returns a snapshot of how much memory this allocator has reserved and how much of it is in use.
+   * The counts are updated without locking, so they may be slightly inconsistent with each other
+   * while other threads are allocating.
+   */
+  public PoolStatistics statistics() {
+    long[] blocks = new long[SIZES.length];
+    long smallBytes = 0;
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = liveBlocks[i].sum();
+      smallBytes += blocks[i] * SIZES[i];
+    }
+    int segmentCount;
+    synchronized (this) {
+      segmentCount = segments.size();
+    }
+    return new PoolStatistics(segmentCount * (SLABS_PER_SEGMENT + 1) * SLAB_SIZE,
+        slabsInUse.get() * SLAB_SIZE, smallBytes, SIZES.clone(), blocks, largeBlocks.sum(),
+        largeBytes.sum());
+  }
+
+  /**
+   * Returns every segment to the underlying accessor. Blocks from {@link #allocateMemory} that are
+   * no larger than {@value #MAX_SMALL_SIZE} bytes must not be used afterwards; larger ones must
+   * still be freed with {@link #freeMemory}. Allocating afterwards throws
+   * {@link IllegalStateException}.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    threadCaches.clear();
+    for (long segment : segments) {
+      delegate.freeMemory(segment);
+    }
+    segments.clear();
+    slabs = new Slab[0];
+    freeSlabs.clear();
+    slabsInUse.set(0);
+  }
+
+}
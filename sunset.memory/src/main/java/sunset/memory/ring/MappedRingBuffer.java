@@ -0,0 +1,219 @@
+package sunset.memory.ring;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.MappedRegion;
+import sunset.memory.MemoryMapper;
+
+/**
+ * An {@link MpscRingBuffer} in a memory-mapped file, through which processes on the same host pass
+ * messages without system calls: any number of producers, in any number of processes, claim slots
+ * with {@link LowLevelMemoryAccessor#compareAndSwapLong} and publish them with
+ * {@link LowLevelMemoryAccessor#putOrderedLong}, and one consumer reads them. A reply channel is a
+ * second file.
+ * <p>
+ * The first process to open a file initializes it: it claims the header with a CAS, writes the
+ * capacity and slot size, then publishes a magic number, so that processes opening the file at the
+ * same time wait for it, and processes opening it later check that they agree on its layout. All
+ * of the ring buffer's state is in the file, so a consumer that crashes can be restarted, and
+ * carries on from the first message it didn't finish handling. A producer that crashes between
+ * {@link #tryClaim} and {@link #commit} would block the consumer at the slot it claimed forever, so
+ * once the consumer has waited on a claimed slot for the unblock timeout, it marks the slot as
+ * skipped and moves on. It then skips, without waiting again, every other uncommitted slot that had
+ * been claimed when it started waiting, so a producer that crashes holding many slots costs one
+ * timeout rather than one per slot. A producer that is still alive but was stalled for that long,
+ * such as by a long GC pause, loses its message, and may write it over the message of a producer
+ * that has since claimed the slot, so the timeout should be well above such pauses.
+ */
+public class MappedRingBuffer extends MpscRingBuffer {
+
+  /** How long the consumer waits on a claimed slot by default before skipping it. */
+  public static final long DEFAULT_UNBLOCK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  // The header is in the bytes that RingBuffer leaves free before its first counter
+  private static final int STATE = 0;
+  private static final int CAPACITY = 8;
+  private static final int SLOT_SIZE = 12;
+  private static final long INITIALIZING = 1;
+  /** "SUNRING1", which also identifies the layout. */
+  private static final long MAGIC = 0x53554E52494E4731L;
+  private static final long INIT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private final MappedRegion region;
+  private final long unblockTimeoutNanos;
+  /**
+   * The producers' claim sequence when the consumer last started waiting on a slot claimed but not
+   * committed, at {@link #stalledSince}; the slots below it were all claimed by then.
+   */
+  private long stalledClaim;
+  private long stalledSince;
+
+  /**
+   * Opens a ring buffer in the given file with {@link LowLevelMemoryAccessor#getInstance()} and
+   * {@link MemoryMapper#getInstance()}, creating the file if it doesn't exist.
+   *
+   * @see #open(LowLevelMemoryAccessor, MemoryMapper, Path, int, int, long)
+   */
+  public static MappedRingBuffer open(Path file, int capacity, int slotSize) throws IOException {
+    return open(LowLevelMemoryAccessor.getInstance(), MemoryMapper.getInstance(), file, capacity,
+        slotSize, DEFAULT_UNBLOCK_TIMEOUT_NANOS);
+  }
+
+  /**
+   * Opens a ring buffer in the given file, creating the file if it doesn't exist.
+   *
+   * @param capacity number of slots, a power of two
+   * @param slotSize bytes per slot including its 16-byte header, a power of two of at least 32
+   * @param unblockTimeoutNanos how long the consumer waits on a claimed slot before skipping it,
+   *     or {@link Long#MAX_VALUE} to wait forever
+   * @throws IllegalArgumentException if the file holds something other than a ring buffer with the
+   *     given capacity and slot size
+   * @throws IllegalStateException if another process started initializing the file, and didn't
+   *     finish in 5 seconds, in which case it has probably crashed, and the file must be deleted
+   * @throws IOException if the file can't be mapped
+   */
+  public static MappedRingBuffer open(LowLevelMemoryAccessor accessor, MemoryMapper mapper,
+      Path file, int capacity, int slotSize, long unblockTimeoutNanos) throws IOException {
+    MappedRegion region = mapper.map(file, MapMode.READ_WRITE, size(capacity, slotSize));
+    try {
+      return new MappedRingBuffer(accessor, region, capacity, slotSize, unblockTimeoutNanos);
+    } catch (RuntimeException | Error e) {
+      region.unmap();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a ring buffer in the given region, initializing it if it is zeroed, which then belongs
+   * to the ring buffer. Only a {@link MapMode#READ_WRITE} region of a file is shared with other
+   * processes.
+   *
+   * @throws IllegalArgumentException as for {@link #open}, or if the region is too small or
+   *     read-only
+   * @throws IllegalStateException as for {@link #open}
+   */
+  public MappedRingBuffer(LowLevelMemoryAccessor accessor, MappedRegion region, int capacity,
+      int slotSize, long unblockTimeoutNanos) {
+    super(accessor, attach(accessor, region, capacity, slotSize), capacity, slotSize);
+    if (unblockTimeoutNanos <= 0) {
+      throw new IllegalArgumentException("Unblock timeout is not positive: " + unblockTimeoutNanos);
+    }
+    this.region = region;
+    this.unblockTimeoutNanos = unblockTimeoutNanos;
+  }
+
+  /** Initializes or checks the header, and returns the address of the ring buffer. */
+  private static long attach(LowLevelMemoryAccessor accessor, MappedRegion region, int capacity,
+      int slotSize) {
+    long bytes = size(capacity, slotSize);
+    if (region.size() < bytes) {
+      throw new IllegalArgumentException("Region of " + region.size() + " bytes is too small for "
+          + bytes + " bytes");
+    }
+    if (region.mode() == MapMode.READ_ONLY) {
+      throw new IllegalArgumentException("Region is read-only");
+    }
+    long base = region.address();
+    if (accessor.compareAndSwapLong(null, base + STATE, 0, INITIALIZING)) {
+      accessor.putInt(null, base + CAPACITY, capacity);
+      accessor.putInt(null, base + SLOT_SIZE, slotSize);
+      accessor.putOrderedLong(null, base + STATE, MAGIC);
+      return base;
+    }
+    long deadline = System.nanoTime() + INIT_TIMEOUT_NANOS;
+    long state;
+    while ((state = accessor.getLongVolatile(null, base + STATE)) == INITIALIZING) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new IllegalStateException(
+            "Ring buffer is still being initialized by another process");
+      }
+      Thread.yield();
+    }
+    if (state != MAGIC) {
+      throw new IllegalArgumentException("Not a ring buffer: header " + Long.toHexString(state));
+    }
+    int actualCapacity = accessor.getInt(null, base + CAPACITY);
+    int actualSlotSize = accessor.getInt(null, base + SLOT_SIZE);
+    if (actualCapacity != capacity || actualSlotSize != slotSize) {
+      throw new IllegalArgumentException("Ring buffer has capacity " + actualCapacity
+          + " and slot size " + actualSlotSize + ", not " + capacity + " and " + slotSize);
+    }
+    return base;
+  }
+
+  @Override
+  int published(long head, int limit) {
+    int count = 0;
+    while (count < limit) {
+      long expected = head + count + 1;
+      long marker = accessor.getLongVolatile(null, slot(head + count) + SLOT_SEQUENCE);
+      if (marker != expected && marker != -expected) {
+        if (!unblock(head + count)) {
+          break;
+        }
+        // The slot is now either committed or skipped
+        continue;
+      }
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Marks the uncommitted slot at the given sequence as skipped if it has been claimed for longer
+   * than the timeout, and returns whether it can now be freed.
+   */
+  private boolean unblock(long sequence) {
+    long claimed = accessor.getLongVolatile(null, base + PRODUCER_CLAIM);
+    if (claimed <= sequence) {
+      // Not claimed yet
+      return false;
+    }
+    long now = System.nanoTime();
+    if (sequence >= stalledClaim) {
+      // Claimed since the last stall began, so start timing a new one
+      stalledClaim = claimed;
+      stalledSince = now;
+      return false;
+    }
+    if (now - stalledSince < unblockTimeoutNanos) {
+      return false;
+    }
+    long marker = slot(sequence) + SLOT_SEQUENCE;
+    // If this fails, the producer has just committed the slot, which can then be read
+    accessor.compareAndSwapLong(
+        null, marker, accessor.getLongVolatile(null, marker), -(sequence + 1));
+    return true;
+  }
+
+  @Override
+  boolean skipped(long slot) {
+    return accessor.getLongVolatile(null, slot + SLOT_SEQUENCE) < 0;
+  }
+
+  /** Returns the region the ring buffer is in, which must not be resized. */
+  public MappedRegion region() {
+    return region;
+  }
+
+  /**
+   * Unmaps the region, leaving the ring buffer in the file for other processes. No thread in this
+   * process may use the ring buffer afterwards.
+   *
+   * @throws UncheckedIOException if the region can't be unmapped
+   */
+  @Override
+  public void close() {
+    try {
+      region.unmap();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
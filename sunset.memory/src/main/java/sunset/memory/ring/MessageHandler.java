@@ -0,0 +1,16 @@
+package sunset.memory.ring;
+
+/** Receives messages read from a {@link RingBuffer}, in place. */
+@FunctionalInterface
+public interface MessageHandler {
+
+  /**
+   * Handles one message. The message's bytes are only valid until this method returns, after which
+   * the producer may overwrite them.
+   *
+   * @param address native address of the first byte of the message
+   * @param length length of the message in bytes
+   */
+  void onMessage(long address, int length);
+
+}
@@ -0,0 +1,70 @@
+package sunset.memory.ring;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A {@link RingBuffer} with any number of producer threads. Producers claim slots by advancing a
+ * shared counter with {@link LowLevelMemoryAccessor#compareAndSwapLong}, and publish each slot by
+ * writing its sequence number into the slot header with
+ * {@link LowLevelMemoryAccessor#putOrderedLong}, so that producers commit independently of each
+ * other. The consumer stops at the first slot that
+ * hasn't been committed yet.
+ */
+public class MpscRingBuffer extends RingBuffer {
+
+  /** Creates a ring buffer in memory from the default {@link LowLevelMemoryAccessor}. */
+  public MpscRingBuffer(int capacity, int slotSize) {
+    this(LowLevelMemoryAccessor.getInstance(), capacity, slotSize);
+  }
+
+  /**
+   * Creates a ring buffer in memory from the given accessor.
+   *
+   * @param capacity number of slots, a power of two
+   * @param slotSize bytes per slot including its 16-byte header, a power of two of at least 32
+   */
+  public MpscRingBuffer(LowLevelMemoryAccessor accessor, int capacity, int slotSize) {
+    super(accessor, capacity, slotSize);
+  }
+
+  /** Creates a ring buffer in the given memory, which the caller owns. */
+  MpscRingBuffer(LowLevelMemoryAccessor accessor, long base, int capacity, int slotSize) {
+    super(accessor, base, capacity, slotSize);
+  }
+
+  @Override
+  public long tryClaim(int count) {
+    if (count <= 0 || count > capacity) {
+      throw new IllegalArgumentException("Count not in [1, " + capacity + "]: " + count);
+    }
+    long claim = base + PRODUCER_CLAIM;
+    while (true) {
+      long sequence = accessor.getLongVolatile(null, claim);
+      if (sequence + count - consumerSequence() > capacity) {
+        return -1;
+      }
+      if (accessor.compareAndSwapLong(null, claim, sequence, sequence + count)) {
+        return sequence;
+      }
+    }
+  }
+
+  @Override
+  public void commit(long sequence, int count) {
+    for (long end = sequence + count; sequence < end; sequence++) {
+      // Adding 1 keeps a zeroed header from looking like sequence 0
+      accessor.putOrderedLong(null, slot(sequence) + SLOT_SEQUENCE, sequence + 1);
+    }
+  }
+
+  @Override
+  int published(long head, int limit) {
+    int count = 0;
+    while (count < limit
+        && accessor.getLongVolatile(null, slot(head + count) + SLOT_SEQUENCE) == head + count + 1) {
+      count++;
+    }
+    return count;
+  }
+
+}
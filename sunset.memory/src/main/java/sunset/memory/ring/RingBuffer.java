@@ -0,0 +1,290 @@
+package sunset.memory.ring;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A bounded queue of byte messages between threads, whose slots and counters are in native memory.
+ * Each slot holds one message of up to {@link #maxMessageLength()} bytes. There is a single
+ * consumer; whether there can be more than one producer depends on the subclass.
+ * <p>
+ * Producers write in place: {@link #tryClaim} reserves one or more consecutive slots, the producer
+ * writes each message at {@link #address} and records its length with {@link #setLength}, and
+ * {@link #commit} publishes the slots to the consumer with
+ * {@link LowLevelMemoryAccessor#putOrderedLong}. {@link #offer} does all of that for one message
+ * copied from elsewhere. The consumer's {@link #read} passes each message to a
+ * {@link MessageHandler} without copying it. {@link #put} and the three-argument {@link #read}
+ * wait for a free slot or a message with a {@link WaitStrategy}.
+ * <p>
+ * The counters are 128 bytes apart, so that producers and the consumer don't falsely share cache
+ * lines. Each slot starts with a 16-byte header; the message follows it.
+ */
+public abstract class RingBuffer implements AutoCloseable {
+
+  /** Padding between counters, which is two cache lines to defeat adjacent-line prefetching. */
+  static final int COUNTER_SPACING = 128;
+  static final int PRODUCER_CLAIM = COUNTER_SPACING;
+  static final int PRODUCER_COMMIT = 2 * COUNTER_SPACING;
+  static final int CONSUMER = 3 * COUNTER_SPACING;
+  static final int HEADER_SIZE = 4 * COUNTER_SPACING;
+  /** Offset of the slot's sequence marker, which is only used by some subclasses. */
+  static final int SLOT_SEQUENCE = 0;
+  static final int SLOT_LENGTH = 8;
+  static final int SLOT_HEADER_SIZE = 16;
+
+  final LowLevelMemoryAccessor accessor;
+  final long base;
+  final long slots;
+  final int capacity;
+  final int slotShift;
+  final long mask;
+  private final int maxMessageLength;
+  private final long byteArrayBase;
+  /** Whether the memory was allocated by the ring buffer, and is freed by {@link #close}. */
+  private final boolean ownsMemory;
+  private boolean closed;
+  /** Consumer's next sequence, mirrored in native memory at {@link #CONSUMER}. */
+  private long head;
+
+  /**
+   * Creates a ring buffer.
+   *
+   * @param capacity number of slots, a power of two
+   * @param slotSize bytes per slot including its 16-byte header, a power of two of at least 32
+   */
+  RingBuffer(LowLevelMemoryAccessor accessor, int capacity, int slotSize) {
+    this(accessor, allocate(accessor, size(capacity, slotSize)), capacity, slotSize, true);
+  }
+
+  /**
+   * Creates a ring buffer in the given memory, which is at least {@link #size} bytes, and is either
+   * zeroed or holds a ring buffer of the same capacity and slot size. The memory isn't freed by
+   * {@link #close}.
+   */
+  RingBuffer(LowLevelMemoryAccessor accessor, long base, int capacity, int slotSize) {
+    this(accessor, base, capacity, slotSize, false);
+  }
+
+  private RingBuffer(LowLevelMemoryAccessor accessor, long base, int capacity, int slotSize,
+      boolean ownsMemory) {
+    size(capacity, slotSize);
+    this.accessor = accessor;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.slotShift = Integer.numberOfTrailingZeros(slotSize);
+    this.maxMessageLength = slotSize - SLOT_HEADER_SIZE;
+    this.byteArrayBase = accessor.arrayBaseOffset(byte[].class);
+    this.base = base;
+    this.slots = base + HEADER_SIZE;
+    this.head = accessor.getLongVolatile(null, base + CONSUMER);
+    this.ownsMemory = ownsMemory;
+  }
+
+  /**
+   * Returns the number of bytes of memory a ring buffer with the given capacity and slot size
+   * takes.
+   *
+   * @throws IllegalArgumentException if either isn't valid
+   */
+  static long size(int capacity, int slotSize) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity is not a power of two: " + capacity);
+    }
+    if (slotSize < 2 * SLOT_HEADER_SIZE || Integer.bitCount(slotSize) != 1) {
+      throw new IllegalArgumentException("Slot size is not a power of two >= 32: " + slotSize);
+    }
+    return HEADER_SIZE + ((long) capacity << Integer.numberOfTrailingZeros(slotSize));
+  }
+
+  private static long allocate(LowLevelMemoryAccessor accessor, long bytes) {
+    long address = accessor.allocateMemory(bytes);
+    accessor.setMemory(address, bytes, (byte) 0);
+    return address;
+  }
+
+  /** Returns the number of slots. */
+  public int capacity() {
+    return capacity;
+  }
+
+  /** Returns the largest message a slot can hold. */
+  public int maxMessageLength() {
+    return maxMessageLength;
+  }
+
+  /** Returns the address of the header of the slot for the given sequence. */
+  final long slot(long sequence) {
+    return slots + ((sequence & mask) << slotShift);
+  }
+
+  /** Returns the address at which to write the message for the given claimed sequence. */
+  public final long address(long sequence) {
+    return slot(sequence) + SLOT_HEADER_SIZE;
+  }
+
+  /** Records the length of the message written for the given claimed sequence. */
+  public final void setLength(long sequence, int length) {
+    if (length < 0 || length > maxMessageLength) {
+      throw new IllegalArgumentException(
+          "Message length " + length + " not in [0, " + maxMessageLength + "]");
+    }
+    accessor.putInt(null, slot(sequence) + SLOT_LENGTH, length);
+  }
+
+  /**
+   * Reserves the given number of consecutive slots, and returns the sequence of the first, or -1 if
+   * there aren't that many free. The slots must then be {@link #commit committed}, even if they
+   * turn out not to be needed (with a length of 0).
+   */
+  public abstract long tryClaim(int count);
+
+  /**
+   * Publishes the given number of slots, starting at the given sequence, which must have been
+   * returned by {@link #tryClaim} for the same count.
+   */
+  public abstract void commit(long sequence, int count);
+
+  /**
+   * Copies a message into the next free slot and publishes it. Returns false if there is no free
+   * slot.
+   */
+  public boolean offer(byte[] message, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > message.length - length) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length "
+              + message.length);
+    }
+    return offer(message, byteArrayBase + offset, length);
+  }
+
+  /**
+   * Copies a message from native memory into the next free slot and publishes it. Returns false
+   * if there is no free slot.
+   */
+  public boolean offer(long address, int length) {
+    return offer(null, address, length);
+  }
+
+  /**
+   * Copies a message into the next free slot and publishes it, waiting with the given strategy
+   * while there is no free slot.
+   */
+  public void put(byte[] message, int offset, int length, WaitStrategy waitStrategy) {
+    for (int attempt = 0; !offer(message, offset, length); attempt++) {
+      waitStrategy.idle(attempt);
+    }
+  }
+
+  /**
+   * Copies a message from native memory into the next free slot and publishes it, waiting with the
+   * given strategy while there is no free slot.
+   */
+  public void put(long address, int length, WaitStrategy waitStrategy) {
+    for (int attempt = 0; !offer(address, length); attempt++) {
+      waitStrategy.idle(attempt);
+    }
+  }
+
+  private boolean offer(Object srcBase, long srcOffset, int length) {
+    if (length < 0 || length > maxMessageLength) {
+      throw new IllegalArgumentException(
+          "Message length " + length + " not in [0, " + maxMessageLength + "]");
+    }
+    long sequence = tryClaim(1);
+    if (sequence < 0) {
+      return false;
+    }
+    accessor.copyMemory(srcBase, srcOffset, null, address(sequence), length);
+    accessor.putInt(null, slot(sequence) + SLOT_LENGTH, length);
+    commit(sequence, 1);
+    return true;
+  }
+
+  /**
+   * Returns how many slots from the given sequence on have been published, up to the given limit.
+   * Called only by the consumer.
+   */
+  abstract int published(long head, int limit);
+
+  /**
+   * Returns true if the given published slot holds no message, and is only to be freed. Called only
+   * by the consumer.
+   */
+  boolean skipped(long slot) {
+    return false;
+  }
+
+  /** Returns the consumer's next sequence, for producers to check for free slots against. */
+  final long consumerSequence() {
+    return accessor.getLongVolatile(null, base + CONSUMER);
+  }
+
+  /**
+   * Passes up to the given number of published messages to the given handler, in order, then frees
+   * their slots. Returns the number of messages read. Slots that a {@link MappedRingBuffer} skipped
+   * for crashed producers are freed too, and count towards the limit but not the result. Must only
+   * be called by the consumer thread.
+   */
+  public int read(MessageHandler handler, int limit) {
+    int count = published(head, limit);
+    if (count == 0) {
+      return 0;
+    }
+    int messages = 0;
+    long sequence = head;
+    try {
+      for (long end = head + count; sequence < end; sequence++) {
+        long slot = slot(sequence);
+        if (!skipped(slot)) {
+          handler.onMessage(slot + SLOT_HEADER_SIZE, accessor.getInt(null, slot + SLOT_LENGTH));
+          messages++;
+        }
+      }
+    } finally {
+      // If the handler threw, the message it threw on counts as read
+      head = Math.min(sequence + 1, head + count);
+      accessor.putOrderedLong(null, base + CONSUMER, head);
+    }
+    return messages;
+  }
+
+  /**
+   * Passes up to the given number of published messages to the given handler like
+   * {@link #read(MessageHandler, int)}, waiting with the given strategy until there is at least
+   * one. Returns the number of messages read. Must only be called by the consumer thread.
+   *
+   * @throws IllegalArgumentException if the limit isn't positive
+   */
+  public int read(MessageHandler handler, int limit, WaitStrategy waitStrategy) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit is not positive: " + limit);
+    }
+    int count;
+    for (int attempt = 0; (count = read(handler, limit)) == 0; attempt++) {
+      waitStrategy.idle(attempt);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of messages published and not yet read, counting skipped slots. Must only
+   * be called by the consumer thread.
+   */
+  public int size() {
+    return published(head, capacity);
+  }
+
+  /**
+   * Frees the native memory, if the ring buffer allocated it and it isn't already freed. No thread
+   * may use the ring buffer afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      if (ownsMemory) {
+        accessor.freeMemory(base);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+package sunset.memory.ring;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A {@link RingBuffer} with a single producer thread. The producer publishes a whole batch of slots
+ * with one {@link LowLevelMemoryAccessor#putOrderedLong} of its counter, and each side caches the
+ * other's counter so that it only reads the shared cache line when it appears to be out of room.
+ */
+public class SpscRingBuffer extends RingBuffer {
+
+  /** Producer's next sequence. */
+  private long tail;
+  /** Producer's last view of the consumer's sequence. */
+  private long cachedHead;
+  /** Consumer's last view of the producer's committed sequence. */
+  private long cachedTail;
+
+  /** Creates a ring buffer in memory from the default {@link LowLevelMemoryAccessor}. */
+  public SpscRingBuffer(int capacity, int slotSize) {
+    this(LowLevelMemoryAccessor.getInstance(), capacity, slotSize);
+  }
+
+  /**
+   * Creates a ring buffer in memory from the given accessor.
+   *
+   * @param capacity number of slots, a power of two
+   * @param slotSize bytes per slot including its 16-byte header, a power of two of at least 32
+   */
+  public SpscRingBuffer(LowLevelMemoryAccessor accessor, int capacity, int slotSize) {
+    super(accessor, capacity, slotSize);
+  }
+
+  @Override
+  public long tryClaim(int count) {
+    if (count <= 0 || count > capacity) {
+      throw new IllegalArgumentException("Count not in [1, " + capacity + "]: " + count);
+    }
+    long sequence = tail;
+    if (sequence + count - cachedHead > capacity) {
+      cachedHead = consumerSequence();
+      if (sequence + count - cachedHead > capacity) {
+        return -1;
+      }
+    }
+    tail = sequence + count;
+    return sequence;
+  }
+
+  @Override
+  public void commit(long sequence, int count) {
+    accessor.putOrderedLong(null, base + PRODUCER_COMMIT, sequence + count);
+  }
+
+  @Override
+  int published(long head, int limit) {
+    if (cachedTail - head < limit) {
+      cachedTail = accessor.getLongVolatile(null, base + PRODUCER_COMMIT);
+    }
+    return (int) Math.min(cachedTail - head, limit);
+  }
+
+}
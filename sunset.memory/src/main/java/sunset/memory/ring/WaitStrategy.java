@@ -0,0 +1,60 @@
+package sunset.memory.ring;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for a {@link RingBuffer} to have a free slot or a message. Spinning gives the
+ * lowest latency but burns a core; yielding lets other threads run on it; parking frees it, at the
+ * cost of a wake-up of tens of microseconds. Strategies keep no state, so one can be shared.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+  /**
+   * Waits a little before the caller checks again.
+   *
+   * @param attempt how many times in a row the caller has already waited, starting at 0
+   */
+  void idle(int attempt);
+
+  /** Returns a strategy that spins with {@link Thread#onSpinWait}. */
+  static WaitStrategy busySpin() {
+    return attempt -> Thread.onSpinWait();
+  }
+
+  /** Returns a strategy that calls {@link Thread#yield}. */
+  static WaitStrategy yielding() {
+    return attempt -> Thread.yield();
+  }
+
+  /** Returns a strategy that parks for the given number of nanoseconds. */
+  static WaitStrategy parking(long nanos) {
+    if (nanos <= 0) {
+      throw new IllegalArgumentException("Park time is not positive: " + nanos);
+    }
+    return attempt -> LockSupport.parkNanos(nanos);
+  }
+
+  /**
+   * Returns a strategy that spins for the given number of attempts, then yields for the given
+   * number, then parks for 1 microsecond, doubling up to the given maximum, so that a busy channel
+   * is served at spinning latency while an idle one costs little CPU.
+   */
+  static WaitStrategy backoff(int spins, int yields, long maxParkNanos) {
+    if (spins < 0 || yields < 0 || maxParkNanos <= 0) {
+      throw new IllegalArgumentException("Invalid backoff: " + spins + " spins, " + yields
+          + " yields, " + maxParkNanos + " ns");
+    }
+    return attempt -> {
+      if (attempt < spins) {
+        Thread.onSpinWait();
+      } else if (attempt - spins < yields) {
+        Thread.yield();
+      } else {
+        int doublings = Math.min(attempt - spins - yields, 40);
+        LockSupport.parkNanos(Math.min(1000L << doublings, maxParkNanos));
+      }
+    };
+  }
+
+}
@@ -0,0 +1,92 @@
+package sunset.memory.seqlock;
+
+import sunset.memory.LowLevelMemoryAccessor;
+
+/**
+ * A sequence lock over a version word in native memory, which lets a single writer update data in
+ * place while any number of readers read it without locks, CAS or writes to shared memory.
+ * <p>
+ * The version is even while the data is stable, and odd while it is being written.
+ * {@link #beginWrite} makes it odd with {@link LowLevelMemoryAccessor#putOrderedLong}, followed by
+ * a {@link LowLevelMemoryAccessor#storeFence} so that the writes to the data can't overtake it, and
+ * {@link #endWrite} makes it even again with another ordered store, which the writes to the data
+ * can't overtake either. A reader takes the version with {@link #beginRead}, reads the data, and
+ * calls {@link #validate}, which issues a {@link LowLevelMemoryAccessor#loadFence} so that the
+ * reads of the data can't be delayed past it, and checks that the version hasn't changed. If it
+ * has, the reader may have seen a mix of old and new data, and must discard what it read and try
+ * again, so it must not act on the data, such as by following addresses in it, before it is
+ * validated.
+ * <p>
+ * The version word is not owned by the lock: it can be anywhere in native memory, including memory
+ * shared with other processes, as long as it is 8-byte aligned and starts at 0 or another even
+ * number. There must only be one writer at a time.
+ */
+public final class SeqLock {
+
+  private final LowLevelMemoryAccessor accessor;
+  private final long address;
+
+  /** Creates a lock whose version word is at the given address. */
+  public SeqLock(LowLevelMemoryAccessor accessor, long address) {
+    if ((address & 7) != 0) {
+      throw new IllegalArgumentException("Version address is not 8-byte aligned: " + address);
+    }
+    this.accessor = accessor;
+    this.address = address;
+  }
+
+  /** Returns the address of the version word. */
+  public long address() {
+    return address;
+  }
+
+  /** Starts a write. Must only be called by the writer, and be followed by {@link #endWrite}. */
+  public void beginWrite() {
+    beginWrite(accessor, address);
+  }
+
+  /** Ends the write started by {@link #beginWrite}, publishing it to readers. */
+  public void endWrite() {
+    endWrite(accessor, address);
+  }
+
+  /**
+   * Waits until no write is in progress, and returns the version to pass to {@link #validate}
+   * after reading the data.
+   */
+  public long beginRead() {
+    return beginRead(accessor, address);
+  }
+
+  /**
+   * Returns true if the data read since the {@link #beginRead} call that returned the given version
+   * is consistent, or false if it may have changed in the meantime and must be read again.
+   */
+  public boolean validate(long version) {
+    return validate(accessor, address, version);
+  }
+
+  static void beginWrite(LowLevelMemoryAccessor accessor, long address) {
+    // Only the writer stores the version, so it can read it without a fence
+    accessor.putOrderedLong(null, address, accessor.getLong(null, address) + 1);
+    accessor.storeFence();
+  }
+
+  static void endWrite(LowLevelMemoryAccessor accessor, long address) {
+    accessor.putOrderedLong(null, address, accessor.getLong(null, address) + 1);
+  }
+
+  static long beginRead(LowLevelMemoryAccessor accessor, long address) {
+    long version;
+    while (((version = accessor.getLongVolatile(null, address)) & 1) != 0) {
+      Thread.onSpinWait();
+    }
+    return version;
+  }
+
+  static boolean validate(LowLevelMemoryAccessor accessor, long address, long version) {
+    accessor.loadFence();
+    return accessor.getLong(null, address) == version;
+  }
+
+}
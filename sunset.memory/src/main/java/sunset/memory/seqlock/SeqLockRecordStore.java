@@ -0,0 +1,178 @@
+package sunset.memory.seqlock;
+
+import sunset.memory.LowLevelMemoryAccessor;
+import sunset.memory.counter.StripedCells;
+
+/**
+ * A fixed number of fixed-size records in native memory, each guarded by its own {@link SeqLock},
+ * which a single writer updates in place and any number of readers read without locks or CAS.
+ * Unlike a {@link java.util.concurrent.locks.ReadWriteLock}, readers never write to shared memory,
+ * so they don't contend with each other for cache lines; a reader only retries if the writer
+ * updates the record it is reading in the meantime.
+ * <p>
+ * Each record is preceded by its version word, and starts on its own cache line, so that writes to
+ * one record don't slow down readers of its neighbours. The writer updates a record either in
+ * place, between {@link #beginWrite} and {@link #endWrite}, or by copying it in with
+ * {@link #write}. Readers either copy a consistent snapshot out with {@link #read}, or read fields
+ * in place between {@link #beginRead} and {@link #validate}, retrying until the latter returns
+ * true. Record indices are checked; addresses given for copying are not.
+ */
+public final class SeqLockRecordStore implements AutoCloseable {
+
+  /** Size of the version word before each record. */
+  private static final int VERSION_SIZE = 8;
+
+  private final LowLevelMemoryAccessor accessor;
+  private final long base;
+  private final int records;
+  private final int recordSize;
+  private final int strideShift;
+  private final long byteArrayBase;
+  private boolean closed;
+
+  /**
+   * Creates a store of the given number of records of the given size, which start zeroed.
+   *
+   * @throws IllegalArgumentException if either is negative, or the record size is 0
+   */
+  public SeqLockRecordStore(LowLevelMemoryAccessor accessor, int records, int recordSize) {
+    if (records < 0) {
+      throw new IllegalArgumentException("Negative number of records: " + records);
+    }
+    if (recordSize <= 0 || recordSize > (1 << 30) - VERSION_SIZE) {
+      throw new IllegalArgumentException("Record size out of range: " + recordSize);
+    }
+    int lineSize = StripedCells.cacheLineSize();
+    int stride = Math.max(lineSize, Integer.highestOneBit(VERSION_SIZE + recordSize - 1) << 1);
+    this.accessor = accessor;
+    this.records = records;
+    this.recordSize = recordSize;
+    this.strideShift = Integer.numberOfTrailingZeros(stride);
+    this.byteArrayBase = accessor.arrayBaseOffset(byte[].class);
+    long bytes = (long) records << strideShift;
+    this.base = accessor.allocateAligned(bytes, lineSize);
+    accessor.setMemory(base, bytes, (byte) 0);
+  }
+
+  /** Returns the number of records. */
+  public int records() {
+    return records;
+  }
+
+  /** Returns the size of each record. */
+  public int recordSize() {
+    return recordSize;
+  }
+
+  /** Returns the address of the version word of the given record. */
+  private long versionAddress(int record) {
+    if (record < 0 || record >= records) {
+      throw new IndexOutOfBoundsException(
+          "Record " + record + " out of bounds for " + records + " records");
+    }
+    return base + ((long) record << strideShift);
+  }
+
+  /**
+   * Returns the address of the given record, which is 8-byte aligned. Reads through it are only
+   * consistent when validated, and writes must be made between {@link #beginWrite} and
+   * {@link #endWrite}.
+   */
+  public long address(int record) {
+    return versionAddress(record) + VERSION_SIZE;
+  }
+
+  /**
+   * Starts an update of the given record in place, and returns its address. Must only be called by
+   * the writer, and be followed by {@link #endWrite} for the same record.
+   */
+  public long beginWrite(int record) {
+    long version = versionAddress(record);
+    SeqLock.beginWrite(accessor, version);
+    return version + VERSION_SIZE;
+  }
+
+  /** Ends the update of the given record started by {@link #beginWrite}, publishing it. */
+  public void endWrite(int record) {
+    SeqLock.endWrite(accessor, versionAddress(record));
+  }
+
+  /** Replaces the given record with {@link #recordSize} bytes copied from the given address. */
+  public void write(int record, long srcAddress) {
+    write(record, null, srcAddress);
+  }
+
+  /** Replaces the given record with {@link #recordSize} bytes copied from the given array. */
+  public void write(int record, byte[] src, int offset) {
+    checkArray(src, offset);
+    write(record, src, byteArrayBase + offset);
+  }
+
+  private void write(int record, Object srcBase, long srcOffset) {
+    long version = versionAddress(record);
+    SeqLock.beginWrite(accessor, version);
+    accessor.copyMemory(srcBase, srcOffset, null, version + VERSION_SIZE, recordSize);
+    SeqLock.endWrite(accessor, version);
+  }
+
+  /**
+   * Waits until no update of the given record is in progress, and returns the version to pass to
+   * {@link #validate} after reading the record at {@link #address}.
+   */
+  public long beginRead(int record) {
+    return SeqLock.beginRead(accessor, versionAddress(record));
+  }
+
+  /**
+   * Returns true if what was read from the given record since the {@link #beginRead} call that
+   * returned the given version is consistent, or false if it must be read again.
+   */
+  public boolean validate(int record, long version) {
+    return SeqLock.validate(accessor, versionAddress(record), version);
+  }
+
+  /**
+   * Copies a consistent snapshot of the given record to the given address, retrying while the
+   * writer updates it, and returns the version it was copied at.
+   */
+  public long read(int record, long destAddress) {
+    return read(record, null, destAddress);
+  }
+
+  /**
+   * Copies a consistent snapshot of the given record to the given array, retrying while the writer
+   * updates it, and returns the version it was copied at.
+   */
+  public long read(int record, byte[] dest, int offset) {
+    checkArray(dest, offset);
+    return read(record, dest, byteArrayBase + offset);
+  }
+
+  private long read(int record, Object destBase, long destOffset) {
+    long version = versionAddress(record);
+    while (true) {
+      long before = SeqLock.beginRead(accessor, version);
+      accessor.copyMemory(null, version + VERSION_SIZE, destBase, destOffset, recordSize);
+      if (SeqLock.validate(accessor, version, before)) {
+        return before;
+      }
+    }
+  }
+
+  private void checkArray(byte[] array, int offset) {
+    if (offset < 0 || offset > array.length - recordSize) {
+      throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + recordSize
+          + ") out of bounds for length " + array.length);
+    }
+  }
+
+  /** Frees the native memory, if not already freed. No thread may use the store afterwards. */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      accessor.freeAligned(base);
+    }
+  }
+
+}